@@ -0,0 +1,161 @@
+package com.inventario.inventario.carga;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.inventario.inventario.model.Inventario;
+
+// Generador de carga de modelo abierto: las llegadas siguen un proceso de Poisson con la tasa
+// indicada y cada petición sale a su hora aunque las anteriores no hayan respondido, como
+// clientes independientes (un modelo cerrado bajaría la tasa justo cuando el servidor se
+// atrasa). La semilla fija la secuencia de operaciones, inventarios y tiempos entre llegadas.
+// Las actualizaciones van a inventarios sembrados; las eliminaciones consumen un conjunto
+// sembrado aparte para que nunca respondan 404.
+public class GeneradorCarga implements AutoCloseable {
+
+    private final String base;
+    private final double tasa;
+    private final int maximoEnCurso;
+    private final SplittableRandom azar;
+    private final OperacionCarga[] ruleta;
+    private final List<Inventario> actualizables;
+    private final long[] eliminables;
+    private final List<String> ubicaciones;
+    private final ExecutorService ejecutor;
+    private final HttpClient cliente;
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private int siguienteEliminable;
+
+    public GeneradorCarga(String base, double tasa, int maximoEnCurso, long semilla,
+            Map<OperacionCarga, Integer> mezcla, List<Inventario> actualizables, long[] eliminables,
+            List<String> ubicaciones) {
+        this.base = base;
+        this.tasa = tasa;
+        this.maximoEnCurso = maximoEnCurso;
+        this.azar = new SplittableRandom(semilla);
+        this.ruleta = mezcla.entrySet().stream()
+                .flatMap(entrada -> Collections.nCopies(Math.max(entrada.getValue(), 0), entrada.getKey())
+                        .stream())
+                .toArray(OperacionCarga[]::new);
+        if (ruleta.length == 0) {
+            throw new IllegalArgumentException("La mezcla de carga no tiene operaciones con peso");
+        }
+        this.actualizables = actualizables;
+        this.eliminables = eliminables;
+        this.ubicaciones = ubicaciones;
+        this.ejecutor = Executors.newFixedThreadPool(4, tarea -> {
+            Thread hilo = new Thread(tarea, "generador-carga");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(ejecutor)
+                .build();
+    }
+
+    // Eliminaciones que puede hacer una corrida de la duración y mezcla dadas, con margen para
+    // la variación de las llegadas de Poisson
+    public static int eliminablesNecesarios(double tasa, Duration duracion, Map<OperacionCarga, Integer> mezcla) {
+        int pesoTotal = mezcla.values().stream().mapToInt(peso -> Math.max(peso, 0)).sum();
+        double esperadas = tasa * duracion.toMillis() / 1000.0 * mezcla.getOrDefault(OperacionCarga.ELIMINAR, 0)
+                / Math.max(pesoTotal, 1);
+        return (int) Math.ceil(esperadas * 1.2 + 5 * Math.sqrt(esperadas) + 10);
+    }
+
+    // Genera llegadas durante la duración y espera las respuestas pendientes (a lo más espera)
+    public ResultadoCarga ejecutar(Duration duracion, Duration espera) {
+        ResultadoCarga resultado = new ResultadoCarga();
+        long inicio = System.nanoTime();
+        long fin = inicio + duracion.toNanos();
+        long programada = inicio;
+        while (true) {
+            // Tiempo entre llegadas exponencial
+            programada += (long) (-Math.log(1 - azar.nextDouble()) * 1e9 / tasa);
+            if (programada >= fin) {
+                break;
+            }
+            OperacionCarga operacion = ruleta[azar.nextInt(ruleta.length)];
+            HttpRequest peticion = peticion(operacion);
+            esperarHasta(programada);
+            if (peticion == null || enCurso.get() >= maximoEnCurso) {
+                resultado.descartar(operacion);
+                continue;
+            }
+            enviar(operacion, peticion, programada, resultado);
+        }
+        long limite = System.nanoTime() + espera.toNanos();
+        while (enCurso.get() > 0 && System.nanoTime() < limite) {
+            LockSupport.parkNanos(10_000_000L);
+        }
+        resultado.terminar(duracion);
+        return resultado;
+    }
+
+    private void enviar(OperacionCarga operacion, HttpRequest peticion, long programada, ResultadoCarga resultado) {
+        enCurso.incrementAndGet();
+        cliente.sendAsync(peticion, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((respuesta, error) -> {
+                    resultado.registrar(operacion, System.nanoTime() - programada,
+                            respuesta == null ? 0 : respuesta.statusCode());
+                    enCurso.decrementAndGet();
+                });
+    }
+
+    // null si no quedan inventarios para eliminar
+    private HttpRequest peticion(OperacionCarga operacion) {
+        HttpRequest.Builder peticion;
+        switch (operacion) {
+            case LISTAR -> peticion = HttpRequest.newBuilder(URI.create(base + "?limite=100&stockMinimo="
+                    + (100 + azar.nextInt(400)))).GET();
+            case POR_UBICACION -> peticion = HttpRequest.newBuilder(URI.create(base + "/ubicacion/"
+                    + ubicaciones.get(azar.nextInt(ubicaciones.size())))).GET();
+            case CREAR -> peticion = HttpRequest.newBuilder(URI.create(base))
+                    .header("Content-Type", "application/json")
+                    .POST(cuerpo(1 + azar.nextInt(500), ubicaciones.get(azar.nextInt(ubicaciones.size()))));
+            case ACTUALIZAR -> {
+                Inventario inventario = actualizables.get(azar.nextInt(actualizables.size()));
+                peticion = HttpRequest.newBuilder(URI.create(base + "/" + inventario.getIdInventario()))
+                        .header("Content-Type", "application/json")
+                        .PUT(cuerpo(1 + azar.nextInt(500), inventario.getUbicacionBodega()));
+            }
+            case ELIMINAR -> {
+                if (siguienteEliminable >= eliminables.length) {
+                    return null;
+                }
+                peticion = HttpRequest.newBuilder(URI.create(base + "/" + eliminables[siguienteEliminable++]))
+                        .DELETE();
+            }
+            default -> throw new IllegalStateException("Operación sin petición: " + operacion);
+        }
+        return peticion.timeout(Duration.ofSeconds(30)).build();
+    }
+
+    private static HttpRequest.BodyPublisher cuerpo(int stock, String ubicacion) {
+        return HttpRequest.BodyPublishers.ofString(
+                "{\"stockDisponible\": " + stock + ", \"ubicacionBodega\": \"" + ubicacion + "\"}");
+    }
+
+    private static void esperarHasta(long nanos) {
+        for (long restante = nanos - System.nanoTime(); restante > 0; restante = nanos - System.nanoTime()) {
+            LockSupport.parkNanos(restante);
+        }
+    }
+
+    @Override
+    public void close() {
+        ejecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,139 @@
+package com.inventario.inventario.carga;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.service.InventarioService;
+import com.inventario.inventario.service.ResumenStockService;
+
+// Prueba de carga para ./mvnw -Pcarga verify: levanta la aplicación en un puerto libre sobre
+// la base H2 del perfil "carga", siembra carga.filas inventarios y genera la mezcla de
+// operaciones a carga.tasa peticiones por segundo. Imprime throughput, errores y percentiles
+// por operación, guarda el reporte y los histogramas en carga.reporte y falla si alguna
+// operación supera su SLO. Las propiedades carga.* se cambian con -D, por ejemplo
+// -Dcarga.tasa=500 -Dcarga.slo.p99.listar=100ms
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("carga")
+public class InventarioCargaIT {
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private ResumenStockService resumenStockService;
+
+    @Autowired
+    private Environment entorno;
+
+    @Value("${carga.filas:20000}")
+    private int filas;
+
+    @Value("${carga.bodegas:50}")
+    private int bodegas;
+
+    @Value("${carga.tasa:50}")
+    private double tasa;
+
+    @Value("${carga.calentamiento:5s}")
+    private Duration calentamiento;
+
+    @Value("${carga.duracion:30s}")
+    private Duration duracion;
+
+    @Value("${carga.maximo-en-curso:2000}")
+    private int maximoEnCurso;
+
+    @Value("${carga.semilla:42}")
+    private long semilla;
+
+    @Value("${carga.slo.errores-maximo:0.01}")
+    private double erroresMaximo;
+
+    @Value("${carga.reporte:target/carga}")
+    private Path reporte;
+
+    @Test
+    public void testCargaMixta_CumpleLosSlo() throws Exception {
+        Map<OperacionCarga, Integer> mezcla = new EnumMap<>(OperacionCarga.class);
+        Map<OperacionCarga, Duration> p99Maximo = new EnumMap<>(OperacionCarga.class);
+        for (OperacionCarga operacion : OperacionCarga.values()) {
+            mezcla.put(operacion, entorno.getProperty("carga.mezcla." + operacion.getNombre(), Integer.class, 0));
+            Duration maximo = entorno.getProperty("carga.slo.p99." + operacion.getNombre(), Duration.class);
+            if (maximo != null) {
+                p99Maximo.put(operacion, maximo);
+            }
+        }
+
+        List<String> ubicaciones = new ArrayList<>(bodegas);
+        for (int i = 0; i < bodegas; i++) {
+            ubicaciones.add("CARGA-" + i);
+        }
+        List<Inventario> actualizables = sembrar(filas, i -> ubicaciones.get(i % bodegas));
+        // Los inventarios a eliminar van en su propia ubicación para no cambiar los listados por ubicación
+        long[] eliminables = sembrar(
+                GeneradorCarga.eliminablesNecesarios(tasa, calentamiento.plus(duracion), mezcla),
+                i -> "CARGA-ELIMINABLES").stream()
+                .mapToLong(Inventario::getIdInventario)
+                .toArray();
+        resumenStockService.reconstruir();
+
+        ResultadoCarga resultado;
+        try (GeneradorCarga generador = new GeneradorCarga("http://localhost:" + puerto + "/api/v1/inventarios",
+                tasa, maximoEnCurso, semilla, mezcla, actualizables, eliminables, ubicaciones)) {
+            // El calentamiento compila en caliente y llena caches y pool; su resultado se descarta
+            generador.ejecutar(calentamiento, Duration.ofSeconds(30));
+            resultado = generador.ejecutar(duracion, Duration.ofSeconds(30));
+        }
+
+        ByteArrayOutputStream tabla = new ByteArrayOutputStream();
+        try (PrintStream salida = new PrintStream(tabla, true, StandardCharsets.UTF_8)) {
+            salida.printf("%d inventarios, %.0f peticiones/s, semilla %d%n", filas, tasa, semilla);
+            resultado.imprimir(salida);
+        }
+        String texto = tabla.toString(StandardCharsets.UTF_8);
+        System.out.println(texto);
+        Files.createDirectories(reporte);
+        Files.writeString(reporte.resolve("reporte.txt"), texto);
+        resultado.guardarHistogramas(reporte);
+
+        List<String> violaciones = resultado.violaciones(p99Maximo, erroresMaximo);
+        assertTrue(violaciones.isEmpty(), () -> "SLO superados:\n" + String.join("\n", violaciones));
+    }
+
+    private List<Inventario> sembrar(int cantidad, IntFunction<String> ubicacion) {
+        List<Inventario> inventarios = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            inventarios.add(new Inventario(0L, 100 + i % 500, ubicacion.apply(i), null));
+        }
+        long[] ids = inventarioService.cargarInventariosMasivo(inventarios.iterator()).getResultados().stream()
+                .mapToLong(item -> item.getIdInventario())
+                .toArray();
+        for (int i = 0; i < ids.length; i++) {
+            inventarios.get(i).setIdInventario(ids[i]);
+        }
+        return inventarios;
+    }
+}
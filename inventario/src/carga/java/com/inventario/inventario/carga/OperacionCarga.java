@@ -0,0 +1,22 @@
+package com.inventario.inventario.carga;
+
+// Operaciones de la mezcla de carga, con el nombre que usan las propiedades carga.mezcla.* y
+// carga.slo.p99.*
+public enum OperacionCarga {
+
+    LISTAR("listar"),
+    POR_UBICACION("por-ubicacion"),
+    CREAR("crear"),
+    ACTUALIZAR("actualizar"),
+    ELIMINAR("eliminar");
+
+    private final String nombre;
+
+    OperacionCarga(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+}
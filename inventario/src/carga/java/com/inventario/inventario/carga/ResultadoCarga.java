@@ -0,0 +1,148 @@
+package com.inventario.inventario.carga;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+// Latencias y conteos de una corrida por operación. Las latencias se registran desde los
+// hilos del cliente HTTP (ConcurrentHistogram) y se miden desde la hora programada de cada
+// petición, no desde que salió, así una demora del servidor no esconde la espera de las
+// peticiones que venían detrás (omisión coordinada).
+public class ResultadoCarga {
+
+    private static final long LATENCIA_MAXIMA = TimeUnit.MINUTES.toNanos(5);
+
+    private final Map<OperacionCarga, Estadistica> estadisticas = new EnumMap<>(OperacionCarga.class);
+    private Duration duracion = Duration.ZERO;
+
+    public ResultadoCarga() {
+        for (OperacionCarga operacion : OperacionCarga.values()) {
+            estadisticas.put(operacion, new Estadistica());
+        }
+    }
+
+    // estado 0 cuando no hubo respuesta (timeout, conexión rechazada)
+    void registrar(OperacionCarga operacion, long latenciaNanos, int estado) {
+        Estadistica estadistica = estadisticas.get(operacion);
+        estadistica.latencias.recordValue(Math.min(Math.max(latenciaNanos, 0), LATENCIA_MAXIMA));
+        if (estado >= 200 && estado < 300) {
+            estadistica.ok.increment();
+        } else {
+            estadistica.errores.increment();
+        }
+    }
+
+    // Petición que no se envió porque ya había maximo-en-curso esperando respuesta
+    void descartar(OperacionCarga operacion) {
+        Estadistica estadistica = estadisticas.get(operacion);
+        estadistica.descartadas.increment();
+        estadistica.errores.increment();
+    }
+
+    void terminar(Duration duracion) {
+        this.duracion = duracion;
+    }
+
+    public long peticiones(OperacionCarga operacion) {
+        Estadistica estadistica = estadisticas.get(operacion);
+        return estadistica.ok.sum() + estadistica.errores.sum();
+    }
+
+    public long errores(OperacionCarga operacion) {
+        return estadisticas.get(operacion).errores.sum();
+    }
+
+    public double tasaErrores(OperacionCarga operacion) {
+        long peticiones = peticiones(operacion);
+        return peticiones == 0 ? 0 : (double) errores(operacion) / peticiones;
+    }
+
+    public Duration percentil(OperacionCarga operacion, double percentil) {
+        return Duration.ofNanos(estadisticas.get(operacion).latencias.getValueAtPercentile(percentil));
+    }
+
+    // Tabla por operación y total; latencias en milisegundos
+    public void imprimir(PrintStream salida) {
+        salida.printf("%nCarga durante %d s%n", duracion.toSeconds());
+        salida.printf("%-14s %10s %9s %9s %8s %9s %9s %9s %9s %9s%n", "operación", "peticiones", "por seg",
+                "errores", "% error", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "máx ms");
+        Histogram total = new Histogram(LATENCIA_MAXIMA, 3);
+        long peticionesTotal = 0;
+        long erroresTotal = 0;
+        for (Map.Entry<OperacionCarga, Estadistica> entrada : estadisticas.entrySet()) {
+            Estadistica estadistica = entrada.getValue();
+            long peticiones = peticiones(entrada.getKey());
+            imprimirFila(salida, entrada.getKey().getNombre(), peticiones, estadistica.errores.sum(),
+                    estadistica.latencias);
+            total.add(estadistica.latencias);
+            peticionesTotal += peticiones;
+            erroresTotal += estadistica.errores.sum();
+        }
+        imprimirFila(salida, "total", peticionesTotal, erroresTotal, total);
+        long descartadas = estadisticas.values().stream().mapToLong(estadistica -> estadistica.descartadas.sum()).sum();
+        if (descartadas > 0) {
+            salida.printf("%d peticiones no se enviaron por superar maximo-en-curso (cuentan como errores)%n",
+                    descartadas);
+        }
+    }
+
+    private void imprimirFila(PrintStream salida, String nombre, long peticiones, long errores, Histogram latencias) {
+        double segundos = Math.max(duracion.toMillis(), 1) / 1000.0;
+        salida.printf("%-14s %10d %9.1f %9d %8.2f %9.1f %9.1f %9.1f %9.1f %9.1f%n", nombre, peticiones,
+                peticiones / segundos, errores, peticiones == 0 ? 0 : 100.0 * errores / peticiones,
+                latencias.getValueAtPercentile(50) / 1e6, latencias.getValueAtPercentile(90) / 1e6,
+                latencias.getValueAtPercentile(99) / 1e6, latencias.getValueAtPercentile(99.9) / 1e6,
+                latencias.getMaxValue() / 1e6);
+    }
+
+    // Un archivo .hgrm por operación con la distribución completa, para graficar o comparar
+    // corridas (HdrHistogram plotter)
+    public void guardarHistogramas(Path directorio) throws IOException {
+        Files.createDirectories(directorio);
+        for (Map.Entry<OperacionCarga, Estadistica> entrada : estadisticas.entrySet()) {
+            try (PrintStream salida = new PrintStream(
+                    Files.newOutputStream(directorio.resolve(entrada.getKey().getNombre() + ".hgrm")))) {
+                entrada.getValue().latencias.outputPercentileDistribution(salida, 1e6);
+            }
+        }
+    }
+
+    // Mensajes de las operaciones que superan su p99 o la fracción de errores permitida
+    public List<String> violaciones(Map<OperacionCarga, Duration> p99Maximo, double erroresMaximo) {
+        List<String> violaciones = new ArrayList<>();
+        for (OperacionCarga operacion : OperacionCarga.values()) {
+            if (peticiones(operacion) == 0) {
+                continue;
+            }
+            Duration p99 = percentil(operacion, 99);
+            Duration maximo = p99Maximo.get(operacion);
+            if (maximo != null && p99.compareTo(maximo) > 0) {
+                violaciones.add(String.format("%s: p99 %d ms supera el SLO de %d ms", operacion.getNombre(),
+                        p99.toMillis(), maximo.toMillis()));
+            }
+            if (tasaErrores(operacion) > erroresMaximo) {
+                violaciones.add(String.format("%s: %.2f%% de errores supera el SLO de %.2f%%",
+                        operacion.getNombre(), 100 * tasaErrores(operacion), 100 * erroresMaximo));
+            }
+        }
+        return violaciones;
+    }
+
+    private static final class Estadistica {
+        private final Histogram latencias = new ConcurrentHistogram(LATENCIA_MAXIMA, 3);
+        private final LongAdder ok = new LongAdder();
+        private final LongAdder errores = new LongAdder();
+        private final LongAdder descartadas = new LongAdder();
+    }
+}
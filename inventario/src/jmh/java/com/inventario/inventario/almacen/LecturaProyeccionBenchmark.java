@@ -0,0 +1,89 @@
+package com.inventario.inventario.almacen;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.inventario.inventario.benchmark.ContextoBenchmark;
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.entity.InventarioEntity;
+import com.inventario.inventario.repository.InventarioRepository;
+
+// Listado completo y listado por ubicación en una transacción de solo lectura: entidades
+// administradas convertidas con mapToModel (la ruta anterior) frente a la proyección directa
+// a Inventario. Mide la latencia promedio y sus percentiles; con -prof gc se compara la
+// asignación por operación.
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class LecturaProyeccionBenchmark {
+
+    @Param({ "entidades", "proyeccion" })
+    public String ruta;
+
+    // Con 50 bodegas, cada ubicación tiene filas / 50 inventarios
+    @Param({ "20000" })
+    public int filas;
+
+    private ConfigurableApplicationContext contexto;
+    private InventarioRepository repositorio;
+    private TransactionTemplate transaccionLectura;
+    private boolean proyeccion;
+    private int siguienteBodega;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar();
+        repositorio = contexto.getBean(InventarioRepository.class);
+        transaccionLectura = new TransactionTemplate(contexto.getBean(PlatformTransactionManager.class));
+        transaccionLectura.setReadOnly(true);
+        proyeccion = "proyeccion".equals(ruta);
+        ContextoBenchmark.cargarInventarios(contexto, filas);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<Inventario> listarTodos() {
+        return transaccionLectura.execute(estado -> proyeccion
+                ? repositorio.proyectarTodos()
+                : aModelos(repositorio.findAll()));
+    }
+
+    @Benchmark
+    public List<Inventario> listarPorUbicacion() {
+        String ubicacion = ContextoBenchmark.ubicacion(siguienteBodega++);
+        return transaccionLectura.execute(estado -> proyeccion
+                ? repositorio.proyectarPorUbicacion(ubicacion)
+                : aModelos(repositorio.findByUbicacionBodega(ubicacion)));
+    }
+
+    private static List<Inventario> aModelos(List<InventarioEntity> entidades) {
+        return entidades.stream()
+                .map(AlmacenJpa::mapToModel)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,47 @@
+package com.inventario.inventario.almacen;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.entity.InventarioEntity;
+
+// Conversiones entre Inventario e InventarioEntity, sin base de datos
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapeoBenchmark {
+
+    private Inventario inventario;
+    private InventarioEntity entidad;
+
+    @Setup
+    public void preparar() {
+        inventario = new Inventario(1L, 100, "BOD-1", LocalDateTime.now(), 3L);
+        entidad = AlmacenJpa.mapToEntity(inventario);
+    }
+
+    @Benchmark
+    public InventarioEntity mapToEntity() {
+        return AlmacenJpa.mapToEntity(inventario);
+    }
+
+    @Benchmark
+    public Inventario mapToModel() {
+        return AlmacenJpa.mapToModel(entidad);
+    }
+}
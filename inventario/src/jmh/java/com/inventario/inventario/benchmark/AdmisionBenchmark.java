@@ -0,0 +1,114 @@
+package com.inventario.inventario.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.inventario.inventario.admision.AdmisionInterceptor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Prueba de carga por HTTP: 48 clientes piden páginas de 1000 inventarios (con stockMinimo
+// al azar para no servirlas desde RespuestasCache) mientras 2 clientes ajustan stock. Tomcat
+// y el pool de conexiones se achican para que las lecturas los saturen; sin conexión en 2 s
+// la petición recibe 503. Comparar los
+// percentiles de escrituras (p0.99 en SampleTime) con y sin control de admisión; al cerrar se
+// imprimen las lecturas rechazadas con 503.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AdmisionBenchmark {
+
+    @Param({ "true", "false" })
+    public String admision;
+
+    @Param({ "20000" })
+    public int filas;
+
+    private ConfigurableApplicationContext contexto;
+    private HttpClient cliente;
+    private String base;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciarWeb("inventario.admision.activo=" + admision,
+                "inventario.admision.lectura.latencia-objetivo=100ms",
+                "server.tomcat.threads.max=32",
+                "spring.datasource.hikari.maximum-pool-size=8",
+                "spring.datasource.hikari.connection-timeout=2000");
+        ids = ContextoBenchmark.cargarInventarios(contexto, filas);
+        base = "http://localhost:" + ContextoBenchmark.puerto(contexto) + "/api/v1/inventarios";
+        cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        if ("true".equals(admision)) {
+            double rechazadas = contexto.getBean(MeterRegistry.class).find(AdmisionInterceptor.RECHAZADAS)
+                    .tag("compartimento", "lectura")
+                    .counters().stream()
+                    .mapToDouble(contador -> contador.count())
+                    .sum();
+            System.out.printf("%n  lecturas rechazadas con 503: %.0f%n", rechazadas);
+        }
+        contexto.close();
+    }
+
+    @Benchmark
+    @Group("carga")
+    @GroupThreads(48)
+    public int lecturas() throws Exception {
+        int stockMinimo = 100 + ThreadLocalRandom.current().nextInt(400);
+        return enviar(HttpRequest.newBuilder(URI.create(base + "?limite=1000&stockMinimo=" + stockMinimo))
+                .GET());
+    }
+
+    @Benchmark
+    @Group("carga")
+    @GroupThreads(2)
+    public int escrituras() throws Exception {
+        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        return enviar(HttpRequest.newBuilder(URI.create(base + "/" + id + "/stock"))
+                .header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"delta\": 1}")));
+    }
+
+    // Una petición sin respuesta a tiempo cuenta con su espera completa, no detiene la prueba
+    private int enviar(HttpRequest.Builder peticion) throws Exception {
+        try {
+            return cliente.send(peticion.timeout(Duration.ofSeconds(30)).build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (HttpTimeoutException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.inventario.inventario.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.inventario.inventario.almacen.AlmacenInventario;
+import com.inventario.inventario.almacen.ResultadoEscritura;
+import com.inventario.inventario.model.Inventario;
+
+// Compara los motores de almacenamiento directamente, sin cache ni servicio: lectura por id,
+// ajuste de stock y página por ubicación. Al preparar imprime los bytes de heap por fila
+// (heap usado después de la carga menos antes, tras un GC completo). En jpa incluye la base
+// H2 en memoria y Hibernate; en ambos incluye el índice de ubicaciones y el resumen, que
+// son iguales para los dos motores. Para memoria con registro en disco agregar
+// -p directorio=/tmp/almacen (vacío sin persistencia).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class AlmacenBenchmark {
+
+    @Param({ "jpa", "memoria" })
+    public String motor;
+
+    @Param({ "200000" })
+    public int filas;
+
+    @Param({ "" })
+    public String directorio;
+
+    private ConfigurableApplicationContext contexto;
+    private AlmacenInventario almacen;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar("inventario.almacen.motor=" + motor,
+                "inventario.almacen.memoria.directorio=" + directorio,
+                "inventario.almacen.memoria.capacidad-inicial=" + filas);
+        almacen = contexto.getBean(AlmacenInventario.class);
+        long antes = heapUsado();
+        ids = ContextoBenchmark.cargarInventarios(contexto, filas);
+        long despues = heapUsado() - (long) ids.length * Long.BYTES;
+        System.out.printf("%n  motor=%s: %.1f bytes de heap por fila%n", motor, (despues - antes) / (double) filas);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Optional<Inventario> buscarPorId() {
+        return almacen.buscar(idAleatorio());
+    }
+
+    @Benchmark
+    public ResultadoEscritura ajustarStock() {
+        long id = idAleatorio();
+        int delta = ThreadLocalRandom.current().nextBoolean() ? 1 : -1;
+        return almacen.enTransaccion(() -> almacen.ajustarStock(id, delta, LocalDateTime.now()));
+    }
+
+    @Benchmark
+    public List<Inventario> paginaPorUbicacion() {
+        int bodega = ThreadLocalRandom.current().nextInt(ContextoBenchmark.BODEGAS);
+        return almacen.buscarPaginaPorUbicacion(ContextoBenchmark.ubicacion(bodega), 0L, null, null, 100);
+    }
+
+    private long idAleatorio() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    private static long heapUsado() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
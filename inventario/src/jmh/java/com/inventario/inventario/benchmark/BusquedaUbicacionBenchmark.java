@@ -0,0 +1,88 @@
+package com.inventario.inventario.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.ModoBusqueda;
+import com.inventario.inventario.model.PaginaInventario;
+import com.inventario.inventario.repository.InventarioRepository;
+import com.inventario.inventario.service.InventarioService;
+
+// Primera página de una búsqueda por subcadena y por prefijo de la ubicación: índice en
+// memoria más carga por llave primaria, frente a LIKE sobre la tabla.
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BusquedaUbicacionBenchmark {
+
+    private static final int LIMITE = InventarioService.LIMITE_POR_DEFECTO;
+
+    @Param({ "200000" })
+    public int filas;
+
+    // "pasillo 37" aparece en una de cada ~90 filas, "pasillo 996" en una de cada 997:
+    // con la subcadena rara LIKE recorre casi toda la tabla para llenar la página
+    @Param({ "pasillo 37", "pasillo 996" })
+    public String subcadena;
+
+    @Param({ "bod-7-" })
+    public String prefijo;
+
+    private ConfigurableApplicationContext contexto;
+    private InventarioService servicio;
+    private InventarioRepository repositorio;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar();
+        servicio = contexto.getBean(InventarioService.class);
+        repositorio = contexto.getBean(InventarioRepository.class);
+        ContextoBenchmark.cargarInventarios(contexto, filas,
+                i -> "BOD-" + (i % ContextoBenchmark.BODEGAS) + "-A pasillo " + (i % 997));
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public PaginaInventario contieneConIndice() {
+        return servicio.buscarPorUbicacion(subcadena, ModoBusqueda.CONTIENE, null, LIMITE);
+    }
+
+    @Benchmark
+    public List<Inventario> contieneConLike() {
+        return repositorio.buscarPaginaPorUbicacionSimilar("%" + subcadena + "%", 0L, Limit.of(LIMITE + 1));
+    }
+
+    @Benchmark
+    public PaginaInventario prefijoConIndice() {
+        return servicio.buscarPorUbicacion(prefijo, ModoBusqueda.PREFIJO, null, LIMITE);
+    }
+
+    @Benchmark
+    public List<Inventario> prefijoConLike() {
+        return repositorio.buscarPaginaPorUbicacionSimilar(prefijo + "%", 0L, Limit.of(LIMITE + 1));
+    }
+}
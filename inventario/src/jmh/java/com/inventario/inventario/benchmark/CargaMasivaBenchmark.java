@@ -0,0 +1,74 @@
+package com.inventario.inventario.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.ResultadoCargaMasiva;
+import com.inventario.inventario.service.InventarioService;
+
+// Filas creadas por segundo: carga masiva en lotes JDBC frente a crearInventario fila a fila
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class CargaMasivaBenchmark {
+
+    private static final int FILAS_POR_INVOCACION = 1000;
+
+    private ConfigurableApplicationContext contexto;
+    private InventarioService servicio;
+    private List<Inventario> carga;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar();
+        servicio = contexto.getBean(InventarioService.class);
+        carga = new ArrayList<>(FILAS_POR_INVOCACION);
+        for (int i = 0; i < FILAS_POR_INVOCACION; i++) {
+            carga.add(new Inventario(0L, 10 + i, ContextoBenchmark.ubicacion(i), null));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILAS_POR_INVOCACION)
+    public ResultadoCargaMasiva cargaMasiva() {
+        return servicio.cargarInventariosMasivo(carga.iterator());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILAS_POR_INVOCACION)
+    public int crearFilaAFila() {
+        int creados = 0;
+        for (Inventario inventario : carga) {
+            servicio.crearInventario(new Inventario(0L, inventario.getStockDisponible(),
+                    inventario.getUbicacionBodega(), LocalDateTime.now()));
+            creados++;
+        }
+        return creados;
+    }
+}
@@ -0,0 +1,101 @@
+package com.inventario.inventario.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.service.InventarioService;
+
+// Escrituras concurrentes sobre pocos SKUs calientes. Compara el PUT con If-Match (412 ante
+// conflicto), el PUT sin If-Match (reintentos acotados) y el ajuste atómico de stock.
+// Los contadores auxiliares informan la tasa de conflictos junto al throughput.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class ContencionBenchmark {
+
+    private static final int SKUS_CALIENTES = 4;
+
+    private ConfigurableApplicationContext contexto;
+    private InventarioService servicio;
+    private long[] ids;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Resultados {
+        public long conflictos;
+        public long aplicadas;
+
+        @Setup(Level.Iteration)
+        public void reiniciar() {
+            conflictos = 0;
+            aplicadas = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar();
+        servicio = contexto.getBean(InventarioService.class);
+        ids = ContextoBenchmark.cargarInventarios(contexto, SKUS_CALIENTES);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public void actualizarConIfMatch(Resultados resultados) {
+        long id = idCaliente();
+        long version = servicio.obtenerInventario(id).orElseThrow().getVersion();
+        contar(resultados, servicio.actualizarInventario(id, stockAleatorio(), version));
+    }
+
+    @Benchmark
+    public void actualizarConReintentos(Resultados resultados) {
+        contar(resultados, servicio.actualizarInventario(idCaliente(), stockAleatorio()));
+    }
+
+    @Benchmark
+    public void ajustarStock(Resultados resultados) {
+        servicio.ajustarStock(idCaliente(), 1);
+        resultados.aplicadas++;
+    }
+
+    private static void contar(Resultados resultados, String resultado) {
+        if (InventarioService.CONFLICTO_VERSION.equals(resultado)) {
+            resultados.conflictos++;
+        } else {
+            resultados.aplicadas++;
+        }
+    }
+
+    private long idCaliente() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    private static Inventario stockAleatorio() {
+        return new Inventario(0L, 1 + ThreadLocalRandom.current().nextInt(1000), null, null);
+    }
+}
@@ -0,0 +1,78 @@
+package com.inventario.inventario.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.inventario.inventario.InventarioApplication;
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.service.InventarioService;
+import com.inventario.inventario.service.ResumenStockService;
+
+// Levanta la aplicación sin servidor web sobre la base H2 del perfil "test"
+public final class ContextoBenchmark {
+
+    public static final int BODEGAS = 50;
+
+    private ContextoBenchmark() {
+    }
+
+    public static ConfigurableApplicationContext iniciar(String... propiedades) {
+        return iniciar(WebApplicationType.NONE, propiedades);
+    }
+
+    // Con servidor Tomcat en un puerto libre, para medir por HTTP (ver puerto)
+    public static ConfigurableApplicationContext iniciarWeb(String... propiedades) {
+        String[] conPuerto = Arrays.copyOf(propiedades, propiedades.length + 1);
+        conPuerto[propiedades.length] = "server.port=0";
+        return iniciar(WebApplicationType.SERVLET, conPuerto);
+    }
+
+    public static int puerto(ConfigurableApplicationContext contexto) {
+        return contexto.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    private static ConfigurableApplicationContext iniciar(WebApplicationType tipo, String... propiedades) {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        SpringApplication aplicacion = new SpringApplication(InventarioApplication.class);
+        aplicacion.setWebApplicationType(tipo);
+        aplicacion.setAdditionalProfiles("test");
+        aplicacion.setDefaultProperties(Map.of(
+                "spring.main.banner-mode", "off",
+                "logging.level.root", "WARN"));
+        String[] argumentos = new String[propiedades.length];
+        for (int i = 0; i < propiedades.length; i++) {
+            argumentos[i] = "--" + propiedades[i];
+        }
+        return aplicacion.run(argumentos);
+    }
+
+    // Carga filas repartidas en BODEGAS ubicaciones usando la carga masiva del servicio
+    public static long[] cargarInventarios(ConfigurableApplicationContext contexto, int filas) {
+        return cargarInventarios(contexto, filas, ContextoBenchmark::ubicacion);
+    }
+
+    public static long[] cargarInventarios(ConfigurableApplicationContext contexto, int filas,
+            IntFunction<String> ubicacion) {
+        InventarioService servicio = contexto.getBean(InventarioService.class);
+        List<Inventario> inventarios = new ArrayList<>(filas);
+        for (int i = 0; i < filas; i++) {
+            inventarios.add(new Inventario(0L, 100 + i % 500, ubicacion.apply(i), null));
+        }
+        long[] ids = servicio.cargarInventariosMasivo(inventarios.iterator()).getResultados().stream()
+                .mapToLong(item -> item.getIdInventario())
+                .toArray();
+        contexto.getBean(ResumenStockService.class).reconstruir();
+        return ids;
+    }
+
+    public static String ubicacion(int indice) {
+        return "BOD-" + (indice % BODEGAS);
+    }
+}
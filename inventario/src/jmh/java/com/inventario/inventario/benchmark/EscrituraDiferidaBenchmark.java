@@ -0,0 +1,98 @@
+package com.inventario.inventario.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.service.EscrituraDiferidaStock;
+import com.inventario.inventario.service.InventarioService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Ajustes y actualizaciones de stock sobre pocos SKUs calientes, con escritura directa y con
+// escritura diferida. Al final de cada iteración se imprimen las sentencias SQL y las
+// transacciones por operación según las estadísticas de Hibernate.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class EscrituraDiferidaBenchmark {
+
+    private static final int SKUS_CALIENTES = 16;
+
+    @Param({ "false", "true" })
+    public boolean diferida;
+
+    private ConfigurableApplicationContext contexto;
+    private InventarioService servicio;
+    private Statistics estadisticas;
+    private long[] ids;
+    private final LongAdder operaciones = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar("inventario.escritura-diferida.activa=" + diferida);
+        servicio = contexto.getBean(InventarioService.class);
+        estadisticas = contexto.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        ids = ContextoBenchmark.cargarInventarios(contexto, SKUS_CALIENTES);
+    }
+
+    @Setup(Level.Iteration)
+    public void reiniciarContadores() {
+        contexto.getBean(EscrituraDiferidaStock.class).vaciar();
+        estadisticas.clear();
+        operaciones.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void informar() {
+        contexto.getBean(EscrituraDiferidaStock.class).vaciar();
+        double total = Math.max(operaciones.sum(), 1);
+        System.out.printf("%n  diferida=%s: %.3f sentencias/op, %.3f transacciones/op%n", diferida,
+                estadisticas.getPrepareStatementCount() / total, estadisticas.getTransactionCount() / total);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Integer ajustarStock() {
+        operaciones.increment();
+        return servicio.ajustarStock(idCaliente(), 1);
+    }
+
+    @Benchmark
+    public String actualizarStock() {
+        operaciones.increment();
+        return servicio.actualizarInventario(idCaliente(),
+                new Inventario(0L, 1 + ThreadLocalRandom.current().nextInt(1000), null, null));
+    }
+
+    private long idCaliente() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
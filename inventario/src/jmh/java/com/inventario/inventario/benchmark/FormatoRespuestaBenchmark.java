@@ -0,0 +1,84 @@
+package com.inventario.inventario.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventario.inventario.config.MapeadorSmile;
+import com.inventario.inventario.model.FormatoRespuesta;
+import com.inventario.inventario.model.Inventario;
+
+// Costo de codificar y decodificar List<Inventario> en JSON y en Smile con la configuración de
+// la aplicación. El tamaño del cuerpo, plano y con gzip, se imprime al preparar cada caso.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatoRespuestaBenchmark {
+
+    @Param({ "JSON", "SMILE" })
+    public FormatoRespuesta formato;
+
+    @Param({ "100", "10000" })
+    public int filas;
+
+    private ObjectMapper mapper;
+    private JavaType tipoLista;
+    private List<Inventario> inventarios;
+    private byte[] cuerpo;
+
+    @Setup
+    public void preparar() throws IOException {
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        mapper = formato == FormatoRespuesta.SMILE ? new MapeadorSmile(json).getMapper() : json;
+        tipoLista = mapper.getTypeFactory().constructCollectionType(List.class, Inventario.class);
+        inventarios = new ArrayList<>(filas);
+        LocalDateTime fecha = LocalDateTime.now();
+        for (int i = 0; i < filas; i++) {
+            inventarios.add(new Inventario(i + 1L, 100 + i % 500, ContextoBenchmark.ubicacion(i),
+                    fecha.minusSeconds(i), 1L + i % 7));
+        }
+        cuerpo = mapper.writeValueAsBytes(inventarios);
+        System.out.printf("%n%s %d filas: %d bytes, %d bytes con gzip%n", formato, filas, cuerpo.length,
+                comprimir(cuerpo).length);
+    }
+
+    @Benchmark
+    public byte[] codificar() throws IOException {
+        return mapper.writeValueAsBytes(inventarios);
+    }
+
+    @Benchmark
+    public List<Inventario> decodificar() throws IOException {
+        return mapper.readValue(cuerpo, tipoLista);
+    }
+
+    private static byte[] comprimir(byte[] datos) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+            gzip.write(datos);
+        }
+        return salida.toByteArray();
+    }
+}
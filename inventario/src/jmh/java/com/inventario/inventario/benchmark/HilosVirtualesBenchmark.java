@@ -0,0 +1,192 @@
+package com.inventario.inventario.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.HdrHistogram.Histogram;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Prueba de carga por HTTP con clientes concurrentes en lazo cerrado (cada uno envía la
+// siguiente petición al recibir la respuesta): 90% lecturas por id, 5% listados por ubicación
+// y 5% ajustes de stock sobre la base H2 embebida. hilos=plataforma usa los 200 hilos de
+// Tomcat y el pool por defecto; hilos=virtuales activa el perfil hilos-virtuales (requiere
+// Java 21: mvn -Pjava21,benchmark). El score son respuestas por segundo; ok, rechazadas (503)
+// y errores se reportan aparte y al final de cada iteración se imprimen p50/p99/p99.9.
+// Cada cliente abre su conexión, para 10000 clientes ulimit -n debe pasar de 20000.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class HilosVirtualesBenchmark {
+
+    @Param({ "plataforma", "virtuales" })
+    public String hilos;
+
+    @Param({ "1000", "5000", "10000" })
+    public int clientes;
+
+    // Sin control de admisión la concurrencia la acotan los hilos de Tomcat o el pool
+    @Param({ "false" })
+    public String admision;
+
+    @Param({ "20000" })
+    public int filas;
+
+    private ConfigurableApplicationContext contexto;
+    private ExecutorService ejecutorCliente;
+    private HttpClient cliente;
+    private String base;
+    private long[] ids;
+    private volatile boolean corriendo;
+    private final AtomicInteger enCurso = new AtomicInteger();
+    // Cada respuesta deja {latencia en ns, código de estado}; 0 si no hubo respuesta
+    private final BlockingQueue<long[]> completadas = new LinkedBlockingQueue<>();
+    private final Histogram latencias = new Histogram(TimeUnit.SECONDS.toNanos(60), 3);
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        if ("virtuales".equals(hilos) && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("hilos=virtuales requiere Java 21, esta JVM es " + Runtime.version());
+        }
+        List<String> propiedades = new ArrayList<>(List.of("inventario.admision.activo=" + admision,
+                "server.tomcat.accept-count=" + clientes,
+                "server.tomcat.max-connections=" + (clientes + 1000)));
+        if ("virtuales".equals(hilos)) {
+            propiedades.add("spring.profiles.active=hilos-virtuales");
+        }
+        contexto = ContextoBenchmark.iniciarWeb(propiedades.toArray(String[]::new));
+        ids = ContextoBenchmark.cargarInventarios(contexto, filas);
+        base = "http://localhost:" + ContextoBenchmark.puerto(contexto) + "/api/v1/inventarios";
+        // El cliente usa los mismos hilos de plataforma en los dos modos
+        ejecutorCliente = Executors.newFixedThreadPool(4, tarea -> {
+            Thread hilo = new Thread(tarea, "cliente-carga");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(ejecutorCliente)
+                .build();
+        corriendo = true;
+        for (int i = 0; i < clientes; i++) {
+            enviar();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws InterruptedException {
+        corriendo = false;
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (enCurso.get() > 0 && System.nanoTime() < limite) {
+            Thread.sleep(50);
+        }
+        ejecutorCliente.shutdownNow();
+        contexto.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Respuestas {
+        public long ok;
+        public long rechazadas;
+        public long errores;
+
+        @Setup(Level.Iteration)
+        public void reiniciar() {
+            ok = 0;
+            rechazadas = 0;
+            errores = 0;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void reiniciarLatencias() {
+        latencias.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void imprimirLatencias() {
+        System.out.printf("%n  %s %d clientes: p50 %.1f ms, p99 %.1f ms, p99.9 %.1f ms, en curso %d%n", hilos,
+                clientes, latencias.getValueAtPercentile(50) / 1e6, latencias.getValueAtPercentile(99) / 1e6,
+                latencias.getValueAtPercentile(99.9) / 1e6, enCurso.get());
+    }
+
+    // Una operación por respuesta recibida, en el orden en que llegan
+    @Benchmark
+    public long respuesta(Respuestas respuestas) throws InterruptedException {
+        long[] completada = completadas.poll(1, TimeUnit.SECONDS);
+        if (completada == null) {
+            return 0;
+        }
+        latencias.recordValue(Math.min(completada[0], latencias.getHighestTrackableValue()));
+        if (completada[1] >= 200 && completada[1] < 400) {
+            respuestas.ok++;
+        } else if (completada[1] == 503) {
+            respuestas.rechazadas++;
+        } else {
+            respuestas.errores++;
+        }
+        return completada[1];
+    }
+
+    private void enviar() {
+        if (!corriendo) {
+            return;
+        }
+        enCurso.incrementAndGet();
+        long inicio = System.nanoTime();
+        cliente.sendAsync(peticion(), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((respuesta, error) -> {
+                    enCurso.decrementAndGet();
+                    completadas.add(new long[] { System.nanoTime() - inicio,
+                            respuesta == null ? 0 : respuesta.statusCode() });
+                    enviar();
+                });
+    }
+
+    private HttpRequest peticion() {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        int operacion = azar.nextInt(100);
+        HttpRequest.Builder peticion;
+        if (operacion < 90) {
+            peticion = HttpRequest.newBuilder(URI.create(base + "/" + ids[azar.nextInt(ids.length)])).GET();
+        } else if (operacion < 95) {
+            peticion = HttpRequest.newBuilder(URI.create(base + "/ubicacion/"
+                    + ContextoBenchmark.ubicacion(azar.nextInt(ContextoBenchmark.BODEGAS)))).GET();
+        } else {
+            peticion = HttpRequest.newBuilder(URI.create(base + "/" + ids[azar.nextInt(ids.length)] + "/stock"))
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"delta\": 1}"));
+        }
+        return peticion.timeout(Duration.ofSeconds(60)).build();
+    }
+}
@@ -0,0 +1,101 @@
+package com.inventario.inventario.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.inventario.inventario.cache.InventarioCache;
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.PaginaInventario;
+import com.inventario.inventario.service.InventarioService;
+
+// Operaciones de InventarioService contra H2 en memoria. SampleTime entrega los percentiles
+// de latencia; porUbicacion con y sin cache muestra el efecto de InventarioCache en el p99.
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventarioServiceBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int filas;
+
+    private ConfigurableApplicationContext contexto;
+    private InventarioService servicio;
+    private InventarioCache cache;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar();
+        servicio = contexto.getBean(InventarioService.class);
+        cache = contexto.getBean(InventarioCache.class);
+        ids = ContextoBenchmark.cargarInventarios(contexto, filas);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public String crear() {
+        int indice = ThreadLocalRandom.current().nextInt(filas);
+        return servicio.crearInventario(
+                new Inventario(0L, 100, ContextoBenchmark.ubicacion(indice), LocalDateTime.now()));
+    }
+
+    @Benchmark
+    public String actualizar() {
+        return servicio.actualizarInventario(idAleatorio(),
+                new Inventario(0L, 1 + ThreadLocalRandom.current().nextInt(1000), null, null));
+    }
+
+    @Benchmark
+    public Integer ajustarStock() {
+        return servicio.ajustarStock(idAleatorio(), 1);
+    }
+
+    @Benchmark
+    public PaginaInventario listarPagina() {
+        return servicio.listarInventariosPaginado(null, InventarioService.LIMITE_POR_DEFECTO, null, null, null);
+    }
+
+    @Benchmark
+    public List<Inventario> porUbicacion() {
+        return servicio.obtenerInventarioPorUbicacion(ubicacionAleatoria());
+    }
+
+    @Benchmark
+    public List<Inventario> porUbicacionSinCache() {
+        String ubicacion = ubicacionAleatoria();
+        cache.invalidar(0L, ubicacion);
+        return servicio.obtenerInventarioPorUbicacion(ubicacion);
+    }
+
+    private long idAleatorio() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    private static String ubicacionAleatoria() {
+        return ContextoBenchmark.ubicacion(ThreadLocalRandom.current().nextInt(ContextoBenchmark.BODEGAS));
+    }
+}
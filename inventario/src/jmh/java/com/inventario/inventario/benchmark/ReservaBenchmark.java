@@ -0,0 +1,65 @@
+package com.inventario.inventario.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.inventario.inventario.exception.StockInsuficienteException;
+import com.inventario.inventario.model.Reserva;
+import com.inventario.inventario.service.ReservaService;
+
+// Reservar y liberar sobre pocos SKUs calientes: el camino caliente es un CAS en memoria,
+// la base de datos solo recibe los lotes de persistencia.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class ReservaBenchmark {
+
+    private static final int SKUS_CALIENTES = 4;
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    private ConfigurableApplicationContext contexto;
+    private ReservaService servicio;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar();
+        servicio = contexto.getBean(ReservaService.class);
+        ids = ContextoBenchmark.cargarInventarios(contexto, SKUS_CALIENTES);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public boolean reservarYLiberar() {
+        try {
+            Reserva reserva = servicio.reservar(ids[ThreadLocalRandom.current().nextInt(ids.length)], 1, TTL);
+            return servicio.liberar(reserva.getIdReserva());
+        } catch (StockInsuficienteException e) {
+            return false;
+        }
+    }
+}
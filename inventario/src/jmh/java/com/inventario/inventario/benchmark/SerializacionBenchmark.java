@@ -0,0 +1,59 @@
+package com.inventario.inventario.benchmark;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventario.inventario.model.Inventario;
+
+// Serialización JSON de List<Inventario> con la misma configuración de Jackson que Spring Boot
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacionBenchmark {
+
+    @Param({ "100", "10000", "100000" })
+    public int filas;
+
+    private ObjectMapper objectMapper;
+    private List<Inventario> inventarios;
+
+    @Setup
+    public void preparar() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        inventarios = new ArrayList<>(filas);
+        LocalDateTime fecha = LocalDateTime.now();
+        for (int i = 0; i < filas; i++) {
+            inventarios.add(new Inventario(i + 1L, 100 + i % 500, ContextoBenchmark.ubicacion(i), fecha, 1L));
+        }
+    }
+
+    @Benchmark
+    public void serializarLista() throws Exception {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), inventarios);
+    }
+
+    @Benchmark
+    public byte[] serializarListaABytes() throws Exception {
+        return objectMapper.writeValueAsBytes(inventarios);
+    }
+}
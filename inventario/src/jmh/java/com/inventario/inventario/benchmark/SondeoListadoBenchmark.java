@@ -0,0 +1,136 @@
+package com.inventario.inventario.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventario.inventario.controller.InventarioController;
+import com.inventario.inventario.service.InventarioService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Un cliente que sondea la primera página del listado. sinInstantanea consulta y serializa en
+// cada sondeo (el comportamiento anterior); instantanea sirve los bytes guardados; condicional
+// reenvía el último ETag recibido y obtiene 304. Con escribirCada > 0 se ajusta el stock de un
+// inventario cada tantos sondeos. sentencias cuenta las sentencias SQL preparadas: dividido
+// por el throughput da las sentencias por sondeo. Con -prof gc se compara la asignación.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SondeoListadoBenchmark {
+
+    @Param({ "100000" })
+    public int filas;
+
+    // 0 sin escrituras
+    @Param({ "0", "100" })
+    public int escribirCada;
+
+    private ConfigurableApplicationContext contexto;
+    private InventarioService servicio;
+    private InventarioController controlador;
+    private ObjectMapper objectMapper;
+    private Statistics estadisticas;
+    private long[] ids;
+    private long sondeos;
+    private String ultimoEtag;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar();
+        servicio = contexto.getBean(InventarioService.class);
+        controlador = contexto.getBean(InventarioController.class);
+        objectMapper = contexto.getBean(ObjectMapper.class);
+        estadisticas = contexto.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        ids = ContextoBenchmark.cargarInventarios(contexto, filas);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Sentencias {
+        public long sentencias;
+
+        @Setup(Level.Iteration)
+        public void reiniciar() {
+            sentencias = 0;
+        }
+    }
+
+    @Benchmark
+    public byte[] sinInstantanea(Sentencias contador) throws Exception {
+        long antes = estadisticas.getPrepareStatementCount();
+        escribirSiCorresponde();
+        byte[] cuerpo = objectMapper.writeValueAsBytes(servicio.listarInventariosPaginado(null,
+                InventarioService.LIMITE_POR_DEFECTO, null, null, null));
+        contador.sentencias += estadisticas.getPrepareStatementCount() - antes;
+        return cuerpo;
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> instantanea(Sentencias contador) {
+        long antes = estadisticas.getPrepareStatementCount();
+        escribirSiCorresponde();
+        ResponseEntity<byte[]> respuesta = sondear(null);
+        contador.sentencias += estadisticas.getPrepareStatementCount() - antes;
+        return respuesta;
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> condicional(Sentencias contador) {
+        long antes = estadisticas.getPrepareStatementCount();
+        escribirSiCorresponde();
+        ResponseEntity<byte[]> respuesta = sondear(ultimoEtag);
+        if (respuesta != null) {
+            ultimoEtag = respuesta.getHeaders().getETag();
+        }
+        contador.sentencias += estadisticas.getPrepareStatementCount() - antes;
+        return respuesta;
+    }
+
+    // null cuando el controlador respondió 304
+    private ResponseEntity<byte[]> sondear(String ifNoneMatch) {
+        MockHttpServletRequest peticion = new MockHttpServletRequest("GET", "/api/v1/inventarios");
+        if (ifNoneMatch != null) {
+            peticion.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return controlador.listarInventarios(null, InventarioService.LIMITE_POR_DEFECTO, null, null, null,
+                new ServletWebRequest(peticion, new MockHttpServletResponse()));
+    }
+
+    private void escribirSiCorresponde() {
+        if (escribirCada > 0 && ++sondeos % escribirCada == 0) {
+            servicio.ajustarStock(ids[ThreadLocalRandom.current().nextInt(ids.length)], 1);
+        }
+    }
+}
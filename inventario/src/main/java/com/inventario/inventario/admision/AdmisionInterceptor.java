@@ -0,0 +1,200 @@
+package com.inventario.inventario.admision;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Control de admisión por operación (método HTTP y patrón de la ruta). Cada operación tiene
+// su LimiteAdaptativo y las lecturas (GET, HEAD) y las escrituras usan compartimentos con su
+// propia configuración, así un listado saturado no quita cupos a los ajustes de stock. Además
+// cada compartimento tiene un semáforo compartido por todas sus operaciones, que acota la
+// suma de los límites adaptativos. Una petición sin cupo recibe 503 con Retry-After sin
+// llegar al controlador.
+public class AdmisionInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String RECHAZADAS = "inventario.admision.rechazadas";
+    public static final String ESPERA = "inventario.admision.espera";
+    public static final String EN_COLA = "inventario.admision.en.cola";
+    public static final String EN_CURSO = "inventario.admision.en.curso";
+    public static final String LIMITE = "inventario.admision.limite";
+    public static final String COMPARTIMENTO_EN_CURSO = "inventario.admision.compartimento.en.curso";
+
+    public enum Compartimento {
+        LECTURA, ESCRITURA
+    }
+
+    private static final String ADMISION = AdmisionInterceptor.class.getName() + ".admision";
+
+    private final Map<Compartimento, LimiteAdaptativo.Configuracion> configuraciones;
+    private final String retryAfter;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry registry;
+    private final Map<Compartimento, Semaphore> compartidos = new EnumMap<>(Compartimento.class);
+    private final ConcurrentMap<String, Operacion> operaciones = new ConcurrentHashMap<>();
+
+    public AdmisionInterceptor(Map<Compartimento, LimiteAdaptativo.Configuracion> configuraciones,
+            Duration retryAfter, ObjectMapper objectMapper, MeterRegistry registry) {
+        this.configuraciones = configuraciones;
+        this.retryAfter = Long.toString(Math.max(retryAfter.toSeconds(), 1));
+        this.objectMapper = objectMapper;
+        this.registry = registry;
+        configuraciones.forEach((compartimento, configuracion) -> {
+            int maximo = Math.max(configuracion.getLimiteCompartimento(), 1);
+            Semaphore compartido = new Semaphore(maximo);
+            compartidos.put(compartimento, compartido);
+            Gauge.builder(COMPARTIMENTO_EN_CURSO, compartido, semaforo -> maximo - semaforo.availablePermits())
+                    .description("Peticiones admitidas en curso de todas las operaciones del compartimento")
+                    .tag("compartimento", compartimento.name().toLowerCase())
+                    .register(registry);
+        });
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        // El despacho asíncrono continúa una petición que ya fue admitida
+        if (!(handler instanceof HandlerMethod) || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Operacion operacion = operacion(request.getMethod(), patron == null ? "UNKNOWN" : patron.toString());
+        long inicio = System.nanoTime();
+        LimiteAdaptativo.Resultado resultado = operacion.limite.adquirir();
+        if (resultado != LimiteAdaptativo.Resultado.ADMITIDA) {
+            operacion.espera.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+        // El tope del compartimento se toma sin esperar, después del cupo de la operación para
+        // no retenerlo mientras la petición hace cola
+        if (resultado != LimiteAdaptativo.Resultado.RECHAZADA && !operacion.compartido.tryAcquire()) {
+            operacion.limite.devolver();
+            resultado = LimiteAdaptativo.Resultado.RECHAZADA;
+        }
+        if (resultado == LimiteAdaptativo.Resultado.RECHAZADA) {
+            operacion.rechazadas.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            objectMapper.writeValue(response.getOutputStream(),
+                    Map.of("error", "Servicio saturado, reintente en " + retryAfter + " s"));
+            return false;
+        }
+        request.setAttribute(ADMISION, new Admision(operacion, System.nanoTime()));
+        return true;
+    }
+
+    // Una respuesta asíncrona ya no ocupa el hilo: se devuelve el cupo sin ajustar el límite
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        Admision admision = (Admision) request.getAttribute(ADMISION);
+        if (admision != null) {
+            request.removeAttribute(ADMISION);
+            admision.operacion.limite.devolver();
+            admision.operacion.compartido.release();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        Admision admision = (Admision) request.getAttribute(ADMISION);
+        if (admision == null) {
+            return;
+        }
+        request.removeAttribute(ADMISION);
+        boolean fallo = ex != null || response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+        admision.operacion.limite.liberar(System.nanoTime() - admision.inicio, fallo);
+        admision.operacion.compartido.release();
+    }
+
+    // Límite de la operación, se crea con la configuración de su compartimento al primer uso
+    public LimiteAdaptativo limite(String metodo, String patron) {
+        return operacion(metodo, patron).limite;
+    }
+
+    // Tope compartido por todas las operaciones del compartimento
+    public Semaphore compartido(Compartimento compartimento) {
+        return compartidos.get(compartimento);
+    }
+
+    private Operacion operacion(String metodo, String patron) {
+        return operaciones.computeIfAbsent(metodo + " " + patron, llave -> {
+            Compartimento compartimento = "GET".equals(metodo) || "HEAD".equals(metodo)
+                    ? Compartimento.LECTURA
+                    : Compartimento.ESCRITURA;
+            return new Operacion(new LimiteAdaptativo(configuraciones.get(compartimento)),
+                    compartidos.get(compartimento),
+                    Tags.of("compartimento", compartimento.name().toLowerCase(), "method", metodo, "uri", patron));
+        });
+    }
+
+    private final class Operacion {
+
+        private final LimiteAdaptativo limite;
+        private final Semaphore compartido;
+        private final Counter rechazadas;
+        private final Timer espera;
+
+        private Operacion(LimiteAdaptativo limite, Semaphore compartido, Tags tags) {
+            this.limite = limite;
+            this.compartido = compartido;
+            this.rechazadas = Counter.builder(RECHAZADAS)
+                    .description("Peticiones rechazadas con 503 por falta de cupo")
+                    .tags(tags)
+                    .register(registry);
+            this.espera = Timer.builder(ESPERA)
+                    .description("Espera en la cola de admisión de las peticiones que no tuvieron cupo")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            Gauge.builder(EN_COLA, limite, LimiteAdaptativo::getEnCola)
+                    .description("Peticiones esperando un cupo")
+                    .tags(tags)
+                    .register(registry);
+            Gauge.builder(EN_CURSO, limite, LimiteAdaptativo::getEnCurso)
+                    .description("Peticiones admitidas en curso")
+                    .tags(tags)
+                    .register(registry);
+            Gauge.builder(LIMITE, limite, LimiteAdaptativo::getLimite)
+                    .description("Límite actual de peticiones simultáneas")
+                    .tags(tags)
+                    .register(registry);
+        }
+    }
+
+    private static final class Admision {
+
+        private final Operacion operacion;
+        private final long inicio;
+
+        private Admision(Operacion operacion, long inicio) {
+            this.operacion = operacion;
+            this.inicio = inicio;
+        }
+    }
+}
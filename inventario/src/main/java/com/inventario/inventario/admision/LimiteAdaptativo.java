@@ -0,0 +1,151 @@
+package com.inventario.inventario.admision;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Límite de peticiones simultáneas que se ajusta con la latencia observada (AIMD): cada
+// petición que termina bajo la latencia objetivo con el límite en uso lo sube en 1, y cada
+// petición lenta o fallida lo multiplica por REDUCCION (al menos 1 menos), sin salir de
+// [mínimo, máximo]. Sin cupo, la petición espera en una cola acotada hasta la espera máxima;
+// con la cola llena o la espera agotada se rechaza de inmediato en vez de acumularse.
+public class LimiteAdaptativo {
+
+    public enum Resultado {
+        ADMITIDA, ENCOLADA, RECHAZADA
+    }
+
+    static final double REDUCCION = 0.9;
+
+    private final int limiteMinimo;
+    private final int limiteMaximo;
+    private final int maximoEnCola;
+    private final long esperaMaximaNanos;
+    private final long latenciaObjetivoNanos;
+
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    private final Condition liberado = cerrojo.newCondition();
+
+    // Se modifican con el cerrojo tomado; volatile solo para leerlos desde las métricas
+    private volatile int limite;
+    private volatile int enCurso;
+    private volatile int enCola;
+
+    public LimiteAdaptativo(Configuracion configuracion) {
+        this.limiteMinimo = Math.max(configuracion.getLimiteMinimo(), 1);
+        this.limiteMaximo = Math.max(configuracion.getLimiteMaximo(), limiteMinimo);
+        this.maximoEnCola = Math.max(configuracion.getCola(), 0);
+        this.esperaMaximaNanos = configuracion.getEsperaMaxima().toNanos();
+        this.latenciaObjetivoNanos = configuracion.getLatenciaObjetivo().toNanos();
+        this.limite = Math.min(Math.max(configuracion.getLimiteInicial(), limiteMinimo), limiteMaximo);
+    }
+
+    // Toma un cupo; si no hay, espera su turno en la cola. ENCOLADA indica que fue admitida
+    // después de esperar, RECHAZADA que no hubo cupo y no debe atenderse
+    public Resultado adquirir() {
+        cerrojo.lock();
+        try {
+            if (enCurso < limite) {
+                enCurso++;
+                return Resultado.ADMITIDA;
+            }
+            if (enCola >= maximoEnCola || esperaMaximaNanos <= 0) {
+                return Resultado.RECHAZADA;
+            }
+            enCola++;
+            try {
+                long restante = esperaMaximaNanos;
+                while (enCurso >= limite) {
+                    if (restante <= 0) {
+                        return Resultado.RECHAZADA;
+                    }
+                    restante = liberado.awaitNanos(restante);
+                }
+                enCurso++;
+                return Resultado.ENCOLADA;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Resultado.RECHAZADA;
+            } finally {
+                enCola--;
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    // Devuelve el cupo de una petición admitida y ajusta el límite con su latencia
+    public void liberar(long latenciaNanos, boolean fallo) {
+        cerrojo.lock();
+        try {
+            // Solo sube si el límite se estaba usando, si no crecería sin haberse probado
+            boolean enUso = enCurso * 2 >= limite;
+            enCurso--;
+            if (fallo || latenciaNanos > latenciaObjetivoNanos) {
+                limite = Math.max(limiteMinimo, Math.min(limite - 1, (int) (limite * REDUCCION)));
+            } else if (enUso) {
+                limite = Math.min(limiteMaximo, limite + 1);
+            }
+            for (int libres = Math.min(enCola, limite - enCurso); libres > 0; libres--) {
+                liberado.signal();
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    // Devuelve el cupo sin tomar la petición como muestra de latencia: rechazada por el tope
+    // del compartimento o continuada en asíncrono, no dice nada de la capacidad de la operación
+    public void devolver() {
+        cerrojo.lock();
+        try {
+            enCurso--;
+            if (enCola > 0 && enCurso < limite) {
+                liberado.signal();
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    public int getLimite() {
+        return limite;
+    }
+
+    public int getEnCurso() {
+        return enCurso;
+    }
+
+    public int getEnCola() {
+        return enCola;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Configuracion {
+        private int limiteInicial;
+        private int limiteMinimo;
+        private int limiteMaximo;
+        // Peticiones que pueden esperar un cupo, 0 rechaza apenas se alcanza el límite
+        private int cola;
+        private Duration esperaMaxima;
+        // Latencia sobre la cual se considera que la operación está saturada
+        private Duration latenciaObjetivo;
+        // Peticiones en curso de todas las operaciones del compartimento juntas; el límite de
+        // cada operación se adapta por separado y sin este tope su suma no tendría cota
+        private int limiteCompartimento;
+
+        public static Configuracion lectura() {
+            return new Configuracion(16, 2, 64, 32, Duration.ofMillis(100), Duration.ofMillis(250), 96);
+        }
+
+        public static Configuracion escritura() {
+            return new Configuracion(32, 4, 128, 128, Duration.ofSeconds(1), Duration.ofMillis(500), 192);
+        }
+    }
+}
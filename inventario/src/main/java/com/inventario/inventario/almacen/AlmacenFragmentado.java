@@ -0,0 +1,1219 @@
+package com.inventario.inventario.almacen;
+
+import static com.inventario.inventario.almacen.AnilloFragmentos.RANURAS;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.inventario.inventario.config.FabricaHilos;
+import com.inventario.inventario.config.ReplicasConfig;
+import com.inventario.inventario.model.EstadoFragmentos;
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.ModoBusqueda;
+import com.inventario.inventario.model.ResultadoRebalanceo;
+import com.inventario.inventario.repository.ResumenUbicacion;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Motor fragmentado (inventario.almacen.motor=fragmentado): los inventarios se reparten en
+// la tabla inventario_fragmento de varias bases, una por URL de inventario.fragmentos.urls.
+// La ubicación de bodega elige la ranura y la ranura el fragmento (AnilloFragmentos); la
+// asignación vigente de cada ranura se guarda en inventario_ranura de la base principal,
+// que también entrega los ids por bloques. Las operaciones por id o por ubicación van a un
+// solo fragmento; los listados consultan todos en paralelo y mezclan las filas por id.
+//
+// enTransaccion abre una transacción en la base principal (historial y eventos siguen
+// igual) y en cada fragmento que la unidad escribe; los fragmentos se confirman uno tras
+// otro justo antes que la principal, después de las demás sincronizaciones (el lote del
+// historial), sin commit en dos fases: si falla un fragmento los siguientes y la principal
+// se deshacen, pero los ya confirmados quedan y el error registra sus ids.
+//
+// rebalancear mueve a su dueño según el anillo las ranuras que quedaron en otro fragmento,
+// por ejemplo después de agregar una URL al final de la lista (el orden de las URL no se
+// puede cambiar). Las ranuras se bloquean en este proceso: con varias instancias el
+// rebalanceo se hace con una sola levantada. La escritura diferida escribe con JPA y no se
+// puede combinar.
+//
+// Paso desde el motor JPA: con inventario.fragmentos.migrar-jpa el arranque copia la tabla
+// inventario de la base principal a los fragmentos conservando ids y versiones, así siguen
+// valiendo los ids del historial, las reservas y los clientes. Esos ids no llevan la ranura:
+// inventario_heredado guarda la de cada uno y se carga en memoria al arrancar. Los ids
+// nuevos parten después del mayor heredado y se enrutan por sus bits.
+@Component
+@ConditionalOnProperty(name = "inventario.almacen.motor", havingValue = "fragmentado")
+public class AlmacenFragmentado implements AlmacenInventario {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AlmacenFragmentado.class);
+
+    private static final String TABLA = "inventario_fragmento";
+    private static final String CREAR_TABLA = "CREATE TABLE IF NOT EXISTS " + TABLA + " ("
+            + "id_inventario BIGINT NOT NULL, ranura INT NOT NULL, stock_disponible INT NOT NULL,"
+            + " ubicacion_bodega VARCHAR(255), fecha_ultima_actualizacion DATETIME(6),"
+            + " version BIGINT NOT NULL DEFAULT 0, PRIMARY KEY (id_inventario),"
+            + " KEY idx_fragmento_ubicacion_id (ubicacion_bodega, id_inventario),"
+            + " KEY idx_fragmento_ranura_id (ranura, id_inventario))";
+    private static final String SELECCION = "SELECT id_inventario, stock_disponible, ubicacion_bodega,"
+            + " fecha_ultima_actualizacion, version FROM " + TABLA;
+    private static final String INSERTAR = "INSERT INTO " + TABLA + " (id_inventario, ranura, stock_disponible,"
+            + " ubicacion_bodega, fecha_ultima_actualizacion, version) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String ACTUALIZAR = "UPDATE " + TABLA + " SET stock_disponible = ?,"
+            + " fecha_ultima_actualizacion = ?, version = version + 1 WHERE id_inventario = ?";
+    private static final String AJUSTAR = "UPDATE " + TABLA + " SET stock_disponible = stock_disponible + ?,"
+            + " fecha_ultima_actualizacion = ?, version = version + 1 WHERE id_inventario = ?"
+            + " AND stock_disponible BETWEEN ? AND ?";
+
+    // Secuencias reservadas en el catálogo por cada viaje a la base principal
+    private static final int BLOQUE_IDS = 50;
+
+    // Filas por lectura y por lote al copiar una ranura a otro fragmento o migrar desde JPA
+    private static final int BLOQUE_COPIA = 1000;
+
+    private static final RowMapper<Inventario> FILA = (rs, numero) -> new Inventario(rs.getLong(1), rs.getInt(2),
+            rs.getString(3), rs.getObject(4, LocalDateTime.class), rs.getLong(5));
+
+    private final List<Fragmento> fragmentos;
+    private final AnilloFragmentos anillo;
+    // Fragmento de cada ranura; solo cambia con la ranura bloqueada para escribir
+    private final AtomicIntegerArray asignacion = new AtomicIntegerArray(RANURAS);
+    // Las unidades toman el de lectura de cada ranura que escriben, el rebalanceo el de escritura
+    private final ReentrantReadWriteLock[] cerrojos = new ReentrantReadWriteLock[RANURAS];
+    private final ReentrantLock cerrojoRebalanceo = new ReentrantLock();
+    private final DataSource catalogo;
+    private final JdbcTemplate jdbcCatalogo;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService ejecutor;
+    private final ThreadLocal<Unidad> unidades = new ThreadLocal<>();
+    // Unidades simultáneas: una menos que el pool, igual que AlmacenJpa. Cada unidad ocupa
+    // una conexión por base y la reserva de ids pide otra a la principal.
+    private final Semaphore escrituras;
+    private final long esperaEscrituraNanos;
+
+    private final ReentrantLock cerrojoIds = new ReentrantLock();
+    private long siguienteSecuencia;
+    private long limiteSecuencia;
+
+    // Ids migrados desde la tabla del motor JPA, ordenados, y la ranura de cada uno
+    private long[] idsHeredados = new long[0];
+    private short[] ranurasHeredadas = new short[0];
+
+    @Autowired
+    public AlmacenFragmentado(DataSource dataSource, TransactionTemplate transactionTemplate,
+            DataSourceProperties propiedades, Environment entorno, ObjectProvider<MeterRegistry> registry,
+            FabricaHilos fabricaHilos,
+            @Value("${inventario.fragmentos.urls:}") List<String> urls,
+            @Value("${inventario.fragmentos.username:${spring.datasource.username:}}") String usuario,
+            @Value("${inventario.fragmentos.password:${spring.datasource.password:}}") String clave,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int tamanoPool,
+            @Value("${spring.datasource.hikari.connection-timeout:30000}") long esperaConexionMillis,
+            @Value("${inventario.escritura-diferida.activa:false}") boolean escrituraDiferida,
+            @Value("${inventario.fragmentos.migrar-jpa:false}") boolean migrarJpa) {
+        this(crearPools(propiedades, entorno, registry.getIfAvailable(), urls, usuario, clave, escrituraDiferida),
+                dataSource, transactionTemplate,
+                Executors.newCachedThreadPool(fabricaHilos.crearNumerados("fragmentos")),
+                tamanoPool, esperaConexionMillis, migrarJpa);
+    }
+
+    public AlmacenFragmentado(List<? extends DataSource> fuentes, DataSource catalogo,
+            TransactionTemplate transactionTemplate, ExecutorService ejecutor, int tamanoPool,
+            long esperaConexionMillis) {
+        this(fuentes, catalogo, transactionTemplate, ejecutor, tamanoPool, esperaConexionMillis, false);
+    }
+
+    // Los fragmentos van en orden: el número de cada uno es su posición en la lista. El
+    // catálogo (asignación de ranuras, contador de ids e ids heredados) vive en la base de la
+    // transacción, que con migrarJpa también tiene la tabla inventario del motor JPA.
+    public AlmacenFragmentado(List<? extends DataSource> fuentes, DataSource catalogo,
+            TransactionTemplate transactionTemplate, ExecutorService ejecutor, int tamanoPool,
+            long esperaConexionMillis, boolean migrarJpa) {
+        List<Fragmento> lista = new ArrayList<>(fuentes.size());
+        for (DataSource fuente : fuentes) {
+            lista.add(new Fragmento(lista.size(), fuente));
+        }
+        this.fragmentos = List.copyOf(lista);
+        this.anillo = new AnilloFragmentos(fragmentos.size());
+        this.catalogo = catalogo;
+        this.jdbcCatalogo = new JdbcTemplate(catalogo);
+        this.transactionTemplate = transactionTemplate;
+        this.ejecutor = ejecutor;
+        this.escrituras = new Semaphore(Math.max(tamanoPool - 1, 1));
+        this.esperaEscrituraNanos = TimeUnit.MILLISECONDS.toNanos(esperaConexionMillis);
+        for (int ranura = 0; ranura < RANURAS; ranura++) {
+            cerrojos[ranura] = new ReentrantReadWriteLock();
+        }
+        try {
+            iniciar(migrarJpa);
+        } catch (RuntimeException e) {
+            cerrar();
+            throw e;
+        }
+    }
+
+    private static List<DataSource> crearPools(DataSourceProperties propiedades, Environment entorno,
+            MeterRegistry metricas, List<String> urls, String usuario, String clave, boolean escrituraDiferida) {
+        if (escrituraDiferida) {
+            throw new IllegalStateException("inventario.escritura-diferida.activa requiere inventario.almacen.motor=jpa");
+        }
+        Binder binder = Binder.get(entorno);
+        List<DataSource> pools = new ArrayList<>();
+        for (String url : urls) {
+            if (!url.isBlank()) {
+                pools.add(ReplicasConfig.crearPool(propiedades, binder, metricas, url.trim(), usuario, clave,
+                        "fragmento-" + pools.size()));
+            }
+        }
+        if (pools.isEmpty()) {
+            throw new IllegalStateException("inventario.almacen.motor=fragmentado requiere inventario.fragmentos.urls");
+        }
+        return pools;
+    }
+
+    private void iniciar(boolean migrarJpa) {
+        for (Fragmento fragmento : fragmentos) {
+            fragmento.jdbc.execute(CREAR_TABLA);
+        }
+        jdbcCatalogo.execute("CREATE TABLE IF NOT EXISTS inventario_ranura (ranura INT NOT NULL,"
+                + " fragmento INT NOT NULL, PRIMARY KEY (ranura))");
+        jdbcCatalogo.execute("CREATE TABLE IF NOT EXISTS inventario_fragmento_id (id INT NOT NULL,"
+                + " siguiente BIGINT NOT NULL, PRIMARY KEY (id))");
+        jdbcCatalogo.execute("CREATE TABLE IF NOT EXISTS inventario_heredado (id_inventario BIGINT NOT NULL,"
+                + " ranura INT NOT NULL, PRIMARY KEY (id_inventario))");
+        cargarAsignacion();
+        if (migrarJpa) {
+            migrarDesdeJpa();
+        }
+        cargarHeredados();
+        alinearSecuencia();
+        LOG.info("Almacén fragmentado con {} fragmentos, {} ranuras fuera de su fragmento", fragmentos.size(),
+                ranurasPendientes(asignacion()));
+    }
+
+    // Un catálogo vacío toma el reparto del anillo; uno existente se respeta aunque el anillo
+    // haya cambiado, las filas siguen donde están hasta el rebalanceo
+    private void cargarAsignacion() {
+        for (int ranura = 0; ranura < RANURAS; ranura++) {
+            asignacion.set(ranura, -1);
+        }
+        jdbcCatalogo.query("SELECT ranura, fragmento FROM inventario_ranura", rs -> {
+            int ranura = rs.getInt(1);
+            if (ranura >= 0 && ranura < RANURAS) {
+                asignacion.set(ranura, rs.getInt(2));
+            }
+        });
+        List<Object[]> nuevas = new ArrayList<>();
+        for (int ranura = 0; ranura < RANURAS; ranura++) {
+            int fragmento = asignacion.get(ranura);
+            if (fragmento < 0) {
+                fragmento = anillo.fragmento(ranura);
+                asignacion.set(ranura, fragmento);
+                nuevas.add(new Object[] { ranura, fragmento });
+            } else if (fragmento >= fragmentos.size()) {
+                throw new IllegalStateException("La ranura " + ranura + " está en el fragmento " + fragmento
+                        + ", que no aparece en inventario.fragmentos.urls");
+            }
+        }
+        if (!nuevas.isEmpty()) {
+            jdbcCatalogo.batchUpdate("INSERT INTO inventario_ranura (ranura, fragmento) VALUES (?, ?)", nuevas);
+        }
+    }
+
+    // Copia la tabla inventario del motor JPA por bloques de id. Cada bloque registra sus ids
+    // en inventario_heredado después de escribirlos en los fragmentos: si se corta, el
+    // siguiente arranque sigue desde el último id registrado y reescribe el bloque a medias.
+    // Solo arranca sobre fragmentos vacíos para no pisar filas creadas con este motor.
+    private void migrarDesdeJpa() {
+        long despuesDe = jdbcCatalogo.queryForObject(
+                "SELECT COALESCE(MAX(id_inventario), 0) FROM inventario_heredado", Long.class);
+        if (despuesDe == 0) {
+            for (Fragmento fragmento : fragmentos) {
+                Long filas = fragmento.jdbc.queryForObject("SELECT COUNT(*) FROM " + TABLA, Long.class);
+                if (filas != null && filas > 0) {
+                    throw new IllegalStateException("inventario.fragmentos.migrar-jpa requiere fragmentos vacíos;"
+                            + " el fragmento " + fragmento.indice + " tiene " + filas + " filas");
+                }
+            }
+        }
+        long inicio = System.nanoTime();
+        long migradas = 0;
+        while (true) {
+            List<Inventario> filas = jdbcCatalogo.query("SELECT id_inventario, stock_disponible, ubicacion_bodega,"
+                    + " fecha_ultima_actualizacion, version FROM inventario WHERE id_inventario > ?"
+                    + " ORDER BY id_inventario LIMIT ?", FILA, despuesDe, BLOQUE_COPIA);
+            if (filas.isEmpty()) {
+                break;
+            }
+            Map<Fragmento, List<Object[]>> porFragmento = new TreeMap<>(Comparator.comparingInt(Fragmento::getIndice));
+            List<Object[]> heredados = new ArrayList<>(filas.size());
+            for (Inventario fila : filas) {
+                int ranura = AnilloFragmentos.ranura(fila.getUbicacionBodega());
+                porFragmento.computeIfAbsent(fragmentos.get(asignacion.get(ranura)), fragmento -> new ArrayList<>())
+                        .add(new Object[] { fila.getIdInventario(), ranura, fila.getStockDisponible(),
+                                fila.getUbicacionBodega(), fila.getFechaUltimaActualizacion(), fila.getVersion() });
+                heredados.add(new Object[] { fila.getIdInventario(), ranura });
+            }
+            long hasta = filas.get(filas.size() - 1).getIdInventario();
+            // Restos del mismo bloque si la migración anterior se cortó a la mitad
+            for (Fragmento fragmento : fragmentos) {
+                fragmento.jdbc.update("DELETE FROM " + TABLA + " WHERE id_inventario > ? AND id_inventario <= ?",
+                        despuesDe, hasta);
+            }
+            porFragmento.forEach((fragmento, lote) -> fragmento.jdbc.batchUpdate(INSERTAR, lote));
+            jdbcCatalogo.batchUpdate("INSERT INTO inventario_heredado (id_inventario, ranura) VALUES (?, ?)",
+                    heredados);
+            migradas += filas.size();
+            despuesDe = hasta;
+            if (filas.size() < BLOQUE_COPIA) {
+                break;
+            }
+        }
+        LOG.info("Migración desde el motor JPA: {} filas copiadas a los fragmentos en {} ms", migradas,
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private void cargarHeredados() {
+        Long cantidad = jdbcCatalogo.queryForObject("SELECT COUNT(*) FROM inventario_heredado", Long.class);
+        if (cantidad == null || cantidad == 0) {
+            return;
+        }
+        long[] ids = new long[Math.toIntExact(cantidad)];
+        short[] ranuras = new short[ids.length];
+        int[] leidos = new int[1];
+        jdbcCatalogo.query("SELECT id_inventario, ranura FROM inventario_heredado ORDER BY id_inventario", rs -> {
+            if (leidos[0] < ids.length) {
+                ids[leidos[0]] = rs.getLong(1);
+                ranuras[leidos[0]] = (short) rs.getInt(2);
+                leidos[0]++;
+            }
+        });
+        idsHeredados = Arrays.copyOf(ids, leidos[0]);
+        ranurasHeredadas = Arrays.copyOf(ranuras, leidos[0]);
+    }
+
+    // El contador debe quedar después de la mayor secuencia presente en los fragmentos
+    private void alinearSecuencia() {
+        long mayorId = 0;
+        for (Fragmento fragmento : fragmentos) {
+            Long mayor = fragmento.jdbc.queryForObject("SELECT COALESCE(MAX(id_inventario), 0) FROM " + TABLA,
+                    Long.class);
+            mayorId = Math.max(mayorId, mayor == null ? 0 : mayor);
+        }
+        long minimo = AnilloFragmentos.secuenciaDeId(mayorId) + 1;
+        int actualizadas = jdbcCatalogo.update("UPDATE inventario_fragmento_id SET siguiente = ?"
+                + " WHERE id = 1 AND siguiente < ?", minimo, minimo);
+        if (actualizadas == 0) {
+            Integer existe = jdbcCatalogo.queryForObject("SELECT COUNT(*) FROM inventario_fragmento_id WHERE id = 1",
+                    Integer.class);
+            if (existe == null || existe == 0) {
+                jdbcCatalogo.update("INSERT INTO inventario_fragmento_id (id, siguiente) VALUES (1, ?)", minimo);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        ejecutor.shutdownNow();
+        for (Fragmento fragmento : fragmentos) {
+            if (fragmento.datos instanceof AutoCloseable pool) {
+                try {
+                    pool.close();
+                } catch (Exception e) {
+                    LOG.warn("No se pudo cerrar el pool del fragmento {}", fragmento.indice, e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public <T> T enTransaccion(Supplier<T> operacion) {
+        if (unidades.get() != null) {
+            return operacion.get();
+        }
+        // Dentro de otra transacción la conexión ya está tomada y el cupo ya se contó
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transactionTemplate.execute(estado -> enUnidad(operacion));
+        }
+        try {
+            if (!escrituras.tryAcquire(esperaEscrituraNanos, TimeUnit.NANOSECONDS)) {
+                throw new CannotCreateTransactionException("No hay cupo para otra transacción de escritura");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotCreateTransactionException("Interrumpido esperando cupo de escritura", e);
+        }
+        try {
+            return transactionTemplate.execute(estado -> enUnidad(operacion));
+        } finally {
+            escrituras.release();
+        }
+    }
+
+    private <T> T enUnidad(Supplier<T> operacion) {
+        Unidad unidad = new Unidad();
+        unidades.set(unidad);
+        TransactionSynchronizationManager.registerSynchronization(unidad);
+        return operacion.get();
+    }
+
+    @Override
+    public boolean existe(long idInventario) {
+        Integer filas = porId(idInventario).jdbc.queryForObject(
+                "SELECT COUNT(*) FROM " + TABLA + " WHERE id_inventario = ?", Integer.class, idInventario);
+        return filas != null && filas > 0;
+    }
+
+    @Override
+    public Optional<Inventario> buscar(long idInventario) {
+        return buscar(porId(idInventario), idInventario, "");
+    }
+
+    @Override
+    public List<Inventario> buscarPorIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Fragmento, List<Long>> porFragmento = new TreeMap<>(Comparator.comparingInt(Fragmento::getIndice));
+        for (Long id : ids) {
+            porFragmento.computeIfAbsent(porId(id), fragmento -> new ArrayList<>()).add(id);
+        }
+        List<Fragmento> destino = new ArrayList<>(porFragmento.keySet());
+        return mezclar(enCadaFragmento(destino, fragmento -> {
+            List<Long> delFragmento = porFragmento.get(fragmento);
+            return fragmento.jdbc.query(SELECCION + " WHERE id_inventario IN (" + marcadores(delFragmento.size())
+                    + ") ORDER BY id_inventario", FILA, delFragmento.toArray());
+        }), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Inventario> buscarPorUbicacion(String ubicacionBodega) {
+        return porUbicacion(ubicacionBodega).jdbc.query(
+                SELECCION + " WHERE ubicacion_bodega = ? ORDER BY id_inventario", FILA, ubicacionBodega);
+    }
+
+    @Override
+    public List<Inventario> buscarPagina(long despuesDe, Integer stockMinimo, Integer stockMaximo, int limite) {
+        List<Object> parametros = new ArrayList<>();
+        String condicion = condicionStock(stockMinimo, stockMaximo, parametros);
+        return pagina(null, condicion, parametros, despuesDe, limite);
+    }
+
+    @Override
+    public List<Inventario> buscarPaginaPorUbicacion(String ubicacionBodega, long despuesDe, Integer stockMinimo,
+            Integer stockMaximo, int limite) {
+        List<Object> parametros = new ArrayList<>();
+        parametros.add(ubicacionBodega);
+        String condicion = " AND ubicacion_bodega = ?" + condicionStock(stockMinimo, stockMaximo, parametros);
+        return pagina(ubicacionBodega, condicion, parametros, despuesDe, limite);
+    }
+
+    // '!' como escape, la barra invertida se interpreta distinto en MySQL y en H2
+    @Override
+    public List<Inventario> buscarPaginaPorUbicacionSimilar(String texto, ModoBusqueda modo, long despuesDe,
+            int limite) {
+        String escapado = texto.toLowerCase(Locale.ROOT)
+                .replace("!", "!!").replace("%", "!%").replace("_", "!_");
+        String patron = (modo == ModoBusqueda.CONTIENE ? "%" : "") + escapado + "%";
+        List<Object> parametros = new ArrayList<>();
+        parametros.add(patron);
+        return pagina(null, " AND LOWER(ubicacion_bodega) LIKE ? ESCAPE '!'", parametros, despuesDe, limite);
+    }
+
+    @Override
+    public List<Inventario> listarTodos() {
+        int[] vigente = asignacion();
+        return mezclar(enCadaFragmento(fragmentos, fragmento -> vigentes(fragmento, vigente,
+                fragmento.jdbc.query(SELECCION + " ORDER BY id_inventario", FILA))), Integer.MAX_VALUE);
+    }
+
+    // Un cursor abierto por fragmento; en cada paso sale la fila de menor id entre las cabezas
+    @Override
+    public long recorrer(ConsumidorInventario consumidor) throws IOException {
+        int[] vigente = asignacion();
+        List<Stream<Inventario>> flujos = new ArrayList<>(fragmentos.size());
+        try {
+            List<Iterator<Inventario>> cursores = new ArrayList<>(fragmentos.size());
+            for (Fragmento fragmento : fragmentos) {
+                Stream<Inventario> flujo = fragmento.recorrido.queryForStream(SELECCION + " ORDER BY id_inventario",
+                        FILA);
+                flujos.add(flujo);
+                cursores.add(flujo.filter(fila -> vigente[ranuraDe(fila.getIdInventario())] == fragmento.indice)
+                        .iterator());
+            }
+            PriorityQueue<Cabeza> cabezas = cabezas(cursores);
+            long filas = 0;
+            while (!cabezas.isEmpty()) {
+                Cabeza cabeza = cabezas.poll();
+                consumidor.aceptar(cabeza.fila);
+                filas++;
+                cabeza.avanzar(cabezas);
+            }
+            return filas;
+        } finally {
+            flujos.forEach(Stream::close);
+        }
+    }
+
+    // Sin orden entre fragmentos, el índice de ubicaciones no lo necesita
+    @Override
+    public long recorrerUbicaciones(ConsumidorUbicacion consumidor) {
+        int[] vigente = asignacion();
+        long[] filas = new long[1];
+        for (Fragmento fragmento : fragmentos) {
+            fragmento.recorrido.query("SELECT id_inventario, ubicacion_bodega FROM " + TABLA, rs -> {
+                long id = rs.getLong(1);
+                if (vigente[ranuraDe(id)] == fragmento.indice) {
+                    consumidor.aceptar(id, rs.getString(2));
+                    filas[0]++;
+                }
+            });
+        }
+        return filas[0];
+    }
+
+    // Cada ubicación está completa en un fragmento: los resúmenes de los fragmentos no se solapan
+    @Override
+    public List<ResumenUbicacion> resumirPorUbicacion(int umbralStockBajo) {
+        int[] vigente = asignacion();
+        List<ResumenUbicacion> resumen = new ArrayList<>();
+        for (List<ResumenUbicacion> parte : enCadaFragmento(fragmentos, fragmento -> fragmento.jdbc.query(
+                "SELECT ubicacion_bodega, SUM(stock_disponible), COUNT(*),"
+                        + " SUM(CASE WHEN stock_disponible <= ? THEN 1 ELSE 0 END) FROM " + TABLA
+                        + " GROUP BY ubicacion_bodega",
+                (RowMapper<ResumenUbicacion>) (rs, numero) -> vigente[AnilloFragmentos.ranura(rs.getString(1))]
+                        == fragmento.indice
+                        ? new Resumen(rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getLong(4))
+                        : null,
+                umbralStockBajo))) {
+            for (ResumenUbicacion fila : parte) {
+                if (fila != null) {
+                    resumen.add(fila);
+                }
+            }
+        }
+        return resumen;
+    }
+
+    // Las escrituras deben ejecutarse dentro de enTransaccion
+
+    // Con id 0 se genera uno en la ranura de la ubicación; un id dado debe ser de esa ranura
+    @Override
+    public Inventario crear(Inventario inventario) {
+        int ranura = AnilloFragmentos.ranura(inventario.getUbicacionBodega());
+        long id = inventario.getIdInventario();
+        if (id > 0 && ranuraDe(id) != ranura) {
+            throw new IllegalArgumentException("El id " + id + " no corresponde a la ubicación "
+                    + inventario.getUbicacionBodega());
+        }
+        Fragmento fragmento = escribir(ranura);
+        if (id <= 0) {
+            id = nuevoId(ranura);
+        }
+        unidades.get().anotar(fragmento, id);
+        fragmento.jdbc.update(INSERTAR, id, ranura, inventario.getStockDisponible(), inventario.getUbicacionBodega(),
+                inventario.getFechaUltimaActualizacion(), 0L);
+        return new Inventario(id, inventario.getStockDisponible(), inventario.getUbicacionBodega(),
+                inventario.getFechaUltimaActualizacion(), 0L);
+    }
+
+    @Override
+    public ResultadoEscritura actualizarStock(long idInventario, int stockDisponible, Long versionEsperada,
+            LocalDateTime fecha) {
+        Fragmento fragmento = escribirId(idInventario);
+        Inventario existente = buscar(fragmento, idInventario, " FOR UPDATE").orElse(null);
+        if (existente == null) {
+            return ResultadoEscritura.fallido(ResultadoEscritura.Estado.NO_ENCONTRADO);
+        }
+        if (versionEsperada != null && existente.getVersion() != versionEsperada) {
+            return ResultadoEscritura.fallido(ResultadoEscritura.Estado.CONFLICTO_VERSION);
+        }
+        fragmento.jdbc.update(ACTUALIZAR, stockDisponible, fecha, idInventario);
+        return new ResultadoEscritura(ResultadoEscritura.Estado.ACTUALIZADO, existente.getStockDisponible(),
+                new Inventario(idInventario, stockDisponible, existente.getUbicacionBodega(), fecha,
+                        existente.getVersion() + 1));
+    }
+
+    // UPDATE condicional, igual que AlmacenJpa. El rango del stock actual que deja el
+    // resultado en [0, Integer.MAX_VALUE] se calcula aquí, sin sumar en la base: el desborde no
+    // es un error de la base y se informa como FUERA_DE_RANGO, y el SQL no necesita un CAST
+    // que cada motor escribe distinto
+    @Override
+    public ResultadoEscritura ajustarStock(long idInventario, int delta, LocalDateTime fecha) {
+        Fragmento fragmento = escribirId(idInventario);
+        long desde = Math.max(0L, -(long) delta);
+        long hasta = Math.min(Integer.MAX_VALUE, Integer.MAX_VALUE - (long) delta);
+        int filas = desde > hasta ? 0 : fragmento.jdbc.update(AJUSTAR, delta, fecha, idInventario, (int) desde,
+                (int) hasta);
+        if (filas == 0) {
+            Inventario rechazado = buscar(fragmento, idInventario, "").orElse(null);
+            if (rechazado == null) {
+                return ResultadoEscritura.fallido(ResultadoEscritura.Estado.NO_ENCONTRADO);
+            }
+            return ResultadoEscritura.fallido((long) rechazado.getStockDisponible() + delta > Integer.MAX_VALUE
+                    ? ResultadoEscritura.Estado.FUERA_DE_RANGO
+                    : ResultadoEscritura.Estado.STOCK_INSUFICIENTE);
+        }
+        Inventario actual = buscar(fragmento, idInventario, "").orElse(null);
+        if (actual == null) {
+            return ResultadoEscritura.fallido(ResultadoEscritura.Estado.NO_ENCONTRADO);
+        }
+        return new ResultadoEscritura(ResultadoEscritura.Estado.ACTUALIZADO, actual.getStockDisponible() - delta,
+                actual);
+    }
+
+    @Override
+    public ResultadoEscritura eliminar(long idInventario, Long versionEsperada) {
+        Fragmento fragmento = escribirId(idInventario);
+        Inventario existente = buscar(fragmento, idInventario, " FOR UPDATE").orElse(null);
+        if (existente == null) {
+            return ResultadoEscritura.fallido(ResultadoEscritura.Estado.NO_ENCONTRADO);
+        }
+        if (versionEsperada != null && existente.getVersion() != versionEsperada) {
+            return ResultadoEscritura.fallido(ResultadoEscritura.Estado.CONFLICTO_VERSION);
+        }
+        fragmento.jdbc.update("DELETE FROM " + TABLA + " WHERE id_inventario = ?", idInventario);
+        return new ResultadoEscritura(ResultadoEscritura.Estado.ELIMINADO, existente.getStockDisponible(), existente);
+    }
+
+    // Las filas se bloquean fragmento por fragmento en orden de número y, dentro de cada uno,
+    // en orden de id: dos lotes con filas en común no se bloquean mutuamente
+    @Override
+    public List<ResultadoEscritura> ajustarLote(SortedMap<Long, Integer> deltas, LocalDateTime fecha) {
+        Map<Long, Inventario> bloqueadas = bloquear(deltas.keySet());
+        List<ResultadoEscritura.Estado> fallas = new ArrayList<>(deltas.size());
+        boolean completo = true;
+        for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+            Inventario fila = bloqueadas.get(delta.getKey());
+            ResultadoEscritura.Estado falla = null;
+            if (fila == null) {
+                falla = ResultadoEscritura.Estado.NO_ENCONTRADO;
+            } else {
+                falla = validarStock((long) fila.getStockDisponible() + delta.getValue());
+            }
+            fallas.add(falla);
+            completo &= falla == null;
+        }
+        List<ResultadoEscritura> resultados = new ArrayList<>(deltas.size());
+        if (!completo) {
+            for (ResultadoEscritura.Estado falla : fallas) {
+                resultados.add(ResultadoEscritura.fallido(
+                        falla != null ? falla : ResultadoEscritura.Estado.NO_APLICADO));
+            }
+            return resultados;
+        }
+        Map<Fragmento, List<Object[]>> actualizaciones = new TreeMap<>(Comparator.comparingInt(Fragmento::getIndice));
+        for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+            Inventario fila = bloqueadas.get(delta.getKey());
+            Inventario escrita = fila;
+            if (delta.getValue() != 0) {
+                escrita = new Inventario(fila.getIdInventario(), fila.getStockDisponible() + delta.getValue(),
+                        fila.getUbicacionBodega(), fecha, fila.getVersion() + 1);
+                actualizaciones.computeIfAbsent(porId(fila.getIdInventario()), fragmento -> new ArrayList<>())
+                        .add(new Object[] { escrita.getStockDisponible(), fecha, fila.getIdInventario() });
+            }
+            resultados.add(new ResultadoEscritura(ResultadoEscritura.Estado.ACTUALIZADO, fila.getStockDisponible(),
+                    escrita));
+        }
+        actualizaciones.forEach((fragmento, lote) -> fragmento.jdbc.batchUpdate(ACTUALIZAR, lote));
+        return resultados;
+    }
+
+    private static ResultadoEscritura.Estado validarStock(long stock) {
+        if (stock < 0) {
+            return ResultadoEscritura.Estado.STOCK_INSUFICIENTE;
+        }
+        return stock > Integer.MAX_VALUE ? ResultadoEscritura.Estado.FUERA_DE_RANGO : null;
+    }
+
+    // Los existentes se bloquean en una consulta por fragmento; los nuevos se insertan en la
+    // ranura de su ubicación. Inserciones y actualizaciones salen en lotes JDBC por fragmento.
+    @Override
+    public List<ResultadoEscritura> guardarLote(List<Inventario> lote, LocalDateTime fecha) {
+        List<Long> ids = new ArrayList<>(lote.size());
+        for (Inventario inventario : lote) {
+            if (inventario.getIdInventario() > 0) {
+                ids.add(inventario.getIdInventario());
+            }
+        }
+        Map<Long, Inventario> existentes = bloquear(ids);
+
+        Comparator<Fragmento> orden = Comparator.comparingInt(Fragmento::getIndice);
+        Map<Fragmento, List<Object[]>> inserciones = new TreeMap<>(orden);
+        Map<Fragmento, List<Object[]>> actualizaciones = new TreeMap<>(orden);
+        List<ResultadoEscritura> resultados = new ArrayList<>(lote.size());
+        for (Inventario inventario : lote) {
+            Inventario existente = existentes.get(inventario.getIdInventario());
+            if (existente != null) {
+                Inventario escrita = new Inventario(existente.getIdInventario(), inventario.getStockDisponible(),
+                        existente.getUbicacionBodega(), fecha, existente.getVersion() + 1);
+                existentes.put(escrita.getIdInventario(), escrita);
+                actualizaciones.computeIfAbsent(porId(escrita.getIdInventario()), fragmento -> new ArrayList<>())
+                        .add(new Object[] { escrita.getStockDisponible(), fecha, escrita.getIdInventario() });
+                resultados.add(new ResultadoEscritura(ResultadoEscritura.Estado.ACTUALIZADO,
+                        existente.getStockDisponible(), escrita));
+            } else {
+                int ranura = AnilloFragmentos.ranura(inventario.getUbicacionBodega());
+                Fragmento fragmento = escribir(ranura);
+                Inventario creada = new Inventario(nuevoId(ranura), inventario.getStockDisponible(),
+                        inventario.getUbicacionBodega(), fecha, 0L);
+                unidades.get().anotar(fragmento, creada.getIdInventario());
+                inserciones.computeIfAbsent(fragmento, destino -> new ArrayList<>())
+                        .add(new Object[] { creada.getIdInventario(), ranura, creada.getStockDisponible(),
+                                creada.getUbicacionBodega(), fecha, 0L });
+                resultados.add(new ResultadoEscritura(ResultadoEscritura.Estado.CREADO, 0, creada));
+            }
+        }
+        inserciones.forEach((fragmento, filas) -> fragmento.jdbc.batchUpdate(INSERTAR, filas));
+        actualizaciones.forEach((fragmento, filas) -> fragmento.jdbc.batchUpdate(ACTUALIZAR, filas));
+        return resultados;
+    }
+
+    // Mueve las ranuras que el anillo asigna a otro fragmento. Se puede repetir: un
+    // rebalanceo interrumpido continúa donde quedó.
+    public ResultadoRebalanceo rebalancear() {
+        if (!cerrojoRebalanceo.tryLock()) {
+            throw new IllegalStateException("Ya hay un rebalanceo en curso");
+        }
+        try {
+            long inicio = System.nanoTime();
+            int ranuras = 0;
+            long filas = 0;
+            for (int ranura = 0; ranura < RANURAS; ranura++) {
+                int destino = anillo.fragmento(ranura);
+                if (asignacion.get(ranura) != destino) {
+                    filas += mover(ranura, destino);
+                    ranuras++;
+                }
+            }
+            long duracion = (System.nanoTime() - inicio) / 1_000_000;
+            LOG.info("Rebalanceo de {} fragmentos: {} ranuras y {} filas movidas en {} ms", fragmentos.size(),
+                    ranuras, filas, duracion);
+            return new ResultadoRebalanceo(fragmentos.size(), ranuras, filas, duracion);
+        } finally {
+            cerrojoRebalanceo.unlock();
+        }
+    }
+
+    // Con la ranura bloqueada ninguna unidad la está escribiendo y las nuevas esperan. Las
+    // lecturas siguen en el origen hasta que cambia la asignación; los listados de todos los
+    // fragmentos descartan las copias que no están en el dueño de su ranura.
+    private long mover(int ranura, int destino) {
+        ReentrantReadWriteLock.WriteLock cerrojo = cerrojos[ranura].writeLock();
+        cerrojo.lock();
+        try {
+            Fragmento origen = fragmentos.get(asignacion.get(ranura));
+            Fragmento llegada = fragmentos.get(destino);
+            // Restos de un rebalanceo que se cortó antes de cambiar la asignación
+            llegada.jdbc.update("DELETE FROM " + TABLA + " WHERE ranura = ?", ranura);
+            long copiadas = 0;
+            long despuesDe = Long.MIN_VALUE;
+            while (true) {
+                List<Object[]> filas = origen.jdbc.query("SELECT id_inventario, ranura, stock_disponible,"
+                        + " ubicacion_bodega, fecha_ultima_actualizacion, version FROM " + TABLA
+                        + " WHERE ranura = ? AND id_inventario > ? ORDER BY id_inventario LIMIT ?",
+                        (rs, numero) -> new Object[] { rs.getLong(1), rs.getInt(2), rs.getInt(3), rs.getString(4),
+                                rs.getObject(5, LocalDateTime.class), rs.getLong(6) },
+                        ranura, despuesDe, BLOQUE_COPIA);
+                if (filas.isEmpty()) {
+                    break;
+                }
+                llegada.jdbc.batchUpdate(INSERTAR, filas);
+                copiadas += filas.size();
+                despuesDe = (Long) filas.get(filas.size() - 1)[0];
+                if (filas.size() < BLOQUE_COPIA) {
+                    break;
+                }
+            }
+            jdbcCatalogo.update("UPDATE inventario_ranura SET fragmento = ? WHERE ranura = ?", destino, ranura);
+            asignacion.set(ranura, destino);
+            origen.jdbc.update("DELETE FROM " + TABLA + " WHERE ranura = ?", ranura);
+            return copiadas;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    // Las filas se cuentan por ranura y solo en el dueño vigente: las copias que dejó un
+    // rebalanceo interrumpido no suman, igual que en los listados
+    public EstadoFragmentos estado() {
+        int[] vigente = asignacion();
+        List<Integer> ranuras = new ArrayList<>(Collections.nCopies(fragmentos.size(), 0));
+        for (int fragmento : vigente) {
+            ranuras.set(fragmento, ranuras.get(fragmento) + 1);
+        }
+        List<Long> filas = enCadaFragmento(fragmentos, fragmento -> {
+            long[] vigentes = new long[1];
+            fragmento.jdbc.query("SELECT ranura, COUNT(*) FROM " + TABLA + " GROUP BY ranura", rs -> {
+                if (vigente[rs.getInt(1)] == fragmento.indice) {
+                    vigentes[0] += rs.getLong(2);
+                }
+            });
+            return vigentes[0];
+        });
+        return new EstadoFragmentos(fragmentos.size(), ranuras, filas, ranurasPendientes(vigente));
+    }
+
+    private int ranurasPendientes(int[] vigente) {
+        int pendientes = 0;
+        for (int ranura = 0; ranura < RANURAS; ranura++) {
+            if (vigente[ranura] != anillo.fragmento(ranura)) {
+                pendientes++;
+            }
+        }
+        return pendientes;
+    }
+
+    private int[] asignacion() {
+        int[] vigente = new int[RANURAS];
+        for (int ranura = 0; ranura < RANURAS; ranura++) {
+            vigente[ranura] = asignacion.get(ranura);
+        }
+        return vigente;
+    }
+
+    // Los ids heredados del motor JPA no llevan la ranura en sus bits; todos son menores que
+    // los generados por este motor
+    private int ranuraDe(long idInventario) {
+        long[] heredados = idsHeredados;
+        if (heredados.length > 0 && idInventario <= heredados[heredados.length - 1]) {
+            int posicion = Arrays.binarySearch(heredados, idInventario);
+            if (posicion >= 0) {
+                return ranurasHeredadas[posicion];
+            }
+        }
+        return AnilloFragmentos.ranuraDeId(idInventario);
+    }
+
+    private Fragmento porId(long idInventario) {
+        return leer(fragmentos.get(asignacion.get(ranuraDe(idInventario))));
+    }
+
+    private Fragmento porUbicacion(String ubicacionBodega) {
+        return leer(fragmentos.get(asignacion.get(AnilloFragmentos.ranura(ubicacionBodega))));
+    }
+
+    // Dentro de una unidad las lecturas en este hilo usan la conexión de la unidad: sin ella
+    // JdbcTemplate asociaría otra conexión al fragmento hasta el fin de la transacción y la
+    // unidad ya no podría abrir la suya
+    private Fragmento leer(Fragmento fragmento) {
+        Unidad unidad = unidades.get();
+        if (unidad != null) {
+            unidad.abrir(fragmento);
+        }
+        return fragmento;
+    }
+
+    // Toma la ranura en la unidad actual y abre la conexión de su fragmento
+    private Fragmento escribir(int ranura) {
+        Unidad unidad = unidades.get();
+        if (unidad == null) {
+            throw new IllegalStateException("Las escrituras del almacén fragmentado van dentro de enTransaccion");
+        }
+        unidad.bloquear(ranura);
+        Fragmento fragmento = fragmentos.get(asignacion.get(ranura));
+        unidad.abrir(fragmento);
+        return fragmento;
+    }
+
+    private Fragmento escribirId(long idInventario) {
+        Fragmento fragmento = escribir(ranuraDe(idInventario));
+        unidades.get().anotar(fragmento, idInventario);
+        return fragmento;
+    }
+
+    private static Optional<Inventario> buscar(Fragmento fragmento, long idInventario, String bloqueo) {
+        return fragmento.jdbc.query(SELECCION + " WHERE id_inventario = ?" + bloqueo, FILA, idInventario)
+                .stream().findFirst();
+    }
+
+    private Map<Long, Inventario> bloquear(Collection<Long> ids) {
+        Map<Fragmento, List<Long>> porFragmento = new TreeMap<>(Comparator.comparingInt(Fragmento::getIndice));
+        for (Long id : ids) {
+            porFragmento.computeIfAbsent(escribirId(id), fragmento -> new ArrayList<>()).add(id);
+        }
+        Map<Long, Inventario> bloqueadas = new HashMap<>();
+        porFragmento.forEach((fragmento, delFragmento) -> {
+            for (Inventario fila : fragmento.jdbc.query(SELECCION + " WHERE id_inventario IN ("
+                    + marcadores(delFragmento.size()) + ") ORDER BY id_inventario FOR UPDATE", FILA,
+                    delFragmento.toArray())) {
+                bloqueadas.put(fila.getIdInventario(), fila);
+            }
+        });
+        return bloqueadas;
+    }
+
+    private long nuevoId(int ranura) {
+        cerrojoIds.lock();
+        try {
+            if (siguienteSecuencia >= limiteSecuencia) {
+                reservarBloque();
+            }
+            return AnilloFragmentos.id(siguienteSecuencia++, ranura);
+        } finally {
+            cerrojoIds.unlock();
+        }
+    }
+
+    // En una conexión propia que se confirma en el acto: la fila del contador no queda
+    // bloqueada hasta el fin de la unidad y el bloque no se reutiliza si la unidad se deshace
+    private void reservarBloque() {
+        try (Connection conexion = catalogo.getConnection()) {
+            conexion.setAutoCommit(false);
+            try (PreparedStatement sumar = conexion.prepareStatement(
+                    "UPDATE inventario_fragmento_id SET siguiente = siguiente + ? WHERE id = 1")) {
+                sumar.setInt(1, BLOQUE_IDS);
+                sumar.executeUpdate();
+            }
+            long limite;
+            try (PreparedStatement leer = conexion.prepareStatement(
+                    "SELECT siguiente FROM inventario_fragmento_id WHERE id = 1");
+                    ResultSet rs = leer.executeQuery()) {
+                rs.next();
+                limite = rs.getLong(1);
+            }
+            conexion.commit();
+            limiteSecuencia = limite;
+            siguienteSecuencia = limite - BLOQUE_IDS;
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("No se pudo reservar un bloque de ids", e);
+        }
+    }
+
+    // Página por keyset en uno o en todos los fragmentos. Cada fragmento aporta hasta limite
+    // filas vigentes y la mezcla se queda con las limite de menor id.
+    private List<Inventario> pagina(String ubicacionBodega, String condicion, List<Object> parametros,
+            long despuesDe, int limite) {
+        int[] vigente = asignacion();
+        List<Fragmento> destino = ubicacionBodega == null
+                ? fragmentos
+                : List.of(fragmentos.get(vigente[AnilloFragmentos.ranura(ubicacionBodega)]));
+        String sql = SELECCION + " WHERE id_inventario > ?" + condicion + " ORDER BY id_inventario LIMIT ?";
+        return mezclar(enCadaFragmento(destino, fragmento -> {
+            List<Inventario> filas = new ArrayList<>(limite);
+            long desde = despuesDe;
+            while (true) {
+                Object[] argumentos = new Object[parametros.size() + 2];
+                argumentos[0] = desde;
+                for (int i = 0; i < parametros.size(); i++) {
+                    argumentos[i + 1] = parametros.get(i);
+                }
+                argumentos[argumentos.length - 1] = limite;
+                List<Inventario> leidas = fragmento.jdbc.query(sql, FILA, argumentos);
+                for (Inventario fila : vigentes(fragmento, vigente, leidas)) {
+                    if (filas.size() < limite) {
+                        filas.add(fila);
+                    }
+                }
+                // Solo se relee si el rebalanceo dejó copias que no cuentan
+                if (filas.size() >= limite || leidas.size() < limite) {
+                    return filas;
+                }
+                desde = leidas.get(leidas.size() - 1).getIdInventario();
+            }
+        }), limite);
+    }
+
+    private static String condicionStock(Integer stockMinimo, Integer stockMaximo, List<Object> parametros) {
+        StringBuilder condicion = new StringBuilder();
+        if (stockMinimo != null) {
+            condicion.append(" AND stock_disponible >= ?");
+            parametros.add(stockMinimo);
+        }
+        if (stockMaximo != null) {
+            condicion.append(" AND stock_disponible <= ?");
+            parametros.add(stockMaximo);
+        }
+        return condicion.toString();
+    }
+
+    // Filas que están en el fragmento dueño de su ranura según la asignación leída
+    private List<Inventario> vigentes(Fragmento fragmento, int[] vigente, List<Inventario> filas) {
+        for (Inventario fila : filas) {
+            if (vigente[ranuraDe(fila.getIdInventario())] != fragmento.indice) {
+                List<Inventario> filtradas = new ArrayList<>(filas.size());
+                for (Inventario otra : filas) {
+                    if (vigente[ranuraDe(otra.getIdInventario())] == fragmento.indice) {
+                        filtradas.add(otra);
+                    }
+                }
+                return filtradas;
+            }
+        }
+        return filas;
+    }
+
+    // Una consulta por fragmento en paralelo. Los fragmentos que la unidad actual ya escribió
+    // se consultan en este hilo, con la conexión de la unidad, para ver sus propios cambios.
+    private <T> List<T> enCadaFragmento(List<Fragmento> destino, Function<Fragmento, T> consulta) {
+        if (destino.size() == 1) {
+            return List.of(consulta.apply(leer(destino.get(0))));
+        }
+        List<CompletableFuture<T>> pendientes = new ArrayList<>(destino.size());
+        for (Fragmento fragmento : destino) {
+            pendientes.add(TransactionSynchronizationManager.hasResource(fragmento.datos)
+                    ? null
+                    : CompletableFuture.supplyAsync(() -> consulta.apply(fragmento), ejecutor));
+        }
+        List<T> resultados = new ArrayList<>(destino.size());
+        for (int i = 0; i < destino.size(); i++) {
+            CompletableFuture<T> pendiente = pendientes.get(i);
+            if (pendiente == null) {
+                resultados.add(consulta.apply(destino.get(i)));
+                continue;
+            }
+            try {
+                resultados.add(pendiente.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException causa) {
+                    throw causa;
+                }
+                throw e;
+            }
+        }
+        return resultados;
+    }
+
+    // Mezcla por id de listas ya ordenadas, hasta limite filas
+    private static List<Inventario> mezclar(List<List<Inventario>> listas, int limite) {
+        if (listas.size() == 1) {
+            List<Inventario> unica = listas.get(0);
+            return unica.size() <= limite ? unica : new ArrayList<>(unica.subList(0, limite));
+        }
+        List<Iterator<Inventario>> cursores = new ArrayList<>(listas.size());
+        int total = 0;
+        for (List<Inventario> lista : listas) {
+            cursores.add(lista.iterator());
+            total += lista.size();
+        }
+        PriorityQueue<Cabeza> cabezas = cabezas(cursores);
+        List<Inventario> mezcla = new ArrayList<>(Math.min(total, limite));
+        while (!cabezas.isEmpty() && mezcla.size() < limite) {
+            Cabeza cabeza = cabezas.poll();
+            mezcla.add(cabeza.fila);
+            cabeza.avanzar(cabezas);
+        }
+        return mezcla;
+    }
+
+    private static PriorityQueue<Cabeza> cabezas(List<Iterator<Inventario>> cursores) {
+        PriorityQueue<Cabeza> cabezas = new PriorityQueue<>(Math.max(cursores.size(), 1),
+                Comparator.comparingLong(cabeza -> cabeza.fila.getIdInventario()));
+        for (Iterator<Inventario> cursor : cursores) {
+            if (cursor.hasNext()) {
+                cabezas.add(new Cabeza(cursor.next(), cursor));
+            }
+        }
+        return cabezas;
+    }
+
+    private static String marcadores(int cantidad) {
+        return String.join(", ", Collections.nCopies(cantidad, "?"));
+    }
+
+    // Siguiente fila de un fragmento durante la mezcla
+    private static final class Cabeza {
+        private Inventario fila;
+        private final Iterator<Inventario> resto;
+
+        private Cabeza(Inventario fila, Iterator<Inventario> resto) {
+            this.fila = fila;
+            this.resto = resto;
+        }
+
+        private void avanzar(PriorityQueue<Cabeza> cabezas) {
+            if (resto.hasNext()) {
+                fila = resto.next();
+                cabezas.add(this);
+            }
+        }
+    }
+
+    @Getter
+    private static final class Fragmento {
+        private final int indice;
+        private final DataSource datos;
+        private final JdbcTemplate jdbc;
+        // Recorridos completos: trae las filas por bloques en vez de todas juntas
+        private final JdbcTemplate recorrido;
+
+        private Fragmento(int indice, DataSource datos) {
+            this.indice = indice;
+            this.datos = datos;
+            this.jdbc = new JdbcTemplate(datos);
+            this.recorrido = new JdbcTemplate(datos);
+            this.recorrido.setFetchSize(1000);
+        }
+    }
+
+    // Conexiones y ranuras de una unidad de enTransaccion. Se registra como sincronización de
+    // la transacción principal: confirma los fragmentos antes que ella y al terminar devuelve
+    // las conexiones y suelta las ranuras. Va última entre las sincronizaciones: si el
+    // historial no puede insertar sus movimientos en beforeCommit, los fragmentos no se tocan.
+    private final class Unidad implements TransactionSynchronization {
+        private final Connection[] conexiones = new Connection[fragmentos.size()];
+        private final BitSet ranuras = new BitSet(RANURAS);
+        // Ids escritos en cada fragmento, para el error de una confirmación a medias
+        private final List<List<Long>> ids = new ArrayList<>(Collections.nCopies(fragmentos.size(), null));
+
+        private void bloquear(int ranura) {
+            if (!ranuras.get(ranura)) {
+                cerrojos[ranura].readLock().lock();
+                ranuras.set(ranura);
+            }
+        }
+
+        // Queda asociada al DataSource del fragmento: JdbcTemplate la usa en este hilo
+        private void abrir(Fragmento fragmento) {
+            if (conexiones[fragmento.indice] != null) {
+                return;
+            }
+            try {
+                Connection conexion = fragmento.datos.getConnection();
+                conexion.setAutoCommit(false);
+                conexiones[fragmento.indice] = conexion;
+            } catch (SQLException e) {
+                throw new CannotGetJdbcConnectionException("Sin conexión al fragmento " + fragmento.indice, e);
+            }
+            TransactionSynchronizationManager.bindResource(fragmento.datos,
+                    new ConnectionHolder(conexiones[fragmento.indice]));
+        }
+
+        private void anotar(Fragmento fragmento, long idInventario) {
+            if (ids.get(fragmento.indice) == null) {
+                ids.set(fragmento.indice, new ArrayList<>());
+            }
+            ids.get(fragmento.indice).add(idInventario);
+        }
+
+        // Entre órdenes iguales Spring respeta el registro y la unidad se registra primero: las
+        // sincronizaciones que escriben en beforeCommit declaran un orden menor (el historial)
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            Map<Integer, List<Long>> confirmados = new TreeMap<>();
+            for (int i = 0; i < conexiones.length; i++) {
+                if (conexiones[i] == null) {
+                    continue;
+                }
+                try {
+                    conexiones[i].commit();
+                    confirmados.put(i, escritos(i));
+                } catch (SQLException e) {
+                    if (!confirmados.isEmpty()) {
+                        Map<Integer, List<Long>> deshechos = new TreeMap<>();
+                        for (int j = i; j < conexiones.length; j++) {
+                            if (conexiones[j] != null) {
+                                deshechos.put(j, escritos(j));
+                            }
+                        }
+                        LOG.error("Unidad confirmada a medias: ids confirmados por fragmento {}, deshechos {}",
+                                confirmados, deshechos);
+                    }
+                    throw new TransactionSystemException("No se pudo confirmar el fragmento " + i, e);
+                }
+            }
+        }
+
+        private List<Long> escritos(int fragmento) {
+            return ids.get(fragmento) == null ? List.of() : ids.get(fragmento);
+        }
+
+        @Override
+        public void afterCompletion(int estado) {
+            for (int i = 0; i < conexiones.length; i++) {
+                Connection conexion = conexiones[i];
+                if (conexion == null) {
+                    continue;
+                }
+                TransactionSynchronizationManager.unbindResourceIfPossible(fragmentos.get(i).datos);
+                try {
+                    if (estado != STATUS_COMMITTED) {
+                        conexion.rollback();
+                    }
+                    conexion.setAutoCommit(true);
+                } catch (SQLException e) {
+                    LOG.warn("No se pudo deshacer la unidad en el fragmento {}", i, e);
+                } finally {
+                    try {
+                        conexion.close();
+                    } catch (SQLException e) {
+                        LOG.warn("No se pudo cerrar la conexión del fragmento {}", i, e);
+                    }
+                }
+            }
+            for (int ranura = ranuras.nextSetBit(0); ranura >= 0; ranura = ranuras.nextSetBit(ranura + 1)) {
+                cerrojos[ranura].readLock().unlock();
+            }
+            unidades.remove();
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class Resumen implements ResumenUbicacion {
+        private final String ubicacionBodega;
+        private final Long stockTotal;
+        private final Long cantidadSkus;
+        private final Long skusStockBajo;
+    }
+}
@@ -0,0 +1,82 @@
+package com.inventario.inventario.almacen;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.function.Supplier;
+
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.ModoBusqueda;
+import com.inventario.inventario.repository.ResumenUbicacion;
+
+// Motor de almacenamiento de los inventarios usado por los servicios. El motor se elige con
+// inventario.almacen.motor: jpa (MySQL, por defecto), memoria (AlmacenMemoria) o
+// fragmentado (AlmacenFragmentado). Los listados devuelven las filas ordenadas por
+// idInventario ascendente.
+public interface AlmacenInventario {
+
+    // Ejecuta las operaciones como una unidad: una transacción en JPA, una por base tocada
+    // en el fragmentado. Una excepción deshace lo escrito en la unidad.
+    <T> T enTransaccion(Supplier<T> operacion);
+
+    boolean existe(long idInventario);
+
+    Optional<Inventario> buscar(long idInventario);
+
+    List<Inventario> buscarPorIds(Collection<Long> ids);
+
+    List<Inventario> buscarPorUbicacion(String ubicacionBodega);
+
+    // Páginas por keyset: hasta limite filas con id mayor que despuesDe
+    List<Inventario> buscarPagina(long despuesDe, Integer stockMinimo, Integer stockMaximo, int limite);
+
+    List<Inventario> buscarPaginaPorUbicacion(String ubicacionBodega, long despuesDe, Integer stockMinimo,
+            Integer stockMaximo, int limite);
+
+    // Ubicaciones que empiezan con o contienen el texto, sin distinguir mayúsculas
+    List<Inventario> buscarPaginaPorUbicacionSimilar(String texto, ModoBusqueda modo, long despuesDe, int limite);
+
+    List<Inventario> listarTodos();
+
+    // Recorre todas las filas en orden sin cargarlas juntas en memoria. Devuelve las filas recorridas.
+    long recorrer(ConsumidorInventario consumidor) throws IOException;
+
+    // Id y ubicación de todas las filas, para el índice de ubicaciones
+    long recorrerUbicaciones(ConsumidorUbicacion consumidor);
+
+    List<ResumenUbicacion> resumirPorUbicacion(int umbralStockBajo);
+
+    // Crea la fila con el id del inventario (el motor genera uno si es 0)
+    Inventario crear(Inventario inventario);
+
+    // Con versionEsperada solo escribe si la fila conserva esa versión
+    ResultadoEscritura actualizarStock(long idInventario, int stockDisponible, Long versionEsperada,
+            LocalDateTime fecha);
+
+    // Suma delta sin dejar el stock negativo
+    ResultadoEscritura ajustarStock(long idInventario, int delta, LocalDateTime fecha);
+
+    ResultadoEscritura eliminar(long idInventario, Long versionEsperada);
+
+    // Suma a cada inventario su delta, todos o ninguno: devuelve un resultado por id en el
+    // orden del mapa. Si alguno no existe o quedaría con stock negativo no escribe nada, esos
+    // resultados llevan su estado y los demás NO_APLICADO. Las filas se bloquean en orden de
+    // id ascendente, así dos lotes concurrentes no se bloquean mutuamente.
+    List<ResultadoEscritura> ajustarLote(SortedMap<Long, Integer> deltas, LocalDateTime fecha);
+
+    // Crea o actualiza el stock de cada inventario del lote, en el orden recibido
+    List<ResultadoEscritura> guardarLote(List<Inventario> lote, LocalDateTime fecha);
+
+    @FunctionalInterface
+    interface ConsumidorInventario {
+        void aceptar(Inventario inventario) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface ConsumidorUbicacion {
+        void aceptar(long idInventario, String ubicacionBodega);
+    }
+}
@@ -0,0 +1,382 @@
+package com.inventario.inventario.almacen;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.ModoBusqueda;
+import com.inventario.inventario.model.entity.InventarioEntity;
+import com.inventario.inventario.repository.InventarioRepository;
+import com.inventario.inventario.repository.ResumenUbicacion;
+import com.inventario.inventario.repository.StockActual;
+import com.inventario.inventario.repository.UbicacionInventario;
+
+import jakarta.persistence.EntityManager;
+
+// Motor por defecto: los inventarios viven en MySQL a través de InventarioRepository. Las
+// lecturas son de solo lectura para que, con réplicas activas, vayan a una réplica, y
+// proyectan las filas directo al modelo Inventario: en una transacción de solo lectura
+// Hibernate no sincroniza el contexto al terminar y las proyecciones no dejan entidades
+// administradas ni copias para detectar cambios.
+@Component
+@ConditionalOnProperty(name = "inventario.almacen.motor", havingValue = "jpa", matchIfMissing = true)
+public class AlmacenJpa implements AlmacenInventario {
+
+    private final InventarioRepository inventariorepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate transaccionLectura;
+    private final EntityManager entityManager;
+    // Transacciones de escritura simultáneas: una menos que el pool. El generador de tabla de
+    // InventarioEntity reserva cada bloque de ids con una segunda conexión mientras las demás
+    // inserciones esperan su lock con la conexión ya tomada; si todas las conexiones quedan
+    // en esa espera nadie avanza hasta el timeout del pool. Con este cupo siempre queda una
+    // libre para el generador. Sin cupo en el mismo timeout la escritura responde 503.
+    private final Semaphore escrituras;
+    private final long esperaEscrituraNanos;
+
+    public AlmacenJpa(InventarioRepository inventariorepository, TransactionTemplate transactionTemplate,
+            EntityManager entityManager) {
+        this(inventariorepository, transactionTemplate, entityManager, 10, 30_000);
+    }
+
+    @Autowired
+    public AlmacenJpa(InventarioRepository inventariorepository, TransactionTemplate transactionTemplate,
+            EntityManager entityManager,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int tamanoPool,
+            @Value("${spring.datasource.hikari.connection-timeout:30000}") long esperaConexionMillis) {
+        this.inventariorepository = inventariorepository;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.escrituras = new Semaphore(Math.max(tamanoPool - 1, 1));
+        this.esperaEscrituraNanos = TimeUnit.MILLISECONDS.toNanos(esperaConexionMillis);
+        this.transaccionLectura = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transaccionLectura.setReadOnly(true);
+    }
+
+    @Override
+    public <T> T enTransaccion(Supplier<T> operacion) {
+        // Dentro de otra transacción la conexión ya está tomada y el cupo ya se contó
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transactionTemplate.execute(estado -> operacion.get());
+        }
+        try {
+            if (!escrituras.tryAcquire(esperaEscrituraNanos, TimeUnit.NANOSECONDS)) {
+                // InventarioExceptionHandler responde 503 con Retry-After, igual que con el pool agotado
+                throw new CannotCreateTransactionException("No hay cupo para otra transacción de escritura");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotCreateTransactionException("Interrumpido esperando cupo de escritura", e);
+        }
+        try {
+            return transactionTemplate.execute(estado -> operacion.get());
+        } finally {
+            escrituras.release();
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean existe(long idInventario) {
+        return inventariorepository.existsById(idInventario);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Inventario> buscar(long idInventario) {
+        return inventariorepository.proyectarPorId(idInventario);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Inventario> buscarPorIds(Collection<Long> ids) {
+        return ids.isEmpty() ? List.of() : inventariorepository.buscarPorIdsOrdenados(ids);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Inventario> buscarPorUbicacion(String ubicacionBodega) {
+        return inventariorepository.proyectarPorUbicacion(ubicacionBodega);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Inventario> buscarPagina(long despuesDe, Integer stockMinimo, Integer stockMaximo, int limite) {
+        return inventariorepository.buscarPagina(despuesDe, stockMinimo, stockMaximo, Limit.of(limite));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Inventario> buscarPaginaPorUbicacion(String ubicacionBodega, long despuesDe, Integer stockMinimo,
+            Integer stockMaximo, int limite) {
+        return inventariorepository.buscarPaginaPorUbicacion(ubicacionBodega, despuesDe, stockMinimo,
+                stockMaximo, Limit.of(limite));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Inventario> buscarPaginaPorUbicacionSimilar(String texto, ModoBusqueda modo, long despuesDe,
+            int limite) {
+        String escapado = texto.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        String patron = (modo == ModoBusqueda.CONTIENE ? "%" : "") + escapado + "%";
+        return inventariorepository.buscarPaginaPorUbicacionSimilar(patron, despuesDe, Limit.of(limite));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Inventario> listarTodos() {
+        return inventariorepository.proyectarTodos();
+    }
+
+    // Cursor de solo avance en una transacción de lectura. Las filas llegan proyectadas, sin
+    // quedar en el contexto de persistencia, así la memoria usada no depende del tamaño de la tabla.
+    @Override
+    public long recorrer(ConsumidorInventario consumidor) throws IOException {
+        try {
+            return transaccionLectura.execute(estado -> {
+                long filas = 0;
+                try (Stream<Inventario> inventarios = inventariorepository.streamTodos()) {
+                    for (Inventario inventario : (Iterable<Inventario>) inventarios::iterator) {
+                        consumidor.aceptar(inventario);
+                        filas++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return filas;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public long recorrerUbicaciones(ConsumidorUbicacion consumidor) {
+        return transaccionLectura.execute(estado -> {
+            long filas = 0;
+            try (Stream<UbicacionInventario> ubicaciones = inventariorepository.streamUbicaciones()) {
+                for (UbicacionInventario fila : (Iterable<UbicacionInventario>) ubicaciones::iterator) {
+                    consumidor.aceptar(fila.getIdInventario(), fila.getUbicacionBodega());
+                    filas++;
+                }
+            }
+            return filas;
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ResumenUbicacion> resumirPorUbicacion(int umbralStockBajo) {
+        return inventariorepository.resumirPorUbicacion(umbralStockBajo);
+    }
+
+    // Las escrituras deben ejecutarse dentro de enTransaccion
+
+    @Override
+    public Inventario crear(Inventario inventario) {
+        return mapToModel(inventariorepository.save(mapToEntity(inventario)));
+    }
+
+    @Override
+    public ResultadoEscritura actualizarStock(long idInventario, int stockDisponible, Long versionEsperada,
+            LocalDateTime fecha) {
+        InventarioEntity existente = inventariorepository.findById(idInventario).orElse(null);
+        if (existente == null) {
+            return ResultadoEscritura.fallido(ResultadoEscritura.Estado.NO_ENCONTRADO);
+        }
+        if (versionEsperada != null && existente.getVersion() != versionEsperada) {
+            return ResultadoEscritura.fallido(ResultadoEscritura.Estado.CONFLICTO_VERSION);
+        }
+        int stockAnterior = existente.getStockDisponible();
+        existente.setStockDisponible(stockDisponible);
+        existente.setFechaUltimaActualizacion(fecha);
+        // Con el flush la entidad ya tiene la versión nueva que lleva el evento
+        inventariorepository.save(existente);
+        entityManager.flush();
+        return new ResultadoEscritura(ResultadoEscritura.Estado.ACTUALIZADO, stockAnterior, mapToModel(existente));
+    }
+
+    // UPDATE condicional, sin leer y volver a guardar la entidad, por lo que ajustes
+    // concurrentes no se pisan. El delta va como long para que la suma no desborde el int
+    @Override
+    public ResultadoEscritura ajustarStock(long idInventario, int delta, LocalDateTime fecha) {
+        int filas = inventariorepository.ajustarStock(idInventario, delta, fecha);
+        if (filas == 0) {
+            StockActual rechazado = inventariorepository.buscarStockActual(idInventario).orElse(null);
+            if (rechazado == null) {
+                return ResultadoEscritura.fallido(ResultadoEscritura.Estado.NO_ENCONTRADO);
+            }
+            return ResultadoEscritura.fallido((long) rechazado.getStockDisponible() + delta > Integer.MAX_VALUE
+                    ? ResultadoEscritura.Estado.FUERA_DE_RANGO
+                    : ResultadoEscritura.Estado.STOCK_INSUFICIENTE);
+        }
+        // La fila quedó bloqueada por el UPDATE, la lectura ve el valor de esta transacción
+        StockActual actual = inventariorepository.buscarStockActual(idInventario).orElse(null);
+        if (actual == null) {
+            return ResultadoEscritura.fallido(ResultadoEscritura.Estado.NO_ENCONTRADO);
+        }
+        return new ResultadoEscritura(ResultadoEscritura.Estado.ACTUALIZADO, actual.getStockDisponible() - delta,
+                new Inventario(idInventario, actual.getStockDisponible(), actual.getUbicacionBodega(), fecha,
+                        actual.getVersion()));
+    }
+
+    @Override
+    public ResultadoEscritura eliminar(long idInventario, Long versionEsperada) {
+        InventarioEntity existente = inventariorepository.findById(idInventario).orElse(null);
+        if (existente == null) {
+            return ResultadoEscritura.fallido(ResultadoEscritura.Estado.NO_ENCONTRADO);
+        }
+        if (versionEsperada != null && existente.getVersion() != versionEsperada) {
+            return ResultadoEscritura.fallido(ResultadoEscritura.Estado.CONFLICTO_VERSION);
+        }
+        inventariorepository.delete(existente);
+        return new ResultadoEscritura(ResultadoEscritura.Estado.ELIMINADO, existente.getStockDisponible(),
+                mapToModel(existente));
+    }
+
+    // Una consulta bloquea las filas en orden de id; se validan todas antes de modificar
+    // alguna y los UPDATE salen en lotes JDBC (hibernate.jdbc.batch_size) al hacer flush
+    @Override
+    public List<ResultadoEscritura> ajustarLote(SortedMap<Long, Integer> deltas, LocalDateTime fecha) {
+        Map<Long, InventarioEntity> bloqueadas = inventariorepository.bloquearPorIds(deltas.keySet()).stream()
+                .collect(Collectors.toMap(InventarioEntity::getIdInventario, Function.identity()));
+        List<ResultadoEscritura.Estado> fallas = new ArrayList<>(deltas.size());
+        boolean completo = true;
+        for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+            InventarioEntity entidad = bloqueadas.get(delta.getKey());
+            ResultadoEscritura.Estado falla = null;
+            if (entidad == null) {
+                falla = ResultadoEscritura.Estado.NO_ENCONTRADO;
+            } else {
+                falla = validarStock((long) entidad.getStockDisponible() + delta.getValue());
+            }
+            fallas.add(falla);
+            completo &= falla == null;
+        }
+        List<ResultadoEscritura> resultados = new ArrayList<>(deltas.size());
+        if (!completo) {
+            for (ResultadoEscritura.Estado falla : fallas) {
+                resultados.add(ResultadoEscritura.fallido(
+                        falla != null ? falla : ResultadoEscritura.Estado.NO_APLICADO));
+            }
+            return resultados;
+        }
+        List<InventarioEntity> entidades = new ArrayList<>(deltas.size());
+        int[] stockAnterior = new int[deltas.size()];
+        for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+            InventarioEntity entidad = bloqueadas.get(delta.getKey());
+            stockAnterior[entidades.size()] = entidad.getStockDisponible();
+            if (delta.getValue() != 0) {
+                entidad.setStockDisponible(entidad.getStockDisponible() + delta.getValue());
+                entidad.setFechaUltimaActualizacion(fecha);
+            }
+            entidades.add(entidad);
+        }
+        // Después del flush las entidades tienen la versión nueva
+        entityManager.flush();
+        for (int i = 0; i < entidades.size(); i++) {
+            resultados.add(new ResultadoEscritura(ResultadoEscritura.Estado.ACTUALIZADO, stockAnterior[i],
+                    mapToModel(entidades.get(i))));
+        }
+        return resultados;
+    }
+
+    private static ResultadoEscritura.Estado validarStock(long stock) {
+        if (stock < 0) {
+            return ResultadoEscritura.Estado.STOCK_INSUFICIENTE;
+        }
+        return stock > Integer.MAX_VALUE ? ResultadoEscritura.Estado.FUERA_DE_RANGO : null;
+    }
+
+    // Una sola consulta para encontrar los inventarios que ya existen; los nuevos se insertan
+    // con persist y Hibernate los envía en lotes JDBC al hacer flush
+    @Override
+    public List<ResultadoEscritura> guardarLote(List<Inventario> lote, LocalDateTime fecha) {
+        Set<Long> ids = lote.stream()
+                .map(Inventario::getIdInventario)
+                .filter(id -> id > 0)
+                .collect(Collectors.toSet());
+        Map<Long, InventarioEntity> existentes = ids.isEmpty()
+                ? Map.of()
+                : inventariorepository.findAllById(ids).stream()
+                        .collect(Collectors.toMap(InventarioEntity::getIdInventario, Function.identity()));
+
+        List<InventarioEntity> entidades = new ArrayList<>(lote.size());
+        int[] stockAnterior = new int[lote.size()];
+        boolean[] creado = new boolean[lote.size()];
+        for (int i = 0; i < lote.size(); i++) {
+            Inventario inventario = lote.get(i);
+            InventarioEntity entidad = existentes.get(inventario.getIdInventario());
+            if (entidad != null) {
+                stockAnterior[i] = entidad.getStockDisponible();
+                entidad.setStockDisponible(inventario.getStockDisponible());
+                entidad.setFechaUltimaActualizacion(fecha);
+            } else {
+                entidad = mapToEntity(inventario);
+                entidad.setIdInventario(0L);
+                entidad.setFechaUltimaActualizacion(fecha);
+                entityManager.persist(entidad);
+                creado[i] = true;
+            }
+            entidades.add(entidad);
+        }
+        entityManager.flush();
+
+        List<ResultadoEscritura> resultados = new ArrayList<>(lote.size());
+        for (int i = 0; i < entidades.size(); i++) {
+            resultados.add(new ResultadoEscritura(creado[i]
+                    ? ResultadoEscritura.Estado.CREADO
+                    : ResultadoEscritura.Estado.ACTUALIZADO, stockAnterior[i], mapToModel(entidades.get(i))));
+        }
+        entityManager.clear();
+        return resultados;
+    }
+
+    // Métodos auxiliares para mapear entre Inventario e InventarioEntity
+    // (visibles en el paquete para los benchmarks de src/jmh)
+    static InventarioEntity mapToEntity(Inventario inv) {
+        InventarioEntity entity = new InventarioEntity();
+        entity.setIdInventario(inv.getIdInventario());
+        entity.setStockDisponible(inv.getStockDisponible());
+        entity.setUbicacionBodega(inv.getUbicacionBodega());
+        entity.setFechaUltimaActualizacion(inv.getFechaUltimaActualizacion());
+        return entity;
+    }
+
+    static Inventario mapToModel(InventarioEntity entity) {
+        return new Inventario(
+                entity.getIdInventario(),
+                entity.getStockDisponible(),
+                entity.getUbicacionBodega(),
+                entity.getFechaUltimaActualizacion(),
+                entity.getVersion()
+
+        );
+    }
+}
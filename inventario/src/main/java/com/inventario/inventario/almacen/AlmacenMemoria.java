@@ -0,0 +1,548 @@
+package com.inventario.inventario.almacen;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.ModoBusqueda;
+import com.inventario.inventario.repository.ResumenUbicacion;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Motor en memoria (inventario.almacen.motor=memoria): las filas viven en TablaInventarios,
+// arreglos primitivos con índices por ubicación y por id. Un lock de lectura/escritura
+// protege la tabla; cada escritura es atómica por sí sola y enTransaccion no la deshace.
+// Con inventario.almacen.memoria.directorio las escrituras se agregan a un registro en disco
+// (RegistroAlmacen) que se compacta en una instantánea al pasar maximo-registro. Si falla
+// la escritura del registro el almacén deja de aceptar escrituras; al reiniciar vale lo que
+// quedó en disco. La escritura diferida del stock escribe con JPA y no se puede combinar.
+@Component
+@ConditionalOnProperty(name = "inventario.almacen.motor", havingValue = "memoria")
+public class AlmacenMemoria implements AlmacenInventario, MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AlmacenMemoria.class);
+
+    // Filas copiadas por cada toma del lock al recorrer la tabla completa
+    private static final int BLOQUE_RECORRIDO = 1000;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TablaInventarios tabla;
+    private final RegistroAlmacen registro;
+    private final long maximoRegistro;
+
+    private long siguienteId = 1;
+    private volatile IOException errorRegistro;
+
+    @Autowired
+    public AlmacenMemoria(@Value("${inventario.almacen.memoria.directorio:}") String directorio,
+            @Value("${inventario.almacen.memoria.capacidad-inicial:65536}") int capacidadInicial,
+            @Value("${inventario.almacen.memoria.fsync:false}") boolean fsync,
+            @Value("${inventario.almacen.memoria.maximo-registro:64MB}") DataSize maximoRegistro,
+            @Value("${inventario.escritura-diferida.activa:false}") boolean escrituraDiferida) throws IOException {
+        this(directorio.isBlank() ? null : Path.of(directorio), capacidadInicial, fsync, maximoRegistro.toBytes());
+        if (escrituraDiferida) {
+            cerrar();
+            throw new IllegalStateException("inventario.escritura-diferida.activa requiere inventario.almacen.motor=jpa");
+        }
+    }
+
+    // Sin directorio no hay persistencia
+    public AlmacenMemoria(Path directorio, int capacidadInicial, boolean fsync, long maximoRegistro)
+            throws IOException {
+        this.tabla = new TablaInventarios(capacidadInicial);
+        this.maximoRegistro = maximoRegistro;
+        if (directorio == null) {
+            this.registro = null;
+            return;
+        }
+        this.registro = new RegistroAlmacen(directorio, fsync);
+        long inicio = System.nanoTime();
+        siguienteId = registro.cargar(tabla);
+        ConjuntoIds ids = tabla.ordenados();
+        if (!ids.vacio()) {
+            siguienteId = Math.max(siguienteId, ids.en(ids.tamano() - 1) + 1);
+        }
+        LOG.info("Almacén en memoria con {} inventarios cargados de {} en {} ms", tabla.filas(), directorio,
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    @PreDestroy
+    public void cerrar() throws IOException {
+        if (registro == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            registro.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public <T> T enTransaccion(Supplier<T> operacion) {
+        return operacion.get();
+    }
+
+    @Override
+    public boolean existe(long idInventario) {
+        lock.readLock().lock();
+        try {
+            return tabla.posicion(idInventario) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Inventario> buscar(long idInventario) {
+        lock.readLock().lock();
+        try {
+            int posicion = tabla.posicion(idInventario);
+            return posicion < 0 ? Optional.empty() : Optional.of(leer(posicion));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Inventario> buscarPorIds(Collection<Long> ids) {
+        long[] ordenados = ids.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        List<Inventario> inventarios = new ArrayList<>(ordenados.length);
+        lock.readLock().lock();
+        try {
+            for (long id : ordenados) {
+                int posicion = tabla.posicion(id);
+                if (posicion >= 0) {
+                    inventarios.add(leer(posicion));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return inventarios;
+    }
+
+    @Override
+    public List<Inventario> buscarPorUbicacion(String ubicacionBodega) {
+        return buscarPaginaPorUbicacion(ubicacionBodega, 0L, null, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Inventario> buscarPagina(long despuesDe, Integer stockMinimo, Integer stockMaximo, int limite) {
+        lock.readLock().lock();
+        try {
+            return pagina(tabla.ordenados(), despuesDe, stockMinimo, stockMaximo, limite);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Inventario> buscarPaginaPorUbicacion(String ubicacionBodega, long despuesDe, Integer stockMinimo,
+            Integer stockMaximo, int limite) {
+        lock.readLock().lock();
+        try {
+            ConjuntoIds ids = tabla.porUbicacion(ubicacionBodega);
+            return ids == null ? new ArrayList<>() : pagina(ids, despuesDe, stockMinimo, stockMaximo, limite);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Se revisan las ubicaciones distintas del diccionario, no las filas
+    @Override
+    public List<Inventario> buscarPaginaPorUbicacionSimilar(String texto, ModoBusqueda modo, long despuesDe,
+            int limite) {
+        String consulta = texto.toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            List<ConjuntoIds> coincidencias = new ArrayList<>();
+            List<String> ubicaciones = tabla.ubicaciones();
+            for (int codigo = 0; codigo < ubicaciones.size(); codigo++) {
+                String ubicacion = ubicaciones.get(codigo).toLowerCase(Locale.ROOT);
+                if (modo == ModoBusqueda.PREFIJO ? ubicacion.startsWith(consulta) : ubicacion.contains(consulta)) {
+                    coincidencias.add(tabla.idsDeUbicacion(codigo));
+                }
+            }
+            List<Inventario> inventarios = new ArrayList<>();
+            for (long id : ConjuntoIds.mezclar(coincidencias, despuesDe, limite)) {
+                inventarios.add(leer(tabla.posicion(id)));
+            }
+            return inventarios;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Inventario> listarTodos() {
+        return buscarPagina(0L, null, null, Integer.MAX_VALUE);
+    }
+
+    // Por bloques: el consumidor escribe fuera del lock, un cliente lento no frena las escrituras
+    @Override
+    public long recorrer(ConsumidorInventario consumidor) throws IOException {
+        long filas = 0;
+        long despuesDe = 0L;
+        while (true) {
+            List<Inventario> bloque = buscarPagina(despuesDe, null, null, BLOQUE_RECORRIDO);
+            for (Inventario inventario : bloque) {
+                consumidor.aceptar(inventario);
+            }
+            filas += bloque.size();
+            if (bloque.size() < BLOQUE_RECORRIDO) {
+                return filas;
+            }
+            despuesDe = bloque.get(bloque.size() - 1).getIdInventario();
+        }
+    }
+
+    @Override
+    public long recorrerUbicaciones(ConsumidorUbicacion consumidor) {
+        lock.readLock().lock();
+        try {
+            ConjuntoIds ids = tabla.ordenados();
+            for (int i = 0; i < ids.tamano(); i++) {
+                int posicion = tabla.posicion(ids.en(i));
+                consumidor.aceptar(tabla.id(posicion), tabla.ubicacion(posicion));
+            }
+            return ids.tamano();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ResumenUbicacion> resumirPorUbicacion(int umbralStockBajo) {
+        List<ResumenUbicacion> resumen = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<String> ubicaciones = tabla.ubicaciones();
+            for (int codigo = 0; codigo < ubicaciones.size(); codigo++) {
+                ConjuntoIds ids = tabla.idsDeUbicacion(codigo);
+                if (ids.vacio()) {
+                    continue;
+                }
+                long stockTotal = 0;
+                long stockBajo = 0;
+                for (int i = 0; i < ids.tamano(); i++) {
+                    int stock = tabla.stock(tabla.posicion(ids.en(i)));
+                    stockTotal += stock;
+                    if (stock <= umbralStockBajo) {
+                        stockBajo++;
+                    }
+                }
+                resumen.add(new Resumen(ubicaciones.get(codigo), stockTotal, (long) ids.tamano(), stockBajo));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return resumen;
+    }
+
+    // Con id 0 se genera uno, igual que el generador de JPA
+    @Override
+    public Inventario crear(Inventario inventario) {
+        lock.writeLock().lock();
+        try {
+            long id = inventario.getIdInventario() > 0 ? inventario.getIdInventario() : siguienteId;
+            if (tabla.posicion(id) >= 0) {
+                throw new DuplicateKeyException("El inventario " + id + " ya existe");
+            }
+            poner(id, inventario.getStockDisponible(), inventario.getUbicacionBodega(),
+                    TablaInventarios.codificarFecha(inventario.getFechaUltimaActualizacion()), 0L);
+            confirmar();
+            return leer(tabla.posicion(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public ResultadoEscritura actualizarStock(long idInventario, int stockDisponible, Long versionEsperada,
+            LocalDateTime fecha) {
+        lock.writeLock().lock();
+        try {
+            int posicion = tabla.posicion(idInventario);
+            if (posicion < 0) {
+                return ResultadoEscritura.fallido(ResultadoEscritura.Estado.NO_ENCONTRADO);
+            }
+            if (versionEsperada != null && tabla.version(posicion) != versionEsperada) {
+                return ResultadoEscritura.fallido(ResultadoEscritura.Estado.CONFLICTO_VERSION);
+            }
+            int stockAnterior = tabla.stock(posicion);
+            cambiarStock(posicion, stockDisponible, fecha);
+            confirmar();
+            return new ResultadoEscritura(ResultadoEscritura.Estado.ACTUALIZADO, stockAnterior, leer(posicion));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public ResultadoEscritura ajustarStock(long idInventario, int delta, LocalDateTime fecha) {
+        lock.writeLock().lock();
+        try {
+            int posicion = tabla.posicion(idInventario);
+            if (posicion < 0) {
+                return ResultadoEscritura.fallido(ResultadoEscritura.Estado.NO_ENCONTRADO);
+            }
+            int stockAnterior = tabla.stock(posicion);
+            long nuevo = (long) stockAnterior + delta;
+            if (nuevo < 0) {
+                return ResultadoEscritura.fallido(ResultadoEscritura.Estado.STOCK_INSUFICIENTE);
+            }
+            if (nuevo > Integer.MAX_VALUE) {
+                return ResultadoEscritura.fallido(ResultadoEscritura.Estado.FUERA_DE_RANGO);
+            }
+            cambiarStock(posicion, (int) nuevo, fecha);
+            confirmar();
+            return new ResultadoEscritura(ResultadoEscritura.Estado.ACTUALIZADO, stockAnterior, leer(posicion));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public ResultadoEscritura eliminar(long idInventario, Long versionEsperada) {
+        lock.writeLock().lock();
+        try {
+            int posicion = tabla.posicion(idInventario);
+            if (posicion < 0) {
+                return ResultadoEscritura.fallido(ResultadoEscritura.Estado.NO_ENCONTRADO);
+            }
+            if (versionEsperada != null && tabla.version(posicion) != versionEsperada) {
+                return ResultadoEscritura.fallido(ResultadoEscritura.Estado.CONFLICTO_VERSION);
+            }
+            Inventario eliminado = leer(posicion);
+            verificarRegistro();
+            if (registro != null) {
+                try {
+                    registro.quitar(idInventario);
+                } catch (IOException e) {
+                    throw fallaRegistro(e);
+                }
+            }
+            tabla.quitar(idInventario);
+            confirmar();
+            return new ResultadoEscritura(ResultadoEscritura.Estado.ELIMINADO, eliminado.getStockDisponible(),
+                    eliminado);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Con el lock de escritura tomado no hay otro lote en curso: se validan todas las filas
+    // y se escriben con una sola confirmación del registro
+    @Override
+    public List<ResultadoEscritura> ajustarLote(SortedMap<Long, Integer> deltas, LocalDateTime fecha) {
+        List<ResultadoEscritura> resultados = new ArrayList<>(deltas.size());
+        lock.writeLock().lock();
+        try {
+            int[] posiciones = new int[deltas.size()];
+            ResultadoEscritura.Estado[] fallas = new ResultadoEscritura.Estado[deltas.size()];
+            boolean completo = true;
+            int i = 0;
+            for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+                posiciones[i] = tabla.posicion(delta.getKey());
+                if (posiciones[i] < 0) {
+                    fallas[i] = ResultadoEscritura.Estado.NO_ENCONTRADO;
+                } else {
+                    long nuevo = (long) tabla.stock(posiciones[i]) + delta.getValue();
+                    if (nuevo < 0) {
+                        fallas[i] = ResultadoEscritura.Estado.STOCK_INSUFICIENTE;
+                    } else if (nuevo > Integer.MAX_VALUE) {
+                        fallas[i] = ResultadoEscritura.Estado.FUERA_DE_RANGO;
+                    }
+                }
+                completo &= fallas[i] == null;
+                i++;
+            }
+            if (!completo) {
+                for (ResultadoEscritura.Estado falla : fallas) {
+                    resultados.add(ResultadoEscritura.fallido(
+                            falla != null ? falla : ResultadoEscritura.Estado.NO_APLICADO));
+                }
+                return resultados;
+            }
+            i = 0;
+            for (int delta : deltas.values()) {
+                int posicion = posiciones[i++];
+                int stockAnterior = tabla.stock(posicion);
+                if (delta != 0) {
+                    cambiarStock(posicion, stockAnterior + delta, fecha);
+                }
+                resultados.add(new ResultadoEscritura(ResultadoEscritura.Estado.ACTUALIZADO, stockAnterior,
+                        leer(posicion)));
+            }
+            confirmar();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return resultados;
+    }
+
+    // Todo el lote con una sola toma del lock y una sola escritura del registro
+    @Override
+    public List<ResultadoEscritura> guardarLote(List<Inventario> lote, LocalDateTime fecha) {
+        List<ResultadoEscritura> resultados = new ArrayList<>(lote.size());
+        lock.writeLock().lock();
+        try {
+            for (Inventario inventario : lote) {
+                int posicion = tabla.posicion(inventario.getIdInventario());
+                if (posicion >= 0) {
+                    int stockAnterior = tabla.stock(posicion);
+                    cambiarStock(posicion, inventario.getStockDisponible(), fecha);
+                    resultados.add(new ResultadoEscritura(ResultadoEscritura.Estado.ACTUALIZADO, stockAnterior,
+                            leer(posicion)));
+                } else {
+                    long id = siguienteId;
+                    poner(id, inventario.getStockDisponible(), inventario.getUbicacionBodega(),
+                            TablaInventarios.codificarFecha(fecha), 0L);
+                    resultados.add(new ResultadoEscritura(ResultadoEscritura.Estado.CREADO, 0,
+                            leer(tabla.posicion(id))));
+                }
+            }
+            confirmar();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return resultados;
+    }
+
+    public int filas() {
+        lock.readLock().lock();
+        try {
+            return tabla.filas();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("inventario.almacen.filas", this, AlmacenMemoria::filas)
+                .description("Inventarios en el almacén en memoria")
+                .register(registry);
+        if (registro != null) {
+            Gauge.builder("inventario.almacen.registro", this, almacen -> almacen.registro.bytes())
+                    .description("Bytes del registro de escrituras desde la última instantánea")
+                    .baseUnit("bytes")
+                    .register(registry);
+        }
+    }
+
+    // Métodos auxiliares, se llaman con el lock de escritura tomado
+
+    private void poner(long idInventario, int stock, String ubicacion, long fecha, long version) {
+        verificarRegistro();
+        if (registro != null) {
+            try {
+                registro.poner(idInventario, stock, ubicacion, fecha, version);
+            } catch (IOException e) {
+                throw fallaRegistro(e);
+            }
+        }
+        tabla.poner(idInventario, stock, ubicacion, fecha, version);
+        siguienteId = Math.max(siguienteId, idInventario + 1);
+    }
+
+    // Igual que @Version en JPA: cada escritura incrementa la versión
+    private void cambiarStock(int posicion, int stock, LocalDateTime fecha) {
+        long codificada = TablaInventarios.codificarFecha(fecha);
+        long version = tabla.version(posicion) + 1;
+        verificarRegistro();
+        if (registro != null) {
+            try {
+                registro.poner(tabla.id(posicion), stock, tabla.ubicacion(posicion), codificada, version);
+            } catch (IOException e) {
+                throw fallaRegistro(e);
+            }
+        }
+        tabla.actualizar(posicion, stock, codificada, version);
+    }
+
+    private void confirmar() {
+        if (registro == null) {
+            return;
+        }
+        try {
+            registro.confirmar();
+            if (registro.bytes() > maximoRegistro) {
+                long inicio = System.nanoTime();
+                registro.compactar(tabla, siguienteId);
+                LOG.info("Instantánea del almacén con {} inventarios en {} ms", tabla.filas(),
+                        (System.nanoTime() - inicio) / 1_000_000);
+            }
+        } catch (IOException e) {
+            throw fallaRegistro(e);
+        }
+    }
+
+    private void verificarRegistro() {
+        if (errorRegistro != null) {
+            throw new IllegalStateException("El almacén no acepta escrituras después de un error del registro",
+                    errorRegistro);
+        }
+    }
+
+    private UncheckedIOException fallaRegistro(IOException e) {
+        errorRegistro = e;
+        LOG.error("No se pudo escribir el registro del almacén, se rechazan nuevas escrituras", e);
+        return new UncheckedIOException(e);
+    }
+
+    private List<Inventario> pagina(ConjuntoIds ids, long despuesDe, Integer stockMinimo, Integer stockMaximo,
+            int limite) {
+        List<Inventario> inventarios = new ArrayList<>(Math.min(limite, Math.max(ids.tamano(), 0)));
+        for (int i = ids.posicionDespuesDe(despuesDe); i < ids.tamano() && inventarios.size() < limite; i++) {
+            int posicion = tabla.posicion(ids.en(i));
+            int stock = tabla.stock(posicion);
+            if ((stockMinimo == null || stock >= stockMinimo) && (stockMaximo == null || stock <= stockMaximo)) {
+                inventarios.add(leer(posicion));
+            }
+        }
+        return inventarios;
+    }
+
+    private Inventario leer(int posicion) {
+        return new Inventario(tabla.id(posicion), tabla.stock(posicion), tabla.ubicacion(posicion),
+                TablaInventarios.decodificarFecha(tabla.fecha(posicion)), tabla.version(posicion));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class Resumen implements ResumenUbicacion {
+        private final String ubicacionBodega;
+        private final Long stockTotal;
+        private final Long cantidadSkus;
+        private final Long skusStockBajo;
+    }
+}
@@ -0,0 +1,77 @@
+package com.inventario.inventario.almacen;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+// Reparto de los inventarios entre fragmentos. Cada ubicación de bodega cae en una de
+// RANURAS ranuras por un hash estable (CRC32) y cada ranura pertenece a un fragmento según
+// un anillo de hash consistente con nodos virtuales: al agregar un fragmento solo cambian
+// de dueño cerca de 1/N de las ranuras, todas hacia el fragmento nuevo. Los ids llevan la
+// ranura en los bits bajos, así un id basta para saber dónde está la fila.
+public class AnilloFragmentos {
+
+    public static final int BITS_RANURA = 12;
+    public static final int RANURAS = 1 << BITS_RANURA;
+
+    // Nodos por fragmento en el anillo; con menos el reparto entre fragmentos es desparejo
+    private static final int NODOS_VIRTUALES = 160;
+
+    private final int fragmentos;
+    private final TreeMap<Long, Integer> anillo = new TreeMap<>();
+
+    public AnilloFragmentos(int fragmentos) {
+        if (fragmentos < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un fragmento");
+        }
+        this.fragmentos = fragmentos;
+        // La posición de un nodo depende solo del número de fragmento, no de cuántos hay
+        for (int fragmento = 0; fragmento < fragmentos; fragmento++) {
+            for (int nodo = 0; nodo < NODOS_VIRTUALES; nodo++) {
+                anillo.put(mezclar(((long) (fragmento + 1) << 32) | nodo), fragmento);
+            }
+        }
+    }
+
+    public int fragmentos() {
+        return fragmentos;
+    }
+
+    // Fragmento dueño de la ranura: el primer nodo del anillo desde la posición de la ranura
+    public int fragmento(int ranura) {
+        Map.Entry<Long, Integer> nodo = anillo.ceilingEntry(mezclar(ranura));
+        return (nodo != null ? nodo : anillo.firstEntry()).getValue();
+    }
+
+    // Sin distinguir mayúsculas ni espacios al final, igual que la comparación de MySQL,
+    // para que una búsqueda exacta por ubicación encuentre todas sus filas en un fragmento
+    public static int ranura(String ubicacionBodega) {
+        CRC32 crc = new CRC32();
+        if (ubicacionBodega != null) {
+            crc.update(ubicacionBodega.stripTrailing().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+        }
+        return (int) (crc.getValue() & (RANURAS - 1));
+    }
+
+    public static int ranuraDeId(long idInventario) {
+        return (int) (idInventario & (RANURAS - 1));
+    }
+
+    public static long id(long secuencia, int ranura) {
+        return (secuencia << BITS_RANURA) | ranura;
+    }
+
+    public static long secuenciaDeId(long idInventario) {
+        return idInventario >>> BITS_RANURA;
+    }
+
+    // Finalizador de SplitMix64: reparte valores consecutivos por todo el anillo
+    private static long mezclar(long valor) {
+        long z = valor + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
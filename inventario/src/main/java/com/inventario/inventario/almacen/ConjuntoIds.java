@@ -0,0 +1,91 @@
+package com.inventario.inventario.almacen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Conjunto de ids ordenado sobre un long[] sin cajas. Los ids nuevos suelen ser mayores que
+// los existentes (generador por bloques), así agregar es casi siempre un append. No es
+// seguro para hilos, quien lo usa debe sincronizar.
+public final class ConjuntoIds {
+
+    private long[] ids = new long[4];
+    private int tamano;
+
+    public void agregar(long id) {
+        if (tamano > 0 && ids[tamano - 1] < id) {
+            asegurarCapacidad();
+            ids[tamano++] = id;
+            return;
+        }
+        int posicion = Arrays.binarySearch(ids, 0, tamano, id);
+        if (posicion >= 0) {
+            return;
+        }
+        int insercion = -posicion - 1;
+        asegurarCapacidad();
+        System.arraycopy(ids, insercion, ids, insercion + 1, tamano - insercion);
+        ids[insercion] = id;
+        tamano++;
+    }
+
+    public void quitar(long id) {
+        int posicion = Arrays.binarySearch(ids, 0, tamano, id);
+        if (posicion < 0) {
+            return;
+        }
+        System.arraycopy(ids, posicion + 1, ids, posicion, tamano - posicion - 1);
+        tamano--;
+    }
+
+    public boolean vacio() {
+        return tamano == 0;
+    }
+
+    public int tamano() {
+        return tamano;
+    }
+
+    // Posición del primer id mayor que despuesDe
+    public int posicionDespuesDe(long despuesDe) {
+        int posicion = Arrays.binarySearch(ids, 0, tamano, despuesDe);
+        return posicion >= 0 ? posicion + 1 : -posicion - 1;
+    }
+
+    public long en(int posicion) {
+        return ids[posicion];
+    }
+
+    // Mezcla ordenada de los ids de varios conjuntos a partir del cursor, hasta limite ids
+    public static List<Long> mezclar(Collection<ConjuntoIds> conjuntos, long despuesDe, int limite) {
+        PriorityQueue<long[]> frentes = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        List<ConjuntoIds> fuentes = new ArrayList<>(conjuntos);
+        for (int i = 0; i < fuentes.size(); i++) {
+            ConjuntoIds ids = fuentes.get(i);
+            int posicion = ids.posicionDespuesDe(despuesDe);
+            if (posicion < ids.tamano()) {
+                // {id, fuente, posición}
+                frentes.add(new long[] { ids.en(posicion), i, posicion });
+            }
+        }
+        List<Long> resultado = new ArrayList<>(Math.min(limite, 1024));
+        while (resultado.size() < limite && !frentes.isEmpty()) {
+            long[] frente = frentes.poll();
+            resultado.add(frente[0]);
+            ConjuntoIds ids = fuentes.get((int) frente[1]);
+            int siguiente = (int) frente[2] + 1;
+            if (siguiente < ids.tamano()) {
+                frentes.add(new long[] { ids.en(siguiente), frente[1], siguiente });
+            }
+        }
+        return resultado;
+    }
+
+    private void asegurarCapacidad() {
+        if (tamano == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+    }
+}
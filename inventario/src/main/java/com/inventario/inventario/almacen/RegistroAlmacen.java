@@ -0,0 +1,225 @@
+package com.inventario.inventario.almacen;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Persistencia de AlmacenMemoria en un directorio local: una instantánea con todas las filas
+// (inventarios.snap) y un registro donde se agrega cada escritura (inventarios.log). Al
+// iniciar se carga la instantánea y se repite el registro encima; un registro cortado por una
+// caída se trunca en el último registro completo. Compactar escribe una instantánea nueva
+// (archivo temporal y renombre atómico) y vacía el registro. Los registros guardan la fila
+// completa, así repetir uno ya incluido en la instantánea deja el mismo resultado.
+final class RegistroAlmacen implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RegistroAlmacen.class);
+
+    private static final int MAGIA_INSTANTANEA = 0x494E5653;
+    private static final byte PONER = 1;
+    private static final byte QUITAR = 2;
+    private static final int BUFFER = 64 * 1024;
+
+    private final Path instantanea;
+    private final Path registro;
+    private final boolean fsync;
+
+    private FileChannel canal;
+    private DataOutputStream salida;
+    private long bytes;
+
+    RegistroAlmacen(Path directorio, boolean fsync) throws IOException {
+        Files.createDirectories(directorio);
+        this.instantanea = directorio.resolve("inventarios.snap");
+        this.registro = directorio.resolve("inventarios.log");
+        this.fsync = fsync;
+    }
+
+    // Carga la instantánea y el registro en la tabla vacía y deja el registro abierto para
+    // agregar. Devuelve el siguiente id a generar.
+    long cargar(TablaInventarios tabla) throws IOException {
+        long siguienteId = 1;
+        if (Files.exists(instantanea)) {
+            siguienteId = cargarInstantanea(tabla);
+        }
+        if (Files.exists(registro)) {
+            siguienteId = Math.max(siguienteId, repetirRegistro(tabla));
+        }
+        canal = FileChannel.open(registro, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        salida = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(canal), BUFFER));
+        bytes = canal.size();
+        return siguienteId;
+    }
+
+    // Los registros quedan en el buffer hasta confirmar
+    void poner(long idInventario, int stock, String ubicacion, long fecha, long version) throws IOException {
+        salida.writeByte(PONER);
+        salida.writeLong(idInventario);
+        salida.writeInt(stock);
+        salida.writeLong(version);
+        salida.writeLong(fecha);
+        bytes += 1 + Long.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES + escribirTexto(salida, ubicacion);
+    }
+
+    void quitar(long idInventario) throws IOException {
+        salida.writeByte(QUITAR);
+        salida.writeLong(idInventario);
+        bytes += 1 + Long.BYTES;
+    }
+
+    // Entrega lo escrito al sistema operativo; con fsync también espera al disco
+    void confirmar() throws IOException {
+        salida.flush();
+        if (fsync) {
+            canal.force(false);
+        }
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    void compactar(TablaInventarios tabla, long siguienteId) throws IOException {
+        confirmar();
+        Path temporal = instantanea.resolveSibling(instantanea.getFileName() + ".tmp");
+        try (FileChannel destino = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream datos = new DataOutputStream(new BufferedOutputStream(
+                    Channels.newOutputStream(destino), BUFFER));
+            datos.writeInt(MAGIA_INSTANTANEA);
+            datos.writeLong(siguienteId);
+            datos.writeInt(tabla.filas());
+            ConjuntoIds ids = tabla.ordenados();
+            for (int i = 0; i < ids.tamano(); i++) {
+                int posicion = tabla.posicion(ids.en(i));
+                datos.writeLong(tabla.id(posicion));
+                datos.writeInt(tabla.stock(posicion));
+                datos.writeLong(tabla.version(posicion));
+                datos.writeLong(tabla.fecha(posicion));
+                escribirTexto(datos, tabla.ubicacion(posicion));
+            }
+            datos.flush();
+            destino.force(true);
+        }
+        Files.move(temporal, instantanea, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // Todo lo del registro ya está en la instantánea
+        canal.truncate(0);
+        bytes = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (salida != null) {
+            salida.close();
+        }
+    }
+
+    private long cargarInstantanea(TablaInventarios tabla) throws IOException {
+        try (DataInputStream datos = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(instantanea), BUFFER))) {
+            if (datos.readInt() != MAGIA_INSTANTANEA) {
+                throw new IOException("Instantánea con formato desconocido: " + instantanea);
+            }
+            long siguienteId = datos.readLong();
+            int filas = datos.readInt();
+            for (int i = 0; i < filas; i++) {
+                long id = datos.readLong();
+                int stock = datos.readInt();
+                long version = datos.readLong();
+                long fecha = datos.readLong();
+                tabla.poner(id, stock, leerTexto(datos), fecha, version);
+            }
+            return siguienteId;
+        }
+    }
+
+    private long repetirRegistro(TablaInventarios tabla) throws IOException {
+        long siguienteId = 1;
+        long valido = 0;
+        long registros = 0;
+        try (FileChannel lectura = FileChannel.open(registro, StandardOpenOption.READ)) {
+            ByteBuffer buffer = lectura.map(FileChannel.MapMode.READ_ONLY, 0, lectura.size());
+            try {
+                while (buffer.hasRemaining()) {
+                    byte tipo = buffer.get();
+                    long id = buffer.getLong();
+                    if (tipo == PONER) {
+                        int stock = buffer.getInt();
+                        long version = buffer.getLong();
+                        long fecha = buffer.getLong();
+                        tabla.poner(id, stock, leerTexto(buffer), fecha, version);
+                    } else if (tipo == QUITAR) {
+                        tabla.quitar(id);
+                    } else {
+                        break;
+                    }
+                    siguienteId = Math.max(siguienteId, id + 1);
+                    valido = buffer.position();
+                    registros++;
+                }
+            } catch (BufferUnderflowException e) {
+                // Último registro incompleto
+            }
+            if (valido < lectura.size()) {
+                LOG.warn("Registro {} truncado de {} a {} bytes", registro, lectura.size(), valido);
+            }
+        }
+        if (valido < Files.size(registro)) {
+            try (FileChannel escritura = FileChannel.open(registro, StandardOpenOption.WRITE)) {
+                escritura.truncate(valido);
+            }
+        }
+        LOG.info("Registro {}: {} escrituras repetidas", registro, registros);
+        return siguienteId;
+    }
+
+    // Largo en bytes UTF-8 (-1 para null) y los bytes. Devuelve los bytes escritos.
+    private static int escribirTexto(DataOutputStream datos, String texto) throws IOException {
+        if (texto == null) {
+            datos.writeInt(-1);
+            return Integer.BYTES;
+        }
+        byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+        datos.writeInt(utf8.length);
+        datos.write(utf8);
+        return Integer.BYTES + utf8.length;
+    }
+
+    private static String leerTexto(DataInputStream datos) throws IOException {
+        int largo = datos.readInt();
+        if (largo < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[largo];
+        datos.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static String leerTexto(ByteBuffer buffer) {
+        int largo = buffer.getInt();
+        if (largo < 0) {
+            return null;
+        }
+        if (largo > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] utf8 = new byte[largo];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
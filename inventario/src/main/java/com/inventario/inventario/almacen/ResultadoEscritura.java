@@ -0,0 +1,35 @@
+package com.inventario.inventario.almacen;
+
+import com.inventario.inventario.model.Inventario;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Resultado de una escritura sobre una fila del almacén. Con estado CREADO, ACTUALIZADO o
+// ELIMINADO lleva la fila como quedó (la eliminada, en el último caso) y el stock previo,
+// para que el servicio publique el InventarioEvento. FUERA_DE_RANGO es un ajuste que dejaría
+// el stock por encima del máximo de un int. NO_APLICADO marca las filas de un lote que no se
+// escribieron porque otra fila del mismo lote falló.
+@Getter
+@AllArgsConstructor
+@ToString
+public class ResultadoEscritura {
+
+    public enum Estado {
+        CREADO, ACTUALIZADO, ELIMINADO, NO_ENCONTRADO, CONFLICTO_VERSION, STOCK_INSUFICIENTE, FUERA_DE_RANGO,
+        NO_APLICADO
+    }
+
+    private final Estado estado;
+    private final int stockAnterior;
+    private final Inventario inventario;
+
+    public static ResultadoEscritura fallido(Estado estado) {
+        return new ResultadoEscritura(estado, 0, null);
+    }
+
+    public boolean aplicado() {
+        return inventario != null;
+    }
+}
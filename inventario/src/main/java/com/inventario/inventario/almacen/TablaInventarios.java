@@ -0,0 +1,250 @@
+package com.inventario.inventario.almacen;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Tabla de inventarios en arreglos primitivos: un mapa de direccionamiento abierto (sondeo
+// lineal) con llave idInventario y una columna por campo en la misma posición, sin Long ni
+// LocalDateTime por fila. La ubicación se guarda como código de un diccionario y la fecha
+// como nanos desde la época (UTC). Índices secundarios: ids por ubicación y todos los ids
+// en orden, ambos en ConjuntoIds. No es segura para hilos, AlmacenMemoria sincroniza.
+final class TablaInventarios {
+
+    // idInventario 0 nunca se guarda (el servicio lo usa para pedir un id generado)
+    private static final long VACIO = 0L;
+    static final long SIN_FECHA = Long.MIN_VALUE;
+    static final int SIN_UBICACION = -1;
+
+    private long[] claves;
+    private int[] stock;
+    private int[] ubicacion;
+    private long[] fecha;
+    private long[] version;
+    private int mascara;
+    private int desplazamiento;
+    private int filas;
+
+    private final List<String> ubicaciones = new ArrayList<>();
+    private final Map<String, Integer> codigos = new HashMap<>();
+    private final List<ConjuntoIds> porUbicacion = new ArrayList<>();
+    private final ConjuntoIds ordenados = new ConjuntoIds();
+
+    TablaInventarios(int capacidadInicial) {
+        // Potencia de dos con carga máxima de 3/4
+        int capacidad = Integer.highestOneBit(Math.max(16, capacidadInicial * 4 / 3) - 1) << 1;
+        dimensionar(capacidad);
+    }
+
+    int filas() {
+        return filas;
+    }
+
+    int capacidad() {
+        return claves.length;
+    }
+
+    // Posición del inventario en los arreglos, o -1
+    int posicion(long idInventario) {
+        if (idInventario == VACIO) {
+            return -1;
+        }
+        for (int i = indice(idInventario);; i = (i + 1) & mascara) {
+            long clave = claves[i];
+            if (clave == idInventario) {
+                return i;
+            }
+            if (clave == VACIO) {
+                return -1;
+            }
+        }
+    }
+
+    long id(int posicion) {
+        return claves[posicion];
+    }
+
+    int stock(int posicion) {
+        return stock[posicion];
+    }
+
+    String ubicacion(int posicion) {
+        int codigo = ubicacion[posicion];
+        return codigo == SIN_UBICACION ? null : ubicaciones.get(codigo);
+    }
+
+    long fecha(int posicion) {
+        return fecha[posicion];
+    }
+
+    long version(int posicion) {
+        return version[posicion];
+    }
+
+    // Cambia el stock de una fila existente, sin tocar los índices
+    void actualizar(int posicion, int stockDisponible, long fechaCodificada, long nuevaVersion) {
+        stock[posicion] = stockDisponible;
+        fecha[posicion] = fechaCodificada;
+        version[posicion] = nuevaVersion;
+    }
+
+    // Inserta o reemplaza la fila completa
+    void poner(long idInventario, int stockDisponible, String ubicacionBodega, long fechaCodificada,
+            long nuevaVersion) {
+        if (idInventario == VACIO) {
+            throw new IllegalArgumentException("idInventario 0 no se puede guardar");
+        }
+        int codigo = codigo(ubicacionBodega);
+        int posicion = posicion(idInventario);
+        if (posicion < 0) {
+            if (filas + 1 > claves.length / 4 * 3) {
+                dimensionar(claves.length * 2);
+            }
+            posicion = indice(idInventario);
+            while (claves[posicion] != VACIO) {
+                posicion = (posicion + 1) & mascara;
+            }
+            claves[posicion] = idInventario;
+            filas++;
+            ordenados.agregar(idInventario);
+        } else if (ubicacion[posicion] != codigo) {
+            quitarDeUbicacion(idInventario, ubicacion[posicion]);
+        } else {
+            actualizar(posicion, stockDisponible, fechaCodificada, nuevaVersion);
+            return;
+        }
+        stock[posicion] = stockDisponible;
+        ubicacion[posicion] = codigo;
+        fecha[posicion] = fechaCodificada;
+        version[posicion] = nuevaVersion;
+        if (codigo != SIN_UBICACION) {
+            porUbicacion.get(codigo).agregar(idInventario);
+        }
+    }
+
+    boolean quitar(long idInventario) {
+        int libre = posicion(idInventario);
+        if (libre < 0) {
+            return false;
+        }
+        quitarDeUbicacion(idInventario, ubicacion[libre]);
+        ordenados.quitar(idInventario);
+        // Borrado con desplazamiento hacia atrás: sin lápidas, las cadenas de sondeo siguen cortas
+        for (int actual = (libre + 1) & mascara; claves[actual] != VACIO; actual = (actual + 1) & mascara) {
+            int ideal = indice(claves[actual]);
+            if (((actual - ideal) & mascara) >= ((actual - libre) & mascara)) {
+                mover(actual, libre);
+                libre = actual;
+            }
+        }
+        claves[libre] = VACIO;
+        filas--;
+        return true;
+    }
+
+    ConjuntoIds ordenados() {
+        return ordenados;
+    }
+
+    // null si la ubicación no tiene inventarios
+    ConjuntoIds porUbicacion(String ubicacionBodega) {
+        Integer codigo = ubicacionBodega == null ? null : codigos.get(ubicacionBodega);
+        return codigo == null ? null : porUbicacion.get(codigo);
+    }
+
+    // Ubicaciones distintas registradas, con su código
+    List<String> ubicaciones() {
+        return ubicaciones;
+    }
+
+    ConjuntoIds idsDeUbicacion(int codigo) {
+        return porUbicacion.get(codigo);
+    }
+
+    static long codificarFecha(LocalDateTime fecha) {
+        if (fecha == null) {
+            return SIN_FECHA;
+        }
+        // Hasta el año 2262, igual que Instant en nanos
+        return fecha.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + fecha.getNano();
+    }
+
+    static LocalDateTime decodificarFecha(long fecha) {
+        if (fecha == SIN_FECHA) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(fecha, 1_000_000_000L),
+                (int) Math.floorMod(fecha, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    private int codigo(String ubicacionBodega) {
+        if (ubicacionBodega == null) {
+            return SIN_UBICACION;
+        }
+        Integer codigo = codigos.get(ubicacionBodega);
+        if (codigo == null) {
+            codigo = ubicaciones.size();
+            ubicaciones.add(ubicacionBodega);
+            codigos.put(ubicacionBodega, codigo);
+            porUbicacion.add(new ConjuntoIds());
+        }
+        return codigo;
+    }
+
+    // Los códigos no se reutilizan: una ubicación sin inventarios queda con un conjunto vacío
+    private void quitarDeUbicacion(long idInventario, int codigo) {
+        if (codigo != SIN_UBICACION) {
+            porUbicacion.get(codigo).quitar(idInventario);
+        }
+    }
+
+    private int indice(long idInventario) {
+        // Hash de Fibonacci: los ids consecutivos quedan repartidos por toda la tabla
+        return (int) ((idInventario * 0x9E3779B97F4A7C15L) >>> desplazamiento);
+    }
+
+    private void mover(int desde, int hacia) {
+        claves[hacia] = claves[desde];
+        stock[hacia] = stock[desde];
+        ubicacion[hacia] = ubicacion[desde];
+        fecha[hacia] = fecha[desde];
+        version[hacia] = version[desde];
+    }
+
+    private void dimensionar(int capacidad) {
+        long[] clavesAnteriores = claves;
+        int[] stockAnterior = stock;
+        int[] ubicacionAnterior = ubicacion;
+        long[] fechaAnterior = fecha;
+        long[] versionAnterior = version;
+
+        claves = new long[capacidad];
+        stock = new int[capacidad];
+        ubicacion = new int[capacidad];
+        fecha = new long[capacidad];
+        version = new long[capacidad];
+        mascara = capacidad - 1;
+        desplazamiento = Long.numberOfLeadingZeros(capacidad) + 1;
+        if (clavesAnteriores == null) {
+            return;
+        }
+        for (int i = 0; i < clavesAnteriores.length; i++) {
+            long clave = clavesAnteriores[i];
+            if (clave == VACIO) {
+                continue;
+            }
+            int posicion = indice(clave);
+            while (claves[posicion] != VACIO) {
+                posicion = (posicion + 1) & mascara;
+            }
+            claves[posicion] = clave;
+            stock[posicion] = stockAnterior[i];
+            ubicacion[posicion] = ubicacionAnterior[i];
+            fecha[posicion] = fechaAnterior[i];
+            version[posicion] = versionAnterior[i];
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.inventario.inventario.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+// Carga de una llave una sola vez sin ejecutarla dentro del compute del mapa: el primero deja
+// un futuro en la cache y carga en su propio hilo, los demás esperan ese futuro. Así la carga
+// (consulta a la base, serialización) no retiene el monitor de un bin de ConcurrentHashMap:
+// ni las demás llaves del bin ni quien espera quedan bloqueados en un monitor mientras dura la
+// E/S, y en el perfil hilos-virtuales el monitor no fija el hilo a su portador. Los cerrojos
+// que cubren E/S en los servicios siguen la misma regla y son ReentrantLock.
+final class CargaUnica {
+
+    private CargaUnica() {
+    }
+
+    // Caffeine quita de la cache los futuros que terminan con excepción o con null, y no
+    // guarda el valor de un futuro que se invalidó mientras cargaba
+    static <K, V> V obtener(AsyncCache<K, V> cache, K llave, Function<? super K, ? extends V> carga) {
+        CompletableFuture<V> guardado = cache.getIfPresent(llave);
+        if (guardado == null) {
+            CompletableFuture<V> nuevo = new CompletableFuture<>();
+            guardado = cache.asMap().putIfAbsent(llave, nuevo);
+            if (guardado == null) {
+                return cargar(nuevo, llave, carga);
+            }
+        }
+        return esperar(guardado);
+    }
+
+    static <K, V> V cargar(CompletableFuture<V> futuro, K llave, Function<? super K, ? extends V> carga) {
+        try {
+            V valor = carga.apply(llave);
+            futuro.complete(valor);
+            return valor;
+        } catch (RuntimeException | Error e) {
+            futuro.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // Propaga la misma excepción que vio el hilo que cargó
+    static <V> V esperar(CompletableFuture<V> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.inventario.inventario.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.inventario.inventario.config.LecturaPropia;
+import com.inventario.inventario.event.InventarioEvento;
+import com.inventario.inventario.model.Inventario;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// Cache en memoria para las lecturas por id y por ubicación de bodega. Caffeine limita el
+// tamaño con W-TinyLFU y expira las entradas por TTL. Las escrituras invalidan solo las
+// llaves afectadas: invalidar una llave que se está cargando descarta su futuro, así una
+// lectura anterior a la escritura no deja un valor viejo en la cache. La carga corre fuera
+// del mapa (CargaUnica). Con réplicas
+// la carga puede leer una réplica atrasada y guardar el valor anterior hasta el TTL; las
+// lecturas que deben ver las propias escrituras (LecturaPropia) van directo a la carga.
+@Component
+public class InventarioCache implements MeterBinder {
+
+    public static final String POR_UBICACION = "inventariosPorUbicacion";
+    public static final String POR_ID = "inventarioPorId";
+
+    private final AsyncCache<String, List<Inventario>> porUbicacion;
+    private final AsyncCache<Long, Optional<Inventario>> porId;
+
+    @Autowired
+    public InventarioCache(@Value("${inventario.cache.tamano-maximo:10000}") long tamanoMaximo,
+            @Value("${inventario.cache.ttl:30s}") Duration ttl) {
+        this.porUbicacion = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        this.porId = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+    }
+
+    // Lista cacheada de la ubicación; si la carga falla no se guarda nada
+    public List<Inventario> porUbicacion(String ubicacionBodega, Function<String, List<Inventario>> carga) {
+        if (LecturaPropia.enPrimario()) {
+            return carga.apply(ubicacionBodega);
+        }
+        return CargaUnica.obtener(porUbicacion, ubicacionBodega, carga);
+    }
+
+    // Inventario cacheado por id, también recuerda los ids inexistentes hasta una escritura
+    public Optional<Inventario> porId(long idInventario, LongFunction<Optional<Inventario>> carga) {
+        if (LecturaPropia.enPrimario()) {
+            return carga.apply(idInventario);
+        }
+        return CargaUnica.obtener(porId, idInventario, id -> carga.apply(id));
+    }
+
+    public void invalidar(long idInventario, String ubicacionBodega) {
+        porId.synchronous().invalidate(idInventario);
+        if (ubicacionBodega != null) {
+            porUbicacion.synchronous().invalidate(ubicacionBodega);
+        }
+    }
+
+    public void invalidarTodo() {
+        porId.synchronous().invalidateAll();
+        porUbicacion.synchronous().invalidateAll();
+    }
+
+    // Se ejecuta después del commit; sin transacción activa se ejecuta de inmediato
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarInventario(InventarioEvento evento) {
+        invalidar(evento.getIdInventario(), evento.getUbicacionBodega());
+    }
+
+    // Aciertos, fallos y desalojos quedan en /actuator/metrics como cache.gets y cache.evictions
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, porUbicacion.synchronous(), POR_UBICACION);
+        CaffeineCacheMetrics.monitor(registry, porId.synchronous(), POR_ID);
+    }
+}
@@ -0,0 +1,174 @@
+package com.inventario.inventario.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.inventario.inventario.config.LecturaPropia;
+import com.inventario.inventario.config.MapeadorSmile;
+import com.inventario.inventario.model.FormatoRespuesta;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// Respuestas de los listados ya serializadas (y comprimidas con gzip si son grandes), por
+// llave de petición (la ruta y sus parámetros). Cada instantánea recuerda la VersionCambios
+// con la que se construyó y solo se reutiliza mientras esa sea la versión actual, así entre
+// escrituras un sondeo no consulta la base ni vuelve a serializar. Cada FormatoRespuesta
+// (JSON o Smile) tiene su propia instantánea. El peso se mide en bytes.
+// Los cambios hechos fuera de la aplicación no mueven la versión, el TTL acota cuánto tiempo
+// se sigue sirviendo una instantánea. Las peticiones que leen del primario por LecturaPropia
+// construyen su respuesta sin usar ni reemplazar la instantánea. Una sola petición construye
+// cada instantánea y las concurrentes esperan su futuro, fuera de cualquier monitor.
+@Component
+public class RespuestasCache implements MeterBinder {
+
+    public static final String RESPUESTAS = "respuestasSerializadas";
+
+    private final Cache<List<?>, Instantanea> instantaneas;
+    private final ConcurrentHashMap<List<?>, CompletableFuture<Instantanea>> enConstruccion = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper smileMapper;
+    private final boolean gzip;
+    private final long gzipMinimo;
+
+    @Autowired
+    public RespuestasCache(ObjectMapper objectMapper, MapeadorSmile mapeadorSmile,
+            @Value("${inventario.respuestas.peso-maximo:32MB}") DataSize pesoMaximo,
+            @Value("${inventario.respuestas.ttl:30s}") Duration ttl,
+            @Value("${inventario.respuestas.gzip:true}") boolean gzip,
+            @Value("${inventario.respuestas.gzip-minimo:1KB}") DataSize gzipMinimo) {
+        this.objectMapper = objectMapper;
+        this.smileMapper = mapeadorSmile.getMapper();
+        this.gzip = gzip;
+        this.gzipMinimo = gzipMinimo.toBytes();
+        this.instantaneas = Caffeine.newBuilder()
+                .maximumWeight(pesoMaximo.toBytes())
+                .weigher((List<?> llave, Instantanea instantanea) -> instantanea.peso())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    // Devuelve la instantánea de la llave para la versión indicada; si falta o es de otra
+    // versión la construye con carga. La versión debe leerse antes de consultar los datos:
+    // si una escritura confirma durante la carga, la instantánea queda con la versión vieja
+    // y la siguiente petición la reemplaza. Una carga null se guarda como respuesta vacía.
+    public Instantanea obtener(List<?> llave, FormatoRespuesta formato, long version, Supplier<?> carga) {
+        if (LecturaPropia.enPrimario()) {
+            return construir(version, formato, carga.get());
+        }
+        List<?> llaveFormato = List.of(formato, llave);
+        Instantanea guardada = instantaneas.getIfPresent(llaveFormato);
+        if (guardada != null && guardada.version == version) {
+            return guardada;
+        }
+        // Una sola carga por llave; la carga y la serialización corren fuera del compute del mapa
+        // (ver CargaUnica)
+        while (true) {
+            CompletableFuture<Instantanea> nueva = new CompletableFuture<>();
+            CompletableFuture<Instantanea> enCurso = enConstruccion.putIfAbsent(llaveFormato, nueva);
+            if (enCurso != null) {
+                // Bloquea hasta que la carga en curso termina, sin girar sobre el mapa
+                Instantanea construida = CargaUnica.esperar(enCurso);
+                if (construida.version >= version) {
+                    return construida;
+                }
+                // La carga en curso empezó con una versión anterior. Ya terminó y no le sirve a
+                // nadie más nuevo: se quita aquí mismo, sin esperar al finally de quien la hizo,
+                // y el siguiente intento deja su propio futuro o espera el de otro
+                enConstruccion.remove(llaveFormato, enCurso);
+                continue;
+            }
+            try {
+                guardada = instantaneas.getIfPresent(llaveFormato);
+                if (guardada != null && guardada.version >= version) {
+                    nueva.complete(guardada);
+                    return guardada;
+                }
+                Instantanea construida = CargaUnica.cargar(nueva, version,
+                        v -> construir(v, formato, carga.get()));
+                instantaneas.asMap().merge(llaveFormato, construida,
+                        (actual, reemplazo) -> actual.version >= reemplazo.version ? actual : reemplazo);
+                return construida;
+            } finally {
+                enConstruccion.remove(llaveFormato, nueva);
+            }
+        }
+    }
+
+    private Instantanea construir(long version, FormatoRespuesta formato, Object valor) {
+        if (valor == null) {
+            return new Instantanea(version, null, null);
+        }
+        try {
+            ObjectMapper mapper = formato == FormatoRespuesta.SMILE ? smileMapper : objectMapper;
+            byte[] cuerpo = mapper.writeValueAsBytes(valor);
+            return new Instantanea(version, cuerpo, gzip && cuerpo.length >= gzipMinimo ? comprimir(cuerpo) : null);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la respuesta", e);
+        }
+    }
+
+    private static byte[] comprimir(byte[] cuerpo) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(cuerpo.length / 4 + 64);
+        try (GZIPOutputStream comprimido = new GZIPOutputStream(salida)) {
+            comprimido.write(cuerpo);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return salida.toByteArray();
+    }
+
+    // Aciertos y fallos quedan en /actuator/metrics como cache.gets
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, instantaneas, RESPUESTAS);
+    }
+
+    // Cuerpo serializado y su versión gzip (null si no conviene comprimir); cuerpo null indica
+    // que no hubo resultados
+    public static final class Instantanea {
+        private final long version;
+        private final byte[] cuerpo;
+        private final byte[] cuerpoGzip;
+
+        private Instantanea(long version, byte[] cuerpo, byte[] cuerpoGzip) {
+            this.version = version;
+            this.cuerpo = cuerpo;
+            this.cuerpoGzip = cuerpoGzip;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public byte[] getCuerpo() {
+            return cuerpo;
+        }
+
+        public byte[] getCuerpoGzip() {
+            return cuerpoGzip;
+        }
+
+        private int peso() {
+            return 64 + (cuerpo == null ? 0 : cuerpo.length) + (cuerpoGzip == null ? 0 : cuerpoGzip.length);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.inventario.inventario.cache;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.inventario.inventario.event.InventarioEvento;
+
+// Versión global de los datos de inventario, usada como ETag y Last-Modified de los listados.
+// Cada escritura confirmada la incrementa; las escrituras diferidas la incrementan al quedar
+// visibles en el buffer. Parte del instante de arranque para que un ETag emitido antes de un
+// reinicio no coincida con los datos posteriores.
+@Component
+public class VersionCambios {
+
+    private volatile Marca actual;
+
+    public VersionCambios() {
+        long ahora = System.currentTimeMillis();
+        this.actual = new Marca(ahora, ahora);
+    }
+
+    public Marca actual() {
+        return actual;
+    }
+
+    public synchronized void registrarCambio() {
+        actual = new Marca(actual.version + 1, System.currentTimeMillis());
+    }
+
+    // Se ejecuta después del commit: una lectura nunca ve la versión nueva con datos viejos
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarInventario(InventarioEvento evento) {
+        registrarCambio();
+    }
+
+    // ETag fuerte de una versión
+    public static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // Versión y momento del último cambio, inmutables
+    public static final class Marca {
+        private final long version;
+        private final long modificacion;
+
+        private Marca(long version, long modificacion) {
+            this.version = version;
+            this.modificacion = modificacion;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        // Milisegundos desde epoch, HTTP lo expone con precisión de segundos
+        public long getModificacion() {
+            return modificacion;
+        }
+
+        public String getEtag() {
+            return etag(version);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.inventario.inventario.config;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventario.inventario.admision.AdmisionInterceptor;
+import com.inventario.inventario.admision.LimiteAdaptativo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Control de admisión de las operaciones bajo /api/v1/inventarios, incluidas las reservas
+// y la disponibilidad por inventario. Los compartimentos se configuran en
+// inventario.admision.lectura.* e inventario.admision.escritura.*. El feed SSE, las
+// importaciones y la exportación mantienen la conexión abierta y tienen sus propios
+// límites; los agregados se leen de memoria y su verificación es de administración: no
+// pasan por aquí.
+@Configuration
+@ConditionalOnProperty(name = "inventario.admision.activo", havingValue = "true", matchIfMissing = true)
+public class AdmisionConfig implements WebMvcConfigurer {
+
+    private static final String PREFIJO = "inventario.admision.";
+
+    private final AdmisionInterceptor admisionInterceptor;
+
+    public AdmisionConfig(Environment entorno, ObjectMapper objectMapper, MeterRegistry registry,
+            @Value("${inventario.admision.retry-after:1s}") Duration retryAfter) {
+        Binder binder = Binder.get(entorno);
+        Map<AdmisionInterceptor.Compartimento, LimiteAdaptativo.Configuracion> configuraciones =
+                new EnumMap<>(AdmisionInterceptor.Compartimento.class);
+        configuraciones.put(AdmisionInterceptor.Compartimento.LECTURA,
+                configuracion(binder, "lectura", LimiteAdaptativo.Configuracion.lectura()));
+        configuraciones.put(AdmisionInterceptor.Compartimento.ESCRITURA,
+                configuracion(binder, "escritura", LimiteAdaptativo.Configuracion.escritura()));
+        this.admisionInterceptor = new AdmisionInterceptor(configuraciones, retryAfter, objectMapper, registry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptores) {
+        interceptores.addInterceptor(admisionInterceptor)
+                .addPathPatterns("/api/v1/inventarios", "/api/v1/inventarios/**")
+                .excludePathPatterns("/api/v1/inventarios/cambios", "/api/v1/inventarios/importaciones/**",
+                        "/api/v1/inventarios/importaciones", "/api/v1/inventarios/exportar",
+                        "/api/v1/inventarios/agregados/**", "/api/v1/inventarios/verificaciones/**");
+    }
+
+    // Las propiedades ausentes conservan los valores por defecto del compartimento
+    private static LimiteAdaptativo.Configuracion configuracion(Binder binder, String compartimento,
+            LimiteAdaptativo.Configuracion porDefecto) {
+        return binder.bind(PREFIJO + compartimento, Bindable.ofInstance(porDefecto)).orElse(porDefecto);
+    }
+
+    public AdmisionInterceptor getAdmisionInterceptor() {
+        return admisionInterceptor;
+    }
+}
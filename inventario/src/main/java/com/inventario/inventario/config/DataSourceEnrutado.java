@@ -0,0 +1,226 @@
+package com.inventario.inventario.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// Envía las transacciones de solo lectura (@Transactional(readOnly = true)) a una réplica y
+// todo lo demás al primario. Debe usarse detrás de LazyConnectionDataSourceProxy: la conexión
+// física se pide con la primera sentencia, cuando la transacción ya quedó marcada como de solo
+// lectura. Un hilo revisa las réplicas cada intervalo; sin réplicas sanas, si una réplica
+// falla al entregar la conexión o si el cliente acaba de escribir (LecturaPropia), la lectura
+// va al primario.
+public class DataSourceEnrutado extends AbstractRoutingDataSource implements MeterBinder, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DataSourceEnrutado.class);
+
+    public static final String PRIMARIO = "primario";
+
+    // ronda: turnos entre las réplicas sanas; menos-ocupada: la de menos conexiones en uso
+    public enum Seleccion {
+        RONDA, MENOS_OCUPADA
+    }
+
+    private final HikariDataSource primario;
+    private final List<Replica> replicas;
+    private final Map<String, Replica> porNombre = new LinkedHashMap<>();
+    private final Map<String, LongAdder> conexiones = new LinkedHashMap<>();
+    private final Seleccion seleccion;
+    private final Duration intervaloSalud;
+    private final AtomicInteger turno = new AtomicInteger();
+    private ScheduledExecutorService revisor;
+
+    public DataSourceEnrutado(HikariDataSource primario, List<HikariDataSource> replicas, Seleccion seleccion,
+            Duration intervaloSalud) {
+        this.primario = primario;
+        this.seleccion = seleccion;
+        this.intervaloSalud = intervaloSalud;
+        List<Replica> lista = new ArrayList<>(replicas.size());
+        Map<Object, Object> destinos = new LinkedHashMap<>();
+        destinos.put(PRIMARIO, primario);
+        conexiones.put(PRIMARIO, new LongAdder());
+        for (HikariDataSource fuente : replicas) {
+            Replica replica = new Replica(fuente.getPoolName(), fuente);
+            lista.add(replica);
+            porNombre.put(replica.nombre, replica);
+            destinos.put(replica.nombre, fuente);
+            conexiones.put(replica.nombre, new LongAdder());
+        }
+        this.replicas = Collections.unmodifiableList(lista);
+        setTargetDataSources(destinos);
+        setDefaultTargetDataSource(primario);
+    }
+
+    // Revisa las réplicas antes de recibir tráfico y luego cada intervalo
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        revisarReplicas();
+        revisor = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "replicas-salud");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long intervalo = Math.max(intervaloSalud.toMillis(), 1);
+        revisor.scheduleWithFixedDelay(this::revisarReplicas, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (revisor != null) {
+            revisor.shutdownNow();
+        }
+        replicas.forEach(replica -> replica.fuente.close());
+        primario.close();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                LecturaPropia.registrarEscritura();
+            }
+            return PRIMARIO;
+        }
+        if (LecturaPropia.enPrimario()) {
+            return PRIMARIO;
+        }
+        Replica replica = elegirReplica();
+        return replica == null ? PRIMARIO : replica.nombre;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        String destino = (String) determineCurrentLookupKey();
+        Replica replica = porNombre.get(destino);
+        if (replica != null) {
+            try {
+                Connection conexion = replica.fuente.getConnection();
+                conexiones.get(destino).increment();
+                return conexion;
+            } catch (SQLException e) {
+                // No espera a la siguiente revisión: las lecturas siguientes ya la evitan
+                replica.marcar(false, e);
+            }
+        }
+        conexiones.get(PRIMARIO).increment();
+        return primario.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLException("Las credenciales se configuran en cada pool");
+    }
+
+    // Conexiones entregadas por destino (primario o nombre de la réplica)
+    public long conexiones(String destino) {
+        LongAdder contador = conexiones.get(destino);
+        return contador == null ? 0 : contador.sum();
+    }
+
+    public int replicasSanas() {
+        return (int) replicas.stream().filter(replica -> replica.sana).count();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        conexiones.forEach((destino, contador) -> FunctionCounter
+                .builder("inventario.datasource.conexiones", contador, LongAdder::sum)
+                .description("Conexiones entregadas por el DataSource enrutado")
+                .tag("destino", destino)
+                .register(registry));
+        Gauge.builder("inventario.replicas.sanas", this, DataSourceEnrutado::replicasSanas)
+                .description("Réplicas que pasaron la última revisión")
+                .register(registry);
+    }
+
+    void revisarReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection conexion = replica.fuente.getConnection()) {
+                replica.marcar(conexion.isValid(1), null);
+            } catch (SQLException e) {
+                replica.marcar(false, e);
+            } catch (RuntimeException e) {
+                replica.marcar(false, e);
+            }
+        }
+    }
+
+    private Replica elegirReplica() {
+        int cantidad = replicas.size();
+        if (cantidad == 0) {
+            return null;
+        }
+        int inicio = Math.floorMod(turno.getAndIncrement(), cantidad);
+        Replica elegida = null;
+        int menosActivas = Integer.MAX_VALUE;
+        for (int i = 0; i < cantidad; i++) {
+            Replica replica = replicas.get((inicio + i) % cantidad);
+            if (!replica.sana) {
+                continue;
+            }
+            if (seleccion == Seleccion.RONDA) {
+                return replica;
+            }
+            int activas = replica.activas();
+            if (activas < menosActivas) {
+                elegida = replica;
+                menosActivas = activas;
+            }
+        }
+        return elegida;
+    }
+
+    private static final class Replica {
+        private final String nombre;
+        private final HikariDataSource fuente;
+        private volatile boolean sana = true;
+
+        private Replica(String nombre, HikariDataSource fuente) {
+            this.nombre = nombre;
+            this.fuente = fuente;
+        }
+
+        private int activas() {
+            HikariPoolMXBean pool = fuente.getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getActiveConnections();
+        }
+
+        private void marcar(boolean estaSana, Exception causa) {
+            if (sana == estaSana) {
+                return;
+            }
+            sana = estaSana;
+            if (estaSana) {
+                LOG.info("Réplica {} disponible de nuevo", nombre);
+            } else {
+                LOG.warn("Réplica {} no disponible, sus lecturas van al primario: {}", nombre,
+                        causa == null ? "conexión no válida" : causa.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.inventario.inventario.config;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+// Hilos de los trabajos en segundo plano (escritores de importación, envío de cambios,
+// persistencia de reservas, escritura diferida, cortes del historial). Con
+// spring.threads.virtual.enabled=true sobre Java 21 (perfil hilos-virtuales) son hilos
+// virtuales, igual que los de las peticiones de Tomcat; si no, hilos de plataforma daemon.
+@Component
+public class FabricaHilos {
+
+    private final boolean virtuales;
+
+    public FabricaHilos(Environment entorno) {
+        this.virtuales = Threading.VIRTUAL.isActive(entorno);
+    }
+
+    public boolean isVirtuales() {
+        return virtuales;
+    }
+
+    // Hilos con el mismo nombre; los virtuales llevan además un número al final
+    public ThreadFactory crear(String nombre) {
+        if (virtuales) {
+            return new VirtualThreadTaskExecutor(nombre + "-").getVirtualThreadFactory();
+        }
+        return tarea -> {
+            Thread hilo = new Thread(tarea, nombre);
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+
+    // Hilos numerados desde 1: prefijo-1, prefijo-2...
+    public ThreadFactory crearNumerados(String prefijo) {
+        if (virtuales) {
+            return new VirtualThreadTaskExecutor(prefijo + "-").getVirtualThreadFactory();
+        }
+        AtomicInteger numero = new AtomicInteger();
+        return tarea -> {
+            Thread hilo = new Thread(tarea, prefijo + "-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+}
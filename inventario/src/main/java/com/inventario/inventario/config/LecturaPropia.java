@@ -0,0 +1,91 @@
+package com.inventario.inventario.config;
+
+import java.time.Duration;
+
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Lectura de las propias escrituras cuando hay réplicas. Durante una ventana después de que un
+// cliente escribe, sus lecturas van al primario, porque la réplica puede no tener aún el
+// cambio; también las lecturas que siguen a una escritura en la misma petición. El cliente
+// se identifica con X-Cliente-Id o, sin ese encabezado, con su dirección IP (detrás de un
+// proxy todos comparten la IP, conviene enviar el encabezado). Esas lecturas no usan ni
+// llenan las caches, cuyo contenido puede venir de una réplica.
+public class LecturaPropia implements AsyncHandlerInterceptor {
+
+    public static final String ENCABEZADO_CLIENTE = "X-Cliente-Id";
+
+    private static final ThreadLocal<Peticion> PETICION = new ThreadLocal<>();
+
+    private final Cache<String, Boolean> escriturasRecientes;
+
+    public LecturaPropia(Duration ventana, long maximoClientes) {
+        this.escriturasRecientes = Caffeine.newBuilder()
+                .expireAfterWrite(ventana)
+                .maximumSize(maximoClientes)
+                .build();
+    }
+
+    // true si la petición en curso debe leer del primario. Fuera de una petición HTTP
+    // (tareas programadas, oyentes) siempre es false.
+    public static boolean enPrimario() {
+        Peticion peticion = PETICION.get();
+        return peticion != null && (peticion.reciente || peticion.escribio);
+    }
+
+    // DataSourceEnrutado la llama al entregar una conexión de escritura
+    static void registrarEscritura() {
+        Peticion peticion = PETICION.get();
+        if (peticion != null) {
+            peticion.escribio = true;
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String cliente = request.getHeader(ENCABEZADO_CLIENTE);
+        if (cliente == null || cliente.isBlank()) {
+            cliente = request.getRemoteAddr();
+        }
+        PETICION.set(new Peticion(cliente, escriturasRecientes.getIfPresent(cliente) != null));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        terminar();
+    }
+
+    // Las respuestas asíncronas (SSE, exportación) liberan el hilo antes de completar
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        terminar();
+    }
+
+    private void terminar() {
+        Peticion peticion = PETICION.get();
+        PETICION.remove();
+        // La ventana cuenta desde el final de la petición, después del commit
+        if (peticion != null && peticion.escribio) {
+            escriturasRecientes.put(peticion.cliente, Boolean.TRUE);
+        }
+    }
+
+    private static final class Peticion {
+        private final String cliente;
+        private final boolean reciente;
+        private boolean escribio;
+
+        private Peticion(String cliente, boolean reciente) {
+            this.cliente = cliente;
+            this.reciente = reciente;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.inventario.inventario.config;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+// ObjectMapper de Smile con los módulos y la configuración del ObjectMapper JSON de Spring
+// Boot. No se publica como bean ObjectMapper: Spring Boot dejaría de crear el de JSON.
+// Además de los nombres de campo se comparten los textos cortos repetidos (ubicaciones) y las
+// fechas van como arreglos de números en vez de texto ISO.
+@Component
+public class MapeadorSmile {
+
+    private final ObjectMapper mapper;
+
+    public MapeadorSmile(ObjectMapper objectMapper) {
+        SmileFactory fabrica = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        this.mapper = objectMapper.copyWith(fabrica)
+                .enable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+}
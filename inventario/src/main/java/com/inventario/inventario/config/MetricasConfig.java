@@ -0,0 +1,54 @@
+package com.inventario.inventario.config;
+
+import java.util.List;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.inventario.inventario.metricas.ContadorEntidadesIntegrator;
+import com.inventario.inventario.metricas.InspectorSqlMuestreado;
+import com.inventario.inventario.metricas.MetricasPeticionInterceptor;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Métricas expuestas en /actuator/prometheus. Los histogramas de http.server.requests y de
+// la espera por conexiones del pool se activan en application.properties.
+@Configuration
+public class MetricasConfig implements WebMvcConfigurer {
+
+    private static final String PROVEEDOR_INTEGRADORES = "hibernate.integrator_provider";
+
+    private final MeterRegistry registry;
+
+    public MetricasConfig(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    // Hace efectivo @Timed en los servicios
+    @Bean
+    public TimedAspect timedAspect() {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer metricasHibernate(
+            @Value("${inventario.sql.muestreo:0.0}") double fraccionMuestreo) {
+        return propiedades -> {
+            propiedades.put(AvailableSettings.STATEMENT_INSPECTOR, new InspectorSqlMuestreado(fraccionMuestreo));
+            propiedades.put(PROVEEDOR_INTEGRADORES,
+                    (IntegratorProvider) () -> List.of(new ContadorEntidadesIntegrator()));
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptores) {
+        interceptores.addInterceptor(new MetricasPeticionInterceptor(registry)).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,102 @@
+package com.inventario.inventario.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Lecturas en réplicas. El primario sale de spring.datasource y cada URL de
+// inventario.replicas.urls es un pool de solo lectura con la misma configuración Hikari
+// (spring.datasource.hikari.*). Los métodos @Transactional(readOnly = true) leen de una
+// réplica; escrituras, transacciones mixtas y código sin transacción usan el primario.
+@Configuration
+@ConditionalOnProperty(name = "inventario.replicas.activo", havingValue = "true")
+public class ReplicasConfig implements WebMvcConfigurer {
+
+    private static final String PROPIEDADES_HIKARI = "spring.datasource.hikari";
+
+    private final LecturaPropia lecturaPropia;
+
+    public ReplicasConfig(@Value("${inventario.replicas.ventana-lectura-propia:5s}") Duration ventana,
+            @Value("${inventario.replicas.maximo-clientes:100000}") long maximoClientes) {
+        this.lecturaPropia = new LecturaPropia(ventana, maximoClientes);
+    }
+
+    @Bean
+    public DataSourceEnrutado dataSourceEnrutado(DataSourceProperties propiedades, Environment entorno,
+            ObjectProvider<MeterRegistry> registry,
+            @Value("${inventario.replicas.urls}") List<String> urls,
+            @Value("${inventario.replicas.username:${spring.datasource.username:}}") String usuario,
+            @Value("${inventario.replicas.password:${spring.datasource.password:}}") String clave,
+            @Value("${inventario.replicas.seleccion:ronda}") DataSourceEnrutado.Seleccion seleccion,
+            @Value("${inventario.replicas.intervalo-salud:5s}") Duration intervaloSalud,
+            @Value("${inventario.replicas.timeout-conexion:1s}") Duration timeoutConexion) {
+        Binder binder = Binder.get(entorno);
+        MeterRegistry metricas = registry.getIfAvailable();
+        HikariDataSource primario = crearPool(propiedades, binder, metricas, propiedades.determineUrl(),
+                propiedades.determineUsername(), propiedades.determinePassword(), DataSourceEnrutado.PRIMARIO);
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource replica = crearPool(propiedades, binder, metricas, url.trim(), usuario, clave,
+                    "replica-" + (replicas.size() + 1));
+            replica.setReadOnly(true);
+            // Una réplica caída no debe retener la petición: se cae al primario
+            replica.setConnectionTimeout(Math.max(timeoutConexion.toMillis(), 250));
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+        return new DataSourceEnrutado(primario, replicas, seleccion, intervaloSalud);
+    }
+
+    // Pide la conexión física recién en la primera sentencia, cuando la transacción ya fijó
+    // readOnly. Sin el proxy JpaTransactionManager la obtiene al comenzar y siempre del primario.
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceEnrutado enrutado) {
+        return new LazyConnectionDataSourceProxy(enrutado);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptores) {
+        interceptores.addInterceptor(lecturaPropia).addPathPatterns("/api/**");
+    }
+
+    // También arma los pools de los fragmentos de AlmacenFragmentado
+    public static HikariDataSource crearPool(DataSourceProperties propiedades, Binder binder, MeterRegistry metricas,
+            String url, String usuario, String clave, String nombre) {
+        HikariDataSource pool = propiedades.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(usuario)
+                .password(clave)
+                .build();
+        binder.bind(PROPIEDADES_HIKARI, Bindable.ofInstance(pool));
+        pool.setPoolName(nombre);
+        if (metricas != null) {
+            pool.setMetricRegistry(metricas);
+        }
+        return pool;
+    }
+}
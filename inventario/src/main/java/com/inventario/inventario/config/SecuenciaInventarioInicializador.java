@@ -0,0 +1,42 @@
+package com.inventario.inventario.config;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.inventario.inventario.model.entity.InventarioEntity;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Alinea la tabla del generador de ids con los datos existentes antes de recibir tráfico.
+// Las filas creadas con IDENTITY ya ocupan ids, el generador debe empezar después del mayor.
+@Component
+public class SecuenciaInventarioInicializador implements InitializingBean {
+
+    private static final String SECUENCIA = "inventario";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Depende del EntityManagerFactory para correr después de que Hibernate crea las tablas
+    public SecuenciaInventarioInicializador(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Long mayorId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id_inventario), 0) FROM inventario",
+                Long.class);
+        // Con el optimizador pooled el bloque entregado termina en el valor leído de la tabla
+        long minimo = (mayorId == null ? 0 : mayorId) + InventarioEntity.TAMANO_BLOQUE_ID + 1;
+        int actualizadas = jdbcTemplate.update("UPDATE inventario_id_gen SET siguiente_valor = ?"
+                + " WHERE nombre_secuencia = ? AND siguiente_valor < ?", minimo, SECUENCIA, minimo);
+        if (actualizadas == 0) {
+            Integer existe = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM inventario_id_gen WHERE nombre_secuencia = ?", Integer.class, SECUENCIA);
+            if (existe == null || existe == 0) {
+                jdbcTemplate.update("INSERT INTO inventario_id_gen (nombre_secuencia, siguiente_valor) VALUES (?, ?)",
+                        SECUENCIA, minimo);
+            }
+        }
+    }
+}
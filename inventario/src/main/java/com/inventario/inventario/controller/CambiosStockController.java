@@ -0,0 +1,48 @@
+package com.inventario.inventario.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.inventario.inventario.service.CambiosStockService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+
+@RestController
+@RequestMapping("api/v1/inventarios/cambios")
+public class CambiosStockController {
+
+    @Autowired
+    private CambiosStockService cambiosStockService;
+
+    // Feed de cambios por Server-Sent Events: un evento por creación, actualización, ajuste o
+    // eliminación, con id igual a su secuencia. Reconectar con Last-Event-ID reanuda el feed.
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Suscribirse a los cambios de inventario (Server-Sent Events)")
+    @ApiResponse(responseCode = "200", description = "Flujo de eventos; \"desfasado\" pide releer el listado")
+    @ApiResponse(responseCode = "503", description = "Se alcanzó el máximo de suscriptores, ver Retry-After")
+    public ResponseEntity<SseEmitter> suscribir(
+            @RequestHeader(value = "Last-Event-ID", required = false) String ultimoEventoId) {
+        SseEmitter emisor = cambiosStockService.suscribir(ultimoEventoId);
+        if (emisor == null) {
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
+        // X-Accel-Buffering evita que un proxy nginx retenga los eventos
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .header("X-Accel-Buffering", "no")
+                .body(emisor);
+    }
+}
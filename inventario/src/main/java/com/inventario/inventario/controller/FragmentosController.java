@@ -0,0 +1,49 @@
+package com.inventario.inventario.controller;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.inventario.inventario.almacen.AlmacenFragmentado;
+import com.inventario.inventario.model.EstadoFragmentos;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+
+// Solo con inventario.almacen.motor=fragmentado
+@RestController
+@RequestMapping("api/v1/inventarios/fragmentos")
+@ConditionalOnProperty(name = "inventario.almacen.motor", havingValue = "fragmentado")
+public class FragmentosController {
+
+    @Autowired
+    private AlmacenFragmentado almacenFragmentado;
+
+    // Ranuras y filas por fragmento, y ranuras que esperan el rebalanceo.
+    @GetMapping
+    @Operation(summary = "Obtiene el reparto de ranuras y filas entre los fragmentos")
+    public ResponseEntity<EstadoFragmentos> obtenerEstado() {
+        return ResponseEntity.ok(almacenFragmentado.estado());
+    }
+
+    // Mover a su fragmento las ranuras pendientes, por ejemplo después de agregar una URL a
+    // inventario.fragmentos.urls. Las escrituras de cada ranura esperan mientras se copia.
+    @PostMapping("/rebalanceo")
+    @Operation(summary = "Mueve las ranuras pendientes al fragmento que les asigna el anillo")
+    @ApiResponse(responseCode = "200", description = "Ranuras y filas movidas")
+    @ApiResponse(responseCode = "409", description = "Ya hay un rebalanceo en curso")
+    public ResponseEntity<?> rebalancear() {
+        try {
+            return ResponseEntity.ok(almacenFragmentado.rebalancear());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.inventario.inventario.controller;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.inventario.inventario.model.StockEnFecha;
+import com.inventario.inventario.service.HistorialStockService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+
+@RestController
+@RequestMapping("api/v1/inventarios/historial")
+public class HistorialStockController {
+
+    @Autowired
+    private HistorialStockService historialStockService;
+
+    // Stock de un inventario a una fecha (ISO, por ejemplo 2024-05-01T10:00:00); sin fecha, el actual.
+    @GetMapping("/{idInventario}")
+    @Operation(summary = "Obtiene el stock de un inventario a una fecha")
+    @ApiResponse(responseCode = "200", description = "Stock con todos los movimientos hasta la fecha")
+    @ApiResponse(responseCode = "404", description = "El inventario no existía a esa fecha o el historial está desactivado")
+    public ResponseEntity<?> obtenerStockEnFecha(@PathVariable long idInventario,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fecha) {
+        if (!historialStockService.isActivo()) {
+            return historialDesactivado();
+        }
+        return historialStockService.obtenerStockEnFecha(idInventario, fecha == null ? LocalDateTime.now() : fecha)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity
+                        .status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("mensaje", "No hay registro del inventario " + idInventario + " a esa fecha")));
+    }
+
+    // Stock de los inventarios de una ubicación de bodega a una fecha.
+    @GetMapping("/ubicacion/{ubicacionBodega}")
+    @Operation(summary = "Obtiene el stock de los inventarios de una ubicación de bodega a una fecha")
+    @ApiResponse(responseCode = "200", description = "Inventarios existentes a la fecha, ordenados por id")
+    @ApiResponse(responseCode = "404", description = "El historial está desactivado")
+    public ResponseEntity<?> obtenerStockEnFecha(@PathVariable String ubicacionBodega,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fecha) {
+        if (!historialStockService.isActivo()) {
+            return historialDesactivado();
+        }
+        List<StockEnFecha> inventarios = historialStockService.obtenerStockEnFecha(ubicacionBodega,
+                fecha == null ? LocalDateTime.now() : fecha);
+        return ResponseEntity.ok(inventarios);
+    }
+
+    // Escribir un corte del historial sin esperar al intervalo programado.
+    @PostMapping("/cortes")
+    @Operation(summary = "Escribe un corte con la instantánea del stock de cada inventario")
+    @ApiResponse(responseCode = "200", description = "Último corte, el anterior si no hubo movimientos nuevos")
+    @ApiResponse(responseCode = "404", description = "El historial está desactivado")
+    public ResponseEntity<?> cortar() {
+        if (!historialStockService.isActivo()) {
+            return historialDesactivado();
+        }
+        return ResponseEntity.ok(historialStockService.cortar());
+    }
+
+    private static ResponseEntity<?> historialDesactivado() {
+        return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", "El historial de stock está desactivado"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.inventario.inventario.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.inventario.inventario.model.EstadoImportacion;
+import com.inventario.inventario.model.FormatoExportacion;
+import com.inventario.inventario.service.ImportacionCsvService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+
+@RestController
+@RequestMapping("api/v1/inventarios/importaciones")
+public class ImportacionController {
+
+    private static final String TEXTO_CSV = "text/csv";
+
+    @Autowired
+    private ImportacionCsvService importacionCsvService;
+
+    // Importación de Inventarios desde un CSV enviado como cuerpo. Responde al recibir el archivo
+    // y la importación sigue en segundo plano; el avance se consulta en Location.
+    // Columnas idInventario,stockDisponible,ubicacionBodega (el encabezado es opcional).
+    @PostMapping(consumes = TEXTO_CSV)
+    @Operation(summary = "Importar inventarios desde un CSV en el cuerpo")
+    @ApiResponse(responseCode = "202", description = "Importación iniciada, incluye su id")
+    @ApiResponse(responseCode = "503", description = "Se alcanzó el máximo de importaciones simultáneas, ver Retry-After")
+    public ResponseEntity<?> importarCsv(InputStream cuerpo) throws IOException {
+        return responder(importacionCsvService.importar(cuerpo));
+    }
+
+    // Importación de Inventarios desde un archivo CSV en un formulario multipart (parte "archivo").
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Importar inventarios desde un archivo CSV")
+    @ApiResponse(responseCode = "202", description = "Importación iniciada, incluye su id")
+    @ApiResponse(responseCode = "503", description = "Se alcanzó el máximo de importaciones simultáneas, ver Retry-After")
+    public ResponseEntity<?> importarArchivo(@RequestPart("archivo") MultipartFile archivo) throws IOException {
+        try (InputStream entrada = archivo.getInputStream()) {
+            return responder(importacionCsvService.importar(entrada));
+        }
+    }
+
+    // Importaciones en curso y las últimas terminadas.
+    @GetMapping
+    @Operation(summary = "Listar las importaciones en curso y las recientes")
+    @ApiResponse(responseCode = "200", description = "Avance y totales de cada importación")
+    public List<EstadoImportacion> listarImportaciones() {
+        return importacionCsvService.listar();
+    }
+
+    // Avance de una Importación mientras corre, o sus totales al terminar.
+    @GetMapping("/{idImportacion}")
+    @Operation(summary = "Obtener el avance de una importación")
+    @ApiResponse(responseCode = "200", description = "Filas leídas, creadas, actualizadas y rechazadas")
+    @ApiResponse(responseCode = "404", description = "Importación no encontrada")
+    public ResponseEntity<?> obtenerImportacion(@PathVariable String idImportacion) {
+        return importacionCsvService.obtener(idImportacion)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity
+                        .status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Importación no encontrada")));
+    }
+
+    // Reporte CSV de las filas rechazadas: linea,motivo,registro.
+    @GetMapping("/{idImportacion}/errores")
+    @Operation(summary = "Descargar el reporte de filas rechazadas de una importación")
+    @ApiResponse(responseCode = "200", description = "CSV con la línea, el motivo y el registro original")
+    @ApiResponse(responseCode = "404", description = "Importación no encontrada")
+    public ResponseEntity<?> obtenerErrores(@PathVariable String idImportacion) {
+        Optional<Path> reporte = importacionCsvService.reporteErrores(idImportacion);
+        if (reporte.isEmpty()) {
+            return ResponseEntity
+                    .status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Importación no encontrada"));
+        }
+        return ResponseEntity.ok()
+                .contentType(FormatoExportacion.CSV.getTipoContenido())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"errores-" + idImportacion + ".csv\"")
+                .body(new FileSystemResource(reporte.get()));
+    }
+
+    private static ResponseEntity<?> responder(EstadoImportacion estado) {
+        if (estado == null) {
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(Map.of("error", "Hay demasiadas importaciones en curso"));
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/inventarios/importaciones/" + estado.getIdImportacion()))
+                .body(estado);
+    }
+}
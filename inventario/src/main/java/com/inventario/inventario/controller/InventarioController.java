@@ -1,25 +1,53 @@
 package com.inventario.inventario.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventario.inventario.cache.RespuestasCache;
+import com.inventario.inventario.cache.VersionCambios;
+import com.inventario.inventario.exception.StockInsuficienteException;
+import com.inventario.inventario.model.AjusteStock;
+import com.inventario.inventario.model.FormatoExportacion;
+import com.inventario.inventario.model.FormatoRespuesta;
 import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.ModoBusqueda;
+import com.inventario.inventario.model.PaginaInventario;
+import com.inventario.inventario.model.ResultadoCargaMasiva;
+import com.inventario.inventario.model.SolicitudTransferencia;
 import com.inventario.inventario.service.InventarioService;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 
 import jakarta.validation.Valid;
@@ -32,34 +60,31 @@ public class InventarioController {
     @Autowired
     private InventarioService inventarioService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Versión global y respuestas serializadas para los GET condicionales de los listados
+    @Autowired
+    private VersionCambios versionCambios;
+
+    @Autowired
+    private RespuestasCache respuestasCache;
+
     // Creación de un nuevo Inventario.
     @PostMapping
     @Operation(summary = "Crear un nuevo inventario")
     @ApiResponse(responseCode = "201", description = "Inventario creado exitosamente")
     @ApiResponse(responseCode = "400", description = "Datos de inventario inválidos o incompletos")
     @ApiResponse(responseCode = "409", description = "El inventario ya existe")
+    @ApiResponse(responseCode = "503", description = "Servicio saturado, ver Retry-After")
     public ResponseEntity<Map<String, String>> crearInventario(@Valid @RequestBody Inventario inventario) {
         try {
-            // Validar que se proporcionen ambos campos obligatorios
-            if (inventario.getStockDisponible() <= 0 &&
-                    (inventario.getUbicacionBodega() == null || inventario.getUbicacionBodega().trim().isEmpty())) {
+            // Validar campos obligatorios, mismas reglas que la carga masiva
+            String error = inventarioService.validarInventario(inventario);
+            if (error != null) {
                 return ResponseEntity
                         .badRequest()
-                        .body(Map.of("error", "El stock disponible y la ubicación de bodega son campos obligatorios"));
-            }
-
-            // Validar campos individualmente para mensajes específicos
-            if (inventario.getStockDisponible() <= 0) {
-                return ResponseEntity
-                        .badRequest()
-                        .body(Map.of("error",
-                                "El stock disponible debes ingresarlo obligatoriamente"));
-            }
-
-            if (inventario.getUbicacionBodega() == null || inventario.getUbicacionBodega().trim().isEmpty()) {
-                return ResponseEntity
-                        .badRequest()
-                        .body(Map.of("error", "La ubicación de bodega es obligatoria"));
+                        .body(Map.of("error", error));
             }
 
             // Establecer fecha actual automáticamente
@@ -77,6 +102,9 @@ public class InventarioController {
                     .status(HttpStatus.CREATED)
                     .body(Map.of("mensaje", resultado));
 
+        } catch (TransientDataAccessException | CannotCreateTransactionException e) {
+            // Pool agotado o timeout: InventarioExceptionHandler responde 503 con Retry-After
+            throw e;
         } catch (Exception e) {
             return ResponseEntity
                     .status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -85,26 +113,68 @@ public class InventarioController {
         }
     }
 
+    // Creación o actualización masiva de Inventarios desde un arreglo JSON.
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Crear o actualizar inventarios en lote")
+    @ApiResponse(responseCode = "200", description = "Carga procesada, incluye el resultado de cada inventario")
+    public ResponseEntity<ResultadoCargaMasiva> cargarInventariosMasivo(@RequestBody List<Inventario> inventarios) {
+        return ResponseEntity.ok(inventarioService.cargarInventariosMasivo(inventarios.iterator()));
+    }
+
+    // Creación o actualización masiva de Inventarios desde NDJSON, se lee a medida que llega.
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+    @Operation(summary = "Crear o actualizar inventarios en lote desde NDJSON")
+    @ApiResponse(responseCode = "200", description = "Carga procesada, incluye el resultado de cada inventario")
+    public ResponseEntity<ResultadoCargaMasiva> cargarInventariosMasivoNdjson(InputStream cuerpo) throws IOException {
+        try (MappingIterator<Inventario> inventarios = objectMapper.readerFor(Inventario.class).readValues(cuerpo)) {
+            return ResponseEntity.ok(inventarioService.cargarInventariosMasivo(inventarios));
+        }
+    }
+
     // Eliminación de un Inventario por su Id.
     @DeleteMapping("/{idInventario}")
     @Operation(summary = "Eliminar un inventario existente")
-    public ResponseEntity<String> eliminarInventario(@PathVariable Long idInventario) {
-        String resultado = inventarioService.eliminarInventario(idInventario);
+    @ApiResponse(responseCode = "412", description = "La versión de If-Match no coincide")
+    public ResponseEntity<String> eliminarInventario(@PathVariable Long idInventario,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        String resultado = inventarioService.eliminarInventario(idInventario, versionDesdeIfMatch(ifMatch));
         if (resultado.contains("eliminado correctamente")) {
             return ResponseEntity.ok(resultado);
         }
+        if (resultado.equals(InventarioService.CONFLICTO_VERSION)) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(resultado);
+        }
         return ResponseEntity.status(404).body(resultado);
     }
 
+    // Obtener un Inventario por su Id, la versión se envía como ETag.
+    @GetMapping("/{idInventario}")
+    @Operation(summary = "Obtener un inventario por su id")
+    @ApiResponse(responseCode = "200", description = "Inventario encontrado, ETag con su versión")
+    @ApiResponse(responseCode = "404", description = "Inventario no encontrado")
+    public ResponseEntity<?> obtenerInventario(@PathVariable long idInventario) {
+        return inventarioService.obtenerInventario(idInventario)
+                .<ResponseEntity<?>>map(inventario -> ResponseEntity.ok()
+                        .eTag(Long.toString(inventario.getVersion()))
+                        .body(inventario))
+                .orElseGet(() -> ResponseEntity
+                        .status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Inventario no encontrado")));
+    }
+
     // Actualizacion del stock de un Inventario.
     @PutMapping("/{idInventario}")
     @Operation(summary = "Actualizar solo el stock disponible de un inventario")
     @ApiResponse(responseCode = "200", description = "Stock actualizado exitosamente")
     @ApiResponse(responseCode = "404", description = "Inventario no encontrado")
     @ApiResponse(responseCode = "400", description = "Stock inválido")
+    @ApiResponse(responseCode = "412", description = "La versión de If-Match no coincide")
+    @ApiResponse(responseCode = "503", description = "Servicio saturado, ver Retry-After")
     public ResponseEntity<Map<String, String>> actualizarInventario(
             @PathVariable long idInventario,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody Inventario inventario) {
+        Long versionEsperada = versionDesdeIfMatch(ifMatch);
         try {
             // Validar que el stock sea válido
             if (inventario.getStockDisponible() <= 0) {
@@ -113,7 +183,7 @@ public class InventarioController {
                         .body(Map.of("error", "El stock debe ser mayor a 0"));
             }
 
-            String resultado = inventarioService.actualizarInventario(idInventario, inventario);
+            String resultado = inventarioService.actualizarInventario(idInventario, inventario, versionEsperada);
 
             if (resultado.equals("Inventario no encontrado")) {
                 return ResponseEntity
@@ -121,8 +191,23 @@ public class InventarioController {
                         .body(Map.of("error", "Inventario no encontrado"));
             }
 
+            if (resultado.equals(InventarioService.CONFLICTO_VERSION)) {
+                return ResponseEntity
+                        .status(HttpStatus.PRECONDITION_FAILED)
+                        .body(Map.of("error", resultado));
+            }
+
+            if (resultado.startsWith("Error")) {
+                return ResponseEntity
+                        .status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of("error", resultado));
+            }
+
             return ResponseEntity.ok(Map.of("mensaje", "Stock actualizado correctamente"));
 
+        } catch (TransientDataAccessException | CannotCreateTransactionException e) {
+            // Pool agotado o timeout: InventarioExceptionHandler responde 503 con Retry-After
+            throw e;
         } catch (Exception e) {
             return ResponseEntity
                     .status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -130,27 +215,250 @@ public class InventarioController {
         }
     }
 
-    // Obtener Inventarios por Ubicación de una Bodega.
+    // Ajuste atómico del stock de un Inventario (+n / -n).
+    @PatchMapping("/{idInventario}/stock")
+    @Operation(summary = "Sumar o descontar unidades del stock disponible de forma atómica")
+    @ApiResponse(responseCode = "200", description = "Stock ajustado, devuelve el nuevo valor")
+    @ApiResponse(responseCode = "400", description = "Ajuste inválido o stock resultante fuera de rango")
+    @ApiResponse(responseCode = "404", description = "Inventario no encontrado")
+    @ApiResponse(responseCode = "409", description = "Stock insuficiente")
+    @ApiResponse(responseCode = "503", description = "Servicio saturado, ver Retry-After")
+    public ResponseEntity<Map<String, Object>> ajustarStock(
+            @PathVariable long idInventario,
+            @RequestBody AjusteStock ajuste) {
+        try {
+            if (ajuste.getDelta() == 0) {
+                return ResponseEntity
+                        .badRequest()
+                        .body(Map.of("error", "El ajuste de stock debe ser distinto de 0"));
+            }
+
+            Integer stockDisponible = inventarioService.ajustarStock(idInventario, ajuste.getDelta());
+
+            if (stockDisponible == null) {
+                return ResponseEntity
+                        .status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Inventario no encontrado"));
+            }
+
+            return ResponseEntity.ok(Map.of(
+                    "mensaje", "Stock actualizado correctamente",
+                    "stockDisponible", stockDisponible));
+
+        } catch (StockInsuficienteException e) {
+            return ResponseEntity
+                    .status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        } catch (TransientDataAccessException | CannotCreateTransactionException e) {
+            // Pool agotado o timeout: InventarioExceptionHandler responde 503 con Retry-After
+            throw e;
+        } catch (Exception e) {
+            return ResponseEntity
+                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error al ajustar el stock: " + e.getMessage()));
+        }
+    }
+
+    // Transferencia de stock entre inventarios: todos los movimientos o ninguno.
+    @PostMapping("/transferencias")
+    @Operation(summary = "Mover stock entre inventarios en una sola operación atómica")
+    @ApiResponse(responseCode = "200", description = "Transferencia aplicada, devuelve los inventarios involucrados")
+    @ApiResponse(responseCode = "400", description = "Movimientos inválidos")
+    @ApiResponse(responseCode = "404", description = "Algún inventario no existe")
+    @ApiResponse(responseCode = "409", description = "Stock insuficiente en algún origen, no se aplicó ningún movimiento")
+    @ApiResponse(responseCode = "503", description = "Servicio saturado, ver Retry-After")
+    public ResponseEntity<Map<String, Object>> transferirStock(@RequestBody SolicitudTransferencia solicitud) {
+        String error = inventarioService.validarTransferencia(solicitud.getMovimientos());
+        if (error != null) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(Map.of("error", error));
+        }
+        try {
+            List<Inventario> inventarios = inventarioService.transferirStock(solicitud.getMovimientos());
+            if (inventarios == null) {
+                return ResponseEntity
+                        .status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Inventario no encontrado"));
+            }
+            return ResponseEntity.ok(Map.of(
+                    "mensaje", "Transferencia aplicada correctamente",
+                    "inventarios", inventarios));
+        } catch (StockInsuficienteException e) {
+            return ResponseEntity
+                    .status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Obtener Inventarios por Ubicación de una Bodega. Con If-None-Match igual a la versión
+    // actual responde 304 sin consultar la base.
     @GetMapping("/ubicacion/{ubicacionBodega}")
     @Operation(summary = "Obtener inventarios por ubicación de bodega")
-    @ApiResponse(responseCode = "200", description = "Inventarios encontrados")
+    @ApiResponse(responseCode = "200", description = "Inventarios encontrados, ETag con la versión global",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = Inventario.class))))
+    @ApiResponse(responseCode = "304", description = "Sin cambios desde el ETag enviado")
     @ApiResponse(responseCode = "404", description = "No se encontraron inventarios en esa ubicación")
-    public ResponseEntity<?> obtenerInventarioPorUbicacion(@PathVariable String ubicacionBodega) {
-        List<Inventario> inventarios = inventarioService.obtenerInventarioPorUbicacion(ubicacionBodega);
-        if (inventarios == null || inventarios.isEmpty()) {
+    @ApiResponse(responseCode = "503", description = "Servicio saturado, ver Retry-After")
+    public ResponseEntity<?> obtenerInventarioPorUbicacion(@PathVariable String ubicacionBodega,
+            WebRequest peticion) {
+        FormatoRespuesta formato = FormatoRespuesta.negociar(peticion.getHeader(HttpHeaders.ACCEPT));
+        VersionCambios.Marca marca = versionCambios.actual();
+        if (peticion.checkNotModified(formato.etag(marca.getVersion()), marca.getModificacion())) {
+            return null;
+        }
+        RespuestasCache.Instantanea instantanea = respuestasCache.obtener(List.of("ubicacion", ubicacionBodega),
+                formato, marca.getVersion(), () -> {
+                    List<Inventario> inventarios = inventarioService.obtenerInventarioPorUbicacion(ubicacionBodega);
+                    return inventarios == null || inventarios.isEmpty() ? null : inventarios;
+                });
+        if (instantanea.getCuerpo() == null) {
             return ResponseEntity
                     .status(HttpStatus.NOT_FOUND)
                     .body(Map.of("mensaje", "No se encontraron inventarios en la ubicación: " + ubicacionBodega));
         }
-        return ResponseEntity.ok(inventarios);
+        return responderInstantanea(instantanea, formato, marca, peticion);
     }
 
-    // Obtener todos los Inventarios.
+    // Obtener los Inventarios paginados por cursor (keyset sobre idInventario). Entre escrituras
+    // la página se sirve ya serializada y un If-None-Match vigente recibe 304.
     @GetMapping
-    @Operation(summary = "Obtiene todos los inventarios")
-    public ResponseEntity<List<Inventario>> listarInventarios() {
-        List<Inventario> inventarios = inventarioService.listarInventarios();
-        return ResponseEntity.ok(inventarios);
+    @Operation(summary = "Obtiene los inventarios paginados por cursor")
+    @ApiResponse(responseCode = "200", description = "Página de inventarios, incluye el cursor de la siguiente página",
+            content = @Content(schema = @Schema(implementation = PaginaInventario.class)))
+    @ApiResponse(responseCode = "304", description = "Sin cambios desde el ETag enviado")
+    @ApiResponse(responseCode = "400", description = "Cursor o filtros inválidos")
+    @ApiResponse(responseCode = "503", description = "Servicio saturado, ver Retry-After")
+    public ResponseEntity<byte[]> listarInventarios(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + InventarioService.LIMITE_POR_DEFECTO) int limite,
+            @RequestParam(required = false) String ubicacionBodega,
+            @RequestParam(required = false) Integer stockMinimo,
+            @RequestParam(required = false) Integer stockMaximo,
+            WebRequest peticion) {
+        FormatoRespuesta formato = FormatoRespuesta.negociar(peticion.getHeader(HttpHeaders.ACCEPT));
+        VersionCambios.Marca marca = versionCambios.actual();
+        if (peticion.checkNotModified(formato.etag(marca.getVersion()), marca.getModificacion())) {
+            return null;
+        }
+        RespuestasCache.Instantanea instantanea = respuestasCache.obtener(
+                Arrays.asList("listado", cursor, limite, ubicacionBodega, stockMinimo, stockMaximo),
+                formato, marca.getVersion(),
+                () -> inventarioService.listarInventariosPaginado(cursor, limite, ubicacionBodega, stockMinimo,
+                        stockMaximo));
+        return responderInstantanea(instantanea, formato, marca, peticion);
+    }
+
+    // Buscar Inventarios por prefijo o subcadena de la ubicación de bodega, paginados por cursor.
+    @GetMapping("/busqueda")
+    @Operation(summary = "Busca inventarios cuya ubicación empieza con o contiene un texto")
+    @ApiResponse(responseCode = "200", description = "Página de inventarios, incluye el cursor de la siguiente página",
+            content = @Content(schema = @Schema(implementation = PaginaInventario.class)))
+    @ApiResponse(responseCode = "304", description = "Sin cambios desde el ETag enviado")
+    @ApiResponse(responseCode = "400", description = "Texto, modo o cursor inválidos")
+    @ApiResponse(responseCode = "503", description = "Servicio saturado, ver Retry-After")
+    public ResponseEntity<byte[]> buscarPorUbicacion(
+            @RequestParam String texto,
+            @RequestParam(defaultValue = "contiene") String modo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + InventarioService.LIMITE_POR_DEFECTO) int limite,
+            WebRequest peticion) {
+        ModoBusqueda modoBusqueda = ModoBusqueda.desde(modo);
+        FormatoRespuesta formato = FormatoRespuesta.negociar(peticion.getHeader(HttpHeaders.ACCEPT));
+        VersionCambios.Marca marca = versionCambios.actual();
+        if (peticion.checkNotModified(formato.etag(marca.getVersion()), marca.getModificacion())) {
+            return null;
+        }
+        RespuestasCache.Instantanea instantanea = respuestasCache.obtener(
+                Arrays.asList("busqueda", texto, modoBusqueda, cursor, limite),
+                formato, marca.getVersion(),
+                () -> inventarioService.buscarPorUbicacion(texto, modoBusqueda, cursor, limite));
+        return responderInstantanea(instantanea, formato, marca, peticion);
+    }
+
+    // Exportar todos los Inventarios en streaming (NDJSON, CSV o Smile). Sin el parámetro
+    // formato, un Accept que prefiere Smile recibe Smile y el resto NDJSON.
+    @GetMapping("/exportar")
+    @Operation(summary = "Exporta todos los inventarios en streaming como NDJSON, CSV o Smile")
+    @ApiResponse(responseCode = "200", description = "Exportación en curso")
+    @ApiResponse(responseCode = "400", description = "Formato de exportación no soportado")
+    public ResponseEntity<StreamingResponseBody> exportarInventarios(
+            @RequestParam(required = false) String formato,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String aceptar) {
+        FormatoExportacion formatoExportacion = formato != null
+                ? FormatoExportacion.desde(formato)
+                : FormatoRespuesta.negociar(aceptar) == FormatoRespuesta.SMILE
+                        ? FormatoExportacion.SMILE
+                        : FormatoExportacion.NDJSON;
+        StreamingResponseBody cuerpo = salida -> inventarioService.exportarInventarios(salida, formatoExportacion);
+        return ResponseEntity.ok()
+                .contentType(formatoExportacion.getTipoContenido())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"inventarios." + formatoExportacion.getExtension() + "\"")
+                .body(cuerpo);
+    }
+
+    // Cuerpo ya serializado (JSON o Smile según Accept) con sus validadores. Cache-Control
+    // no-cache obliga a revalidar cada vez, lo que con el ETag cuesta un 304. Si el cliente
+    // acepta gzip y existe la versión comprimida se envía esa.
+    private static ResponseEntity<byte[]> responderInstantanea(RespuestasCache.Instantanea instantanea,
+            FormatoRespuesta formato, VersionCambios.Marca marca, WebRequest peticion) {
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+                .contentType(formato.getTipoContenido())
+                .eTag(formato.etag(instantanea.getVersion()))
+                .lastModified(marca.getModificacion())
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (instantanea.getCuerpoGzip() != null && aceptaGzip(peticion.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            return respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(instantanea.getCuerpoGzip());
+        }
+        return respuesta.body(instantanea.getCuerpo());
+    }
+
+    // Accept-Encoding con gzip (o *) sin q=0
+    private static boolean aceptaGzip(String aceptaCodificacion) {
+        if (aceptaCodificacion == null) {
+            return false;
+        }
+        for (String codificacion : aceptaCodificacion.split(",")) {
+            String[] partes = codificacion.split(";");
+            String nombre = partes[0].trim();
+            if (!nombre.equalsIgnoreCase("gzip") && !nombre.equals("*")) {
+                continue;
+            }
+            boolean rechazada = false;
+            for (int i = 1; i < partes.length; i++) {
+                String parametro = partes[i].trim().replace(" ", "");
+                if (parametro.startsWith("q=") && parametro.substring(2).matches("0(\\.0*)?")) {
+                    rechazada = true;
+                }
+            }
+            if (!rechazada) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Lee la versión de un encabezado If-Match ("3" o W/"3"); "*" o ausente no condiciona.
+    private static Long versionDesdeIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String valor = ifMatch.trim();
+        if (valor.startsWith("W/")) {
+            valor = valor.substring(2);
+        }
+        valor = valor.replace("\"", "");
+        try {
+            return Long.parseLong(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Encabezado If-Match inválido: " + ifMatch);
+        }
     }
 
 }
@@ -0,0 +1,127 @@
+package com.inventario.inventario.controller;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.inventario.inventario.exception.StockInsuficienteException;
+import com.inventario.inventario.model.DisponibilidadStock;
+import com.inventario.inventario.model.Reserva;
+import com.inventario.inventario.model.SolicitudReserva;
+import com.inventario.inventario.service.ReservaService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+
+@RestController
+@RequestMapping("api/v1")
+public class ReservaController {
+
+    @Autowired
+    private ReservaService reservaService;
+
+    // Reservar unidades de un Inventario por un tiempo limitado.
+    @PostMapping("/inventarios/{idInventario}/reservas")
+    @Operation(summary = "Reservar stock de un inventario por un tiempo limitado")
+    @ApiResponse(responseCode = "201", description = "Reserva creada, incluye su id y vencimiento")
+    @ApiResponse(responseCode = "400", description = "Cantidad o duración inválidas")
+    @ApiResponse(responseCode = "404", description = "Inventario no encontrado")
+    @ApiResponse(responseCode = "409", description = "Stock insuficiente para reservar")
+    public ResponseEntity<?> reservar(@PathVariable long idInventario, @RequestBody SolicitudReserva solicitud) {
+        try {
+            Duration ttl = solicitud.getTtlSegundos() == null ? null : Duration.ofSeconds(solicitud.getTtlSegundos());
+            Reserva reserva = reservaService.reservar(idInventario, solicitud.getCantidad(), ttl);
+            if (reserva == null) {
+                return ResponseEntity
+                        .status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Inventario no encontrado"));
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).body(reserva);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        } catch (StockInsuficienteException e) {
+            return ResponseEntity
+                    .status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Stock disponible, reservado y disponible para prometer de un Inventario.
+    @GetMapping("/inventarios/{idInventario}/disponibilidad")
+    @Operation(summary = "Obtener el stock disponible para prometer de un inventario")
+    @ApiResponse(responseCode = "200", description = "Stock, unidades reservadas y disponible para prometer")
+    @ApiResponse(responseCode = "404", description = "Inventario no encontrado")
+    public ResponseEntity<?> obtenerDisponibilidad(@PathVariable long idInventario) {
+        return reservaService.obtenerDisponibilidad(idInventario)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity
+                        .status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Inventario no encontrado")));
+    }
+
+    // Obtener una reserva activa.
+    @GetMapping("/reservas/{idReserva}")
+    @Operation(summary = "Obtener una reserva activa")
+    @ApiResponse(responseCode = "200", description = "Reserva activa")
+    @ApiResponse(responseCode = "404", description = "La reserva no existe, venció o ya se cerró")
+    public ResponseEntity<?> obtenerReserva(@PathVariable String idReserva) {
+        return reservaService.obtenerReserva(idReserva)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity
+                        .status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Reserva no encontrada")));
+    }
+
+    // Confirmar una reserva: descuenta las unidades del stock disponible.
+    @PostMapping("/reservas/{idReserva}/confirmacion")
+    @Operation(summary = "Confirmar una reserva descontando su cantidad del stock")
+    @ApiResponse(responseCode = "200", description = "Reserva confirmada, devuelve el nuevo stock")
+    @ApiResponse(responseCode = "404", description = "La reserva no existe, venció o ya se cerró")
+    @ApiResponse(responseCode = "409", description = "Stock insuficiente, la reserva sigue activa")
+    public ResponseEntity<Map<String, Object>> confirmar(@PathVariable String idReserva) {
+        try {
+            Integer stockDisponible = reservaService.confirmar(idReserva);
+            if (stockDisponible == null) {
+                return ResponseEntity
+                        .status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Reserva no encontrada"));
+            }
+            return ResponseEntity.ok(Map.of(
+                    "mensaje", "Reserva confirmada correctamente",
+                    "stockDisponible", stockDisponible));
+
+        } catch (StockInsuficienteException e) {
+            return ResponseEntity
+                    .status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Liberar una reserva antes de su vencimiento.
+    @DeleteMapping("/reservas/{idReserva}")
+    @Operation(summary = "Liberar una reserva")
+    @ApiResponse(responseCode = "200", description = "Reserva liberada")
+    @ApiResponse(responseCode = "404", description = "La reserva no existe, venció o ya se cerró")
+    public ResponseEntity<Map<String, String>> liberar(@PathVariable String idReserva) {
+        if (!reservaService.liberar(idReserva)) {
+            return ResponseEntity
+                    .status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Reserva no encontrada"));
+        }
+        return ResponseEntity.ok(Map.of("mensaje", "Reserva liberada correctamente"));
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.inventario.inventario.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.inventario.inventario.model.ResumenBodega;
+import com.inventario.inventario.model.VerificacionResumen;
+import com.inventario.inventario.service.ResumenStockService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+
+@RestController
+@RequestMapping("api/v1/inventarios")
+public class ResumenStockController {
+
+    @Autowired
+    private ResumenStockService resumenStockService;
+
+    // Obtener stock total, cantidad de SKUs y SKUs con stock bajo por bodega.
+    @GetMapping("/agregados")
+    @Operation(summary = "Obtiene los totales de stock por ubicación de bodega")
+    public ResponseEntity<List<ResumenBodega>> obtenerResumen() {
+        return ResponseEntity.ok(resumenStockService.obtenerResumen());
+    }
+
+    // Obtener los totales de una sola bodega.
+    @GetMapping("/agregados/{ubicacionBodega}")
+    @Operation(summary = "Obtiene los totales de stock de una ubicación de bodega")
+    @ApiResponse(responseCode = "200", description = "Totales de la bodega")
+    @ApiResponse(responseCode = "404", description = "No hay inventarios en esa ubicación")
+    public ResponseEntity<?> obtenerResumen(@PathVariable String ubicacionBodega) {
+        return resumenStockService.obtenerResumen(ubicacionBodega)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity
+                        .status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("mensaje", "No se encontraron inventarios en la ubicación: " + ubicacionBodega)));
+    }
+
+    // Comparar los totales en memoria con un recálculo completo en la base de datos. Va fuera
+    // de /agregados para no tapar a una bodega que se llame "verificacion".
+    @GetMapping("/verificaciones/agregados")
+    @Operation(summary = "Verifica los totales en memoria contra un recálculo completo")
+    @ApiResponse(responseCode = "200", description = "Resultado de la verificación con las diferencias encontradas")
+    public ResponseEntity<VerificacionResumen> verificarConsistencia() {
+        return ResponseEntity.ok(resumenStockService.verificarConsistencia());
+    }
+
+}
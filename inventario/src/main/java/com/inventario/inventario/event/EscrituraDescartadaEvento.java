@@ -0,0 +1,22 @@
+package com.inventario.inventario.event;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Escritura diferida ya aceptada que no se pudo aplicar al vaciar el buffer porque el stock
+// de la fila quedaba fuera de rango. Lleva el valor absoluto (o null) y el delta combinados,
+// y el stock que tenía la fila, para que un oyente la reintente o la informe.
+@Getter
+@AllArgsConstructor
+@ToString
+public class EscrituraDescartadaEvento {
+
+    private final long idInventario;
+    private final Integer absoluto;
+    private final int delta;
+    private final int stockEnBase;
+    private final LocalDateTime fecha;
+}
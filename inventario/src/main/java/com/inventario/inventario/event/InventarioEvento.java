@@ -0,0 +1,33 @@
+package com.inventario.inventario.event;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Cambio de un inventario publicado por InventarioService dentro de la transacción que lo
+// produce. Los oyentes con @TransactionalEventListener lo reciben solo si se confirma.
+@Getter
+@AllArgsConstructor
+@ToString
+public class InventarioEvento {
+
+    public enum Tipo {
+        CREADO, ACTUALIZADO, AJUSTADO, ELIMINADO
+    }
+
+    private final Tipo tipo;
+    private final long idInventario;
+    private final String ubicacionBodega;
+    private final int stockAnterior;
+    private final int stockDisponible;
+    private final LocalDateTime fecha;
+    // Versión de la fila después del cambio; un oyente que lee la fila aparte la compara con
+    // la versión leída para no contar dos veces el mismo cambio
+    private final long version;
+
+    public int getDelta() {
+        return stockDisponible - stockAnterior;
+    }
+}
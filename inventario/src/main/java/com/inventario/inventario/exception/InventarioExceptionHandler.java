@@ -1,7 +1,14 @@
 package com.inventario.inventario.exception;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -10,6 +17,9 @@ import org.springframework.web.servlet.NoHandlerFoundException;
 @ControllerAdvice
 public class InventarioExceptionHandler {
 
+    @Value("${inventario.admision.retry-after:1s}")
+    private Duration retryAfter;
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleGenericException(Exception e) {
         return ResponseEntity
@@ -33,6 +43,23 @@ public class InventarioExceptionHandler {
                 .body("Error en los argumentos: " + e.getMessage());
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingFailureException(OptimisticLockingFailureException e) {
+        return ResponseEntity
+                .status(HttpStatus.PRECONDITION_FAILED)
+                .body("Conflicto de versión: el inventario fue modificado por otra operación");
+    }
+
+    // Sin conexión libre en el pool, timeout de consulta o bloqueo: es sobrecarga pasajera,
+    // el cliente puede reintentar
+    @ExceptionHandler({ CannotCreateTransactionException.class, TransientDataAccessException.class })
+    public ResponseEntity<String> handleSobrecarga(RuntimeException e) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(retryAfter.toSeconds(), 1)))
+                .body("Servicio saturado, reintente más tarde");
+    }
+
     @ExceptionHandler(NoHandlerFoundException.class)
     public ResponseEntity<String> handleNoHandlerFoundException(NoHandlerFoundException ex) {
         return ResponseEntity
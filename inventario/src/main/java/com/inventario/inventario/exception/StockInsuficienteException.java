@@ -0,0 +1,9 @@
+package com.inventario.inventario.exception;
+
+// Se lanza cuando un ajuste dejaría el stock disponible en negativo
+public class StockInsuficienteException extends RuntimeException {
+
+    public StockInsuficienteException(String mensaje) {
+        super(mensaje);
+    }
+}
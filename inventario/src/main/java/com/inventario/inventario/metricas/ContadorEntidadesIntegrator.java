@@ -0,0 +1,36 @@
+package com.inventario.inventario.metricas;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+// Registra un oyente POST_LOAD que cuenta las entidades materializadas por petición.
+// Las proyecciones y los agregados no pasan por este evento y no se cuentan.
+public class ContadorEntidadesIntegrator implements Integrator {
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+            SessionFactoryImplementor sessionFactory) {
+        sessionFactory.getServiceRegistry()
+                .requireService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_LOAD, new ContadorEntidades());
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        // Nada que liberar, el oyente no guarda estado
+    }
+
+    private static final class ContadorEntidades implements PostLoadEventListener {
+        @Override
+        public void onPostLoad(PostLoadEvent event) {
+            MetricasPeticion.contarEntidadCargada();
+        }
+    }
+}
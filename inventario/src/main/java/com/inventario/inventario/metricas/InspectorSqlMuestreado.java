@@ -0,0 +1,32 @@
+package com.inventario.inventario.metricas;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Reemplaza el log de todas las sentencias (show-sql, BasicBinder en TRACE). Cuenta cada
+// sentencia para la petición en curso y escribe solo una fracción de ellas, sin valores de
+// parámetros, en el logger "inventario.sql". El costo por sentencia es un número aleatorio.
+public class InspectorSqlMuestreado implements StatementInspector {
+
+    private static final Logger LOG = LoggerFactory.getLogger("inventario.sql");
+
+    private final double fraccionMuestreo;
+
+    public InspectorSqlMuestreado(double fraccionMuestreo) {
+        this.fraccionMuestreo = fraccionMuestreo;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        MetricasPeticion.contarConsulta();
+        if (fraccionMuestreo > 0 && ThreadLocalRandom.current().nextDouble() < fraccionMuestreo
+                && LOG.isInfoEnabled()) {
+            LOG.info("[muestra {}] {}", fraccionMuestreo, sql);
+        }
+        // Devolver la misma sentencia, el inspector no la modifica
+        return sql;
+    }
+}
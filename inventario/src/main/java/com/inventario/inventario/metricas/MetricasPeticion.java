@@ -0,0 +1,48 @@
+package com.inventario.inventario.metricas;
+
+// Contadores de la petición HTTP en curso. Hibernate ejecuta las consultas en el mismo hilo
+// que atiende la petición, así un ThreadLocal basta para atribuirlas sin sincronizar.
+// Fuera de una petición (tareas programadas, oyentes asíncronos) los contadores se ignoran.
+public final class MetricasPeticion {
+
+    private static final ThreadLocal<MetricasPeticion> ACTUAL = new ThreadLocal<>();
+
+    private long consultas;
+    private long entidadesCargadas;
+
+    private MetricasPeticion() {
+    }
+
+    public static void iniciar() {
+        ACTUAL.set(new MetricasPeticion());
+    }
+
+    // Devuelve los contadores de la petición y los desasocia del hilo
+    public static MetricasPeticion terminar() {
+        MetricasPeticion metricas = ACTUAL.get();
+        ACTUAL.remove();
+        return metricas;
+    }
+
+    static void contarConsulta() {
+        MetricasPeticion metricas = ACTUAL.get();
+        if (metricas != null) {
+            metricas.consultas++;
+        }
+    }
+
+    static void contarEntidadCargada() {
+        MetricasPeticion metricas = ACTUAL.get();
+        if (metricas != null) {
+            metricas.entidadesCargadas++;
+        }
+    }
+
+    public long getConsultas() {
+        return consultas;
+    }
+
+    public long getEntidadesCargadas() {
+        return entidadesCargadas;
+    }
+}
@@ -0,0 +1,64 @@
+package com.inventario.inventario.metricas;
+
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Publica por operación (método HTTP y patrón de la ruta) cuántas sentencias SQL ejecutó la
+// petición y cuántas entidades cargó Hibernate. Una operación que crece con el tamaño de la
+// tabla o un N+1 se ve como un aumento en estas distribuciones.
+public class MetricasPeticionInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String CONSULTAS = "inventario.peticion.consultas";
+    public static final String ENTIDADES_CARGADAS = "inventario.peticion.entidades.cargadas";
+
+    private final MeterRegistry registry;
+
+    public MetricasPeticionInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        MetricasPeticion.iniciar();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        MetricasPeticion metricas = MetricasPeticion.terminar();
+        if (metricas == null) {
+            return;
+        }
+        Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = patron == null ? "UNKNOWN" : patron.toString();
+        resumen(CONSULTAS, "Sentencias SQL ejecutadas por petición", request.getMethod(), uri)
+                .record(metricas.getConsultas());
+        resumen(ENTIDADES_CARGADAS, "Entidades cargadas por Hibernate por petición", request.getMethod(), uri)
+                .record(metricas.getEntidadesCargadas());
+    }
+
+    // Las respuestas asíncronas (SSE, exportación) liberan el hilo antes de completar: se
+    // descartan los contadores para que no queden en el hilo del pool. El despacho asíncrono
+    // vuelve a pasar por preHandle y afterCompletion.
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        MetricasPeticion.terminar();
+    }
+
+    private DistributionSummary resumen(String nombre, String descripcion, String metodo, String uri) {
+        return DistributionSummary.builder(nombre)
+                .description(descripcion)
+                .tag("method", metodo)
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,16 @@
+package com.inventario.inventario.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class AjusteStock {
+
+    // Cantidad a sumar al stock disponible, negativa para descontar
+    private int delta;
+
+}
@@ -0,0 +1,37 @@
+package com.inventario.inventario.model;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+// CambiosStockService serializa sin la secuencia y la antepone después: debe ir primero
+@JsonPropertyOrder({ "secuencia" })
+
+public class CambioStock {
+
+    // Creciente en el nodo, también viaja como id del evento SSE (Last-Event-ID)
+    private long secuencia;
+
+    // CREADO, ACTUALIZADO, AJUSTADO o ELIMINADO
+    private String tipo;
+
+    private long idInventario;
+
+    private String ubicacionBodega;
+
+    private int stockAnterior;
+
+    private int stockDisponible;
+
+    private LocalDateTime fecha;
+
+}
@@ -0,0 +1,26 @@
+package com.inventario.inventario.model;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class CorteHistorial {
+
+    private long idCorte;
+
+    // Las instantáneas del corte incluyen los movimientos hasta esta fecha
+    private LocalDateTime fecha;
+
+    // Inventarios existentes a la fecha del corte
+    private long filas;
+
+    // Último movimiento incluido en las instantáneas del corte
+    private long hastaMovimiento;
+
+}
@@ -0,0 +1,23 @@
+package com.inventario.inventario.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class DisponibilidadStock {
+
+    private long idInventario;
+
+    private int stockDisponible;
+
+    // Unidades retenidas por reservas activas
+    private int reservado;
+
+    // Stock que todavía se puede prometer: stockDisponible menos reservado
+    private int disponibleParaPrometer;
+
+}
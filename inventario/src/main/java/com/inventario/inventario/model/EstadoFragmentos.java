@@ -0,0 +1,25 @@
+package com.inventario.inventario.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class EstadoFragmentos {
+
+    private int fragmentos;
+
+    // Por fragmento, en el orden de inventario.fragmentos.urls
+    private List<Integer> ranuras;
+
+    private List<Long> filas;
+
+    // Ranuras que todavía están en otro fragmento que el que indica el anillo
+    private int ranurasPendientes;
+
+}
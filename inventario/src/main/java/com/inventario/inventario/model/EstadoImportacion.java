@@ -0,0 +1,44 @@
+package com.inventario.inventario.model;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class EstadoImportacion {
+
+    public static final String EN_CURSO = "EN_CURSO";
+    public static final String COMPLETADA = "COMPLETADA";
+    public static final String FALLIDA = "FALLIDA";
+
+    private String idImportacion;
+
+    private String estado;
+
+    // Filas de datos leídas del archivo, sin contar el encabezado
+    private long filasLeidas;
+
+    private long creados;
+
+    private long actualizados;
+
+    // Filas inválidas o que no se pudieron guardar, detalladas en el reporte de errores
+    private long rechazados;
+
+    private long bytesLeidos;
+
+    private LocalDateTime inicio;
+
+    private LocalDateTime fin;
+
+    private double filasPorSegundo;
+
+    // Motivo cuando la importación se detuvo antes del final del archivo
+    private String mensaje;
+
+}
@@ -0,0 +1,37 @@
+package com.inventario.inventario.model;
+
+import org.springframework.http.MediaType;
+
+// Formatos disponibles para la exportación completa del inventario
+public enum FormatoExportacion {
+
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv"),
+    // Secuencia de valores Smile, uno por inventario, que comparten los nombres de campo
+    SMILE("application/x-jackson-smile", "smile");
+
+    private final MediaType tipoContenido;
+    private final String extension;
+
+    FormatoExportacion(String tipoContenido, String extension) {
+        this.tipoContenido = MediaType.parseMediaType(tipoContenido);
+        this.extension = extension;
+    }
+
+    public MediaType getTipoContenido() {
+        return tipoContenido;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static FormatoExportacion desde(String valor) {
+        for (FormatoExportacion formato : values()) {
+            if (formato.extension.equalsIgnoreCase(valor)) {
+                return formato;
+            }
+        }
+        throw new IllegalArgumentException("Formato de exportación no soportado: " + valor);
+    }
+}
@@ -0,0 +1,56 @@
+package com.inventario.inventario.model;
+
+import java.util.List;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+// Representaciones de los listados, elegidas con el encabezado Accept. SMILE es el JSON
+// binario de Jackson: los nombres de campo y las ubicaciones repetidas se escriben una vez y
+// luego como referencias, y las fechas como números.
+public enum FormatoRespuesta {
+
+    JSON(MediaType.APPLICATION_JSON, ""),
+    SMILE(MediaType.parseMediaType("application/x-jackson-smile"), "-smile");
+
+    private final MediaType tipoContenido;
+    private final String sufijoEtag;
+
+    FormatoRespuesta(MediaType tipoContenido, String sufijoEtag) {
+        this.tipoContenido = tipoContenido;
+        this.sufijoEtag = sufijoEtag;
+    }
+
+    public MediaType getTipoContenido() {
+        return tipoContenido;
+    }
+
+    // Cada representación tiene su propio ETag fuerte para la misma versión de los datos
+    public String etag(long version) {
+        return "\"" + version + sufijoEtag + "\"";
+    }
+
+    // SMILE solo si el cliente lo nombra explícitamente con una calidad al menos igual a la
+    // de JSON (un comodín cuenta como JSON). Un Accept inválido o ausente responde JSON.
+    public static FormatoRespuesta negociar(String aceptar) {
+        if (aceptar == null || aceptar.isBlank()) {
+            return JSON;
+        }
+        List<MediaType> tipos;
+        try {
+            tipos = MediaType.parseMediaTypes(aceptar);
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+        double calidadSmile = 0;
+        double calidadJson = 0;
+        for (MediaType tipo : tipos) {
+            if (tipo.equalsTypeAndSubtype(SMILE.tipoContenido)) {
+                calidadSmile = Math.max(calidadSmile, tipo.getQualityValue());
+            } else if (tipo.includes(MediaType.APPLICATION_JSON)) {
+                calidadJson = Math.max(calidadJson, tipo.getQualityValue());
+            }
+        }
+        return calidadSmile > 0 && calidadSmile >= calidadJson ? SMILE : JSON;
+    }
+}
@@ -27,4 +27,12 @@ public class Inventario {
 
     private LocalDateTime fechaUltimaActualizacion;
 
+    // Versión del registro para escrituras condicionales (If-Match)
+    private long version;
+
+    public Inventario(long idInventario, int stockDisponible, String ubicacionBodega,
+            LocalDateTime fechaUltimaActualizacion) {
+        this(idInventario, stockDisponible, ubicacionBodega, fechaUltimaActualizacion, 0L);
+    }
+
 }
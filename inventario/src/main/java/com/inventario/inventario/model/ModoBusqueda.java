@@ -0,0 +1,27 @@
+package com.inventario.inventario.model;
+
+// Tipo de coincidencia de la búsqueda por ubicación de bodega
+public enum ModoBusqueda {
+
+    PREFIJO("prefijo"),
+    CONTIENE("contiene");
+
+    private final String valor;
+
+    ModoBusqueda(String valor) {
+        this.valor = valor;
+    }
+
+    public String getValor() {
+        return valor;
+    }
+
+    public static ModoBusqueda desde(String valor) {
+        for (ModoBusqueda modo : values()) {
+            if (modo.valor.equalsIgnoreCase(valor)) {
+                return modo;
+            }
+        }
+        throw new IllegalArgumentException("Modo de búsqueda no soportado: " + valor);
+    }
+}
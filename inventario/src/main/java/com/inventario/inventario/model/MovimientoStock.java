@@ -0,0 +1,21 @@
+package com.inventario.inventario.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class MovimientoStock {
+
+    // Inventario del que se descuentan las unidades
+    private long idOrigen;
+
+    // Inventario al que se suman las unidades
+    private long idDestino;
+
+    private int cantidad;
+
+}
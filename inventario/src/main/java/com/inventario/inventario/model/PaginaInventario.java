@@ -0,0 +1,22 @@
+package com.inventario.inventario.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class PaginaInventario {
+
+    private List<Inventario> inventarios;
+
+    // Cursor opaco para pedir la siguiente página, null cuando no hay más resultados
+    private String siguienteCursor;
+
+    private int limite;
+
+}
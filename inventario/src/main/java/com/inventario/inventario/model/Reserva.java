@@ -0,0 +1,24 @@
+package com.inventario.inventario.model;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class Reserva {
+
+    private String idReserva;
+
+    private long idInventario;
+
+    private int cantidad;
+
+    // Pasada esta fecha la reserva vence y las unidades vuelven a estar disponibles
+    private LocalDateTime vence;
+
+}
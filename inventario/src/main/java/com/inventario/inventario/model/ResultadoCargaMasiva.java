@@ -0,0 +1,45 @@
+package com.inventario.inventario.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+
+public class ResultadoCargaMasiva {
+
+    public static final String CREADO = "CREADO";
+    public static final String ACTUALIZADO = "ACTUALIZADO";
+    public static final String RECHAZADO = "RECHAZADO";
+    public static final String ERROR = "ERROR";
+
+    private int creados;
+    private int actualizados;
+    private int rechazados;
+    private List<Item> resultados = new ArrayList<>();
+
+    public void agregar(Item item) {
+        switch (item.getEstado()) {
+            case CREADO -> creados++;
+            case ACTUALIZADO -> actualizados++;
+            default -> rechazados++;
+        }
+        resultados.add(item);
+    }
+
+    // Resultado de un elemento, indice es su posición en la carga recibida
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Item {
+        private int indice;
+        private long idInventario;
+        private String estado;
+        private String mensaje;
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.inventario.inventario.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class ResultadoRebalanceo {
+
+    private int fragmentos;
+
+    // Ranuras que cambiaron de fragmento y filas copiadas con ellas
+    private int ranurasMovidas;
+
+    private long filasMovidas;
+
+    private long duracionMs;
+
+}
@@ -0,0 +1,22 @@
+package com.inventario.inventario.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class ResumenBodega {
+
+    private String ubicacionBodega;
+
+    private long stockTotal;
+
+    private long cantidadSkus;
+
+    // SKUs con stock menor o igual al umbral de stock bajo
+    private long skusStockBajo;
+
+}
@@ -0,0 +1,18 @@
+package com.inventario.inventario.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class SolicitudReserva {
+
+    private int cantidad;
+
+    // Duración de la reserva, si no se indica se usa la configurada por defecto
+    private Integer ttlSegundos;
+
+}
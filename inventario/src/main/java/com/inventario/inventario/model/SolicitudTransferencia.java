@@ -0,0 +1,18 @@
+package com.inventario.inventario.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class SolicitudTransferencia {
+
+    // Se aplican todos juntos o ninguno
+    private List<MovimientoStock> movimientos;
+
+}
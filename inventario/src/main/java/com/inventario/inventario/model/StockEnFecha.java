@@ -0,0 +1,24 @@
+package com.inventario.inventario.model;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class StockEnFecha {
+
+    private long idInventario;
+
+    private String ubicacionBodega;
+
+    private int stockDisponible;
+
+    // Fecha consultada: el stock incluye todos los movimientos hasta ella
+    private LocalDateTime fecha;
+
+}
@@ -0,0 +1,22 @@
+package com.inventario.inventario.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class VerificacionResumen {
+
+    private boolean consistente;
+
+    private int bodegasRevisadas;
+
+    // Una línea por bodega cuyo resumen no coincide con el recálculo
+    private List<String> diferencias;
+
+}
@@ -0,0 +1,17 @@
+package com.inventario.inventario.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Filas que HistorialStockService bloquea con SELECT ... FOR UPDATE para ordenar el trabajo
+// entre instancias: "corte" serializa los cortes y la limpieza del historial. Las escrituras
+// de movimientos no toman ninguna.
+@Entity
+@Table(name = "cerrojo_historial")
+@Data
+public class CerrojoHistorialEntity {
+
+    @Id
+    @Column(name = "nombre", length = 32)
+    private String nombre;
+}
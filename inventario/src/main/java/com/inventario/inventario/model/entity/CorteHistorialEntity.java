@@ -0,0 +1,35 @@
+package com.inventario.inventario.model.entity;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.ColumnDefault;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Corte del historial de stock: sus instantáneas tienen el stock de cada inventario con todos
+// los movimientos hasta hastaMovimiento inclusive, confirmados antes de fecha. El corte se
+// escribe en una sola transacción, uno interrumpido no deja instantáneas.
+@Entity
+@Table(name = "corte_historial", indexes = {
+        @Index(name = "idx_corte_fecha", columnList = "fecha")
+})
+@Data
+public class CorteHistorialEntity {
+
+    @Id
+    @Column(name = "idCorte")
+    private long idCorte;
+
+    @Column(name = "fecha", nullable = false)
+    private LocalDateTime fecha;
+
+    // Último idMovimiento incluido; los movimientos se numeran en orden de commit
+    @ColumnDefault("0")
+    @Column(name = "hastaMovimiento", nullable = false)
+    private long hastaMovimiento;
+
+    // Instantáneas escritas, una por inventario existente a la fecha del corte
+    @Column(name = "filas", nullable = false)
+    private long filas;
+}
@@ -0,0 +1,42 @@
+package com.inventario.inventario.model.entity;
+
+import java.io.Serializable;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Stock de un inventario en un corte del historial. La clave (idCorte, idInventario) y el
+// índice por ubicación permiten leer un inventario o una bodega completa de un corte sin
+// recorrer los demás.
+@Entity
+@Table(name = "instantanea_stock", indexes = {
+        @Index(name = "idx_instantanea_corte_ubicacion", columnList = "idCorte, ubicacionBodega")
+})
+@IdClass(InstantaneaStockEntity.Clave.class)
+@Data
+public class InstantaneaStockEntity {
+
+    @Id
+    @Column(name = "idCorte")
+    private long idCorte;
+
+    @Id
+    @Column(name = "idInventario")
+    private long idInventario;
+
+    @Column(name = "ubicacionBodega")
+    private String ubicacionBodega;
+
+    @Column(name = "stockDisponible", nullable = false)
+    private int stockDisponible;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Clave implements Serializable {
+        private long idCorte;
+        private long idInventario;
+    }
+}
@@ -2,6 +2,7 @@ package com.inventario.inventario.model.entity;
 
 import java.time.LocalDateTime;
 
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 
 import jakarta.persistence.*;
@@ -9,11 +10,24 @@ import lombok.Data;
 
 @EntityScan
 @Entity
-@Table(name = "inventario")
+@Table(name = "inventario", indexes = {
+        @Index(name = "idx_inventario_ubicacion_id", columnList = "ubicacionBodega, idInventario")
+})
 @Data
 public class InventarioEntity {
+
+    public static final int TAMANO_BLOQUE_ID = 50;
+
+    // Generador de tabla con optimizador pooled: reserva bloques de ids y permite que
+    // Hibernate agrupe los INSERT en lotes JDBC (IDENTITY obliga a insertar de a uno).
+    // Cada bloque nuevo se reserva en una transacción aparte con otra conexión del pool; el
+    // cupo de escrituras de AlmacenJpa (una menos que el pool) existe por esto. Si se vuelve a
+    // IDENTITY o a una secuencia, ese cupo deja de hacer falta.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "inventario_id")
+    @TableGenerator(name = "inventario_id", table = "inventario_id_gen", pkColumnName = "nombre_secuencia",
+            valueColumnName = "siguiente_valor", pkColumnValue = "inventario",
+            allocationSize = InventarioEntity.TAMANO_BLOQUE_ID)
     private long idInventario;
 
     @Column(name = "stockDisponible")
@@ -25,4 +39,11 @@ public class InventarioEntity {
     @Column(name = "fechaUltimaActualizacion")
     // @Temporal(TemporalType.TIMESTAMP)
     private LocalDateTime fechaUltimaActualizacion;
+
+    // Control de concurrencia optimista, se expone como ETag. Las filas existentes
+    // y las insertadas fuera de JPA parten en 0.
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private long version;
 }
@@ -0,0 +1,46 @@
+package com.inventario.inventario.model.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Movimiento de stock del historial: solo se insertan filas, nunca se actualizan. cantidad es
+// el cambio con signo (CREADO suma el stock inicial, ELIMINADO resta lo que quedaba), así el
+// stock a una fecha es la instantánea anterior más la suma de los movimientos posteriores.
+// HistorialStockService escribe las filas por lotes JDBC al confirmar cada transacción. Los
+// cortes leen por rango de id hasta los movimientos con registrado más viejo que el margen de
+// confirmación, así un id menor que confirma después de uno mayor no queda atrás.
+@Entity
+@Table(name = "movimiento_historial", indexes = {
+        @Index(name = "idx_movimiento_inventario_fecha", columnList = "idInventario, fecha"),
+        @Index(name = "idx_movimiento_ubicacion_fecha", columnList = "ubicacionBodega, fecha"),
+        @Index(name = "idx_movimiento_fecha", columnList = "fecha")
+})
+@Data
+public class MovimientoHistorialEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "idMovimiento")
+    private long idMovimiento;
+
+    @Column(name = "idInventario", nullable = false)
+    private long idInventario;
+
+    @Column(name = "ubicacionBodega")
+    private String ubicacionBodega;
+
+    @Column(name = "tipo", length = 12, nullable = false)
+    private String tipo;
+
+    @Column(name = "cantidad", nullable = false)
+    private int cantidad;
+
+    @Column(name = "fecha", nullable = false)
+    private LocalDateTime fecha;
+
+    // Hora del INSERT, cuando la fila toma su id; fecha es la del evento
+    @Column(name = "registrado", nullable = false)
+    private LocalDateTime registrado;
+}
@@ -0,0 +1,29 @@
+package com.inventario.inventario.model.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Reserva de stock activa. Las reservas viven en memoria y se persisten por lotes solo para
+// recuperarlas al reiniciar; al confirmarse, liberarse o vencer se elimina la fila.
+@Entity
+@Table(name = "reserva", indexes = {
+        @Index(name = "idx_reserva_inventario", columnList = "idInventario")
+})
+@Data
+public class ReservaEntity {
+
+    @Id
+    @Column(name = "idReserva", length = 36)
+    private String idReserva;
+
+    @Column(name = "idInventario", nullable = false)
+    private long idInventario;
+
+    @Column(name = "cantidad", nullable = false)
+    private int cantidad;
+
+    @Column(name = "vence", nullable = false)
+    private LocalDateTime vence;
+}
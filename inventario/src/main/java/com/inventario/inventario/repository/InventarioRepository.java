@@ -1,16 +1,38 @@
 package com.inventario.inventario.repository;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.inventario.inventario.model.Inventario;
 import com.inventario.inventario.model.entity.InventarioEntity;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 //import java.util.Optional;
 
 @Repository
 public interface InventarioRepository extends JpaRepository<InventarioEntity, Long> {
 
+    // Las consultas de lectura construyen el modelo Inventario directo desde las columnas:
+    // no se crean entidades administradas ni sus copias para detectar cambios, y no hay
+    // nada que sincronizar al terminar la transacción
+    String PROYECCION_INVENTARIO = "SELECT new com.inventario.inventario.model.Inventario(i.idInventario,"
+            + " i.stockDisponible, i.ubicacionBodega, i.fechaUltimaActualizacion, i.version)"
+            + " FROM InventarioEntity i";
+
     // Verificar existencia por ID del producto
     Boolean existsByUbicacionBodega(String ubicacionBodega);
 
@@ -26,7 +48,105 @@ public interface InventarioRepository extends JpaRepository<InventarioEntity, Lo
     // Buscar por ID del Producto
     List<InventarioEntity> findByIdInventario(long idInventario);
 
-    // Buscar por ubicación de bodega (contiene palabra clave)
+    // Buscar por ubicación de bodega (coincidencia exacta, la búsqueda por prefijo o
+    // subcadena usa IndiceUbicacionService)
     List<InventarioEntity> findByUbicacionBodega(String ubicacionBodega);
 
+    // Un inventario por id como modelo, sin cargar la entidad
+    @Query(PROYECCION_INVENTARIO + " WHERE i.idInventario = :idInventario")
+    Optional<Inventario> proyectarPorId(@Param("idInventario") long idInventario);
+
+    // Inventarios de una bodega (coincidencia exacta) como modelos, en orden de id
+    @Query(PROYECCION_INVENTARIO + " WHERE i.ubicacionBodega = :ubicacionBodega ORDER BY i.idInventario ASC")
+    List<Inventario> proyectarPorUbicacion(@Param("ubicacionBodega") String ubicacionBodega);
+
+    // Todos los inventarios como modelos, en orden de id
+    @Query(PROYECCION_INVENTARIO + " ORDER BY i.idInventario ASC")
+    List<Inventario> proyectarTodos();
+
+    // Página por keyset: recorre la llave primaria desde el cursor, sin OFFSET
+    @Query(PROYECCION_INVENTARIO + " WHERE i.idInventario > :despuesDe"
+            + " AND (:stockMinimo IS NULL OR i.stockDisponible >= :stockMinimo)"
+            + " AND (:stockMaximo IS NULL OR i.stockDisponible <= :stockMaximo)"
+            + " ORDER BY i.idInventario ASC")
+    List<Inventario> buscarPagina(@Param("despuesDe") long despuesDe,
+            @Param("stockMinimo") Integer stockMinimo,
+            @Param("stockMaximo") Integer stockMaximo,
+            Limit limite);
+
+    // Página por keyset dentro de una bodega, usa el índice (ubicacionBodega, idInventario)
+    @Query(PROYECCION_INVENTARIO + " WHERE i.ubicacionBodega = :ubicacionBodega"
+            + " AND i.idInventario > :despuesDe"
+            + " AND (:stockMinimo IS NULL OR i.stockDisponible >= :stockMinimo)"
+            + " AND (:stockMaximo IS NULL OR i.stockDisponible <= :stockMaximo)"
+            + " ORDER BY i.idInventario ASC")
+    List<Inventario> buscarPaginaPorUbicacion(@Param("ubicacionBodega") String ubicacionBodega,
+            @Param("despuesDe") long despuesDe,
+            @Param("stockMinimo") Integer stockMinimo,
+            @Param("stockMaximo") Integer stockMaximo,
+            Limit limite);
+
+    // Página por keyset de las ubicaciones que cumplen un patrón LIKE, sin distinguir
+    // mayúsculas. Con '%' al inicio no puede usar índices y recorre la tabla completa.
+    @Query(PROYECCION_INVENTARIO + " WHERE LOWER(i.ubicacionBodega) LIKE :patron ESCAPE '\\'"
+            + " AND i.idInventario > :despuesDe ORDER BY i.idInventario ASC")
+    List<Inventario> buscarPaginaPorUbicacionSimilar(@Param("patron") String patron,
+            @Param("despuesDe") long despuesDe,
+            Limit limite);
+
+    // Id y ubicación de todos los inventarios, para construir el índice de ubicaciones.
+    // Debe consumirse dentro de una transacción y cerrarse al terminar.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT i.idInventario AS idInventario, i.ubicacionBodega AS ubicacionBodega FROM InventarioEntity i")
+    Stream<UbicacionInventario> streamUbicaciones();
+
+    // Recorre toda la tabla con un cursor de solo avance, trayendo las filas por bloques.
+    // Los modelos no quedan en el contexto de persistencia, no hace falta desacoplarlos.
+    // Debe consumirse dentro de una transacción y cerrarse al terminar.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query(PROYECCION_INVENTARIO + " ORDER BY i.idInventario ASC")
+    Stream<Inventario> streamTodos();
+
+    // Ajuste atómico del stock en una sola sentencia condicional, sin leer antes la fila.
+    // Devuelve 0 si el inventario no existe o si el stock quedaría negativo o fuera de un int;
+    // la suma se hace en long para que el desborde no sea un error de la base.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE InventarioEntity i SET i.stockDisponible = i.stockDisponible + :delta,"
+            + " i.fechaUltimaActualizacion = :fecha, i.version = i.version + 1"
+            + " WHERE i.idInventario = :idInventario"
+            + " AND CAST(i.stockDisponible AS Long) + :delta BETWEEN 0 AND " + Integer.MAX_VALUE)
+    int ajustarStock(@Param("idInventario") long idInventario, @Param("delta") long delta,
+            @Param("fecha") LocalDateTime fecha);
+
+    // Página de inventarios por id en orden ascendente. A diferencia de findAllById (Criteria),
+    // el plan de esta consulta queda en la cache de consultas de Hibernate
+    @Query(PROYECCION_INVENTARIO + " WHERE i.idInventario IN :ids ORDER BY i.idInventario")
+    List<Inventario> buscarPorIdsOrdenados(@Param("ids") Collection<Long> ids);
+
+    // Carga y bloquea varios inventarios en una consulta, para escribirlos en una sola transacción.
+    // Las filas se bloquean en orden de id: dos transacciones con ids en común esperan una a la
+    // otra en vez de bloquearse mutuamente.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM InventarioEntity i WHERE i.idInventario IN :ids ORDER BY i.idInventario")
+    List<InventarioEntity> bloquearPorIds(@Param("ids") Collection<Long> ids);
+
+    // Stock, ubicación y versión actuales sin cargar la entidad completa
+    @Query("SELECT i.stockDisponible AS stockDisponible, i.ubicacionBodega AS ubicacionBodega,"
+            + " i.version AS version"
+            + " FROM InventarioEntity i WHERE i.idInventario = :idInventario")
+    Optional<StockActual> buscarStockActual(@Param("idInventario") long idInventario);
+
+    // Totales por ubicación en una sola consulta, para reconstruir el resumen de bodegas
+    @Query("SELECT i.ubicacionBodega AS ubicacionBodega, SUM(i.stockDisponible) AS stockTotal,"
+            + " COUNT(i) AS cantidadSkus,"
+            + " SUM(CASE WHEN i.stockDisponible <= :umbralStockBajo THEN 1 ELSE 0 END) AS skusStockBajo"
+            + " FROM InventarioEntity i GROUP BY i.ubicacionBodega")
+    List<ResumenUbicacion> resumirPorUbicacion(@Param("umbralStockBajo") int umbralStockBajo);
+
 }
@@ -0,0 +1,11 @@
+package com.inventario.inventario.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.inventario.inventario.model.entity.ReservaEntity;
+
+@Repository
+public interface ReservaRepository extends JpaRepository<ReservaEntity, String> {
+
+}
@@ -0,0 +1,14 @@
+package com.inventario.inventario.repository;
+
+// Proyección del GROUP BY por ubicación de bodega
+public interface ResumenUbicacion {
+
+    String getUbicacionBodega();
+
+    Long getStockTotal();
+
+    Long getCantidadSkus();
+
+    Long getSkusStockBajo();
+
+}
@@ -0,0 +1,12 @@
+package com.inventario.inventario.repository;
+
+// Proyección con el stock y la ubicación de un inventario, sin cargar la entidad
+public interface StockActual {
+
+    int getStockDisponible();
+
+    String getUbicacionBodega();
+
+    long getVersion();
+
+}
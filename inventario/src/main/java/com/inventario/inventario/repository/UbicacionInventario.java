@@ -0,0 +1,9 @@
+package com.inventario.inventario.repository;
+
+// Proyección mínima para construir el índice de ubicaciones
+public interface UbicacionInventario {
+
+    Long getIdInventario();
+
+    String getUbicacionBodega();
+}
@@ -0,0 +1,348 @@
+package com.inventario.inventario.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventario.inventario.config.FabricaHilos;
+import com.inventario.inventario.event.InventarioEvento;
+import com.inventario.inventario.model.CambioStock;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Feed de cambios de inventario por Server-Sent Events. Cada InventarioEvento confirmado
+// recibe un número de secuencia creciente y se guarda, ya serializado como evento SSE, en un
+// anillo de capacidad fija; el anillo es la única cola, cada suscriptor solo recuerda hasta
+// qué secuencia recibió. Un hilo despachador reparte el trabajo y un grupo fijo de hilos
+// escribe los eventos pendientes de cada suscriptor en un solo envío, sin un hilo por
+// conexión. Un cliente que se reconecta con Last-Event-ID recibe lo que se perdió si sigue
+// en el anillo; si quedó atrás del anillo (consumidor lento o desconexión larga) recibe un
+// evento "desfasado" y se cierra la conexión, y debe volver a leer el listado completo.
+@Service
+public class CambiosStockService implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CambiosStockService.class);
+
+    private static final MediaType TEXTO = new MediaType("text", "plain", StandardCharsets.UTF_8);
+
+    // Comienzo de un CambioStock serializado con la secuencia en 0 (@JsonPropertyOrder)
+    private static final String SIN_SECUENCIA = "{\"secuencia\":0";
+
+    private final ObjectMapper objectMapper;
+    private final AtomicReferenceArray<Cambio> anillo;
+    private final int mascara;
+    private final int maximoSuscriptores;
+    private final int maximoLote;
+    private final int hilosEnvio;
+    private final Duration latido;
+    private final Duration timeout;
+
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger cantidadSuscriptores = new AtomicInteger();
+    private final AtomicBoolean despachoSolicitado = new AtomicBoolean();
+    private final ReentrantLock cerrojo = new ReentrantLock();
+
+    // Parte de los microsegundos del arranque: las secuencias de un arranque anterior quedan
+    // por debajo del anillo actual y el cliente recibe "desfasado" en vez de eventos ajenos
+    private volatile long ultima = System.currentTimeMillis() * 1000;
+
+    private final AtomicLong eventosPublicados = new AtomicLong();
+    private final AtomicLong eventosEnviados = new AtomicLong();
+    private final AtomicLong desfasados = new AtomicLong();
+    private final AtomicLong rechazados = new AtomicLong();
+
+    private final FabricaHilos fabricaHilos;
+    private ScheduledExecutorService programador;
+    private ExecutorService envio;
+
+    @Autowired
+    public CambiosStockService(ObjectMapper objectMapper,
+            @Value("${inventario.cambios.capacidad:8192}") int capacidad,
+            @Value("${inventario.cambios.maximo-suscriptores:10000}") int maximoSuscriptores,
+            @Value("${inventario.cambios.lote:256}") int maximoLote,
+            @Value("${inventario.cambios.hilos-envio:4}") int hilosEnvio,
+            @Value("${inventario.cambios.latido:15s}") Duration latido,
+            @Value("${inventario.cambios.timeout:30m}") Duration timeout,
+            FabricaHilos fabricaHilos) {
+        this.objectMapper = objectMapper;
+        this.fabricaHilos = fabricaHilos;
+        // Potencia de dos para ubicar la secuencia con una máscara
+        int potencia = Integer.highestOneBit(Math.max(capacidad, 2) * 2 - 1);
+        this.anillo = new AtomicReferenceArray<>(potencia);
+        this.mascara = potencia - 1;
+        this.maximoSuscriptores = maximoSuscriptores;
+        this.maximoLote = Math.max(maximoLote, 1);
+        this.hilosEnvio = Math.max(hilosEnvio, 1);
+        this.latido = latido;
+        this.timeout = timeout;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        programador = Executors.newSingleThreadScheduledExecutor(fabricaHilos.crear("cambios-stock"));
+        envio = Executors.newFixedThreadPool(hilosEnvio, fabricaHilos.crearNumerados("cambios-stock-envio"));
+        long periodo = Math.max(latido.toMillis(), 1);
+        programador.scheduleAtFixedRate(this::latir, periodo, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        programador.shutdownNow();
+        envio.shutdownNow();
+        for (Suscriptor suscriptor : suscriptores) {
+            suscriptor.emisor.complete();
+        }
+        suscriptores.clear();
+    }
+
+    // Abre una suscripción desde ultimoEventoId (encabezado Last-Event-ID), o solo con los
+    // cambios nuevos si es null. Devuelve null si se alcanzó el máximo de suscriptores.
+    public SseEmitter suscribir(String ultimoEventoId) {
+        if (cantidadSuscriptores.incrementAndGet() > maximoSuscriptores) {
+            cantidadSuscriptores.decrementAndGet();
+            rechazados.incrementAndGet();
+            return null;
+        }
+        long actual = ultima;
+        long desde = actual;
+        boolean desfasado = false;
+        if (ultimoEventoId != null && !ultimoEventoId.isBlank()) {
+            try {
+                desde = Long.parseLong(ultimoEventoId.trim());
+                // Una secuencia futura no es de este nodo ni de este arranque
+                desfasado = desde > actual;
+            } catch (NumberFormatException e) {
+                desfasado = true;
+            }
+        }
+        SseEmitter emisor = new SseEmitter(timeout.toMillis());
+        Suscriptor suscriptor = new Suscriptor(emisor, desde, desfasado);
+        emisor.onCompletion(() -> quitar(suscriptor));
+        emisor.onTimeout(() -> quitar(suscriptor));
+        emisor.onError(error -> quitar(suscriptor));
+        suscriptores.add(suscriptor);
+        // Los envíos anteriores a que el contenedor inicie la respuesta quedan en espera
+        programar(suscriptor);
+        return emisor;
+    }
+
+    public long ultimaSecuencia() {
+        return ultima;
+    }
+
+    public int cantidadSuscriptores() {
+        return cantidadSuscriptores.get();
+    }
+
+    // Se ejecuta después del commit, en el hilo que escribió; solo agrega al anillo y avisa
+    // al despachador, el costo no depende de la cantidad de suscriptores
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarInventario(InventarioEvento evento) {
+        agregar(evento);
+        eventosPublicados.incrementAndGet();
+        if (programador != null && despachoSolicitado.compareAndSet(false, true)) {
+            try {
+                programador.execute(this::despachar);
+            } catch (RejectedExecutionException e) {
+                // La aplicación se está cerrando
+            }
+        }
+    }
+
+    // La serialización corre fuera del cerrojo con la secuencia en 0, así los hilos que
+    // confirman a la vez no se esperan entre sí; con el cerrojo tomado solo se antepone la
+    // secuencia al resto del JSON y se publica la casilla
+    private void agregar(InventarioEvento evento) {
+        String datos;
+        try {
+            datos = objectMapper.writeValueAsString(new CambioStock(0, evento.getTipo().name(),
+                    evento.getIdInventario(), evento.getUbicacionBodega(), evento.getStockAnterior(),
+                    evento.getStockDisponible(), evento.getFecha()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el cambio de " + evento.getIdInventario(), e);
+        }
+        if (!datos.startsWith(SIN_SECUENCIA)) {
+            throw new IllegalStateException("El cambio serializado no empieza por la secuencia: " + datos);
+        }
+        String resto = datos.substring(SIN_SECUENCIA.length()) + "\n\n";
+        cerrojo.lock();
+        try {
+            long secuencia = ultima + 1;
+            String texto = "id:" + secuencia + "\ndata:{\"secuencia\":" + secuencia + resto;
+            anillo.set((int) (secuencia & mascara), new Cambio(secuencia, new DataWithMediaType(texto, TEXTO)));
+            // Se publica después de escribir la casilla: quien lee ultima ve el cambio completo
+            ultima = secuencia;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    private void despachar() {
+        despachoSolicitado.set(false);
+        long actual = ultima;
+        for (Suscriptor suscriptor : suscriptores) {
+            if (suscriptor.cursor < actual) {
+                programar(suscriptor);
+            }
+        }
+    }
+
+    // Un comentario periódico mantiene abiertos los proxies y detecta conexiones muertas
+    private void latir() {
+        for (Suscriptor suscriptor : suscriptores) {
+            suscriptor.latidoPendiente = true;
+            programar(suscriptor);
+        }
+    }
+
+    // Como mucho una tarea por suscriptor en la cola: la memoria no crece con los eventos
+    private void programar(Suscriptor suscriptor) {
+        if (suscriptor.programado.compareAndSet(false, true)) {
+            try {
+                envio.execute(() -> enviar(suscriptor));
+            } catch (RejectedExecutionException e) {
+                suscriptor.programado.set(false);
+            }
+        }
+    }
+
+    // Un envío bloqueado por un cliente que no lee ocupa un hilo del grupo hasta que vence
+    // la escritura en el contenedor; mientras tanto el anillo sigue avanzando y, si el
+    // cliente queda atrás, se le desconecta en el siguiente envío.
+    private void enviar(Suscriptor suscriptor) {
+        try {
+            while (suscriptores.contains(suscriptor)) {
+                if (suscriptor.desfasado) {
+                    desfasar(suscriptor);
+                    return;
+                }
+                long hasta = Math.min(ultima, suscriptor.cursor + maximoLote);
+                if (hasta <= suscriptor.cursor && !suscriptor.latidoPendiente) {
+                    break;
+                }
+                Set<DataWithMediaType> lote = new LinkedHashSet<>();
+                if (suscriptor.latidoPendiente) {
+                    suscriptor.latidoPendiente = false;
+                    lote.addAll(SseEmitter.event().comment("latido").build());
+                }
+                for (long secuencia = suscriptor.cursor + 1; secuencia <= hasta; secuencia++) {
+                    Cambio cambio = anillo.get((int) (secuencia & mascara));
+                    if (cambio == null || cambio.secuencia != secuencia) {
+                        // El anillo ya sobrescribió lo que este suscriptor no alcanzó a recibir
+                        desfasar(suscriptor);
+                        return;
+                    }
+                    lote.add(cambio.evento);
+                }
+                suscriptor.emisor.send(lote);
+                eventosEnviados.addAndGet(hasta - suscriptor.cursor);
+                suscriptor.cursor = hasta;
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectado o emisor ya completado
+            quitar(suscriptor);
+        } finally {
+            suscriptor.programado.set(false);
+        }
+        // Un cambio llegado mientras se enviaba no debe quedar esperando al siguiente
+        if (suscriptores.contains(suscriptor) && (suscriptor.cursor < ultima || suscriptor.latidoPendiente)) {
+            programar(suscriptor);
+        }
+    }
+
+    private void desfasar(Suscriptor suscriptor) {
+        desfasados.incrementAndGet();
+        quitar(suscriptor);
+        long actual = ultima;
+        try {
+            // Con este id el EventSource se reconecta desde el presente tras releer el listado
+            suscriptor.emisor.send(SseEmitter.event()
+                    .id(Long.toString(actual))
+                    .name("desfasado")
+                    .data("{\"secuencia\":" + actual + "}"));
+            suscriptor.emisor.complete();
+        } catch (IOException | IllegalStateException e) {
+            LOG.debug("No se pudo avisar el desfase a un suscriptor", e);
+        }
+    }
+
+    private void quitar(Suscriptor suscriptor) {
+        if (suscriptores.remove(suscriptor)) {
+            cantidadSuscriptores.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("inventario.cambios.suscriptores", cantidadSuscriptores, AtomicInteger::get)
+                .description("Conexiones abiertas al feed de cambios")
+                .register(registry);
+        FunctionCounter.builder("inventario.cambios.publicados", eventosPublicados, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("inventario.cambios.enviados", eventosEnviados, AtomicLong::get)
+                .description("Eventos escritos, sumando todos los suscriptores")
+                .register(registry);
+        FunctionCounter.builder("inventario.cambios.desfasados", desfasados, AtomicLong::get)
+                .description("Suscriptores desconectados por quedar atrás del anillo")
+                .register(registry);
+        FunctionCounter.builder("inventario.cambios.rechazados", rechazados, AtomicLong::get)
+                .register(registry);
+    }
+
+    // Casilla del anillo: el evento SSE ya armado, compartido por todos los suscriptores
+    private static final class Cambio {
+        private final long secuencia;
+        private final DataWithMediaType evento;
+
+        private Cambio(long secuencia, DataWithMediaType evento) {
+            this.secuencia = secuencia;
+            this.evento = evento;
+        }
+    }
+
+    private static final class Suscriptor {
+        private final SseEmitter emisor;
+        private final AtomicBoolean programado = new AtomicBoolean();
+        // Última secuencia enviada, solo la modifica la tarea de envío en curso
+        private volatile long cursor;
+        private volatile boolean latidoPendiente;
+        private volatile boolean desfasado;
+
+        private Suscriptor(SseEmitter emisor, long cursor, boolean desfasado) {
+            this.emisor = emisor;
+            this.cursor = cursor;
+            this.desfasado = desfasado;
+        }
+    }
+}
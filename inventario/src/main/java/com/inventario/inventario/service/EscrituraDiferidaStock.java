@@ -0,0 +1,443 @@
+package com.inventario.inventario.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.inventario.inventario.config.FabricaHilos;
+import com.inventario.inventario.event.EscrituraDescartadaEvento;
+import com.inventario.inventario.event.InventarioEvento;
+import com.inventario.inventario.exception.StockInsuficienteException;
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.entity.InventarioEntity;
+import com.inventario.inventario.repository.InventarioRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Modo opcional de escritura diferida para el stock (inventario.escritura-diferida.activa).
+// Las actualizaciones y ajustes se acumulan por idInventario en franjas con su propio lock y
+// se combinan: los deltas se suman y el último valor absoluto reemplaza a los anteriores.
+// Un hilo vacía el buffer cada intervalo, o antes si se juntan maximoPendientes, con una
+// consulta que bloquea las filas y un UPDATE por lotes JDBC en una sola transacción.
+// Las lecturas ven el valor pendiente. Al cerrar la aplicación se vacía lo pendiente; ante
+// una caída se pierden a lo más las escrituras del último intervalo.
+// Las escrituras directas (If-Match, transferencias, eliminación, cargas) pasan por
+// escribirDirecto: vacían el buffer y no dejan entrar ajustes diferidos de sus inventarios
+// hasta el commit, así un ajuste ya aceptado no se valida contra un stock que luego cambia.
+@Component
+public class EscrituraDiferidaStock implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EscrituraDiferidaStock.class);
+
+    private final InventarioRepository inventariorepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaccionPropia;
+
+    private final boolean activa;
+    private final Duration intervalo;
+    private final int maximoPendientes;
+    private final Franja[] franjas;
+
+    // Entradas que se están escribiendo; siguen visibles para las lecturas hasta el commit
+    private final ConcurrentHashMap<Long, Pendiente> enVuelo = new ConcurrentHashMap<>();
+    private final AtomicInteger pendientes = new AtomicInteger();
+    private final AtomicBoolean vaciadoSolicitado = new AtomicBoolean();
+    private final ReentrantLock vaciando = new ReentrantLock();
+
+    private final AtomicLong escriturasRecibidas = new AtomicLong();
+    private final AtomicLong filasEscritas = new AtomicLong();
+    private final AtomicLong vaciados = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+
+    private final FabricaHilos fabricaHilos;
+    private ScheduledExecutorService programador;
+
+    @Autowired
+    public EscrituraDiferidaStock(InventarioRepository inventariorepository,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager,
+            FabricaHilos fabricaHilos,
+            @Value("${inventario.escritura-diferida.activa:false}") boolean activa,
+            @Value("${inventario.escritura-diferida.intervalo:50ms}") Duration intervalo,
+            @Value("${inventario.escritura-diferida.maximo-pendientes:1000}") int maximoPendientes,
+            @Value("${inventario.escritura-diferida.franjas:16}") int cantidadFranjas) {
+        this.inventariorepository = inventariorepository;
+        this.eventPublisher = eventPublisher;
+        this.fabricaHilos = fabricaHilos;
+        // Transacción nueva aunque se llame desde un método transaccional del servicio
+        this.transaccionPropia = new TransactionTemplate(transactionManager);
+        this.transaccionPropia.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.activa = activa;
+        this.intervalo = intervalo;
+        this.maximoPendientes = Math.max(maximoPendientes, 1);
+        // Potencia de dos para elegir la franja con una máscara
+        int potencia = Integer.highestOneBit(Math.max(cantidadFranjas, 1) * 2 - 1);
+        this.franjas = new Franja[potencia];
+        for (int i = 0; i < potencia; i++) {
+            franjas[i] = new Franja();
+        }
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        if (!activa) {
+            return;
+        }
+        programador = Executors.newSingleThreadScheduledExecutor(fabricaHilos.crear("escritura-diferida-stock"));
+        long periodo = Math.max(intervalo.toMillis(), 1);
+        programador.scheduleWithFixedDelay(this::vaciarSinPropagar, periodo, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    // Gancho de cierre: el contenedor web ya dejó de aceptar peticiones cuando se destruye
+    // este bean, así lo vaciado aquí es lo último que quedó pendiente.
+    @PreDestroy
+    public void cerrar() {
+        if (programador == null) {
+            return;
+        }
+        programador.shutdown();
+        try {
+            programador.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        vaciar();
+        if (pendientes.get() > 0) {
+            LOG.error("Quedaron {} escrituras de stock sin guardar al cerrar", pendientes.get());
+        }
+    }
+
+    public boolean activa() {
+        return activa;
+    }
+
+    // Fija el stock en un valor absoluto. Devuelve false si el inventario no existe.
+    public boolean fijar(long idInventario, int stockDisponible, LongFunction<Optional<Inventario>> base) {
+        Franja franja = franja(idInventario);
+        franja.directa.readLock().lock();
+        franja.lock.lock();
+        try {
+            Pendiente pendiente = franja.entradas.get(idInventario);
+            if (pendiente == null) {
+                if (stockVisible(idInventario, base) == null) {
+                    return false;
+                }
+                pendiente = nuevaEntrada(franja, idInventario);
+            }
+            pendiente.absoluto = stockDisponible;
+            pendiente.delta = 0;
+            pendiente.stockVisible = stockDisponible;
+        } finally {
+            franja.lock.unlock();
+            franja.directa.readLock().unlock();
+        }
+        registrarEscritura();
+        return true;
+    }
+
+    // Suma delta al stock visible. Devuelve el nuevo stock, o null si el inventario no existe;
+    // un resultado negativo se rechaza igual que en el ajuste directo.
+    public Integer ajustar(long idInventario, int delta, LongFunction<Optional<Inventario>> base) {
+        Franja franja = franja(idInventario);
+        int nuevoStock;
+        franja.directa.readLock().lock();
+        franja.lock.lock();
+        try {
+            Pendiente pendiente = franja.entradas.get(idInventario);
+            Integer actual = pendiente != null
+                    ? Integer.valueOf(pendiente.stockVisible)
+                    : stockVisible(idInventario, base);
+            if (actual == null) {
+                return null;
+            }
+            long suma = (long) actual + delta;
+            if (suma < 0) {
+                throw new StockInsuficienteException(
+                        "Stock insuficiente para descontar " + Math.abs(delta) + " unidades");
+            }
+            if (suma > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(InventarioService.STOCK_FUERA_DE_RANGO);
+            }
+            nuevoStock = (int) suma;
+            if (pendiente == null) {
+                pendiente = nuevaEntrada(franja, idInventario);
+            }
+            pendiente.delta += delta;
+            pendiente.stockVisible = nuevoStock;
+        } finally {
+            franja.lock.unlock();
+            franja.directa.readLock().unlock();
+        }
+        registrarEscritura();
+        return nuevoStock;
+    }
+
+    // Devuelve el inventario con el stock pendiente aplicado, o el mismo si no hay pendientes
+    public Inventario superponer(Inventario inventario) {
+        if (pendientes.get() == 0 && enVuelo.isEmpty()) {
+            return inventario;
+        }
+        Integer pendiente = stockPendiente(inventario.getIdInventario());
+        if (pendiente == null || pendiente == inventario.getStockDisponible()) {
+            return inventario;
+        }
+        return new Inventario(inventario.getIdInventario(), pendiente, inventario.getUbicacionBodega(),
+                inventario.getFechaUltimaActualizacion(), inventario.getVersion());
+    }
+
+    public List<Inventario> superponer(List<Inventario> inventarios) {
+        if (pendientes.get() == 0 && enVuelo.isEmpty()) {
+            return inventarios;
+        }
+        return inventarios.stream().map(this::superponer).collect(Collectors.toUnmodifiableList());
+    }
+
+    // Escribe todo lo pendiente en la base de datos antes de volver. Se usa antes de las
+    // escrituras directas (If-Match, eliminación) para que vean el stock acumulado.
+    public void vaciar() {
+        vaciando.lock();
+        try {
+            vaciadoSolicitado.set(false);
+            Map<Long, Pendiente> lote = drenar();
+            if (!lote.isEmpty()) {
+                escribir(lote);
+            }
+        } finally {
+            vaciando.unlock();
+        }
+    }
+
+    // Ejecuta una escritura que no pasa por el buffer sobre los inventarios dados. Primero
+    // vacía lo pendiente y, hasta que la escritura vuelve (ya confirmada), los ajustes
+    // diferidos de las franjas de esos inventarios esperan; después se validan contra el
+    // stock que dejó la escritura directa.
+    public <T> T escribirDirecto(Collection<Long> ids, Supplier<T> escritura) {
+        // Las franjas en orden de índice para que dos escrituras directas no se crucen
+        TreeSet<Integer> indices = new TreeSet<>();
+        for (Long idInventario : ids) {
+            indices.add(indiceFranja(idInventario));
+        }
+        for (int indice : indices) {
+            franjas[indice].directa.writeLock().lock();
+        }
+        try {
+            vaciar();
+            return escritura.get();
+        } finally {
+            for (int indice : indices.descendingSet()) {
+                franjas[indice].directa.writeLock().unlock();
+            }
+        }
+    }
+
+    private void vaciarSinPropagar() {
+        try {
+            vaciar();
+        } catch (Exception e) {
+            // El lote ya volvió al buffer, se intentará en el siguiente intervalo
+            LOG.error("No se pudo vaciar el buffer de stock: {}", e.getMessage());
+        }
+    }
+
+    private Map<Long, Pendiente> drenar() {
+        Map<Long, Pendiente> lote = new HashMap<>();
+        for (Franja franja : franjas) {
+            franja.lock.lock();
+            try {
+                if (franja.entradas.isEmpty()) {
+                    continue;
+                }
+                // Primero en vuelo y después fuera de la franja: una lectura siempre lo encuentra
+                enVuelo.putAll(franja.entradas);
+                lote.putAll(franja.entradas);
+                pendientes.addAndGet(-franja.entradas.size());
+                franja.entradas.clear();
+            } finally {
+                franja.lock.unlock();
+            }
+        }
+        return lote;
+    }
+
+    private void escribir(Map<Long, Pendiente> lote) {
+        try {
+            // Una consulta que bloquea las filas y un UPDATE por lotes (hibernate.jdbc.batch_size)
+            transaccionPropia.executeWithoutResult(estado -> {
+                LocalDateTime ahora = LocalDateTime.now();
+                List<InventarioEntity> escritas = new ArrayList<>(lote.size());
+                List<Integer> anteriores = new ArrayList<>(lote.size());
+                for (InventarioEntity entidad : inventariorepository.bloquearPorIds(lote.keySet())) {
+                    Pendiente pendiente = lote.get(entidad.getIdInventario());
+                    int stockAnterior = entidad.getStockDisponible();
+                    long stockNuevo = (long) (pendiente.absoluto != null ? pendiente.absoluto : stockAnterior)
+                            + pendiente.delta;
+                    if (stockNuevo < 0 || stockNuevo > Integer.MAX_VALUE) {
+                        // Solo pasa si otro escritor cambió la fila sin escribirDirecto (otra
+                        // instancia, SQL manual); el evento lleva lo necesario para compensar
+                        descartadas.incrementAndGet();
+                        LOG.error("Se descarta la escritura diferida del inventario {}: el stock quedaría en {}",
+                                entidad.getIdInventario(), stockNuevo);
+                        eventPublisher.publishEvent(new EscrituraDescartadaEvento(entidad.getIdInventario(),
+                                pendiente.absoluto, pendiente.delta, stockAnterior, ahora));
+                        continue;
+                    }
+                    entidad.setStockDisponible((int) stockNuevo);
+                    entidad.setFechaUltimaActualizacion(ahora);
+                    escritas.add(entidad);
+                    anteriores.add(stockAnterior);
+                }
+                // Los eventos llevan la versión que deja el flush
+                inventariorepository.flush();
+                for (int i = 0; i < escritas.size(); i++) {
+                    InventarioEntity entidad = escritas.get(i);
+                    eventPublisher.publishEvent(new InventarioEvento(InventarioEvento.Tipo.ACTUALIZADO,
+                            entidad.getIdInventario(), entidad.getUbicacionBodega(), anteriores.get(i),
+                            entidad.getStockDisponible(), ahora, entidad.getVersion()));
+                }
+            });
+            filasEscritas.addAndGet(lote.size());
+            vaciados.incrementAndGet();
+        } catch (RuntimeException e) {
+            devolver(lote);
+            throw e;
+        } finally {
+            // Después del commit los oyentes ya invalidaron la cache, la base tiene el valor nuevo
+            lote.forEach(enVuelo::remove);
+        }
+    }
+
+    // Reincorpora un lote que no se pudo escribir. Lo recibido después es más reciente y se
+    // combina encima del lote.
+    private void devolver(Map<Long, Pendiente> lote) {
+        for (Map.Entry<Long, Pendiente> entrada : lote.entrySet()) {
+            Franja franja = franja(entrada.getKey());
+            franja.lock.lock();
+            try {
+                Pendiente anterior = entrada.getValue();
+                Pendiente reciente = franja.entradas.get(entrada.getKey());
+                if (reciente == null) {
+                    franja.entradas.put(entrada.getKey(), anterior);
+                    pendientes.incrementAndGet();
+                } else if (reciente.absoluto == null) {
+                    reciente.absoluto = anterior.absoluto;
+                    reciente.delta += anterior.delta;
+                }
+            } finally {
+                franja.lock.unlock();
+            }
+        }
+    }
+
+    private Integer stockPendiente(long idInventario) {
+        Franja franja = franja(idInventario);
+        franja.lock.lock();
+        try {
+            Pendiente pendiente = franja.entradas.get(idInventario);
+            if (pendiente != null) {
+                return pendiente.stockVisible;
+            }
+            Pendiente escribiendose = enVuelo.get(idInventario);
+            return escribiendose == null ? null : escribiendose.stockVisible;
+        } finally {
+            franja.lock.unlock();
+        }
+    }
+
+    // Stock visible de un inventario sin entrada en la franja; se llama con el lock tomado
+    private Integer stockVisible(long idInventario, LongFunction<Optional<Inventario>> base) {
+        Pendiente escribiendose = enVuelo.get(idInventario);
+        if (escribiendose != null) {
+            return escribiendose.stockVisible;
+        }
+        return base.apply(idInventario).map(Inventario::getStockDisponible).orElse(null);
+    }
+
+    private Pendiente nuevaEntrada(Franja franja, long idInventario) {
+        Pendiente pendiente = new Pendiente();
+        franja.entradas.put(idInventario, pendiente);
+        pendientes.incrementAndGet();
+        return pendiente;
+    }
+
+    private void registrarEscritura() {
+        escriturasRecibidas.incrementAndGet();
+        if (pendientes.get() >= maximoPendientes && programador != null
+                && vaciadoSolicitado.compareAndSet(false, true)) {
+            programador.execute(this::vaciarSinPropagar);
+        }
+    }
+
+    private Franja franja(long idInventario) {
+        return franjas[indiceFranja(idInventario)];
+    }
+
+    private int indiceFranja(long idInventario) {
+        int hash = Long.hashCode(idInventario);
+        return (hash ^ (hash >>> 16)) & (franjas.length - 1);
+    }
+
+    // Escrituras recibidas contra filas escritas muestra cuánto se combinó
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("inventario.escritura.diferida.pendientes", pendientes, AtomicInteger::get)
+                .description("Inventarios con escrituras de stock aún no guardadas")
+                .register(registry);
+        FunctionCounter.builder("inventario.escritura.diferida.recibidas", escriturasRecibidas, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("inventario.escritura.diferida.filas", filasEscritas, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("inventario.escritura.diferida.vaciados", vaciados, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("inventario.escritura.diferida.descartadas", descartadas, AtomicLong::get)
+                .description("Escrituras diferidas que no se aplicaron porque el stock quedaba fuera de rango")
+                .register(registry);
+    }
+
+    private static final class Franja {
+        private final ReentrantLock lock = new ReentrantLock();
+        // Compartido por los ajustes diferidos, exclusivo para escribirDirecto
+        private final ReentrantReadWriteLock directa = new ReentrantReadWriteLock();
+        private final Map<Long, Pendiente> entradas = new HashMap<>();
+    }
+
+    // Escritura combinada de un inventario: valor absoluto (si hubo) más la suma de deltas
+    private static final class Pendiente {
+        private Integer absoluto;
+        private int delta;
+        private int stockVisible;
+    }
+}
@@ -0,0 +1,459 @@
+package com.inventario.inventario.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.inventario.inventario.almacen.AlmacenInventario;
+import com.inventario.inventario.config.FabricaHilos;
+import com.inventario.inventario.event.InventarioEvento;
+import com.inventario.inventario.model.CorteHistorial;
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.StockEnFecha;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Historial de movimientos de stock. Cada InventarioEvento se agrega a movimiento_historial
+// dentro de la transacción que lo produce: los movimientos se juntan en memoria y se insertan
+// en un lote JDBC antes del commit, así el historial se confirma o se deshace con el stock y
+// el camino de escritura solo agrega INSERT, sin cerrojos compartidos entre escrituras. Como
+// idMovimiento se asigna en el INSERT y no en el commit, un id menor puede confirmar después
+// de uno mayor: el corte solo llega hasta los movimientos registrados hace más de
+// margenConfirmacion, que ya confirmaron, y deja el resto para el corte siguiente.
+// Cada intervaloCorte se guarda un corte con la instantánea de cada inventario; el stock a una
+// fecha parte del corte anterior y suma solo los movimientos posteriores, leídos por índice,
+// sin importar el tamaño del historial. Los cortes se escriben con la fila "corte" bloqueada,
+// uno a la vez entre todas las instancias, y después se borran los cortes y movimientos más
+// viejos que la retención. Sin transacción (motor memoria) cada movimiento se inserta al
+// llegar, en una transacción propia.
+@Service
+public class HistorialStockService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HistorialStockService.class);
+
+    private static final String INSERTAR_MOVIMIENTO = "INSERT INTO movimiento_historial"
+            + " (id_inventario, ubicacion_bodega, tipo, cantidad, fecha, registrado) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String CORTE = "corte";
+
+    private static final String INSERTAR_INSTANTANEA = "INSERT INTO instantanea_stock"
+            + " (id_corte, id_inventario, ubicacion_bodega, stock_disponible) VALUES (?, ?, ?, ?)";
+
+    private static final String SELECCIONAR_INSTANTANEA = "SELECT id_inventario, ubicacion_bodega, stock_disponible"
+            + " FROM instantanea_stock WHERE id_corte = ?";
+
+    // Suma con signo de los movimientos por inventario. ELIMINADO es el último movimiento de un
+    // inventario (los ids no se reutilizan), basta saber si aparece en el tramo.
+    private static final String RESUMIR_MOVIMIENTOS = "SELECT id_inventario, MAX(ubicacion_bodega), SUM(cantidad),"
+            + " MAX(CASE WHEN tipo = 'ELIMINADO' THEN 1 ELSE 0 END) FROM movimiento_historial WHERE ";
+
+    private static final String SELECCIONAR_CORTE = "SELECT id_corte, fecha, filas, hasta_movimiento FROM corte_historial";
+
+    private static final RowMapper<CorteHistorial> MAPEO_CORTE = (fila, numero) -> new CorteHistorial(
+            fila.getLong(1), fila.getObject(2, LocalDateTime.class), fila.getLong(3), fila.getLong(4));
+
+    private static final RowMapper<Cambio> MAPEO_CAMBIO = (fila, numero) -> new Cambio(
+            fila.getLong(1), fila.getString(2), fila.getLong(3), fila.getInt(4) == 1);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AlmacenInventario almacen;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private FabricaHilos fabricaHilos;
+
+    @Value("${inventario.historial.activo:true}")
+    private boolean activo = true;
+
+    @Value("${inventario.historial.intervalo-corte:6h}")
+    private Duration intervaloCorte = Duration.ofHours(6);
+
+    // Los cortes más viejos se borran con sus movimientos; se conserva el último corte anterior
+    // al límite para que toda fecha dentro de la retención tenga de dónde partir. 0 no borra
+    @Value("${inventario.historial.retencion:30d}")
+    private Duration retencion = Duration.ofDays(30);
+
+    // Tiempo máximo entre el INSERT de un lote y su commit, más la diferencia de reloj entre
+    // instancias: un movimiento más reciente puede tener un id menor aún sin confirmar
+    @Value("${inventario.historial.margen-confirmacion:1m}")
+    private Duration margenConfirmacion = Duration.ofMinutes(1);
+
+    @Value("${inventario.historial.tamano-lote:1000}")
+    private int tamanoLote = 1000;
+
+    private ScheduledExecutorService programador;
+
+    @PostConstruct
+    public void iniciar() {
+        if (!activo) {
+            return;
+        }
+        crearCerrojo(CORTE);
+        transactionTemplate.executeWithoutResult(estado -> {
+            bloquear(CORTE);
+            if (ultimoCorte() == null) {
+                crearCorteInicial();
+            }
+        });
+        programador = Executors.newSingleThreadScheduledExecutor(fabricaHilos.crear("historial-stock"));
+        long periodo = Math.max(intervaloCorte.toMillis(), 1);
+        programador.scheduleWithFixedDelay(this::cortarSinPropagar, periodo, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        if (programador != null) {
+            programador.shutdownNow();
+        }
+    }
+
+    public boolean isActivo() {
+        return activo;
+    }
+
+    // Se ejecuta dentro de la transacción que publica el evento, no después del commit: si el
+    // lote del historial falla, el cambio de stock también se deshace
+    @EventListener
+    public void alCambiarInventario(InventarioEvento evento) {
+        if (!activo) {
+            return;
+        }
+        // La última columna, registrado, se completa al insertar
+        Object[] movimiento = { evento.getIdInventario(), evento.getUbicacionBodega(), evento.getTipo().name(),
+                evento.getDelta(), ahora(), null };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionTemplate.executeWithoutResult(estado -> insertar(List.<Object[]>of(movimiento)));
+            return;
+        }
+        pendientes().movimientos.add(movimiento);
+    }
+
+    // Stock del inventario con todos los movimientos hasta fecha; vacío si no existía a esa
+    // fecha o es anterior al primer corte
+    public Optional<StockEnFecha> obtenerStockEnFecha(long idInventario, LocalDateTime fecha) {
+        CorteHistorial corte = corteAnterior(fecha);
+        if (corte == null) {
+            return Optional.empty();
+        }
+        List<StockEnFecha> base = jdbcTemplate.query(SELECCIONAR_INSTANTANEA + " AND id_inventario = ?",
+                mapeoStock(fecha), corte.getIdCorte(), idInventario);
+        List<Cambio> cambios = jdbcTemplate.query(RESUMIR_MOVIMIENTOS
+                + "id_inventario = ? AND id_movimiento > ? AND fecha <= ? GROUP BY id_inventario",
+                MAPEO_CAMBIO, idInventario, corte.getHastaMovimiento(), fecha);
+        return aplicar(base, cambios, fecha).stream().findFirst();
+    }
+
+    // Inventarios de la ubicación que existían a la fecha, ordenados por idInventario
+    public List<StockEnFecha> obtenerStockEnFecha(String ubicacionBodega, LocalDateTime fecha) {
+        CorteHistorial corte = corteAnterior(fecha);
+        if (corte == null) {
+            return List.of();
+        }
+        List<StockEnFecha> base = jdbcTemplate.query(SELECCIONAR_INSTANTANEA + " AND ubicacion_bodega = ?",
+                mapeoStock(fecha), corte.getIdCorte(), ubicacionBodega);
+        List<Cambio> cambios = jdbcTemplate.query(RESUMIR_MOVIMIENTOS
+                + "ubicacion_bodega = ? AND id_movimiento > ? AND fecha <= ? GROUP BY id_inventario",
+                MAPEO_CAMBIO, ubicacionBodega, corte.getHastaMovimiento(), fecha);
+        return aplicar(base, cambios, fecha);
+    }
+
+    // Escribe un corte con los movimientos registrados hasta margenConfirmacion atrás: las
+    // instantáneas del corte anterior más la suma de los movimientos del tramo, página por
+    // página, en una sola transacción. Sin movimientos nuevos el corte anterior sigue vigente.
+    // Después borra lo que pasó la retención. Devuelve null con el historial desactivado.
+    public CorteHistorial cortar() {
+        if (!activo) {
+            return null;
+        }
+        CorteHistorial corte = transactionTemplate.execute(estado -> {
+            bloquear(CORTE);
+            return cortarBloqueado();
+        });
+        podar();
+        return corte;
+    }
+
+    private CorteHistorial cortarBloqueado() {
+        CorteHistorial anterior = ultimoCorte();
+        if (anterior == null) {
+            return crearCorteInicial();
+        }
+        LocalDateTime limite = ahora().minus(margenConfirmacion);
+        long hasta = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id_movimiento), ?) FROM movimiento_historial"
+                + " WHERE id_movimiento > ? AND registrado <= ?", Long.class, anterior.getHastaMovimiento(),
+                anterior.getHastaMovimiento(), limite);
+        if (hasta <= anterior.getHastaMovimiento()) {
+            return anterior;
+        }
+        // Los movimientos del tramo ocurrieron antes del límite, salvo alguno que tomó la fecha
+        // en el mismo instante; el corte no puede quedar antes de ellos
+        LocalDateTime ultimaFecha = jdbcTemplate.queryForObject("SELECT MAX(fecha) FROM movimiento_historial"
+                + " WHERE id_movimiento > ? AND id_movimiento <= ?", LocalDateTime.class,
+                anterior.getHastaMovimiento(), hasta);
+        LocalDateTime fecha = ultimaFecha != null && ultimaFecha.isAfter(limite) ? ultimaFecha : limite;
+        Map<Long, Cambio> cambios = new HashMap<>();
+        for (Cambio cambio : jdbcTemplate.query(RESUMIR_MOVIMIENTOS
+                + "id_movimiento > ? AND id_movimiento <= ? GROUP BY id_inventario",
+                MAPEO_CAMBIO, anterior.getHastaMovimiento(), hasta)) {
+            cambios.put(cambio.idInventario, cambio);
+        }
+        long idCorte = anterior.getIdCorte() + 1;
+        List<Object[]> lote = new ArrayList<>(tamanoLote);
+        long filas = 0;
+        long despuesDe = 0;
+        List<StockEnFecha> pagina;
+        do {
+            pagina = jdbcTemplate.query(SELECCIONAR_INSTANTANEA + " AND id_inventario > ? ORDER BY id_inventario LIMIT ?",
+                    mapeoStock(anterior.getFecha()), anterior.getIdCorte(), despuesDe, tamanoLote);
+            for (StockEnFecha stock : pagina) {
+                Cambio cambio = cambios.remove(stock.getIdInventario());
+                if (cambio == null || !cambio.eliminado) {
+                    long cantidad = cambio == null ? 0 : cambio.cantidad;
+                    lote.add(new Object[] { idCorte, stock.getIdInventario(), stock.getUbicacionBodega(),
+                            (int) (stock.getStockDisponible() + cantidad) });
+                }
+                despuesDe = stock.getIdInventario();
+            }
+            filas += escribirSiLleno(lote);
+        } while (pagina.size() == tamanoLote);
+        // Inventarios creados en el tramo
+        for (Cambio cambio : cambios.values()) {
+            if (!cambio.eliminado) {
+                lote.add(new Object[] { idCorte, cambio.idInventario, cambio.ubicacionBodega, (int) cambio.cantidad });
+                filas += escribirSiLleno(lote);
+            }
+        }
+        filas += escribir(lote);
+        return insertarCorte(new CorteHistorial(idCorte, fecha, filas, hasta));
+    }
+
+    // Primer corte: el stock actual de cada inventario, incluidos los que existían antes del
+    // historial. Se escribe al activar el historial, en el arranque con "corte" bloqueado y
+    // antes de atender escrituras: ninguna instancia con el historial activo registra
+    // movimientos mientras no existe un corte, así las páginas no cambian durante el recorrido
+    private CorteHistorial crearCorteInicial() {
+        long hasta = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id_movimiento), 0) FROM movimiento_historial",
+                Long.class);
+        LocalDateTime fecha = ahora();
+        List<Object[]> lote = new ArrayList<>(tamanoLote);
+        long filas = 0;
+        long despuesDe = 0;
+        List<Inventario> pagina;
+        do {
+            long desde = despuesDe;
+            // En una transacción de escritura: con réplicas debe leer el primario
+            pagina = almacen.enTransaccion(() -> almacen.buscarPagina(desde, null, null, tamanoLote));
+            for (Inventario inventario : pagina) {
+                lote.add(new Object[] { 1L, inventario.getIdInventario(), inventario.getUbicacionBodega(),
+                        inventario.getStockDisponible() });
+                despuesDe = inventario.getIdInventario();
+            }
+            filas += escribirSiLleno(lote);
+        } while (pagina.size() == tamanoLote);
+        filas += escribir(lote);
+        return insertarCorte(new CorteHistorial(1L, fecha, filas, hasta));
+    }
+
+    private CorteHistorial insertarCorte(CorteHistorial corte) {
+        jdbcTemplate.update("INSERT INTO corte_historial (id_corte, fecha, filas, hasta_movimiento) VALUES (?, ?, ?, ?)",
+                corte.getIdCorte(), corte.getFecha(), corte.getFilas(), corte.getHastaMovimiento());
+        LOG.info("Corte {} del historial de stock a {}: {} inventarios hasta el movimiento {}", corte.getIdCorte(),
+                corte.getFecha(), corte.getFilas(), corte.getHastaMovimiento());
+        return corte;
+    }
+
+    // Borra los cortes anteriores al último que pasó la retención, sus instantáneas y los
+    // movimientos que ese corte ya incluye
+    private void podar() {
+        if (retencion.isZero() || retencion.isNegative()) {
+            return;
+        }
+        LocalDateTime limite = ahora().minus(retencion);
+        transactionTemplate.executeWithoutResult(estado -> {
+            bloquear(CORTE);
+            CorteHistorial conservado = corteAnterior(limite);
+            if (conservado == null) {
+                return;
+            }
+            jdbcTemplate.update("DELETE FROM instantanea_stock WHERE id_corte < ?", conservado.getIdCorte());
+            int cortes = jdbcTemplate.update("DELETE FROM corte_historial WHERE id_corte < ?", conservado.getIdCorte());
+            int movimientos = jdbcTemplate.update("DELETE FROM movimiento_historial WHERE id_movimiento <= ?",
+                    conservado.getHastaMovimiento());
+            if (cortes > 0 || movimientos > 0) {
+                LOG.info("Historial de stock anterior al corte {} borrado: {} cortes, {} movimientos",
+                        conservado.getIdCorte(), cortes, movimientos);
+            }
+        });
+    }
+
+    // Toma la fila del cerrojo hasta el fin de la transacción actual
+    private void bloquear(String cerrojo) {
+        jdbcTemplate.queryForList("SELECT nombre FROM cerrojo_historial WHERE nombre = ? FOR UPDATE", String.class,
+                cerrojo);
+    }
+
+    // Otra instancia puede crearla al mismo tiempo
+    private void crearCerrojo(String cerrojo) {
+        try {
+            if (jdbcTemplate.queryForList("SELECT nombre FROM cerrojo_historial WHERE nombre = ?", String.class,
+                    cerrojo).isEmpty()) {
+                jdbcTemplate.update("INSERT INTO cerrojo_historial (nombre) VALUES (?)", cerrojo);
+            }
+        } catch (DuplicateKeyException e) {
+            LOG.debug("Cerrojo {} del historial creado por otra instancia", cerrojo);
+        }
+    }
+
+    // registrado es la hora del INSERT, cuando el movimiento toma su id, y no la del evento:
+    // de ella se mide el margen de confirmación del corte
+    private void insertar(List<Object[]> movimientos) {
+        LocalDateTime registrado = ahora();
+        for (Object[] movimiento : movimientos) {
+            movimiento[movimiento.length - 1] = registrado;
+        }
+        jdbcTemplate.batchUpdate(INSERTAR_MOVIMIENTO, movimientos);
+    }
+
+    private CorteHistorial ultimoCorte() {
+        return primero(jdbcTemplate.query(SELECCIONAR_CORTE + " ORDER BY id_corte DESC LIMIT 1", MAPEO_CORTE));
+    }
+
+    private CorteHistorial corteAnterior(LocalDateTime fecha) {
+        return primero(jdbcTemplate.query(SELECCIONAR_CORTE + " WHERE fecha <= ? ORDER BY fecha DESC LIMIT 1",
+                MAPEO_CORTE, fecha));
+    }
+
+    // Aplica los cambios del tramo a las instantáneas del corte
+    private static List<StockEnFecha> aplicar(List<StockEnFecha> base, List<Cambio> cambios, LocalDateTime fecha) {
+        TreeMap<Long, StockEnFecha> resultado = new TreeMap<>();
+        for (StockEnFecha stock : base) {
+            resultado.put(stock.getIdInventario(), stock);
+        }
+        for (Cambio cambio : cambios) {
+            if (cambio.eliminado) {
+                resultado.remove(cambio.idInventario);
+                continue;
+            }
+            StockEnFecha stock = resultado.computeIfAbsent(cambio.idInventario,
+                    id -> new StockEnFecha(id, cambio.ubicacionBodega, 0, fecha));
+            stock.setStockDisponible((int) (stock.getStockDisponible() + cambio.cantidad));
+        }
+        return new ArrayList<>(resultado.values());
+    }
+
+    private long escribirSiLleno(List<Object[]> lote) {
+        return lote.size() >= tamanoLote ? escribir(lote) : 0;
+    }
+
+    private long escribir(List<Object[]> lote) {
+        int filas = lote.size();
+        if (filas > 0) {
+            jdbcTemplate.batchUpdate(INSERTAR_INSTANTANEA, lote);
+            lote.clear();
+        }
+        return filas;
+    }
+
+    // Movimientos de la transacción actual. Se buscan entre las sincronizaciones registradas
+    // porque Spring las suspende en una transacción anidada REQUIRES_NEW (la escritura
+    // diferida), así cada transacción inserta solo los suyos.
+    private MovimientosPendientes pendientes() {
+        for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+            if (sincronizacion instanceof MovimientosPendientes pendientes && pendientes.servicio() == this) {
+                return pendientes;
+            }
+        }
+        MovimientosPendientes pendientes = new MovimientosPendientes();
+        TransactionSynchronizationManager.registerSynchronization(pendientes);
+        return pendientes;
+    }
+
+    private void cortarSinPropagar() {
+        try {
+            cortar();
+        } catch (Exception e) {
+            LOG.error("No se pudo escribir el corte del historial de stock: {}", e.getMessage());
+        }
+    }
+
+    private static RowMapper<StockEnFecha> mapeoStock(LocalDateTime fecha) {
+        return (fila, numero) -> new StockEnFecha(fila.getLong(1), fila.getString(2), fila.getInt(3), fecha);
+    }
+
+    private static <T> T primero(List<T> filas) {
+        return filas.isEmpty() ? null : filas.get(0);
+    }
+
+    // Las columnas guardan microsegundos: las fechas del historial se truncan antes de escribirse
+    // para que un corte compare igual que la fecha con que se calculó
+    private static LocalDateTime ahora() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private final class MovimientosPendientes implements TransactionSynchronization {
+        private final List<Object[]> movimientos = new ArrayList<>();
+
+        private HistorialStockService servicio() {
+            return HistorialStockService.this;
+        }
+
+        // Antes que la unidad del almacén fragmentado, que tiene el orden por defecto y se
+        // registra primero: confirma sus bases en beforeCommit y no debe hacerlo si este lote falla
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE - 1;
+        }
+
+        // Un solo lote JDBC por transacción, en la misma conexión que el cambio de stock
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!movimientos.isEmpty()) {
+                insertar(movimientos);
+            }
+        }
+    }
+
+    // Suma de los movimientos de un inventario en un tramo del historial
+    private static final class Cambio {
+        private final long idInventario;
+        private final String ubicacionBodega;
+        private final long cantidad;
+        private final boolean eliminado;
+
+        private Cambio(long idInventario, String ubicacionBodega, long cantidad, boolean eliminado) {
+            this.idInventario = idInventario;
+            this.ubicacionBodega = ubicacionBodega;
+            this.cantidad = cantidad;
+            this.eliminado = eliminado;
+        }
+    }
+}
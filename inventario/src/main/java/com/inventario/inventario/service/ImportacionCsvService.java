@@ -0,0 +1,534 @@
+package com.inventario.inventario.service;
+
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.inventario.inventario.almacen.ResultadoEscritura;
+import com.inventario.inventario.config.FabricaHilos;
+import com.inventario.inventario.model.EstadoImportacion;
+import com.inventario.inventario.model.Inventario;
+
+import jakarta.annotation.PreDestroy;
+
+// Importación de inventarios desde CSV sin cargar el archivo. El hilo de la petición copia
+// el cuerpo a un archivo en disco y responde; un lector en segundo plano lee y valida cada
+// fila con las mismas reglas que la creación individual y arma lotes que deja en una cola
+// acotada; un grupo de escritores los guarda en paralelo, cada lote en su propia transacción
+// (crea o actualiza el stock, igual que la carga masiva). Si los escritores se atrasan la
+// cola se llena y la lectura espera, así el heap queda acotado por la cola y no por el
+// archivo. Las filas rechazadas van a un reporte CSV en disco; si un lote falla se reintenta
+// fila por fila para rechazar solo las que fallan. El avance se consulta mientras corre y se
+// guardan las últimas importaciones terminadas.
+@Service
+public class ImportacionCsvService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImportacionCsvService.class);
+
+    private static final String ID = "idinventario";
+    private static final String STOCK = "stockdisponible";
+    private static final String UBICACION = "ubicacionbodega";
+    // Orden de las columnas sin encabezado, el mismo de la exportación CSV
+    private static final List<String> COLUMNAS_POR_DEFECTO = List.of(ID, STOCK, UBICACION);
+
+    private static final int MAXIMO_REGISTRO = 64 * 1024;
+    private static final Lote FIN = new Lote(0);
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    private final int tamanoLote;
+    private final int escritores;
+    private final int capacidadCola;
+    private final int historial;
+    private final Path directorio;
+    private final Semaphore cupos;
+    private final ExecutorService lectura;
+    private final ExecutorService escritura;
+
+    // Importaciones en curso y las últimas terminadas, en orden de inicio
+    private final LinkedHashMap<String, Importacion> importaciones = new LinkedHashMap<>();
+
+    @Autowired
+    public ImportacionCsvService(@Value("${inventario.carga-masiva.tamano-lote:500}") int tamanoLote,
+            @Value("${inventario.importacion.escritores:4}") int escritores,
+            @Value("${inventario.importacion.cola:8}") int capacidadCola,
+            @Value("${inventario.importacion.maximo-simultaneas:2}") int maximoSimultaneas,
+            @Value("${inventario.importacion.historial:20}") int historial,
+            @Value("${inventario.importacion.directorio:}") String directorio,
+            FabricaHilos fabricaHilos) {
+        this.tamanoLote = Math.max(tamanoLote, 1);
+        this.escritores = Math.max(escritores, 1);
+        this.capacidadCola = Math.max(capacidadCola, 1);
+        this.historial = Math.max(historial, 1);
+        this.directorio = directorio.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "inventario-importaciones")
+                : Paths.get(directorio);
+        this.cupos = new Semaphore(Math.max(maximoSimultaneas, 1));
+        this.lectura = Executors.newFixedThreadPool(Math.max(maximoSimultaneas, 1),
+                fabricaHilos.crearNumerados("importacion-lector"));
+        this.escritura = Executors.newFixedThreadPool(this.escritores * Math.max(maximoSimultaneas, 1),
+                fabricaHilos.crearNumerados("importacion-escritor"));
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        lectura.shutdownNow();
+        escritura.shutdownNow();
+        List<Importacion> cerradas;
+        synchronized (importaciones) {
+            cerradas = new ArrayList<>(importaciones.values());
+            importaciones.clear();
+        }
+        cerradas.forEach(Importacion::borrarArchivos);
+    }
+
+    // Copia el CSV a disco y lo importa en segundo plano. Devuelve el estado inicial (EN_CURSO)
+    // con el id para consultar el avance, o null si ya hay maximo-simultaneas importaciones en
+    // curso. El cupo se libera cuando la importación termina.
+    public EstadoImportacion importar(InputStream entrada) throws IOException {
+        if (!cupos.tryAcquire()) {
+            return null;
+        }
+        Importacion importacion = null;
+        try {
+            Files.createDirectories(directorio);
+            importacion = new Importacion(UUID.randomUUID().toString(),
+                    Files.createTempFile(directorio, "importacion-", ".csv"),
+                    Files.createTempFile(directorio, "errores-", ".csv"));
+            Files.copy(entrada, importacion.archivo, StandardCopyOption.REPLACE_EXISTING);
+            registrar(importacion);
+            Importacion enCurso = importacion;
+            lectura.execute(() -> {
+                try {
+                    ejecutar(enCurso);
+                } finally {
+                    cupos.release();
+                }
+            });
+            return importacion.estado();
+        } catch (IOException | RuntimeException e) {
+            if (importacion != null) {
+                quitar(importacion);
+            }
+            cupos.release();
+            throw e;
+        }
+    }
+
+    public Optional<EstadoImportacion> obtener(String idImportacion) {
+        synchronized (importaciones) {
+            return Optional.ofNullable(importaciones.get(idImportacion)).map(Importacion::estado);
+        }
+    }
+
+    public List<EstadoImportacion> listar() {
+        synchronized (importaciones) {
+            return importaciones.values().stream().map(Importacion::estado).toList();
+        }
+    }
+
+    // Reporte de filas rechazadas (linea,motivo,registro) con lo escrito hasta ahora
+    public Optional<Path> reporteErrores(String idImportacion) {
+        Importacion importacion;
+        synchronized (importaciones) {
+            importacion = importaciones.get(idImportacion);
+        }
+        if (importacion == null) {
+            return Optional.empty();
+        }
+        importacion.vaciarReporte();
+        return Optional.of(importacion.reporte);
+    }
+
+    private void ejecutar(Importacion importacion) {
+        BlockingQueue<Lote> cola = new ArrayBlockingQueue<>(capacidadCola);
+        CountDownLatch terminados = new CountDownLatch(escritores);
+        for (int i = 0; i < escritores; i++) {
+            escritura.execute(() -> {
+                try {
+                    escribir(importacion, cola);
+                } finally {
+                    terminados.countDown();
+                }
+            });
+        }
+        boolean interrumpido = false;
+        try (LectorCsv lector = new LectorCsv(new InputStreamReader(
+                new EntradaContada(Files.newInputStream(importacion.archivo), importacion), StandardCharsets.UTF_8),
+                MAXIMO_REGISTRO)) {
+            leer(importacion, lector, cola);
+        } catch (InterruptedException e) {
+            interrumpido = true;
+            importacion.fallar("Importación interrumpida");
+        } catch (IOException | UncheckedIOException e) {
+            importacion.fallar(e.getMessage());
+        }
+        // Los escritores terminan lo que quedó en la cola antes de ver el fin
+        try {
+            for (int i = 0; i < escritores; i++) {
+                cola.put(FIN);
+            }
+            terminados.await();
+        } catch (InterruptedException e) {
+            interrumpido = true;
+            importacion.fallar("Importación interrumpida");
+        }
+        importacion.terminar();
+        try {
+            Files.deleteIfExists(importacion.archivo);
+        } catch (IOException e) {
+            LOG.warn("No se pudo borrar el archivo de la importación {}: {}", importacion.archivo, e.getMessage());
+        }
+        LOG.info("Importación {} {}: {} filas, {} creadas, {} actualizadas, {} rechazadas", importacion.id,
+                importacion.estado, importacion.filasLeidas, importacion.creados, importacion.actualizados,
+                importacion.rechazados);
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void leer(Importacion importacion, LectorCsv lector, BlockingQueue<Lote> cola)
+            throws InterruptedException {
+        List<String> columnas = COLUMNAS_POR_DEFECTO;
+        boolean primero = true;
+        Lote lote = new Lote(tamanoLote);
+        try {
+            while (lector.siguiente()) {
+                if (primero) {
+                    primero = false;
+                    List<String> encabezado = normalizar(lector.campos());
+                    if (encabezado.contains(STOCK)) {
+                        if (!encabezado.contains(UBICACION)) {
+                            throw new IllegalArgumentException("El encabezado no tiene la columna ubicacionBodega");
+                        }
+                        columnas = encabezado;
+                        continue;
+                    }
+                }
+                importacion.filasLeidas.incrementAndGet();
+                Inventario inventario = new Inventario();
+                String error = convertir(lector.campos(), columnas, inventario);
+                if (error == null) {
+                    error = inventarioService.validarInventario(inventario);
+                }
+                if (error != null) {
+                    importacion.rechazar(lector.linea(), error, lector.registro());
+                    continue;
+                }
+                lote.agregar(inventario, lector.linea(), lector.registro());
+                if (lote.inventarios.size() == tamanoLote) {
+                    cola.put(lote);
+                    lote = new Lote(tamanoLote);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // Lo leído antes del error se guarda igual
+            importacion.fallar(e.getMessage());
+        }
+        if (!lote.inventarios.isEmpty()) {
+            cola.put(lote);
+        }
+    }
+
+    private void escribir(Importacion importacion, BlockingQueue<Lote> cola) {
+        while (true) {
+            Lote lote;
+            try {
+                lote = cola.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (lote == FIN) {
+                return;
+            }
+            // El escritor sigue vaciando la cola aunque falle, si no la lectura quedaría esperando
+            try {
+                guardar(importacion, lote);
+            } catch (RuntimeException e) {
+                importacion.fallar(e.getMessage());
+            }
+        }
+    }
+
+    private void guardar(Importacion importacion, Lote lote) {
+        try {
+            importacion.contar(inventarioService.guardarLoteValidado(lote.inventarios));
+        } catch (Exception e) {
+            // Un lote falla completo; fila por fila solo se rechazan las que fallan
+            for (int i = 0; i < lote.inventarios.size(); i++) {
+                try {
+                    importacion.contar(inventarioService.guardarLoteValidado(List.of(lote.inventarios.get(i))));
+                } catch (Exception fila) {
+                    importacion.rechazar(lote.lineas[i], "Error al guardar: " + fila.getMessage(),
+                            lote.registros.get(i));
+                }
+            }
+        }
+    }
+
+    // Completa el inventario con los campos; devuelve el motivo si alguno no se puede leer
+    private static String convertir(List<String> campos, List<String> columnas, Inventario inventario) {
+        int cantidad = Math.min(campos.size(), columnas.size());
+        for (int i = 0; i < cantidad; i++) {
+            String valor = campos.get(i).trim();
+            switch (columnas.get(i)) {
+                case ID -> {
+                    if (!valor.isEmpty()) {
+                        try {
+                            inventario.setIdInventario(Long.parseLong(valor));
+                        } catch (NumberFormatException e) {
+                            return "idInventario no es un número: " + valor;
+                        }
+                    }
+                }
+                case STOCK -> {
+                    if (!valor.isEmpty()) {
+                        try {
+                            inventario.setStockDisponible(Integer.parseInt(valor));
+                        } catch (NumberFormatException e) {
+                            return "stockDisponible no es un número entero: " + valor;
+                        }
+                    }
+                }
+                case UBICACION -> inventario.setUbicacionBodega(valor);
+                default -> {
+                    // Columnas desconocidas o que se asignan al guardar (fecha, versión)
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<String> normalizar(List<String> encabezado) {
+        List<String> columnas = new ArrayList<>(encabezado.size());
+        for (String columna : encabezado) {
+            columnas.add(columna.trim().toLowerCase(Locale.ROOT));
+        }
+        return columnas;
+    }
+
+    // Deja espacio para la nueva quitando las terminadas más antiguas; sus reportes se borran
+    // fuera del monitor para no retener a quien consulta el avance durante la E/S
+    private void registrar(Importacion importacion) {
+        List<Importacion> quitadas = new ArrayList<>();
+        synchronized (importaciones) {
+            importaciones.put(importacion.id, importacion);
+            Iterator<Map.Entry<String, Importacion>> entradas = importaciones.entrySet().iterator();
+            int sobrantes = importaciones.size() - historial;
+            while (sobrantes > 0 && entradas.hasNext()) {
+                Importacion anterior = entradas.next().getValue();
+                if (anterior.terminada()) {
+                    quitadas.add(anterior);
+                    entradas.remove();
+                    sobrantes--;
+                }
+            }
+        }
+        quitadas.forEach(Importacion::borrarArchivos);
+    }
+
+    private void quitar(Importacion importacion) {
+        synchronized (importaciones) {
+            importaciones.remove(importacion.id, importacion);
+        }
+        importacion.borrarArchivos();
+    }
+
+    private static final class Lote {
+        private final List<Inventario> inventarios;
+        private final long[] lineas;
+        private final List<String> registros;
+
+        private Lote(int tamano) {
+            this.inventarios = new ArrayList<>(tamano);
+            this.lineas = new long[tamano];
+            this.registros = new ArrayList<>(tamano);
+        }
+
+        private void agregar(Inventario inventario, long linea, String registro) {
+            lineas[inventarios.size()] = linea;
+            inventarios.add(inventario);
+            registros.add(registro);
+        }
+    }
+
+    private static final class Importacion {
+        private final String id;
+        // Copia del CSV recibido, se borra al terminar la importación
+        private final Path archivo;
+        private final Path reporte;
+        private final Writer errores;
+        // Los escritores comparten el reporte
+        private final ReentrantLock cerrojoErrores = new ReentrantLock();
+        private final LocalDateTime inicio = LocalDateTime.now();
+        private final long inicioNanos = System.nanoTime();
+        private final AtomicLong filasLeidas = new AtomicLong();
+        private final AtomicLong creados = new AtomicLong();
+        private final AtomicLong actualizados = new AtomicLong();
+        private final AtomicLong rechazados = new AtomicLong();
+        private final AtomicLong bytesLeidos = new AtomicLong();
+        private volatile String estado = EstadoImportacion.EN_CURSO;
+        private volatile boolean fallida;
+        private volatile String mensaje;
+        private volatile LocalDateTime fin;
+        private volatile long finNanos;
+
+        private Importacion(String id, Path archivo, Path reporte) throws IOException {
+            this.id = id;
+            this.archivo = archivo;
+            this.reporte = reporte;
+            this.errores = new BufferedWriter(Files.newBufferedWriter(reporte, StandardCharsets.UTF_8), 64 * 1024);
+            this.errores.write("linea,motivo,registro\n");
+        }
+
+        private void contar(List<ResultadoEscritura> escritos) {
+            for (ResultadoEscritura escrito : escritos) {
+                if (escrito.getEstado() == ResultadoEscritura.Estado.CREADO) {
+                    creados.incrementAndGet();
+                } else {
+                    actualizados.incrementAndGet();
+                }
+            }
+        }
+
+        private void rechazar(long linea, String motivo, String registro) {
+            rechazados.incrementAndGet();
+            cerrojoErrores.lock();
+            try {
+                errores.write(Long.toString(linea));
+                errores.write(',');
+                errores.write(escapar(motivo));
+                errores.write(',');
+                errores.write(escapar(registro));
+                errores.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo escribir el reporte de errores", e);
+            } finally {
+                cerrojoErrores.unlock();
+            }
+        }
+
+        // El estado sigue EN_CURSO hasta que los escritores terminan lo que quedó en la cola
+        private void fallar(String motivo) {
+            if (mensaje == null) {
+                mensaje = motivo;
+            }
+            fallida = true;
+        }
+
+        private void terminar() {
+            vaciarReporte();
+            finNanos = System.nanoTime();
+            fin = LocalDateTime.now();
+            estado = fallida ? EstadoImportacion.FALLIDA : EstadoImportacion.COMPLETADA;
+        }
+
+        private boolean terminada() {
+            return fin != null;
+        }
+
+        private void vaciarReporte() {
+            cerrojoErrores.lock();
+            try {
+                errores.flush();
+            } catch (IOException e) {
+                LOG.warn("No se pudo escribir el reporte de errores {}: {}", reporte, e.getMessage());
+            } finally {
+                cerrojoErrores.unlock();
+            }
+        }
+
+        private void borrarArchivos() {
+            cerrojoErrores.lock();
+            try {
+                errores.close();
+                Files.deleteIfExists(archivo);
+                Files.deleteIfExists(reporte);
+            } catch (IOException e) {
+                LOG.warn("No se pudieron borrar los archivos de la importación {}: {}", id, e.getMessage());
+            } finally {
+                cerrojoErrores.unlock();
+            }
+        }
+
+        private EstadoImportacion estado() {
+            long termino = fin == null ? System.nanoTime() : finNanos;
+            double segundos = Duration.ofNanos(termino - inicioNanos).toMillis() / 1000.0;
+            long filas = filasLeidas.get();
+            return new EstadoImportacion(id, estado, filas, creados.get(), actualizados.get(), rechazados.get(),
+                    bytesLeidos.get(), inicio, fin, segundos > 0 ? filas / segundos : 0, mensaje);
+        }
+
+        private static String escapar(String valor) {
+            if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0
+                    && valor.indexOf('\r') < 0) {
+                return valor;
+            }
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    // Cuenta los bytes leídos para el avance
+    private static final class EntradaContada extends FilterInputStream {
+        private final Importacion importacion;
+
+        private EntradaContada(InputStream entrada, Importacion importacion) {
+            super(entrada);
+            this.importacion = importacion;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int leido = super.read();
+            if (leido >= 0) {
+                importacion.bytesLeidos.incrementAndGet();
+            }
+            return leido;
+        }
+
+        @Override
+        public int read(byte[] destino, int desde, int largo) throws IOException {
+            int leidos = super.read(destino, desde, largo);
+            if (leidos > 0) {
+                importacion.bytesLeidos.addAndGet(leidos);
+            }
+            return leidos;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.inventario.inventario.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.inventario.inventario.almacen.AlmacenInventario;
+import com.inventario.inventario.almacen.ConjuntoIds;
+import com.inventario.inventario.event.InventarioEvento;
+import com.inventario.inventario.model.ModoBusqueda;
+
+import jakarta.annotation.PostConstruct;
+
+// Índice en memoria de ubicaciones de bodega para búsquedas por prefijo y por subcadena,
+// sin distinguir mayúsculas. Cada ubicación distinta guarda sus idInventario en un arreglo
+// ordenado; un TreeMap resuelve los prefijos y un índice de trigramas reduce las ubicaciones
+// candidatas de una subcadena. Se construye al iniciar y se mantiene con los InventarioEvento
+// de creación y eliminación.
+@Service
+public class IndiceUbicacionService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndiceUbicacionService.class);
+
+    private static final int N = 3;
+
+    @Autowired
+    private AlmacenInventario almacen;
+
+    // Sin índice la búsqueda usa LIKE en la base de datos
+    @Value("${inventario.indice-ubicacion.activo:true}")
+    private boolean activo = true;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, ConjuntoIds> porUbicacion = new TreeMap<>();
+    private final Map<String, Set<String>> porTrigrama = new HashMap<>();
+
+    @PostConstruct
+    public void reconstruir() {
+        if (!activo) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            porUbicacion.clear();
+            porTrigrama.clear();
+            // Dentro de una transacción de escritura lee del primario aunque haya réplicas
+            long filas = almacen.enTransaccion(() -> almacen.recorrerUbicaciones(this::agregar));
+            LOG.info("Índice de ubicaciones con {} inventarios en {} ubicaciones", filas, porUbicacion.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean activo() {
+        return activo;
+    }
+
+    // Devuelve hasta limite ids en orden ascendente, mayores que despuesDe, de las ubicaciones
+    // que coinciden con el texto
+    public List<Long> buscar(String texto, ModoBusqueda modo, long despuesDe, int limite) {
+        String consulta = normalizar(texto);
+        lock.readLock().lock();
+        try {
+            Collection<ConjuntoIds> coincidencias = modo == ModoBusqueda.PREFIJO
+                    ? porUbicacion.subMap(consulta, true, consulta + Character.MAX_VALUE, false).values()
+                    : contienen(consulta);
+            return ConjuntoIds.mezclar(coincidencias, despuesDe, limite);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Se ejecuta después del commit; las actualizaciones de stock no cambian la ubicación
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarInventario(InventarioEvento evento) {
+        if (!activo || evento.getUbicacionBodega() == null) {
+            return;
+        }
+        if (evento.getTipo() == InventarioEvento.Tipo.CREADO) {
+            lock.writeLock().lock();
+            try {
+                agregar(evento.getIdInventario(), evento.getUbicacionBodega());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } else if (evento.getTipo() == InventarioEvento.Tipo.ELIMINADO) {
+            lock.writeLock().lock();
+            try {
+                quitar(evento.getIdInventario(), evento.getUbicacionBodega());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private Collection<ConjuntoIds> contienen(String consulta) {
+        List<ConjuntoIds> resultado = new ArrayList<>();
+        if (consulta.length() < N) {
+            // Consultas cortas: se revisan todas las ubicaciones distintas
+            porUbicacion.forEach((ubicacion, ids) -> {
+                if (ubicacion.contains(consulta)) {
+                    resultado.add(ids);
+                }
+            });
+            return resultado;
+        }
+        // Candidatas: ubicaciones del trigrama menos frecuente, se confirma con contains
+        Set<String> candidatas = null;
+        for (int i = 0; i + N <= consulta.length(); i++) {
+            Set<String> conTrigrama = porTrigrama.get(consulta.substring(i, i + N));
+            if (conTrigrama == null) {
+                return resultado;
+            }
+            if (candidatas == null || conTrigrama.size() < candidatas.size()) {
+                candidatas = conTrigrama;
+            }
+        }
+        for (String ubicacion : candidatas) {
+            if (ubicacion.contains(consulta)) {
+                resultado.add(porUbicacion.get(ubicacion));
+            }
+        }
+        return resultado;
+    }
+
+    private void agregar(long idInventario, String ubicacionBodega) {
+        if (ubicacionBodega == null) {
+            return;
+        }
+        String ubicacion = normalizar(ubicacionBodega);
+        ConjuntoIds ids = porUbicacion.get(ubicacion);
+        if (ids == null) {
+            ids = new ConjuntoIds();
+            porUbicacion.put(ubicacion, ids);
+            for (String trigrama : trigramas(ubicacion)) {
+                porTrigrama.computeIfAbsent(trigrama, t -> new HashSet<>()).add(ubicacion);
+            }
+        }
+        ids.agregar(idInventario);
+    }
+
+    private void quitar(long idInventario, String ubicacionBodega) {
+        String ubicacion = normalizar(ubicacionBodega);
+        ConjuntoIds ids = porUbicacion.get(ubicacion);
+        if (ids == null) {
+            return;
+        }
+        ids.quitar(idInventario);
+        if (ids.vacio()) {
+            porUbicacion.remove(ubicacion);
+            for (String trigrama : trigramas(ubicacion)) {
+                Set<String> ubicaciones = porTrigrama.get(trigrama);
+                if (ubicaciones != null && ubicaciones.remove(ubicacion) && ubicaciones.isEmpty()) {
+                    porTrigrama.remove(trigrama);
+                }
+            }
+        }
+    }
+
+    private static Set<String> trigramas(String ubicacion) {
+        Set<String> trigramas = new HashSet<>();
+        for (int i = 0; i + N <= ubicacion.length(); i++) {
+            trigramas.add(ubicacion.substring(i, i + N));
+        }
+        return trigramas;
+    }
+
+    static String normalizar(String texto) {
+        return texto.toLowerCase(Locale.ROOT);
+    }
+}
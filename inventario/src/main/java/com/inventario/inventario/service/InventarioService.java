@@ -1,59 +1,229 @@
 package com.inventario.inventario.service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.inventario.inventario.almacen.AlmacenInventario;
+import com.inventario.inventario.almacen.ResultadoEscritura;
+import com.inventario.inventario.cache.InventarioCache;
+import com.inventario.inventario.cache.VersionCambios;
+import com.inventario.inventario.config.MapeadorSmile;
+import com.inventario.inventario.event.InventarioEvento;
+import com.inventario.inventario.exception.StockInsuficienteException;
+import com.inventario.inventario.model.FormatoExportacion;
 import com.inventario.inventario.model.Inventario;
-import com.inventario.inventario.model.entity.InventarioEntity;
-import com.inventario.inventario.repository.InventarioRepository;
+import com.inventario.inventario.model.ModoBusqueda;
+import com.inventario.inventario.model.MovimientoStock;
+import com.inventario.inventario.model.PaginaInventario;
+import com.inventario.inventario.model.ResultadoCargaMasiva;
 
-import jakarta.transaction.Transactional;
+import io.micrometer.core.annotation.Timed;
 
+// Cada método público queda medido como inventario.servicio con las etiquetas class y method
 @Service
+@Timed(value = "inventario.servicio", histogram = true)
 public class InventarioService {
 
+    // Tamaño de página por defecto y tope para no cargar tablas completas en memoria
+    public static final int LIMITE_POR_DEFECTO = 100;
+    public static final int LIMITE_MAXIMO = 1000;
+
+    public static final String CONFLICTO_VERSION = "El inventario fue modificado por otra operación";
+    public static final String STOCK_FUERA_DE_RANGO = "El stock resultante excede el máximo permitido";
+
+    private static final String PREFIJO_CURSOR = "id:";
+
+    private static final String ENCABEZADO_CSV = "idInventario,stockDisponible,ubicacionBodega,fechaUltimaActualizacion";
+
+    // Motor de almacenamiento elegido con inventario.almacen.motor (jpa o memoria)
+    @Autowired
+    private AlmacenInventario almacen;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Exportación en Smile
+    @Autowired
+    private MapeadorSmile mapeadorSmile;
+
+    @Autowired
+    private InventarioCache inventarioCache;
+
+    // Cada escritura publica un InventarioEvento (cache, agregados y demás oyentes)
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private IndiceUbicacionService indiceUbicacion;
+
+    // Versión global de los listados; las escrituras confirmadas la incrementan con su evento
     @Autowired
-    private InventarioRepository inventariorepository;
+    private VersionCambios versionCambios;
+
+    // Buffer de escritura diferida del stock, solo se usa si está activo
+    @Autowired
+    private EscrituraDiferidaStock escrituraDiferida;
+
+    // Filas por transacción en la carga masiva, Hibernate las envía en lotes JDBC
+    @Value("${inventario.carga-masiva.tamano-lote:500}")
+    private int tamanoLoteMasivo = 500;
+
+    // Intentos ante conflictos de versión cuando el cliente no envía If-Match
+    @Value("${inventario.reintentos-version.maximo:3}")
+    private int maximoReintentos = 3;
+
+    private final AtomicLong conflictosVersion = new AtomicLong();
+    private final AtomicLong reintentosVersion = new AtomicLong();
 
-    @Transactional
     public String crearInventario(Inventario inv) {
-        if (inventariorepository.existsById(inv.getIdInventario())) {
-            return "El inventario ya existe";
+        return almacen.enTransaccion(() -> {
+            if (almacen.existe(inv.getIdInventario())) {
+                return "El inventario ya existe";
+            }
+            Inventario guardado = almacen.crear(inv);
+            publicar(InventarioEvento.Tipo.CREADO, guardado, 0);
+            return "Inventario creado exitosamente";
+        });
+    }
+
+    // Reglas de validación compartidas por la creación individual y la carga masiva.
+    // Devuelve el mensaje de error, o null si el inventario es válido.
+    public String validarInventario(Inventario inventario) {
+        boolean sinStock = inventario.getStockDisponible() <= 0;
+        boolean sinUbicacion = inventario.getUbicacionBodega() == null
+                || inventario.getUbicacionBodega().trim().isEmpty();
+        if (sinStock && sinUbicacion) {
+            return "El stock disponible y la ubicación de bodega son campos obligatorios";
+        }
+        if (sinStock) {
+            return "El stock disponible debes ingresarlo obligatoriamente";
+        }
+        if (sinUbicacion) {
+            return "La ubicación de bodega es obligatoria";
+        }
+        return null;
+    }
+
+    // Método crea o actualiza inventarios en lotes. Los inventarios con un id existente
+    // actualizan su stock (igual que actualizarInventario), el resto se crea con un id
+    // generado. Cada lote es una transacción, así un error solo afecta a su lote.
+    public ResultadoCargaMasiva cargarInventariosMasivo(Iterator<Inventario> inventarios) {
+        ResultadoCargaMasiva resultado = new ResultadoCargaMasiva();
+        int tamanoLote = Math.max(tamanoLoteMasivo, 1);
+        List<Inventario> lote = new ArrayList<>(tamanoLote);
+        List<Integer> indices = new ArrayList<>(tamanoLote);
+        int indice = 0;
+        while (inventarios.hasNext()) {
+            Inventario inventario = inventarios.next();
+            String error = validarInventario(inventario);
+            if (error != null) {
+                resultado.agregar(new ResultadoCargaMasiva.Item(indice, inventario.getIdInventario(),
+                        ResultadoCargaMasiva.RECHAZADO, error));
+            } else {
+                lote.add(inventario);
+                indices.add(indice);
+            }
+            indice++;
+            if (lote.size() == tamanoLote) {
+                guardarLote(lote, indices, resultado);
+                lote.clear();
+                indices.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            guardarLote(lote, indices, resultado);
         }
-        InventarioEntity inventarioNuevo = mapToEntity(inv);
-        inventariorepository.save(inventarioNuevo);
-        return "Inventario creado exitosamente";
+        resultado.getResultados().sort(Comparator.comparingInt(ResultadoCargaMasiva.Item::getIndice));
+        return resultado;
     }
 
+    private void guardarLote(List<Inventario> lote, List<Integer> indices, ResultadoCargaMasiva resultado) {
+        try {
+            List<ResultadoEscritura> escritos = guardarLoteValidado(lote);
+            for (int i = 0; i < escritos.size(); i++) {
+                ResultadoEscritura escrito = escritos.get(i);
+                boolean creado = escrito.getEstado() == ResultadoEscritura.Estado.CREADO;
+                resultado.agregar(new ResultadoCargaMasiva.Item(indices.get(i),
+                        escrito.getInventario().getIdInventario(),
+                        creado ? ResultadoCargaMasiva.CREADO : ResultadoCargaMasiva.ACTUALIZADO,
+                        creado ? "Inventario creado exitosamente" : "Stock actualizado correctamente"));
+            }
+        } catch (Exception e) {
+            for (int i = 0; i < lote.size(); i++) {
+                resultado.agregar(new ResultadoCargaMasiva.Item(indices.get(i), lote.get(i).getIdInventario(),
+                        ResultadoCargaMasiva.ERROR, "Error al guardar el lote: " + e.getMessage()));
+            }
+        }
+    }
+
+    // Guarda en una transacción un lote ya validado con validarInventario: crea los que no
+    // tienen id o no existen y actualiza el stock del resto. Devuelve un resultado por
+    // inventario en el mismo orden; si falla no queda ninguno guardado.
+    public List<ResultadoEscritura> guardarLoteValidado(List<Inventario> lote) {
+        List<Long> ids = lote.stream()
+                .map(Inventario::getIdInventario)
+                .filter(idInventario -> idInventario != 0)
+                .toList();
+        return escrituraDirecta(ids, () -> almacen.enTransaccion(() -> {
+            List<ResultadoEscritura> escritos = almacen.guardarLote(lote, LocalDateTime.now());
+            for (ResultadoEscritura escrito : escritos) {
+                boolean creado = escrito.getEstado() == ResultadoEscritura.Estado.CREADO;
+                publicar(creado ? InventarioEvento.Tipo.CREADO : InventarioEvento.Tipo.ACTUALIZADO,
+                        escrito.getInventario(), escrito.getStockAnterior());
+            }
+            return escritos;
+        }));
+    }
+
+    // Lectura a través de la cache, las escrituras invalidan la ubicación afectada
     public List<Inventario> obtenerInventarioPorUbicacion(String ubicacionBodega) {
         try {
-            List<InventarioEntity> inventarios = inventariorepository.findByUbicacionBodega(ubicacionBodega);
-            return inventarios.stream()
-                    .map(this::mapToModel)
-                    .collect(Collectors.toList());
+            List<Inventario> inventarios = inventarioCache.porUbicacion(ubicacionBodega,
+                    this::cargarInventarioPorUbicacion);
+            return escrituraDiferida.activa() ? escrituraDiferida.superponer(inventarios) : inventarios;
         } catch (Exception e) {
             return Collections.emptyList();
         }
     }
 
+    private List<Inventario> cargarInventarioPorUbicacion(String ubicacionBodega) {
+        return List.copyOf(almacen.buscarPorUbicacion(ubicacionBodega));
+    }
+
     // Método devuelve una lista de todos los inventarios almacenados.
     public List<Inventario> listarInventarios() {
         try {
-            List<InventarioEntity> entidades = inventariorepository.findAll();
-            return entidades.stream()
-                    .map(entidad -> new Inventario(
-                            entidad.getIdInventario(),
-                            entidad.getStockDisponible(),
-                            entidad.getUbicacionBodega(),
-                            entidad.getFechaUltimaActualizacion()))
-                    .collect(Collectors.toList());
+            return almacen.listarTodos();
         } catch (DataAccessException e) {
             return Collections.emptyList(); // Manejar erros de base de datos
         } catch (Exception e) {
@@ -61,27 +231,195 @@ public class InventarioService {
         }
     }
 
+    // Método devuelve una página de inventarios ordenada por id a partir del cursor.
+    // Cada página es una sola consulta por rango sobre un índice, sin OFFSET.
+    public PaginaInventario listarInventariosPaginado(String cursor, int limite, String ubicacionBodega,
+            Integer stockMinimo, Integer stockMaximo) {
+        if (stockMinimo != null && stockMaximo != null && stockMinimo > stockMaximo) {
+            throw new IllegalArgumentException("El stock mínimo no puede ser mayor al stock máximo");
+        }
+        int tamano = Math.min(Math.max(limite, 1), LIMITE_MAXIMO);
+        long despuesDe = decodificarCursor(cursor);
+
+        // Se pide una fila extra para saber si existe una página siguiente
+        List<Inventario> inventarios = (ubicacionBodega == null || ubicacionBodega.trim().isEmpty())
+                ? almacen.buscarPagina(despuesDe, stockMinimo, stockMaximo, tamano + 1)
+                : almacen.buscarPaginaPorUbicacion(ubicacionBodega, despuesDe, stockMinimo, stockMaximo,
+                        tamano + 1);
+
+        boolean hayMas = inventarios.size() > tamano;
+        if (hayMas) {
+            inventarios = new ArrayList<>(inventarios.subList(0, tamano));
+        }
+        if (escrituraDiferida.activa()) {
+            inventarios = escrituraDiferida.superponer(inventarios);
+        }
+        String siguienteCursor = hayMas
+                ? codificarCursor(inventarios.get(inventarios.size() - 1).getIdInventario())
+                : null;
+        return new PaginaInventario(inventarios, siguienteCursor, tamano);
+    }
+
+    // Método busca inventarios cuya ubicación empieza con o contiene el texto, sin distinguir
+    // mayúsculas, paginados por cursor igual que el listado. Los ids salen del índice en
+    // memoria y la página se carga con una sola consulta por llave primaria.
+    public PaginaInventario buscarPorUbicacion(String texto, ModoBusqueda modo, String cursor, int limite) {
+        if (texto == null || texto.trim().isEmpty()) {
+            throw new IllegalArgumentException("El texto de búsqueda es obligatorio");
+        }
+        int tamano = Math.min(Math.max(limite, 1), LIMITE_MAXIMO);
+        long despuesDe = decodificarCursor(cursor);
+
+        List<Inventario> inventarios;
+        boolean hayMas;
+        long ultimoId;
+        if (indiceUbicacion.activo()) {
+            List<Long> ids = indiceUbicacion.buscar(texto, modo, despuesDe, tamano + 1);
+            hayMas = ids.size() > tamano;
+            List<Long> pagina = hayMas ? ids.subList(0, tamano) : ids;
+            ultimoId = pagina.isEmpty() ? despuesDe : pagina.get(pagina.size() - 1);
+            inventarios = almacen.buscarPorIds(pagina);
+        } else {
+            inventarios = almacen.buscarPaginaPorUbicacionSimilar(texto, modo, despuesDe, tamano + 1);
+            hayMas = inventarios.size() > tamano;
+            if (hayMas) {
+                inventarios = new ArrayList<>(inventarios.subList(0, tamano));
+            }
+            ultimoId = inventarios.isEmpty() ? despuesDe : inventarios.get(inventarios.size() - 1).getIdInventario();
+        }
+
+        if (escrituraDiferida.activa()) {
+            inventarios = escrituraDiferida.superponer(inventarios);
+        }
+        return new PaginaInventario(inventarios, hayMas ? codificarCursor(ultimoId) : null, tamano);
+    }
+
+    // Método escribe todos los inventarios en la salida a medida que el almacén los recorre,
+    // sin cargar la tabla completa en memoria. Devuelve la cantidad de filas exportadas.
+    public long exportarInventarios(OutputStream salida, FormatoExportacion formato) throws IOException {
+        if (formato == FormatoExportacion.CSV) {
+            return exportarCsv(salida);
+        }
+        if (formato == FormatoExportacion.SMILE) {
+            return exportarSmile(salida);
+        }
+        return exportarNdjson(salida);
+    }
+
+    private long exportarNdjson(OutputStream salida) throws IOException {
+        ObjectWriter escritor = objectMapper.writerFor(Inventario.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+        JsonGenerator generador = objectMapper.getFactory().createGenerator(salida);
+        generador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long filas = almacen.recorrer(inventario -> escritor.writeValue(generador, inventario));
+        if (filas > 0) {
+            generador.writeRaw('\n');
+        }
+        generador.close();
+        return filas;
+    }
+
+    // Un solo generador para toda la exportación: los nombres de campo y las ubicaciones ya
+    // escritos se envían como referencias en las filas siguientes
+    private long exportarSmile(OutputStream salida) throws IOException {
+        ObjectMapper smileMapper = mapeadorSmile.getMapper();
+        ObjectWriter escritor = smileMapper.writerFor(Inventario.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generador = smileMapper.getFactory().createGenerator(salida);
+        generador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long filas = almacen.recorrer(inventario -> escritor.writeValue(generador, inventario));
+        generador.close();
+        return filas;
+    }
+
+    private long exportarCsv(OutputStream salida) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), 64 * 1024);
+        escritor.write(ENCABEZADO_CSV);
+        escritor.write('\n');
+        long filas = almacen.recorrer(inventario -> {
+            escritor.write(Long.toString(inventario.getIdInventario()));
+            escritor.write(',');
+            escritor.write(Integer.toString(inventario.getStockDisponible()));
+            escritor.write(',');
+            escritor.write(escaparCsv(inventario.getUbicacionBodega()));
+            escritor.write(',');
+            if (inventario.getFechaUltimaActualizacion() != null) {
+                escritor.write(inventario.getFechaUltimaActualizacion().toString());
+            }
+            escritor.write('\n');
+        });
+        escritor.flush();
+        return filas;
+    }
+
+    private static String escaparCsv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0
+                && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+
     public List<Inventario> obtenerTodosLosInventario() {
-        return inventariorepository.findAll().stream()
-                .map(this::mapToModel)
-                .collect(Collectors.toList());
+        return almacen.listarTodos();
+    }
+
+    // Método devuelve un inventario por su id, incluye la versión para el ETag.
+    public Optional<Inventario> obtenerInventario(long idInventario) {
+        Optional<Inventario> inventario = cargarInventario(idInventario);
+        return escrituraDiferida.activa() ? inventario.map(escrituraDiferida::superponer) : inventario;
+    }
+
+    // Fila confirmada leída en una transacción de escritura, así con réplicas va al primario,
+    // sin cache ni escrituras diferidas pendientes: la versión corresponde al stock leído
+    public Optional<Inventario> obtenerInventarioConfirmado(long idInventario) {
+        return almacen.enTransaccion(() -> almacen.buscar(idInventario));
+    }
+
+    // Valor guardado en la base (a través de la cache), sin escrituras diferidas pendientes
+    private Optional<Inventario> cargarInventario(long idInventario) {
+        return inventarioCache.porId(idInventario, almacen::buscar);
     }
 
     // Método Actualizar Solo el Stock disponible de un producto, aunque se
     // modifiquen los otros valores el sistema no realizara los otros cambios.
-    @Transactional
     public String actualizarInventario(long idInventario, Inventario inv) {
+        return actualizarInventario(idInventario, inv, null);
+    }
+
+    // Con versionEsperada (If-Match) la escritura es condicional y un conflicto se informa
+    // al cliente. Sin versión el servicio reintenta ante conflictos hasta el máximo configurado.
+    public String actualizarInventario(long idInventario, Inventario inv, Long versionEsperada) {
         try {
-            InventarioEntity existente = inventariorepository.findById(idInventario).orElse(null);
-            if (existente != null) {
-                // Solo actualizar el stock disponible
-                existente.setStockDisponible(inv.getStockDisponible());
-                // Actualizar la fecha automáticamente
-                existente.setFechaUltimaActualizacion(LocalDateTime.now());
-                inventariorepository.save(existente);
+            if (escrituraDiferida.activa() && versionEsperada == null) {
+                if (!escrituraDiferida.fijar(idInventario, inv.getStockDisponible(), this::cargarInventario)) {
+                    return "Inventario no encontrado";
+                }
+                // El valor pendiente ya es visible en las lecturas
+                versionCambios.registrarCambio();
                 return "Stock actualizado correctamente";
             }
-            return "Inventario no encontrado";
+            // Con If-Match la versión esperada debe compararse con la fila que ya incluye lo pendiente
+            return escrituraDirecta(List.of(idInventario), () -> ejecutarConReintentos(versionEsperada == null, () -> {
+                // Solo actualizar el stock disponible, la fecha se actualiza automáticamente
+                ResultadoEscritura resultado = almacen.actualizarStock(idInventario, inv.getStockDisponible(),
+                        versionEsperada, LocalDateTime.now());
+                if (resultado.getEstado() == ResultadoEscritura.Estado.NO_ENCONTRADO) {
+                    return "Inventario no encontrado";
+                }
+                if (resultado.getEstado() == ResultadoEscritura.Estado.CONFLICTO_VERSION) {
+                    conflictosVersion.incrementAndGet();
+                    return CONFLICTO_VERSION;
+                }
+                publicar(InventarioEvento.Tipo.ACTUALIZADO, resultado.getInventario(), resultado.getStockAnterior());
+                return "Stock actualizado correctamente";
+            }));
+        } catch (OptimisticLockingFailureException e) {
+            return CONFLICTO_VERSION;
         } catch (IllegalArgumentException e) {
             return "Error: Stock no válido";
         } catch (Exception e) {
@@ -89,35 +427,190 @@ public class InventarioService {
         }
     }
 
+    // Método suma delta al stock disponible de forma atómica en el almacén (un UPDATE
+    // condicional en JPA), por lo que ajustes concurrentes no se pisan. Devuelve el nuevo
+    // stock, o null si el inventario no existe. Con escritura diferida el ajuste se acumula
+    // en el buffer y no abre una transacción.
+    public Integer ajustarStock(long idInventario, int delta) {
+        if (escrituraDiferida.activa()) {
+            Integer stock = escrituraDiferida.ajustar(idInventario, delta, this::cargarInventario);
+            if (stock != null) {
+                versionCambios.registrarCambio();
+            }
+            return stock;
+        }
+        return almacen.enTransaccion(() -> ajustarStockDirecto(idInventario, delta));
+    }
+
+    private Integer ajustarStockDirecto(long idInventario, int delta) {
+        ResultadoEscritura resultado = almacen.ajustarStock(idInventario, delta, LocalDateTime.now());
+        if (resultado.getEstado() == ResultadoEscritura.Estado.STOCK_INSUFICIENTE) {
+            throw new StockInsuficienteException(
+                    "Stock insuficiente para descontar " + Math.abs(delta) + " unidades");
+        }
+        if (resultado.getEstado() == ResultadoEscritura.Estado.FUERA_DE_RANGO) {
+            throw new IllegalArgumentException(STOCK_FUERA_DE_RANGO);
+        }
+        if (!resultado.aplicado()) {
+            return null;
+        }
+        publicar(InventarioEvento.Tipo.AJUSTADO, resultado.getInventario(), resultado.getStockAnterior());
+        return resultado.getInventario().getStockDisponible();
+    }
+
+    // Devuelve el mensaje de error de una transferencia, o null si es válida
+    public String validarTransferencia(List<MovimientoStock> movimientos) {
+        if (movimientos == null || movimientos.isEmpty()) {
+            return "La transferencia debe incluir al menos un movimiento";
+        }
+        if (movimientos.size() > LIMITE_MAXIMO) {
+            return "La transferencia no puede superar los " + LIMITE_MAXIMO + " movimientos";
+        }
+        for (MovimientoStock movimiento : movimientos) {
+            if (movimiento.getCantidad() <= 0) {
+                return "La cantidad de cada movimiento debe ser mayor a 0";
+            }
+            if (movimiento.getIdOrigen() == movimiento.getIdDestino()) {
+                return "El origen y el destino de un movimiento deben ser distintos";
+            }
+        }
+        return null;
+    }
+
+    // Método mueve stock entre inventarios aplicando todos los movimientos en una sola
+    // transacción. Los movimientos se suman por inventario y el almacén bloquea las filas en
+    // orden de id, así transferencias concurrentes con inventarios en común no se bloquean
+    // mutuamente. Devuelve los inventarios como quedaron, en orden de id, o null si alguno no
+    // existe. Si algún origen quedaría negativo no se aplica nada.
+    public List<Inventario> transferirStock(List<MovimientoStock> movimientos) {
+        SortedMap<Long, Integer> deltas = new TreeMap<>();
+        try {
+            for (MovimientoStock movimiento : movimientos) {
+                deltas.merge(movimiento.getIdOrigen(), -movimiento.getCantidad(), Math::addExact);
+                deltas.merge(movimiento.getIdDestino(), movimiento.getCantidad(), Math::addExact);
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("La suma de las cantidades de un inventario excede el máximo");
+        }
+        return escrituraDirecta(deltas.keySet(), () -> almacen.enTransaccion(() -> {
+            List<ResultadoEscritura> resultados = almacen.ajustarLote(deltas, LocalDateTime.now());
+            int i = 0;
+            for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+                ResultadoEscritura.Estado estado = resultados.get(i++).getEstado();
+                if (estado == ResultadoEscritura.Estado.NO_ENCONTRADO) {
+                    return null;
+                }
+                if (estado == ResultadoEscritura.Estado.STOCK_INSUFICIENTE) {
+                    throw new StockInsuficienteException("Stock insuficiente en el inventario " + delta.getKey()
+                            + " para transferir " + Math.abs(delta.getValue()) + " unidades");
+                }
+                if (estado == ResultadoEscritura.Estado.FUERA_DE_RANGO) {
+                    throw new IllegalArgumentException(STOCK_FUERA_DE_RANGO + " en el inventario " + delta.getKey());
+                }
+            }
+            List<Inventario> inventarios = new ArrayList<>(resultados.size());
+            for (ResultadoEscritura resultado : resultados) {
+                Inventario inventario = resultado.getInventario();
+                if (inventario.getStockDisponible() != resultado.getStockAnterior()) {
+                    publicar(InventarioEvento.Tipo.AJUSTADO, inventario, resultado.getStockAnterior());
+                }
+                inventarios.add(inventario);
+            }
+            return inventarios;
+        }));
+    }
+
     // Método permite eliminar un inventario por su idProducto.
-    @Transactional
     public String eliminarInventario(long idInventario) {
-        InventarioEntity existente = inventariorepository.findById(idInventario).orElse(null);
-        if (existente != null) {
-            inventariorepository.delete(existente);
+        return eliminarInventario(idInventario, null);
+    }
+
+    // Con versionEsperada (If-Match) solo se elimina si nadie modificó el inventario.
+    public String eliminarInventario(long idInventario, Long versionEsperada) {
+        return escrituraDirecta(List.of(idInventario), () -> almacen.enTransaccion(() -> {
+            ResultadoEscritura resultado = almacen.eliminar(idInventario, versionEsperada);
+            if (resultado.getEstado() == ResultadoEscritura.Estado.CONFLICTO_VERSION) {
+                conflictosVersion.incrementAndGet();
+                return CONFLICTO_VERSION;
+            }
+            if (!resultado.aplicado()) {
+                return "Inventario no encontrado";
+            }
+            Inventario eliminado = resultado.getInventario();
+            eventPublisher.publishEvent(new InventarioEvento(InventarioEvento.Tipo.ELIMINADO,
+                    eliminado.getIdInventario(), eliminado.getUbicacionBodega(), resultado.getStockAnterior(), 0,
+                    LocalDateTime.now(), eliminado.getVersion()));
             return "Inventario eliminado correctamente";
+        }));
+    }
+
+    // Con escritura diferida, una escritura que no pasa por el buffer vacía lo pendiente y
+    // detiene los ajustes diferidos de esos inventarios hasta su commit
+    private <T> T escrituraDirecta(Collection<Long> ids, Supplier<T> escritura) {
+        return escrituraDiferida.activa() ? escrituraDiferida.escribirDirecto(ids, escritura) : escritura.get();
+    }
+
+    // Ejecuta la operación en su propia transacción. Si otra transacción modificó la misma
+    // fila (@Version) se vuelve a intentar con una espera breve y aleatoria, hasta el máximo.
+    private <T> T ejecutarConReintentos(boolean reintentar, Supplier<T> operacion) {
+        int intentos = reintentar ? Math.max(maximoReintentos, 1) : 1;
+        for (int intento = 1;; intento++) {
+            try {
+                return almacen.enTransaccion(operacion);
+            } catch (OptimisticLockingFailureException e) {
+                conflictosVersion.incrementAndGet();
+                if (intento >= intentos) {
+                    throw e;
+                }
+                reintentosVersion.incrementAndGet();
+                esperarAntesDeReintentar(intento);
+            }
+        }
+    }
+
+    private static void esperarAntesDeReintentar(int intento) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, 5L * intento + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reintento interrumpido", e);
         }
-        return "Inventario no encontrado";
     }
 
-    // Métodos auxiliares para mapear entre Inventario e InventarioEntity
-    private InventarioEntity mapToEntity(Inventario inv) {
-        InventarioEntity entity = new InventarioEntity();
-        entity.setIdInventario(inv.getIdInventario());
-        entity.setStockDisponible(inv.getStockDisponible());
-        entity.setUbicacionBodega(inv.getUbicacionBodega());
-        entity.setFechaUltimaActualizacion(inv.getFechaUltimaActualizacion());
-        return entity;
+    // Contadores de conflictos de versión y reintentos, para medir la contención
+    public long getConflictosVersion() {
+        return conflictosVersion.get();
+    }
+
+    public long getReintentosVersion() {
+        return reintentosVersion.get();
     }
 
-    private Inventario mapToModel(InventarioEntity entity) {
-        return new Inventario(
-                entity.getIdInventario(),
-                entity.getStockDisponible(),
-                entity.getUbicacionBodega(),
-                entity.getFechaUltimaActualizacion()
+    private void publicar(InventarioEvento.Tipo tipo, Inventario inventario, int stockAnterior) {
+        eventPublisher.publishEvent(new InventarioEvento(tipo, inventario.getIdInventario(),
+                inventario.getUbicacionBodega(), stockAnterior, inventario.getStockDisponible(),
+                inventario.getFechaUltimaActualizacion(), inventario.getVersion()));
+    }
 
-        );
+    // Métodos auxiliares para el cursor opaco de paginación
+    private static String codificarCursor(long idInventario) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIJO_CURSOR + idInventario).getBytes(StandardCharsets.UTF_8));
     }
 
+    private static long decodificarCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!valor.startsWith(PREFIJO_CURSOR)) {
+                throw new IllegalArgumentException("Cursor de paginación inválido");
+            }
+            return Long.parseLong(valor.substring(PREFIJO_CURSOR.length()));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException también es IllegalArgumentException
+            throw new IllegalArgumentException("Cursor de paginación inválido");
+        }
+    }
 }
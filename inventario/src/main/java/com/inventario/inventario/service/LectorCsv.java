@@ -0,0 +1,153 @@
+package com.inventario.inventario.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lee un CSV registro por registro sin cargar el archivo: separador coma, comillas dobles
+// para los campos con comas o saltos de línea y "" para una comilla dentro de ellas (el
+// mismo formato que la exportación CSV). Acepta saltos \n y \r\n. Un registro más largo que
+// el máximo (por ejemplo una comilla sin cerrar) detiene la lectura con una IOException.
+final class LectorCsv implements Closeable {
+
+    private static final int BUFFER = 64 * 1024;
+
+    private final Reader entrada;
+    private final int maximoRegistro;
+    private final char[] buffer = new char[BUFFER];
+    private int posicion;
+    private int limite;
+
+    private final List<String> campos = new ArrayList<>();
+    private final StringBuilder campo = new StringBuilder();
+    private final StringBuilder registro = new StringBuilder();
+    private long lineaActual = 1;
+    private long lineaRegistro;
+
+    LectorCsv(Reader entrada, int maximoRegistro) {
+        this.entrada = entrada;
+        this.maximoRegistro = maximoRegistro;
+    }
+
+    // Avanza al siguiente registro no vacío; false al terminar el archivo
+    boolean siguiente() throws IOException {
+        do {
+            if (!leerRegistro()) {
+                return false;
+            }
+        } while (campos.size() == 1 && campos.get(0).isEmpty());
+        return true;
+    }
+
+    List<String> campos() {
+        return campos;
+    }
+
+    // Texto original del registro, sin el salto de línea final
+    String registro() {
+        return registro.toString();
+    }
+
+    // Línea del archivo donde empieza el registro
+    long linea() {
+        return lineaRegistro;
+    }
+
+    @Override
+    public void close() throws IOException {
+        entrada.close();
+    }
+
+    private boolean leerRegistro() throws IOException {
+        campos.clear();
+        campo.setLength(0);
+        registro.setLength(0);
+        lineaRegistro = lineaActual;
+        boolean entreComillas = false;
+        boolean leyo = false;
+        int c;
+        while ((c = leer()) >= 0) {
+            leyo = true;
+            if (entreComillas) {
+                if (c == '"') {
+                    if (mirar() == '"') {
+                        agregar((char) leer());
+                        campo.append('"');
+                    } else {
+                        entreComillas = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineaActual++;
+                    }
+                    campo.append((char) c);
+                }
+                agregar((char) c);
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+                agregar(',');
+            } else if (c == '\n') {
+                lineaActual++;
+                break;
+            } else if (c == '\r') {
+                if (mirar() == '\n') {
+                    leer();
+                }
+                lineaActual++;
+                break;
+            } else if (c == '"' && campo.length() == 0) {
+                entreComillas = true;
+                agregar('"');
+            } else {
+                campo.append((char) c);
+                agregar((char) c);
+            }
+        }
+        if (!leyo) {
+            return false;
+        }
+        if (entreComillas) {
+            throw new IOException("Comillas sin cerrar en el registro de la línea " + lineaRegistro);
+        }
+        campos.add(campo.toString());
+        return true;
+    }
+
+    private void agregar(char c) throws IOException {
+        if (registro.length() >= maximoRegistro) {
+            throw new IOException("El registro de la línea " + lineaRegistro + " supera los " + maximoRegistro
+                    + " caracteres");
+        }
+        registro.append(c);
+    }
+
+    private int leer() throws IOException {
+        if (posicion == limite && !llenar()) {
+            return -1;
+        }
+        return buffer[posicion++];
+    }
+
+    private int mirar() throws IOException {
+        if (posicion == limite && !llenar()) {
+            return -1;
+        }
+        return buffer[posicion];
+    }
+
+    private boolean llenar() throws IOException {
+        int leidos;
+        do {
+            leidos = entrada.read(buffer, 0, buffer.length);
+        } while (leidos == 0);
+        if (leidos < 0) {
+            return false;
+        }
+        posicion = 0;
+        limite = leidos;
+        return true;
+    }
+}
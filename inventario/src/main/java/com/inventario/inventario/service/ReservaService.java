@@ -0,0 +1,504 @@
+package com.inventario.inventario.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.inventario.inventario.config.FabricaHilos;
+import com.inventario.inventario.event.InventarioEvento;
+import com.inventario.inventario.exception.StockInsuficienteException;
+import com.inventario.inventario.model.DisponibilidadStock;
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.Reserva;
+import com.inventario.inventario.model.entity.ReservaEntity;
+import com.inventario.inventario.repository.ReservaRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// Reservas de stock con vencimiento. Las unidades reservadas por inventario se llevan en un
+// contador atómico: reservar es un ciclo CAS contra stockDisponible - reservado, sin bloquear
+// la fila en la base de datos. Confirmar descuenta el stock con el ajuste atómico del
+// servicio de inventario y recién después suelta la reserva, así nunca se promete de más.
+// Las reservas activas se persisten por lotes cada intervaloPersistencia y se recuperan al
+// iniciar; ante una caída se pierden a lo más las creadas en el último intervalo.
+@Service
+public class ReservaService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReservaService.class);
+
+    private static final ZoneId ZONA = ZoneId.systemDefault();
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private EscrituraDiferidaStock escrituraDiferida;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private FabricaHilos fabricaHilos;
+
+    private final ReentrantLock cerrojoPersistir = new ReentrantLock();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${inventario.reservas.ttl-por-defecto:5m}")
+    private Duration ttlPorDefecto = Duration.ofMinutes(5);
+
+    @Value("${inventario.reservas.ttl-maximo:30m}")
+    private Duration ttlMaximo = Duration.ofMinutes(30);
+
+    @Value("${inventario.reservas.tick:1s}")
+    private Duration tick = Duration.ofSeconds(1);
+
+    @Value("${inventario.reservas.intervalo-persistencia:200ms}")
+    private Duration intervaloPersistencia = Duration.ofMillis(200);
+
+    private final ConcurrentHashMap<Long, Disponibilidad> disponibilidades = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Retencion> retenciones = new ConcurrentHashMap<>();
+
+    // Altas y bajas por persistir, en orden de llegada
+    private final ConcurrentLinkedQueue<Cambio> cambios = new ConcurrentLinkedQueue<>();
+
+    private RuedaTemporizadora<Retencion> rueda;
+    private ScheduledExecutorService programador;
+
+    @PostConstruct
+    public void iniciar() {
+        rueda = new RuedaTemporizadora<>(tick.toMillis(), 512, Retencion::getVenceMillis, System.currentTimeMillis());
+        // En una transacción de escritura: con réplicas debe leer el primario, no una copia atrasada
+        transactionTemplate.executeWithoutResult(estado -> recuperar());
+        programador = Executors.newSingleThreadScheduledExecutor(fabricaHilos.crear("reservas-stock"));
+        long periodoTick = Math.max(tick.toMillis(), 1);
+        long periodoPersistencia = Math.max(intervaloPersistencia.toMillis(), 1);
+        programador.scheduleAtFixedRate(this::expirarSinPropagar, periodoTick, periodoTick, TimeUnit.MILLISECONDS);
+        programador.scheduleWithFixedDelay(this::persistirSinPropagar, periodoPersistencia, periodoPersistencia,
+                TimeUnit.MILLISECONDS);
+    }
+
+    // Gancho de cierre: guarda los cambios pendientes para recuperar las reservas al iniciar
+    @PreDestroy
+    public void cerrar() {
+        if (programador == null) {
+            return;
+        }
+        programador.shutdown();
+        try {
+            programador.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        persistir();
+    }
+
+    // Retiene cantidad unidades por ttl. Devuelve null si el inventario no existe y lanza
+    // StockInsuficienteException si no alcanza el stock disponible para prometer.
+    public Reserva reservar(long idInventario, int cantidad, Duration ttl) {
+        if (cantidad <= 0) {
+            throw new IllegalArgumentException("La cantidad a reservar debe ser mayor a 0");
+        }
+        Duration duracion = ttl == null ? ttlPorDefecto : ttl;
+        if (duracion.isNegative() || duracion.isZero() || duracion.compareTo(ttlMaximo) > 0) {
+            throw new IllegalArgumentException("La duración de la reserva debe estar entre 1 segundo y "
+                    + ttlMaximo.toSeconds() + " segundos");
+        }
+        Disponibilidad disponibilidad = disponibilidad(idInventario);
+        if (disponibilidad == null) {
+            return null;
+        }
+        if (!disponibilidad.retener(cantidad)) {
+            throw new StockInsuficienteException("Stock insuficiente para reservar " + cantidad + " unidades");
+        }
+        Retencion retencion = new Retencion(UUID.randomUUID().toString(), idInventario, cantidad,
+                System.currentTimeMillis() + duracion.toMillis());
+        retenciones.put(retencion.idReserva, retencion);
+        rueda.programar(retencion);
+        cambios.add(Cambio.alta(retencion));
+        return retencion.aReserva();
+    }
+
+    // Descuenta del stock las unidades reservadas. Devuelve el nuevo stock, o null si la
+    // reserva no existe o ya venció.
+    public Integer confirmar(String idReserva) {
+        Retencion retencion = retenciones.get(idReserva);
+        if (retencion == null || retencion.vencida(System.currentTimeMillis())
+                || !retencion.estado.compareAndSet(Retencion.ACTIVA, Retencion.CONFIRMANDO)) {
+            return null;
+        }
+        Integer stock;
+        try {
+            stock = inventarioService.ajustarStock(retencion.idInventario, -retencion.cantidad);
+        } catch (RuntimeException e) {
+            // La reserva sigue activa, se puede reintentar o liberar. Se vuelve a programar
+            // por si la rueda la revisó mientras se confirmaba.
+            retencion.estado.set(Retencion.ACTIVA);
+            rueda.programar(retencion);
+            throw e;
+        }
+        if (escrituraDiferida.activa()) {
+            // El descuento llega a la disponibilidad con el evento del vaciado
+            escrituraDiferida.vaciar();
+        }
+        // El evento del descuento ya se aplicó, recién ahora se suelta la reserva
+        terminar(retencion, Retencion.CONFIRMADA);
+        return stock;
+    }
+
+    // Devuelve true si la reserva estaba activa y sus unidades vuelven a estar disponibles
+    public boolean liberar(String idReserva) {
+        Retencion retencion = retenciones.get(idReserva);
+        return retencion != null && retencion.estado.compareAndSet(Retencion.ACTIVA, Retencion.LIBERADA)
+                && terminar(retencion, Retencion.LIBERADA);
+    }
+
+    public Optional<Reserva> obtenerReserva(String idReserva) {
+        Retencion retencion = retenciones.get(idReserva);
+        if (retencion == null || retencion.estado.get() != Retencion.ACTIVA
+                || retencion.vencida(System.currentTimeMillis())) {
+            return Optional.empty();
+        }
+        return Optional.of(retencion.aReserva());
+    }
+
+    public Optional<DisponibilidadStock> obtenerDisponibilidad(long idInventario) {
+        Disponibilidad disponibilidad = disponibilidad(idInventario);
+        if (disponibilidad == null) {
+            return Optional.empty();
+        }
+        int stock = disponibilidad.stock.get();
+        int reservado = disponibilidad.reservado.get();
+        return Optional.of(new DisponibilidadStock(idInventario, stock, reservado, Math.max(stock - reservado, 0)));
+    }
+
+    // Vence las reservas cuyo plazo ya pasó; lo llama la rueda en cada tick
+    public void expirarVencidas() {
+        rueda.avanzar(System.currentTimeMillis(), retencion -> {
+            if (retencion.estado.compareAndSet(Retencion.ACTIVA, Retencion.VENCIDA)) {
+                terminar(retencion, Retencion.VENCIDA);
+            }
+        });
+    }
+
+    // Escribe las altas y bajas acumuladas en una transacción. Una reserva creada y cerrada
+    // dentro del mismo lote no llega a la base de datos.
+    public void persistir() {
+        cerrojoPersistir.lock();
+        try {
+            persistirLote();
+        } finally {
+            cerrojoPersistir.unlock();
+        }
+    }
+
+    private void persistirLote() {
+        Map<String, Cambio> lote = new LinkedHashMap<>();
+        for (Cambio cambio = cambios.poll(); cambio != null; cambio = cambios.poll()) {
+            Cambio anterior = lote.get(cambio.idReserva);
+            if (anterior != null && anterior.alta && !cambio.alta) {
+                lote.remove(cambio.idReserva);
+            } else {
+                lote.put(cambio.idReserva, cambio);
+            }
+        }
+        if (lote.isEmpty()) {
+            return;
+        }
+        List<String> bajas = new ArrayList<>();
+        List<ReservaEntity> altas = new ArrayList<>();
+        for (Cambio cambio : lote.values()) {
+            if (cambio.alta) {
+                altas.add(cambio.entidad);
+            } else {
+                bajas.add(cambio.idReserva);
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(estado -> {
+                altas.forEach(entityManager::persist);
+                entityManager.flush();
+                if (!bajas.isEmpty()) {
+                    reservaRepository.deleteAllByIdInBatch(bajas);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Se reintentará en el siguiente intervalo, conservando el orden alta antes de baja
+            List<Cambio> pendientes = new ArrayList<>(lote.values());
+            pendientes.addAll(cambios);
+            cambios.clear();
+            cambios.addAll(pendientes);
+            throw e;
+        }
+    }
+
+    // Mantiene el stock conocido al día con las escrituras confirmadas de inventario. Se
+    // suma el delta de cada evento: los oyentes corren en el hilo de cada commit y pueden
+    // llegar en otro orden, la suma no depende del orden.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarInventario(InventarioEvento evento) {
+        if (evento.getTipo() == InventarioEvento.Tipo.ELIMINADO) {
+            disponibilidades.remove(evento.getIdInventario());
+            return;
+        }
+        Disponibilidad disponibilidad = disponibilidades.get(evento.getIdInventario());
+        if (disponibilidad != null) {
+            disponibilidad.aplicar(evento.getVersion(), evento.getDelta());
+        }
+    }
+
+    // Disponibilidad del inventario, con el stock cargado; null si el inventario no existe
+    private Disponibilidad disponibilidad(long idInventario) {
+        Disponibilidad disponibilidad = disponibilidades.get(idInventario);
+        if (disponibilidad != null && disponibilidad.cargada()) {
+            return disponibilidad;
+        }
+        if (disponibilidad == null) {
+            disponibilidad = disponibilidades.computeIfAbsent(idInventario, id -> new Disponibilidad());
+        }
+        // Desde aquí los eventos quedan guardados hasta la carga. Un commit anterior ya es
+        // visible en la lectura, y de los que lleguen mientras tanto la versión dice si la
+        // lectura los incluye o hay que sumarlos.
+        disponibilidad.iniciarCarga();
+        Optional<Inventario> inventario;
+        try {
+            inventario = inventarioService.obtenerInventarioConfirmado(idInventario);
+        } catch (RuntimeException e) {
+            disponibilidad.terminarCarga(null);
+            throw e;
+        }
+        disponibilidad.terminarCarga(inventario.orElse(null));
+        if (inventario.isEmpty()) {
+            // Los ids los manda el cliente: uno inexistente no debe quedar en el mapa
+            disponibilidades.remove(idInventario, disponibilidad);
+            return null;
+        }
+        return disponibilidad;
+    }
+
+    private boolean terminar(Retencion retencion, int estadoFinal) {
+        retencion.estado.set(estadoFinal);
+        retenciones.remove(retencion.idReserva);
+        Disponibilidad disponibilidad = disponibilidades.get(retencion.idInventario);
+        if (disponibilidad != null) {
+            disponibilidad.soltar(retencion.cantidad);
+        }
+        cambios.add(Cambio.baja(retencion.idReserva));
+        return true;
+    }
+
+    // Reconstruye las reservas activas guardadas; las vencidas durante la caída se eliminan
+    private void recuperar() {
+        long ahora = System.currentTimeMillis();
+        List<String> vencidas = new ArrayList<>();
+        for (ReservaEntity entidad : reservaRepository.findAll()) {
+            long vence = entidad.getVence().atZone(ZONA).toInstant().toEpochMilli();
+            if (vence <= ahora) {
+                vencidas.add(entidad.getIdReserva());
+                continue;
+            }
+            Retencion retencion = new Retencion(entidad.getIdReserva(), entidad.getIdInventario(),
+                    entidad.getCantidad(), vence);
+            retenciones.put(retencion.idReserva, retencion);
+            rueda.programar(retencion);
+            // El stock se carga con la primera operación sobre el inventario
+            disponibilidades.computeIfAbsent(retencion.idInventario, id -> new Disponibilidad())
+                    .reservado.addAndGet(retencion.cantidad);
+        }
+        if (!vencidas.isEmpty()) {
+            reservaRepository.deleteAllByIdInBatch(vencidas);
+        }
+        if (!retenciones.isEmpty()) {
+            LOG.info("Se recuperaron {} reservas de stock activas", retenciones.size());
+        }
+    }
+
+    private void expirarSinPropagar() {
+        try {
+            expirarVencidas();
+        } catch (Exception e) {
+            LOG.error("Error al vencer reservas: {}", e.getMessage());
+        }
+    }
+
+    private void persistirSinPropagar() {
+        try {
+            persistir();
+        } catch (Exception e) {
+            LOG.error("No se pudieron persistir las reservas: {}", e.getMessage());
+        }
+    }
+
+    // Stock conocido y unidades retenidas de un inventario
+    private static final class Disponibilidad {
+        private static final int SIN_CARGAR = Integer.MIN_VALUE;
+
+        private final AtomicInteger stock = new AtomicInteger(SIN_CARGAR);
+        private final AtomicInteger reservado = new AtomicInteger();
+
+        // Carga del stock: los eventos que llegan mientras hay lecturas en curso se guardan
+        // como {versión, delta} y al cargar se suman los de versión mayor a la leída
+        private final ReentrantLock carga = new ReentrantLock();
+        private final List<long[]> sinAplicar = new ArrayList<>();
+        private int cargando;
+        private long versionCarga;
+
+        private boolean cargada() {
+            return stock.get() != SIN_CARGAR;
+        }
+
+        private void aplicar(long version, int delta) {
+            carga.lock();
+            try {
+                if (cargada()) {
+                    if (version > versionCarga) {
+                        stock.addAndGet(delta);
+                    }
+                } else if (cargando > 0) {
+                    sinAplicar.add(new long[] { version, delta });
+                }
+            } finally {
+                carga.unlock();
+            }
+        }
+
+        private void iniciarCarga() {
+            carga.lock();
+            try {
+                cargando++;
+            } finally {
+                carga.unlock();
+            }
+        }
+
+        // leido es null si el inventario no existe o la lectura falló
+        private void terminarCarga(Inventario leido) {
+            carga.lock();
+            try {
+                cargando--;
+                if (leido != null && !cargada()) {
+                    long total = leido.getStockDisponible();
+                    for (long[] evento : sinAplicar) {
+                        if (evento[0] > leido.getVersion()) {
+                            total += evento[1];
+                        }
+                    }
+                    versionCarga = leido.getVersion();
+                    stock.set((int) total);
+                }
+                if (cargada() || cargando == 0) {
+                    sinAplicar.clear();
+                }
+            } finally {
+                carga.unlock();
+            }
+        }
+
+        private boolean retener(int cantidad) {
+            while (true) {
+                int actual = reservado.get();
+                if (stock.get() - actual < cantidad) {
+                    return false;
+                }
+                if (reservado.compareAndSet(actual, actual + cantidad)) {
+                    return true;
+                }
+            }
+        }
+
+        private void soltar(int cantidad) {
+            reservado.addAndGet(-cantidad);
+        }
+    }
+
+    private static final class Retencion {
+        private static final int ACTIVA = 0;
+        private static final int CONFIRMANDO = 1;
+        private static final int CONFIRMADA = 2;
+        private static final int LIBERADA = 3;
+        private static final int VENCIDA = 4;
+
+        private final String idReserva;
+        private final long idInventario;
+        private final int cantidad;
+        private final long venceMillis;
+        private final AtomicInteger estado = new AtomicInteger(ACTIVA);
+
+        private Retencion(String idReserva, long idInventario, int cantidad, long venceMillis) {
+            this.idReserva = idReserva;
+            this.idInventario = idInventario;
+            this.cantidad = cantidad;
+            this.venceMillis = venceMillis;
+        }
+
+        private long getVenceMillis() {
+            return venceMillis;
+        }
+
+        private boolean vencida(long ahora) {
+            return venceMillis <= ahora;
+        }
+
+        private Reserva aReserva() {
+            return new Reserva(idReserva, idInventario, cantidad, vence());
+        }
+
+        private LocalDateTime vence() {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(venceMillis), ZONA);
+        }
+    }
+
+    private static final class Cambio {
+        private final String idReserva;
+        private final boolean alta;
+        private final ReservaEntity entidad;
+
+        private Cambio(String idReserva, boolean alta, ReservaEntity entidad) {
+            this.idReserva = idReserva;
+            this.alta = alta;
+            this.entidad = entidad;
+        }
+
+        private static Cambio alta(Retencion retencion) {
+            ReservaEntity entidad = new ReservaEntity();
+            entidad.setIdReserva(retencion.idReserva);
+            entidad.setIdInventario(retencion.idInventario);
+            entidad.setCantidad(retencion.cantidad);
+            entidad.setVence(retencion.vence());
+            return new Cambio(retencion.idReserva, true, entidad);
+        }
+
+        private static Cambio baja(String idReserva) {
+            return new Cambio(idReserva, false, null);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.inventario.inventario.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.inventario.inventario.almacen.AlmacenInventario;
+import com.inventario.inventario.event.InventarioEvento;
+import com.inventario.inventario.model.ResumenBodega;
+import com.inventario.inventario.model.VerificacionResumen;
+import com.inventario.inventario.repository.ResumenUbicacion;
+
+import jakarta.annotation.PostConstruct;
+
+// Totales de stock por ubicación de bodega mantenidos en memoria. Se reconstruyen con un
+// GROUP BY del almacén al iniciar y luego se actualizan con cada InventarioEvento confirmado, así las
+// consultas responden en O(cantidad de bodegas) sin recorrer la tabla de inventario.
+@Service
+public class ResumenStockService {
+
+    @Autowired
+    private AlmacenInventario almacen;
+
+    // Un SKU tiene stock bajo cuando su stock disponible es menor o igual a este valor
+    @Value("${inventario.stock-bajo.umbral:10}")
+    private int umbralStockBajo = 10;
+
+    private final ConcurrentHashMap<String, Totales> resumen = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void reconstruir() {
+        Map<String, Totales> recalculado = recalcular();
+        resumen.clear();
+        resumen.putAll(recalculado);
+    }
+
+    public List<ResumenBodega> obtenerResumen() {
+        return resumen.entrySet().stream()
+                .map(entrada -> entrada.getValue().aResumen(entrada.getKey()))
+                .sorted(Comparator.comparing(ResumenBodega::getUbicacionBodega))
+                .collect(Collectors.toList());
+    }
+
+    public Optional<ResumenBodega> obtenerResumen(String ubicacionBodega) {
+        Totales totales = resumen.get(ubicacionBodega);
+        return totales == null ? Optional.empty() : Optional.of(totales.aResumen(ubicacionBodega));
+    }
+
+    // Se ejecuta después del commit; compute() aplica cada evento de forma atómica por bodega
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarInventario(InventarioEvento evento) {
+        if (evento.getUbicacionBodega() == null) {
+            return;
+        }
+        long stockBajoAntes = esStockBajo(evento.getStockAnterior()) ? 1 : 0;
+        long stockBajoDespues = esStockBajo(evento.getStockDisponible()) ? 1 : 0;
+        switch (evento.getTipo()) {
+            case CREADO -> aplicar(evento.getUbicacionBodega(), evento.getStockDisponible(), 1, stockBajoDespues);
+            case ELIMINADO -> aplicar(evento.getUbicacionBodega(), -evento.getStockAnterior(), -1, -stockBajoAntes);
+            default -> aplicar(evento.getUbicacionBodega(), evento.getDelta(), 0, stockBajoDespues - stockBajoAntes);
+        }
+    }
+
+    // Compara el resumen con un recálculo completo. Con escrituras en curso puede informar
+    // diferencias transitorias; una diferencia que persiste indica un evento perdido.
+    public VerificacionResumen verificarConsistencia() {
+        Map<String, Totales> recalculado = recalcular();
+        List<String> diferencias = new ArrayList<>();
+        Map<String, Totales> actual = new HashMap<>(resumen);
+        for (Map.Entry<String, Totales> entrada : recalculado.entrySet()) {
+            Totales enMemoria = actual.remove(entrada.getKey());
+            if (!entrada.getValue().equals(enMemoria)) {
+                diferencias.add(entrada.getKey() + ": esperado " + entrada.getValue() + ", en memoria " + enMemoria);
+            }
+        }
+        for (Map.Entry<String, Totales> sobrante : actual.entrySet()) {
+            diferencias.add(sobrante.getKey() + ": esperado sin inventarios, en memoria " + sobrante.getValue());
+        }
+        return new VerificacionResumen(diferencias.isEmpty(), recalculado.size(), diferencias);
+    }
+
+    private Map<String, Totales> recalcular() {
+        Map<String, Totales> recalculado = new HashMap<>();
+        // Dentro de una transacción de escritura lee del primario aunque haya réplicas
+        for (ResumenUbicacion fila : almacen.enTransaccion(() -> almacen.resumirPorUbicacion(umbralStockBajo))) {
+            if (fila.getUbicacionBodega() != null) {
+                recalculado.put(fila.getUbicacionBodega(), new Totales(valor(fila.getStockTotal()),
+                        valor(fila.getCantidadSkus()), valor(fila.getSkusStockBajo())));
+            }
+        }
+        return recalculado;
+    }
+
+    private void aplicar(String ubicacionBodega, long deltaStock, long deltaSkus, long deltaStockBajo) {
+        resumen.compute(ubicacionBodega, (ubicacion, totales) -> {
+            Totales base = totales == null ? Totales.VACIO : totales;
+            Totales nuevo = new Totales(base.stockTotal + deltaStock, base.cantidadSkus + deltaSkus,
+                    base.skusStockBajo + deltaStockBajo);
+            // Una bodega sin SKUs deja de aparecer en el resumen
+            return nuevo.cantidadSkus <= 0 ? null : nuevo;
+        });
+    }
+
+    private boolean esStockBajo(int stockDisponible) {
+        return stockDisponible <= umbralStockBajo;
+    }
+
+    private static long valor(Long numero) {
+        return numero == null ? 0L : numero;
+    }
+
+    // Valores inmutables, cada actualización reemplaza la entrada completa de la bodega
+    private static final class Totales {
+        private static final Totales VACIO = new Totales(0, 0, 0);
+
+        private final long stockTotal;
+        private final long cantidadSkus;
+        private final long skusStockBajo;
+
+        private Totales(long stockTotal, long cantidadSkus, long skusStockBajo) {
+            this.stockTotal = stockTotal;
+            this.cantidadSkus = cantidadSkus;
+            this.skusStockBajo = skusStockBajo;
+        }
+
+        private ResumenBodega aResumen(String ubicacionBodega) {
+            return new ResumenBodega(ubicacionBodega, stockTotal, cantidadSkus, skusStockBajo);
+        }
+
+        @Override
+        public boolean equals(Object otro) {
+            if (!(otro instanceof Totales)) {
+                return false;
+            }
+            Totales totales = (Totales) otro;
+            return stockTotal == totales.stockTotal && cantidadSkus == totales.cantidadSkus
+                    && skusStockBajo == totales.skusStockBajo;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(stockTotal, cantidadSkus, skusStockBajo);
+        }
+
+        @Override
+        public String toString() {
+            return "{stockTotal=" + stockTotal + ", cantidadSkus=" + cantidadSkus + ", skusStockBajo="
+                    + skusStockBajo + "}";
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.inventario.inventario.service;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+// Rueda de tiempo con ranuras de duración fija. Programar es O(1) y sin locks; cada tick
+// solo revisa la ranura que corresponde, los elementos de vueltas posteriores se devuelven
+// a la misma ranura. Un elemento que llega a una ranura ya revisada vence una vuelta tarde,
+// por eso quien lo usa debe comprobar el vencimiento también al leer.
+public class RuedaTemporizadora<T> {
+
+    private final long duracionTick;
+    private final Queue<T>[] ranuras;
+    private final ToLongFunction<T> vencimiento;
+
+    // Último tick procesado, solo lo modifica el hilo que llama a avanzar
+    private volatile long ultimoTick;
+
+    @SuppressWarnings("unchecked")
+    public RuedaTemporizadora(long duracionTickMillis, int cantidadRanuras, ToLongFunction<T> vencimientoMillis,
+            long ahoraMillis) {
+        this.duracionTick = Math.max(duracionTickMillis, 1);
+        int potencia = Integer.highestOneBit(Math.max(cantidadRanuras, 2) * 2 - 1);
+        this.ranuras = new Queue[potencia];
+        for (int i = 0; i < potencia; i++) {
+            ranuras[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.vencimiento = vencimientoMillis;
+        this.ultimoTick = ahoraMillis / duracionTick;
+    }
+
+    public void programar(T elemento) {
+        // Primer tick que comienza en o después del vencimiento, al revisarlo ya venció
+        long tick = Math.max(Math.floorDiv(vencimiento.applyAsLong(elemento) + duracionTick - 1, duracionTick),
+                ultimoTick + 1);
+        ranura(tick).add(elemento);
+    }
+
+    // Procesa los ticks transcurridos hasta ahora y entrega los elementos vencidos
+    public void avanzar(long ahoraMillis, Consumer<T> alVencer) {
+        long tickActual = ahoraMillis / duracionTick;
+        // Tras una pausa larga basta una vuelta completa para revisar todas las ranuras
+        long desde = Math.max(ultimoTick + 1, tickActual - ranuras.length + 1);
+        for (long tick = desde; tick <= tickActual; tick++) {
+            Queue<T> ranura = ranura(tick);
+            int pendientes = ranura.size();
+            for (int i = 0; i < pendientes; i++) {
+                T elemento = ranura.poll();
+                if (elemento == null) {
+                    break;
+                }
+                if (vencimiento.applyAsLong(elemento) <= ahoraMillis) {
+                    alVencer.accept(elemento);
+                } else {
+                    ranura.add(elemento);
+                }
+            }
+            ultimoTick = tick;
+        }
+    }
+
+    private Queue<T> ranura(long tick) {
+        return ranuras[(int) (tick & (ranuras.length - 1))];
+    }
+}
@@ -0,0 +1,201 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.inventario.inventario.admision.AdmisionInterceptor;
+import com.inventario.inventario.admision.LimiteAdaptativo;
+import com.inventario.inventario.config.AdmisionConfig;
+import com.inventario.inventario.model.entity.InventarioEntity;
+import com.inventario.inventario.repository.InventarioRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(properties = {
+        "inventario.admision.lectura.limite-inicial=1",
+        "inventario.admision.lectura.limite-minimo=1",
+        "inventario.admision.lectura.limite-maximo=1",
+        "inventario.admision.lectura.cola=0",
+        "inventario.admision.escritura.limite-compartimento=2"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class AdmisionTest {
+
+    private static final String POR_UBICACION = "/api/v1/inventarios/ubicacion/{ubicacionBodega}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AdmisionConfig admisionConfig;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    public void testLimiteAdaptativo_BajaConLatenciaAltaYSubeBajoElObjetivo() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(
+                new LimiteAdaptativo.Configuracion(2, 1, 3, 0, Duration.ZERO, Duration.ofMillis(100), 3));
+
+        assertEquals(LimiteAdaptativo.Resultado.ADMITIDA, limite.adquirir());
+        assertEquals(LimiteAdaptativo.Resultado.ADMITIDA, limite.adquirir());
+        assertEquals(LimiteAdaptativo.Resultado.RECHAZADA, limite.adquirir());
+
+        // Una petición lenta reduce el límite, sin bajar del mínimo
+        limite.liberar(TimeUnit.MILLISECONDS.toNanos(300), false);
+        assertEquals(1, limite.getLimite());
+        assertEquals(LimiteAdaptativo.Resultado.RECHAZADA, limite.adquirir());
+        limite.liberar(0, true);
+        assertEquals(1, limite.getLimite());
+
+        // Las rápidas con el límite en uso lo suben hasta el máximo
+        for (int i = 0; i < 5; i++) {
+            assertEquals(LimiteAdaptativo.Resultado.ADMITIDA, limite.adquirir());
+            limite.liberar(TimeUnit.MILLISECONDS.toNanos(10), false);
+        }
+        assertEquals(3, limite.getLimite());
+        assertEquals(0, limite.getEnCurso());
+    }
+
+    // Un cupo devuelto sin latencia (rechazo del compartimento, respuesta asíncrona) no mueve
+    // el límite aunque esté en uso, y deja pasar a quien espera en la cola
+    @Test
+    public void testLimiteAdaptativo_DevolverNoAjustaElLimite() throws Exception {
+        LimiteAdaptativo limite = new LimiteAdaptativo(
+                new LimiteAdaptativo.Configuracion(2, 1, 3, 1, Duration.ofSeconds(10), Duration.ofMillis(100), 3));
+        assertEquals(LimiteAdaptativo.Resultado.ADMITIDA, limite.adquirir());
+        assertEquals(LimiteAdaptativo.Resultado.ADMITIDA, limite.adquirir());
+        CompletableFuture<LimiteAdaptativo.Resultado> encolada = CompletableFuture.supplyAsync(limite::adquirir);
+        while (limite.getEnCola() == 0) {
+            Thread.sleep(5);
+        }
+
+        limite.devolver();
+        assertEquals(LimiteAdaptativo.Resultado.ENCOLADA, encolada.get(5, TimeUnit.SECONDS));
+        limite.devolver();
+        limite.devolver();
+        assertEquals(2, limite.getLimite());
+        assertEquals(0, limite.getEnCurso());
+    }
+
+    @Test
+    public void testLimiteAdaptativo_EsperaEnColaHastaQueSeLibereUnCupo() throws Exception {
+        LimiteAdaptativo limite = new LimiteAdaptativo(
+                new LimiteAdaptativo.Configuracion(1, 1, 1, 1, Duration.ofSeconds(10), Duration.ofSeconds(1), 1));
+        assertEquals(LimiteAdaptativo.Resultado.ADMITIDA, limite.adquirir());
+
+        CompletableFuture<LimiteAdaptativo.Resultado> encolada = CompletableFuture.supplyAsync(limite::adquirir);
+        while (limite.getEnCola() == 0) {
+            Thread.sleep(5);
+        }
+        // La cola admite una sola petición, la siguiente se rechaza sin esperar
+        assertEquals(LimiteAdaptativo.Resultado.RECHAZADA, limite.adquirir());
+
+        limite.liberar(0, false);
+        assertEquals(LimiteAdaptativo.Resultado.ENCOLADA, encolada.get(5, TimeUnit.SECONDS));
+        assertEquals(1, limite.getEnCurso());
+        assertEquals(0, limite.getEnCola());
+    }
+
+    @Test
+    public void testAdmision_LecturasSaturadasResponden503SinAfectarEscrituras() throws Exception {
+        InventarioEntity entidad = new InventarioEntity();
+        entidad.setStockDisponible(10);
+        entidad.setUbicacionBodega("ADM-A");
+        entidad.setFechaUltimaActualizacion(LocalDateTime.now());
+        long idInventario = inventarioRepository.save(entidad).getIdInventario();
+
+        // Ocupa el único cupo de la lectura por ubicación, como una petición en curso
+        LimiteAdaptativo limite = admisionConfig.getAdmisionInterceptor().limite("GET",
+                "/api/v1/inventarios/ubicacion/{ubicacionBodega}");
+        assertEquals(LimiteAdaptativo.Resultado.ADMITIDA, limite.adquirir());
+        try {
+            mockMvc.perform(get(POR_UBICACION, "ADM-A"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                    .andExpect(jsonPath("$.error").exists());
+
+            // El ajuste de stock usa el compartimento de escrituras
+            mockMvc.perform(patch("/api/v1/inventarios/{idInventario}/stock", idInventario)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"delta\": -3}"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.stockDisponible").value(7));
+        } finally {
+            limite.liberar(0, false);
+        }
+
+        mockMvc.perform(get(POR_UBICACION, "ADM-A"))
+                .andExpect(status().isOk());
+        assertEquals(1.0, registry.get(AdmisionInterceptor.RECHAZADAS)
+                .tag("compartimento", "lectura")
+                .tag("uri", "/api/v1/inventarios/ubicacion/{ubicacionBodega}")
+                .counter().count());
+        assertEquals(0, limite.getEnCurso());
+    }
+
+    @Test
+    public void testAdmision_TopeDelCompartimentoAcotaTodasSusOperaciones() throws Exception {
+        InventarioEntity entidad = new InventarioEntity();
+        entidad.setStockDisponible(10);
+        entidad.setUbicacionBodega("ADM-B");
+        entidad.setFechaUltimaActualizacion(LocalDateTime.now());
+        long idInventario = inventarioRepository.save(entidad).getIdInventario();
+
+        // Otras operaciones de escritura ocupan todo el compartimento; el ajuste de stock tiene
+        // cupo en su propio límite pero no en el tope compartido
+        AdmisionInterceptor interceptor = admisionConfig.getAdmisionInterceptor();
+        Semaphore compartido = interceptor.compartido(AdmisionInterceptor.Compartimento.ESCRITURA);
+        LimiteAdaptativo ajuste = interceptor.limite("PATCH", "/api/v1/inventarios/{idInventario}/stock");
+        int limiteAntes = ajuste.getLimite();
+        compartido.acquire(2);
+        try {
+            for (int i = 0; i < 3; i++) {
+                mockMvc.perform(patch("/api/v1/inventarios/{idInventario}/stock", idInventario)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"delta\": -3}"))
+                        .andExpect(status().isServiceUnavailable())
+                        .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+            }
+            // El cupo de la operación se devolvió al rechazar, sin contar como una petición rápida
+            assertEquals(0, ajuste.getEnCurso());
+            assertEquals(limiteAntes, ajuste.getLimite());
+            assertEquals(10, inventarioRepository.findById(idInventario).orElseThrow().getStockDisponible());
+        } finally {
+            compartido.release(2);
+        }
+
+        mockMvc.perform(patch("/api/v1/inventarios/{idInventario}/stock", idInventario)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"delta\": -3}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stockDisponible").value(7));
+        assertEquals(2, compartido.availablePermits());
+        assertEquals(0.0, registry.get(AdmisionInterceptor.COMPARTIMENTO_EN_CURSO)
+                .tag("compartimento", "escritura")
+                .gauge().value());
+    }
+}
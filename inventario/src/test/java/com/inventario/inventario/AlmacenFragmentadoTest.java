@@ -0,0 +1,479 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.inventario.inventario.almacen.AlmacenFragmentado;
+import com.inventario.inventario.almacen.AlmacenInventario;
+import com.inventario.inventario.almacen.AnilloFragmentos;
+import com.inventario.inventario.almacen.ResultadoEscritura;
+import com.inventario.inventario.exception.StockInsuficienteException;
+import com.inventario.inventario.model.EstadoFragmentos;
+import com.inventario.inventario.model.FormatoExportacion;
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.ModoBusqueda;
+import com.inventario.inventario.model.MovimientoStock;
+import com.inventario.inventario.model.PaginaInventario;
+import com.inventario.inventario.model.ResultadoRebalanceo;
+import com.inventario.inventario.service.InventarioService;
+
+// Cada fragmento es una base H2 en memoria distinta; el catálogo vive en la base principal
+// del perfil test. La prueba de rebalanceo arma sus propios almacenes sobre otras bases.
+@SpringBootTest(properties = {
+        "inventario.almacen.motor=fragmentado",
+        "inventario.fragmentos.urls=" + AlmacenFragmentadoTest.NORTE + "," + AlmacenFragmentadoTest.SUR
+})
+@ActiveProfiles("test")
+public class AlmacenFragmentadoTest {
+
+    static final String NORTE = "jdbc:h2:mem:fragmento-norte;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    static final String SUR = "jdbc:h2:mem:fragmento-sur;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private AlmacenInventario almacen;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testServicio_RepartePorUbicacionYMezclaLosListados() throws IOException {
+        assertInstanceOf(AlmacenFragmentado.class, almacen);
+        List<Inventario> carga = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            carga.add(new Inventario(0L, 10 + i, "FRAG-" + i % 8, null));
+        }
+        List<Long> ids = inventarioService.cargarInventariosMasivo(carga.iterator()).getResultados().stream()
+                .map(item -> item.getIdInventario())
+                .collect(Collectors.toList());
+        assertEquals(40, ids.size());
+
+        // El id lleva la ranura de su ubicación y la fila está en un solo fragmento
+        JdbcTemplate norte = new JdbcTemplate(base(NORTE));
+        JdbcTemplate sur = new JdbcTemplate(base(SUR));
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(AnilloFragmentos.ranura("FRAG-" + i % 8), AnilloFragmentos.ranuraDeId(ids.get(i)));
+        }
+        long enNorte = contar(norte, "FRAG-%");
+        long enSur = contar(sur, "FRAG-%");
+        assertEquals(40, enNorte + enSur);
+        assertTrue(enNorte > 0 && enSur > 0, "Las ubicaciones deben repartirse entre los dos fragmentos");
+
+        // Los listados reúnen los dos fragmentos en orden de id
+        List<Long> ordenados = ids.stream().sorted().collect(Collectors.toList());
+        List<Long> listados = inventarioService.listarInventarios().stream()
+                .map(Inventario::getIdInventario)
+                .filter(ids::contains)
+                .collect(Collectors.toList());
+        assertEquals(ordenados, listados);
+
+        List<Long> paginados = new ArrayList<>();
+        String cursor = null;
+        do {
+            PaginaInventario pagina = inventarioService.listarInventariosPaginado(cursor, 7, null, null, null);
+            pagina.getInventarios().forEach(inventario -> paginados.add(inventario.getIdInventario()));
+            cursor = pagina.getSiguienteCursor();
+        } while (cursor != null);
+        assertEquals(ordenados, paginados.stream().filter(ids::contains).collect(Collectors.toList()));
+
+        assertEquals(5, inventarioService.obtenerInventarioPorUbicacion("FRAG-3").size());
+        assertEquals(40, inventarioService.buscarPorUbicacion("frag-", ModoBusqueda.PREFIJO, null, 100)
+                .getInventarios().size());
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        assertTrue(inventarioService.exportarInventarios(salida, FormatoExportacion.CSV) >= 40);
+
+        // Transferencia entre inventarios de fragmentos distintos: completa o nada
+        long origen = ids.stream().filter(id -> contarId(norte, id) == 1).findFirst().orElseThrow();
+        long destino = ids.stream().filter(id -> contarId(sur, id) == 1).findFirst().orElseThrow();
+        int stockOrigen = inventarioService.obtenerInventario(origen).orElseThrow().getStockDisponible();
+        int stockDestino = inventarioService.obtenerInventario(destino).orElseThrow().getStockDisponible();
+        inventarioService.transferirStock(List.of(new MovimientoStock(origen, destino, 5)));
+        assertEquals(stockOrigen - 5, inventarioService.obtenerInventario(origen).orElseThrow().getStockDisponible());
+        assertEquals(stockDestino + 5, inventarioService.obtenerInventario(destino).orElseThrow()
+                .getStockDisponible());
+        assertThrows(StockInsuficienteException.class, () -> inventarioService.transferirStock(List.of(
+                new MovimientoStock(destino, origen, 1), new MovimientoStock(origen, destino, 1000))));
+        assertEquals(stockOrigen - 5, inventarioService.obtenerInventario(origen).orElseThrow().getStockDisponible());
+        assertEquals(stockDestino + 5, inventarioService.obtenerInventario(destino).orElseThrow()
+                .getStockDisponible());
+
+        // Ajuste, versión y eliminación van solo al fragmento del id
+        assertEquals(stockOrigen - 2, inventarioService.ajustarStock(origen, 3));
+        long version = inventarioService.obtenerInventario(origen).orElseThrow().getVersion();
+        assertEquals(InventarioService.CONFLICTO_VERSION, inventarioService.actualizarInventario(origen,
+                new Inventario(origen, 1, "FRAG-x", null), version - 1));
+        inventarioService.eliminarInventario(destino);
+        assertTrue(inventarioService.obtenerInventario(destino).isEmpty());
+        assertNull(inventarioService.ajustarStock(destino, 1));
+
+        EstadoFragmentos estado = ((AlmacenFragmentado) almacen).estado();
+        assertEquals(2, estado.getFragmentos());
+        assertEquals(AnilloFragmentos.RANURAS, estado.getRanuras().stream().mapToInt(Integer::intValue).sum());
+        assertEquals(0, estado.getRanurasPendientes());
+    }
+
+    // Igual que el motor JPA: pasar el máximo de un int no es falta de stock
+    @Test
+    public void testAjustes_StockSobreElMaximoQuedaFueraDeRango() {
+        List<Long> ids = inventarioService.cargarInventariosMasivo(List.of(
+                new Inventario(0L, Integer.MAX_VALUE - 10, "RANGO-1", null),
+                new Inventario(0L, 50, "RANGO-2", null)).iterator()).getResultados().stream()
+                .map(item -> item.getIdInventario())
+                .collect(Collectors.toList());
+        long lleno = ids.get(0);
+        long otro = ids.get(1);
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> inventarioService.ajustarStock(lleno, 11));
+        assertEquals(InventarioService.STOCK_FUERA_DE_RANGO, error.getMessage());
+        assertEquals(Integer.MAX_VALUE, inventarioService.ajustarStock(lleno, 10));
+
+        error = assertThrows(IllegalArgumentException.class,
+                () -> inventarioService.transferirStock(List.of(new MovimientoStock(otro, lleno, 1))));
+        assertTrue(error.getMessage().startsWith(InventarioService.STOCK_FUERA_DE_RANGO));
+        assertEquals(50, inventarioService.obtenerInventario(otro).orElseThrow().getStockDisponible());
+        assertThrows(StockInsuficienteException.class, () -> inventarioService.ajustarStock(otro, -51));
+    }
+
+    // El rango se calcula en Java: el UPDATE no usa CAST ni tipos que solo entiende H2, y los
+    // límites siguen distinguiendo el stock insuficiente del desborde
+    @Test
+    public void testAjustes_SqlSinSintaxisPropiaDeH2() {
+        DataSource catalogo = base("jdbc:h2:mem:ajuste-catalogo;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        Queue<String> sentencias = new ConcurrentLinkedQueue<>();
+        DataSource fragmento = new DriverManagerDataSource("jdbc:h2:mem:ajuste-0;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "sa", "") {
+            @Override
+            protected Connection getConnectionFromDriverManager(String url, Properties propiedades)
+                    throws SQLException {
+                Connection conexion = super.getConnectionFromDriverManager(url, propiedades);
+                return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                        new Class<?>[] { Connection.class }, (proxy, metodo, argumentos) -> {
+                            if (metodo.getName().equals("prepareStatement")) {
+                                sentencias.add((String) argumentos[0]);
+                            }
+                            try {
+                                return metodo.invoke(conexion, argumentos);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        });
+            }
+        };
+        TransactionTemplate transaccion = new TransactionTemplate(new DataSourceTransactionManager(catalogo));
+        AlmacenFragmentado uno = new AlmacenFragmentado(List.of(fragmento), catalogo, transaccion,
+                Executors.newCachedThreadPool(), 10, 30_000);
+        try {
+            long id = uno.enTransaccion(() -> uno.crear(new Inventario(0L, Integer.MAX_VALUE - 10, "SQL-1", null)))
+                    .getIdInventario();
+            sentencias.clear();
+
+            assertEquals(ResultadoEscritura.Estado.FUERA_DE_RANGO,
+                    uno.enTransaccion(() -> uno.ajustarStock(id, 11, LocalDateTime.now())).getEstado());
+            assertEquals(ResultadoEscritura.Estado.STOCK_INSUFICIENTE, uno.enTransaccion(
+                    () -> uno.ajustarStock(id, Integer.MIN_VALUE, LocalDateTime.now())).getEstado());
+            assertEquals(Integer.MAX_VALUE, uno.enTransaccion(() -> uno.ajustarStock(id, 10, LocalDateTime.now()))
+                    .getInventario().getStockDisponible());
+            assertEquals(0, uno.enTransaccion(() -> uno.ajustarStock(id, -Integer.MAX_VALUE, LocalDateTime.now()))
+                    .getInventario().getStockDisponible());
+
+            List<String> ajustes = sentencias.stream()
+                    .filter(sql -> sql.startsWith("UPDATE"))
+                    .collect(Collectors.toList());
+            assertEquals(3, ajustes.size(), ajustes.toString());
+            for (String sql : ajustes) {
+                String mayusculas = sql.toUpperCase();
+                assertFalse(mayusculas.contains("CAST") || mayusculas.contains("BIGINT") || sql.contains("::"), sql);
+            }
+        } finally {
+            uno.cerrar();
+        }
+    }
+
+    // El historial inserta sus movimientos en beforeCommit; los fragmentos se confirman después
+    @Test
+    public void testEnTransaccion_SiFallaElHistorialLosFragmentosNoSeConfirman() {
+        jdbcTemplate.execute("ALTER TABLE movimiento_historial RENAME TO movimiento_historial_aparte");
+        try {
+            assertThrows(DataAccessException.class, () -> inventarioService.crearInventario(
+                    new Inventario(0L, 5, "SIN-HISTORIAL", null)));
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE movimiento_historial_aparte RENAME TO movimiento_historial");
+        }
+
+        assertEquals(0, contar(new JdbcTemplate(base(NORTE)), "SIN-HISTORIAL")
+                + contar(new JdbcTemplate(base(SUR)), "SIN-HISTORIAL"));
+        assertTrue(inventarioService.obtenerInventarioPorUbicacion("SIN-HISTORIAL").isEmpty());
+    }
+
+    @Test
+    public void testRebalanceo_AgregarUnFragmentoMueveSusRanuras() {
+        DataSource catalogo = base("jdbc:h2:mem:rebalanceo-catalogo;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        List<DataSource> bases = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            bases.add(base("jdbc:h2:mem:rebalanceo-" + i + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+        }
+        TransactionTemplate transaccion = new TransactionTemplate(new DataSourceTransactionManager(catalogo));
+
+        AlmacenFragmentado dos = new AlmacenFragmentado(bases.subList(0, 2), catalogo, transaccion,
+                Executors.newCachedThreadPool(), 10, 30_000);
+        List<Inventario> creados = new ArrayList<>();
+        try {
+            for (int i = 0; i < 300; i++) {
+                Inventario inventario = new Inventario(0L, i, "REB-" + i % 60, LocalDateTime.now());
+                creados.add(dos.enTransaccion(() -> dos.crear(inventario)));
+            }
+        } finally {
+            dos.cerrar();
+        }
+
+        // Con un tercer fragmento las filas siguen donde estaban hasta el rebalanceo
+        AlmacenFragmentado tres = new AlmacenFragmentado(bases, catalogo, transaccion,
+                Executors.newCachedThreadPool(), 10, 30_000);
+        try {
+            // Copia que dejaría un rebalanceo cortado antes de cambiar la asignación de su ranura
+            AnilloFragmentos anillo = new AnilloFragmentos(3);
+            Inventario copiada = creados.stream()
+                    .filter(creado -> anillo.fragmento(AnilloFragmentos.ranuraDeId(creado.getIdInventario())) == 2)
+                    .findFirst().orElseThrow();
+            new JdbcTemplate(bases.get(2)).update("INSERT INTO inventario_fragmento (id_inventario, ranura,"
+                    + " stock_disponible, ubicacion_bodega) VALUES (?, ?, ?, ?)", copiada.getIdInventario(),
+                    AnilloFragmentos.ranuraDeId(copiada.getIdInventario()), copiada.getStockDisponible(),
+                    copiada.getUbicacionBodega());
+
+            EstadoFragmentos antes = tres.estado();
+            assertEquals(0L, antes.getFilas().get(2));
+            assertEquals(300L, antes.getFilas().stream().mapToLong(Long::longValue).sum());
+            assertTrue(antes.getRanurasPendientes() > 0);
+            for (Inventario creado : creados) {
+                assertEquals(creado.getStockDisponible(),
+                        tres.buscar(creado.getIdInventario()).orElseThrow().getStockDisponible());
+            }
+
+            ResultadoRebalanceo resultado = tres.rebalancear();
+            assertEquals(antes.getRanurasPendientes(), resultado.getRanurasMovidas());
+            // El anillo solo mueve ranuras hacia el fragmento nuevo, cerca de un tercio
+            assertTrue(resultado.getRanurasMovidas() > AnilloFragmentos.RANURAS / 5
+                    && resultado.getRanurasMovidas() < AnilloFragmentos.RANURAS / 2);
+
+            EstadoFragmentos despues = tres.estado();
+            assertEquals(0, despues.getRanurasPendientes());
+            assertEquals(300L, despues.getFilas().stream().mapToLong(Long::longValue).sum());
+            assertEquals(resultado.getFilasMovidas(), despues.getFilas().get(2));
+            assertEquals(creados.stream().map(Inventario::getIdInventario).sorted().collect(Collectors.toList()),
+                    tres.listarTodos().stream().map(Inventario::getIdInventario).collect(Collectors.toList()));
+            for (Inventario creado : creados) {
+                assertEquals(creado.getStockDisponible(),
+                        tres.buscar(creado.getIdInventario()).orElseThrow().getStockDisponible());
+            }
+            assertEquals(5, tres.buscarPorUbicacion("REB-7").size());
+
+            // Los ids nuevos no repiten los de antes del rebalanceo
+            Inventario nuevo = tres.enTransaccion(() -> tres.crear(new Inventario(0L, 1, "REB-7", null)));
+            assertTrue(creados.stream().noneMatch(creado -> creado.getIdInventario() == nuevo.getIdInventario()));
+            assertEquals(0, tres.rebalancear().getRanurasMovidas());
+        } finally {
+            tres.cerrar();
+        }
+    }
+
+    // Ajustes y altas mientras se mueven las ranuras: cada unidad espera la ranura que se está
+    // copiando y escribe en el dueño que queda; nada se pierde ni se duplica
+    @Test
+    public void testRebalanceo_EscriturasConcurrentesNoSePierden() throws Exception {
+        DataSource catalogo = base("jdbc:h2:mem:concurrente-catalogo;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        List<DataSource> bases = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            bases.add(base("jdbc:h2:mem:concurrente-" + i + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+        }
+        TransactionTemplate transaccion = new TransactionTemplate(new DataSourceTransactionManager(catalogo));
+
+        AlmacenFragmentado dos = new AlmacenFragmentado(bases.subList(0, 2), catalogo, transaccion,
+                Executors.newCachedThreadPool(), 10, 30_000);
+        List<Long> ids = new ArrayList<>();
+        try {
+            for (int i = 0; i < 200; i++) {
+                Inventario inventario = new Inventario(0L, 1_000, "CON-" + i % 40, LocalDateTime.now());
+                ids.add(dos.enTransaccion(() -> dos.crear(inventario)).getIdInventario());
+            }
+        } finally {
+            dos.cerrar();
+        }
+
+        AlmacenFragmentado tres = new AlmacenFragmentado(bases, catalogo, transaccion,
+                Executors.newCachedThreadPool(), 10, 30_000);
+        ExecutorService escritores = Executors.newFixedThreadPool(4);
+        try {
+            AtomicIntegerArray ajustes = new AtomicIntegerArray(ids.size());
+            Queue<Inventario> nuevos = new ConcurrentLinkedQueue<>();
+            AtomicBoolean terminado = new AtomicBoolean();
+            AtomicInteger escritas = new AtomicInteger();
+            CountDownLatch enMarcha = new CountDownLatch(4);
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int hilo = 0; hilo < 4; hilo++) {
+                int inicio = hilo;
+                tareas.add(escritores.submit(() -> {
+                    enMarcha.countDown();
+                    for (int i = inicio; !terminado.get(); i += 4) {
+                        int posicion = i % ids.size();
+                        ResultadoEscritura resultado = tres.enTransaccion(
+                                () -> tres.ajustarStock(ids.get(posicion), 1, LocalDateTime.now()));
+                        assertEquals(ResultadoEscritura.Estado.ACTUALIZADO, resultado.getEstado());
+                        ajustes.incrementAndGet(posicion);
+                        if (i % 10 == 0) {
+                            Inventario alta = new Inventario(0L, i, "CON-" + i % 40, LocalDateTime.now());
+                            nuevos.add(tres.enTransaccion(() -> tres.crear(alta)));
+                        }
+                        escritas.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            assertTrue(enMarcha.await(5, TimeUnit.SECONDS));
+
+            int previas = escritas.get();
+            ResultadoRebalanceo resultado = tres.rebalancear();
+            int durante = escritas.get() - previas;
+            terminado.set(true);
+            for (Future<?> tarea : tareas) {
+                tarea.get(30, TimeUnit.SECONDS);
+            }
+            assertTrue(resultado.getRanurasMovidas() > 0);
+            assertTrue(durante > 0, "Debe haber escrituras durante el rebalanceo");
+
+            for (int i = 0; i < ids.size(); i++) {
+                assertEquals(1_000 + ajustes.get(i), tres.buscar(ids.get(i)).orElseThrow().getStockDisponible());
+            }
+            for (Inventario nuevo : nuevos) {
+                assertEquals(nuevo.getStockDisponible(),
+                        tres.buscar(nuevo.getIdInventario()).orElseThrow().getStockDisponible());
+            }
+            List<Long> todos = new ArrayList<>(ids);
+            nuevos.forEach(nuevo -> todos.add(nuevo.getIdInventario()));
+            assertEquals(todos.stream().sorted().collect(Collectors.toList()),
+                    tres.listarTodos().stream().map(Inventario::getIdInventario).collect(Collectors.toList()));
+            EstadoFragmentos estado = tres.estado();
+            assertEquals(0, estado.getRanurasPendientes());
+            assertEquals(todos.size(), estado.getFilas().stream().mapToLong(Long::longValue).sum());
+        } finally {
+            escritores.shutdownNow();
+            tres.cerrar();
+        }
+    }
+
+    // Paso desde el motor JPA: las filas conservan id y versión, se encuentran por id aunque
+    // el id no lleve la ranura y siguen ubicables después de un rebalanceo
+    @Test
+    public void testMigracion_CopiaLaTablaJpaConservandoLosIds() {
+        DataSource catalogo = base("jdbc:h2:mem:migracion-catalogo;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        List<DataSource> bases = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            bases.add(base("jdbc:h2:mem:migracion-" + i + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+        }
+        JdbcTemplate principal = new JdbcTemplate(catalogo);
+        principal.execute("CREATE TABLE inventario (id_inventario BIGINT NOT NULL, stock_disponible INT NOT NULL,"
+                + " ubicacion_bodega VARCHAR(255), fecha_ultima_actualizacion DATETIME(6),"
+                + " version BIGINT NOT NULL DEFAULT 0, PRIMARY KEY (id_inventario))");
+        List<Object[]> filas = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= 2_500; i++) {
+            ids.add(i * 7L);
+            filas.add(new Object[] { i * 7L, i, "MIG-" + i % 30, LocalDateTime.now(), i % 3 });
+        }
+        principal.batchUpdate("INSERT INTO inventario (id_inventario, stock_disponible, ubicacion_bodega,"
+                + " fecha_ultima_actualizacion, version) VALUES (?, ?, ?, ?, ?)", filas);
+        TransactionTemplate transaccion = new TransactionTemplate(new DataSourceTransactionManager(catalogo));
+
+        AlmacenFragmentado dos = new AlmacenFragmentado(bases.subList(0, 2), catalogo, transaccion,
+                Executors.newCachedThreadPool(), 10, 30_000, true);
+        Inventario nuevo;
+        try {
+            assertEquals(2_500L, dos.estado().getFilas().stream().mapToLong(Long::longValue).sum());
+            assertEquals(ids, dos.listarTodos().stream().map(Inventario::getIdInventario)
+                    .collect(Collectors.toList()));
+            Inventario migrado = dos.buscar(70L).orElseThrow();
+            assertEquals(10, migrado.getStockDisponible());
+            assertEquals(1L, migrado.getVersion());
+            ResultadoEscritura ajuste = dos.enTransaccion(() -> dos.ajustarStock(70L, 5, LocalDateTime.now()));
+            assertEquals(15, ajuste.getInventario().getStockDisponible());
+
+            // Los ids nuevos quedan por encima de los heredados
+            nuevo = dos.enTransaccion(() -> dos.crear(new Inventario(0L, 1, "MIG-1", null)));
+            assertTrue(nuevo.getIdInventario() > 2_500 * 7L);
+        } finally {
+            dos.cerrar();
+        }
+
+        // Migración cortada en el último bloque: el arranque siguiente lo vuelve a copiar
+        principal.update("DELETE FROM inventario_heredado WHERE id_inventario > ?", 2_000 * 7L);
+        AlmacenFragmentado tres = new AlmacenFragmentado(bases, catalogo, transaccion,
+                Executors.newCachedThreadPool(), 10, 30_000, true);
+        try {
+            assertEquals(2_501L, tres.estado().getFilas().stream().mapToLong(Long::longValue).sum());
+            assertTrue(tres.rebalancear().getRanurasMovidas() > 0);
+
+            assertEquals(2_501, tres.listarTodos().size());
+            for (int i = 1; i <= 2_500; i++) {
+                assertEquals(i == 10 ? 15 : i, tres.buscar(i * 7L).orElseThrow().getStockDisponible());
+            }
+            assertEquals(1, tres.buscar(nuevo.getIdInventario()).orElseThrow().getStockDisponible());
+            assertEquals(84, tres.buscarPorUbicacion("MIG-5").size());
+        } finally {
+            tres.cerrar();
+        }
+    }
+
+    private static DataSource base(String url) {
+        return new DriverManagerDataSource(url, "sa", "");
+    }
+
+    private static long contar(JdbcTemplate fragmento, String patron) {
+        return fragmento.queryForObject("SELECT COUNT(*) FROM inventario_fragmento WHERE ubicacion_bodega LIKE ?",
+                Long.class, patron);
+    }
+
+    private static long contarId(JdbcTemplate fragmento, long idInventario) {
+        return fragmento.queryForObject("SELECT COUNT(*) FROM inventario_fragmento WHERE id_inventario = ?",
+                Long.class, idInventario);
+    }
+}
@@ -0,0 +1,93 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.inventario.inventario.almacen.AlmacenJpa;
+import com.inventario.inventario.repository.InventarioRepository;
+
+import jakarta.persistence.EntityManager;
+
+// Cupo de transacciones de escritura de AlmacenJpa: con un pool de 2 conexiones solo una
+// transacción de escritura corre a la vez y la siguiente espera hasta el timeout del pool.
+public class AlmacenJpaTest {
+
+    private static final long ESPERA_MILLIS = 200;
+
+    private AlmacenJpa almacen;
+    private ExecutorService hilos;
+
+    @BeforeEach
+    public void setup() {
+        almacen = new AlmacenJpa(mock(InventarioRepository.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), mock(EntityManager.class),
+                2, ESPERA_MILLIS);
+        hilos = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    public void cerrar() {
+        hilos.shutdownNow();
+    }
+
+    @Test
+    public void testEnTransaccion_SinCupoFallaAlVencerLaEspera() throws Exception {
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        Future<String> ocupada = hilos.submit(() -> almacen.enTransaccion(() -> {
+            dentro.countDown();
+            esperar(soltar);
+            return "primera";
+        }));
+        assertTrue(dentro.await(5, TimeUnit.SECONDS));
+
+        long inicio = System.nanoTime();
+        assertThrows(CannotCreateTransactionException.class, () -> almacen.enTransaccion(() -> "segunda"));
+        assertTrue(System.nanoTime() - inicio >= TimeUnit.MILLISECONDS.toNanos(ESPERA_MILLIS),
+                "Debe esperar el timeout antes de fallar");
+
+        // Al terminar la primera el cupo se devuelve
+        soltar.countDown();
+        assertEquals("primera", ocupada.get(5, TimeUnit.SECONDS));
+        assertEquals("tercera", almacen.enTransaccion(() -> "tercera"));
+    }
+
+    @Test
+    public void testEnTransaccion_AnidadaNoTomaOtroCupo() throws Exception {
+        // Con un cupo de 1 la llamada anidada se bloquearía hasta el timeout si volviera a contarse
+        String resultado = almacen.enTransaccion(() -> {
+            TransactionSynchronizationManager.setActualTransactionActive(true);
+            try {
+                return almacen.enTransaccion(() -> "anidada");
+            } finally {
+                TransactionSynchronizationManager.setActualTransactionActive(false);
+            }
+        });
+
+        assertEquals("anidada", resultado);
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.inventario.inventario.almacen.AlmacenInventario;
+import com.inventario.inventario.almacen.AlmacenMemoria;
+import com.inventario.inventario.almacen.ResultadoEscritura;
+import com.inventario.inventario.exception.StockInsuficienteException;
+import com.inventario.inventario.model.FormatoExportacion;
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.ModoBusqueda;
+import com.inventario.inventario.model.MovimientoStock;
+import com.inventario.inventario.model.PaginaInventario;
+import com.inventario.inventario.repository.ResumenUbicacion;
+import com.inventario.inventario.service.InventarioService;
+
+@SpringBootTest(properties = "inventario.almacen.motor=memoria")
+@ActiveProfiles("test")
+public class AlmacenMemoriaMotorTest {
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private AlmacenInventario almacen;
+
+    @TempDir
+    private Path directorio;
+
+    @Test
+    public void testServicio_OperacionesSobreElMotorEnMemoria() throws IOException {
+        assertInstanceOf(AlmacenMemoria.class, almacen);
+        List<Inventario> carga = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            carga.add(new Inventario(0L, 10 + i, i % 2 == 0 ? "MEM-Par" : "MEM-Impar pasillo", null));
+        }
+        inventarioService.cargarInventariosMasivo(carga.iterator());
+
+        List<Inventario> pares = inventarioService.obtenerInventarioPorUbicacion("MEM-Par");
+        assertEquals(15, pares.size());
+        long id = pares.get(0).getIdInventario();
+        assertEquals(7, inventarioService.ajustarStock(id, -3));
+        assertThrows(StockInsuficienteException.class, () -> inventarioService.ajustarStock(id, -100));
+        assertNull(inventarioService.ajustarStock(Long.MAX_VALUE, 1));
+
+        // La transferencia se aplica completa o no se aplica
+        long origen = pares.get(1).getIdInventario();
+        long destino = pares.get(2).getIdInventario();
+        List<Inventario> transferidos = inventarioService.transferirStock(List.of(
+                new MovimientoStock(origen, destino, 5), new MovimientoStock(destino, id, 1)));
+        assertEquals(List.of(8, 7, 18), transferidos.stream().map(Inventario::getStockDisponible)
+                .collect(Collectors.toList()));
+        assertThrows(StockInsuficienteException.class, () -> inventarioService.transferirStock(List.of(
+                new MovimientoStock(destino, origen, 1), new MovimientoStock(origen, destino, 100))));
+        assertEquals(7, inventarioService.obtenerInventario(origen).orElseThrow().getStockDisponible());
+
+        // La versión avanza con cada escritura, una versión vieja es un conflicto
+        long version = inventarioService.obtenerInventario(id).orElseThrow().getVersion();
+        assertEquals(InventarioService.CONFLICTO_VERSION,
+                inventarioService.actualizarInventario(id, new Inventario(0L, 50, null, null), version - 1));
+        assertEquals("Stock actualizado correctamente",
+                inventarioService.actualizarInventario(id, new Inventario(0L, 50, null, null), version));
+
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            PaginaInventario pagina = inventarioService.listarInventariosPaginado(cursor, 4, "MEM-Impar pasillo",
+                    20, null);
+            pagina.getInventarios().forEach(inventario -> ids.add(inventario.getIdInventario()));
+            cursor = pagina.getSiguienteCursor();
+        } while (cursor != null);
+        assertEquals(10, ids.size());
+        assertEquals(ids.stream().sorted().distinct().collect(Collectors.toList()), ids);
+
+        assertEquals(15, inventarioService.buscarPorUbicacion("impar PAS", ModoBusqueda.CONTIENE, null, 100)
+                .getInventarios().size());
+        assertEquals("Inventario eliminado correctamente", inventarioService.eliminarInventario(id));
+        assertEquals(14, inventarioService.obtenerInventarioPorUbicacion("MEM-Par").size());
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        long filas = inventarioService.exportarInventarios(salida, FormatoExportacion.CSV);
+        assertEquals(filas + 1, salida.toString(StandardCharsets.UTF_8).split("\n").length);
+        assertTrue(filas >= 29);
+    }
+
+    @Test
+    public void testPersistencia_RegistroSeRepiteAlReiniciar() throws IOException {
+        LocalDateTime fecha = LocalDateTime.of(2026, 3, 1, 12, 30, 15, 123_456_789);
+        AlmacenMemoria primero = new AlmacenMemoria(directorio, 16, false, 1 << 20);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(primero.crear(new Inventario(0L, i, "BOD-" + (i % 7), fecha)).getIdInventario());
+        }
+        primero.ajustarStock(ids.get(5), 40, fecha);
+        primero.eliminar(ids.get(6), null);
+        primero.cerrar();
+
+        // Un registro cortado a mitad de escritura se ignora
+        Files.write(directorio.resolve("inventarios.log"), new byte[] { 1, 0, 0, 0 }, StandardOpenOption.APPEND);
+
+        AlmacenMemoria segundo = new AlmacenMemoria(directorio, 16, false, 1 << 20);
+        assertEquals(99, segundo.filas());
+        Inventario ajustado = segundo.buscar(ids.get(5)).orElseThrow();
+        assertEquals(45, ajustado.getStockDisponible());
+        assertEquals(1L, ajustado.getVersion());
+        assertEquals(fecha, ajustado.getFechaUltimaActualizacion());
+        assertFalse(segundo.existe(ids.get(6)));
+        assertEquals(14, segundo.buscarPorUbicacion("BOD-3").size());
+        assertTrue(segundo.crear(new Inventario(0L, 1, "BOD-0", fecha)).getIdInventario() > ids.get(99));
+        segundo.cerrar();
+    }
+
+    @Test
+    public void testPersistencia_CompactaEnInstantanea() throws IOException {
+        AlmacenMemoria primero = new AlmacenMemoria(directorio, 16, false, 512);
+        long id = primero.crear(new Inventario(0L, 100, "BOD-SNAP", null)).getIdInventario();
+        for (int i = 0; i < 50; i++) {
+            assertEquals(ResultadoEscritura.Estado.ACTUALIZADO, primero.ajustarStock(id, -1, null).getEstado());
+        }
+        primero.cerrar();
+        assertTrue(Files.exists(directorio.resolve("inventarios.snap")));
+        assertTrue(Files.size(directorio.resolve("inventarios.log")) < 512);
+
+        AlmacenMemoria segundo = new AlmacenMemoria(directorio, 16, false, 512);
+        Inventario inventario = segundo.buscar(id).orElseThrow();
+        assertEquals(50, inventario.getStockDisponible());
+        assertEquals(50L, inventario.getVersion());
+        assertNull(inventario.getFechaUltimaActualizacion());
+        List<ResumenUbicacion> resumen = segundo.resumirPorUbicacion(60);
+        assertEquals(1, resumen.size());
+        assertEquals(1L, resumen.get(0).getSkusStockBajo());
+        segundo.cerrar();
+    }
+}
@@ -0,0 +1,146 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.inventario.inventario.event.InventarioEvento;
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.service.CambiosStockService;
+import com.inventario.inventario.service.InventarioService;
+
+@SpringBootTest(properties = "inventario.cambios.capacidad=16")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class CambiosStockServiceTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private CambiosStockService cambiosStockService;
+
+    @Test
+    public void testFeed_EnviaCadaCambioConSuSecuencia() throws Exception {
+        MvcResult suscripcion = mockMvc.perform(get("/api/v1/inventarios/cambios"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        long inicio = cambiosStockService.ultimaSecuencia();
+
+        inventarioService.crearInventario(new Inventario(0L, 40, "FEED-A", LocalDateTime.now()));
+        long id = inventarioService.obtenerInventarioPorUbicacion("FEED-A").get(0).getIdInventario();
+        inventarioService.ajustarStock(id, -3);
+
+        String contenido = esperar(suscripcion.getResponse(),
+                texto -> texto.contains("id:" + (inicio + 2) + "\n"));
+        int creado = contenido.indexOf("id:" + (inicio + 1) + "\ndata:{\"secuencia\":" + (inicio + 1)
+                + ",\"tipo\":\"CREADO\",\"idInventario\":" + id);
+        int ajustado = contenido.indexOf("\"tipo\":\"AJUSTADO\"");
+        assertTrue(creado >= 0, contenido);
+        assertTrue(ajustado > creado, contenido);
+        assertTrue(contenido.contains("\"stockAnterior\":40,\"stockDisponible\":37"), contenido);
+    }
+
+    @Test
+    public void testFeed_LastEventIdReanudaSinRepetir() throws Exception {
+        long inicio = cambiosStockService.ultimaSecuencia();
+        inventarioService.crearInventario(new Inventario(0L, 10, "FEED-B", LocalDateTime.now()));
+        inventarioService.crearInventario(new Inventario(0L, 20, "FEED-B", LocalDateTime.now()));
+
+        MvcResult suscripcion = mockMvc.perform(get("/api/v1/inventarios/cambios")
+                .header("Last-Event-ID", Long.toString(inicio + 1)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String contenido = esperar(suscripcion.getResponse(),
+                texto -> texto.contains("id:" + (inicio + 2) + "\n"));
+        assertFalse(contenido.contains("id:" + (inicio + 1) + "\n"), contenido);
+        assertEquals(1, contenido.split("\ndata:", -1).length - 1, contenido);
+    }
+
+    @Test
+    public void testFeed_SuscriptorFueraDelAnilloRecibeDesfasado() throws Exception {
+        long inicio = cambiosStockService.ultimaSecuencia();
+        for (int i = 0; i < 20; i++) {
+            inventarioService.crearInventario(new Inventario(0L, 5 + i, "FEED-C", LocalDateTime.now()));
+        }
+
+        MvcResult suscripcion = mockMvc.perform(get("/api/v1/inventarios/cambios")
+                .header("Last-Event-ID", Long.toString(inicio)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String contenido = esperar(suscripcion.getResponse(), texto -> texto.contains("event:desfasado"));
+        assertTrue(contenido.contains("id:" + cambiosStockService.ultimaSecuencia() + "\n"), contenido);
+        assertFalse(contenido.contains("\"tipo\""), contenido);
+    }
+
+    // Los hilos que publican a la vez reciben secuencias contiguas y cada evento lleva la suya
+    @Test
+    public void testFeed_PublicacionesConcurrentesTienenSecuenciasContiguas() throws Exception {
+        long inicio = cambiosStockService.ultimaSecuencia();
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < 8; h++) {
+                tareas.add(hilos.submit(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        cambiosStockService.alCambiarInventario(new InventarioEvento(InventarioEvento.Tipo.AJUSTADO,
+                                i, "FEED-D", i + 1, i, LocalDateTime.now(), 1));
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+        long fin = cambiosStockService.ultimaSecuencia();
+        assertEquals(inicio + 2000, fin);
+
+        MvcResult suscripcion = mockMvc.perform(get("/api/v1/inventarios/cambios")
+                .header("Last-Event-ID", Long.toString(fin - 8)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String contenido = esperar(suscripcion.getResponse(), texto -> texto.contains("id:" + fin + "\n"));
+        for (long secuencia = fin - 7; secuencia <= fin; secuencia++) {
+            assertTrue(contenido.contains("id:" + secuencia + "\ndata:{\"secuencia\":" + secuencia
+                    + ",\"tipo\":\"AJUSTADO\""), contenido);
+        }
+    }
+
+    private static String esperar(MockHttpServletResponse respuesta, Predicate<String> condicion) throws Exception {
+        long limite = System.nanoTime() + 5_000_000_000L;
+        String contenido = respuesta.getContentAsString();
+        while (!condicion.test(contenido) && System.nanoTime() < limite) {
+            Thread.sleep(20);
+            contenido = respuesta.getContentAsString();
+        }
+        assertTrue(condicion.test(contenido), contenido);
+        return contenido;
+    }
+}
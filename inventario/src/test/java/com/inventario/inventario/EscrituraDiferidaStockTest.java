@@ -0,0 +1,218 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import com.inventario.inventario.event.EscrituraDescartadaEvento;
+import com.inventario.inventario.exception.StockInsuficienteException;
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.MovimientoStock;
+import com.inventario.inventario.model.entity.InventarioEntity;
+import com.inventario.inventario.repository.InventarioRepository;
+import com.inventario.inventario.service.EscrituraDiferidaStock;
+import com.inventario.inventario.service.InventarioService;
+import com.inventario.inventario.service.ResumenStockService;
+
+// El intervalo es largo para que solo vacíen las llamadas explícitas de la prueba
+@SpringBootTest(properties = {
+        "inventario.escritura-diferida.activa=true",
+        "inventario.escritura-diferida.intervalo=1h",
+        "inventario.escritura-diferida.maximo-pendientes=100000"
+})
+@ActiveProfiles("test")
+@RecordApplicationEvents
+public class EscrituraDiferidaStockTest {
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private EscrituraDiferidaStock escrituraDiferida;
+
+    @Autowired
+    private ResumenStockService resumenStockService;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEvents eventos;
+
+    private long idInventario;
+
+    @BeforeEach
+    public void setup() {
+        escrituraDiferida.vaciar();
+        inventarioRepository.deleteAllInBatch();
+        InventarioEntity entidad = new InventarioEntity();
+        entidad.setStockDisponible(100);
+        entidad.setUbicacionBodega("BOD-DIF");
+        entidad.setFechaUltimaActualizacion(LocalDateTime.now());
+        idInventario = inventarioRepository.save(entidad).getIdInventario();
+        resumenStockService.reconstruir();
+    }
+
+    @Test
+    public void testEscrituraDiferida_CombinaYLecturasVenLoPendiente() {
+        assertEquals(110, inventarioService.ajustarStock(idInventario, 10));
+        assertEquals(105, inventarioService.ajustarStock(idInventario, -5));
+        assertEquals("Stock actualizado correctamente",
+                inventarioService.actualizarInventario(idInventario, new Inventario(0L, 50, null, null)));
+        assertEquals(53, inventarioService.ajustarStock(idInventario, 3));
+
+        // Las lecturas ven el valor pendiente, la base todavía no
+        assertEquals(53, inventarioService.obtenerInventario(idInventario).orElseThrow().getStockDisponible());
+        assertEquals(53, inventarioService.obtenerInventarioPorUbicacion("BOD-DIF").get(0).getStockDisponible());
+        assertEquals(100, inventarioRepository.findById(idInventario).orElseThrow().getStockDisponible());
+
+        escrituraDiferida.vaciar();
+
+        // Cuatro escrituras combinadas en una sola actualización de la fila
+        InventarioEntity guardado = inventarioRepository.findById(idInventario).orElseThrow();
+        assertEquals(53, guardado.getStockDisponible());
+        assertEquals(1, guardado.getVersion());
+        assertEquals(53, inventarioService.obtenerInventario(idInventario).orElseThrow().getStockDisponible());
+        assertTrue(resumenStockService.verificarConsistencia().isConsistente());
+    }
+
+    @Test
+    public void testEscrituraDiferida_ValidaStockYExistencia() {
+        assertThrows(StockInsuficienteException.class, () -> inventarioService.ajustarStock(idInventario, -101));
+        assertNull(inventarioService.ajustarStock(999_999L, 1));
+        assertEquals("Inventario no encontrado",
+                inventarioService.actualizarInventario(999_999L, new Inventario(0L, 5, null, null)));
+    }
+
+    @Test
+    public void testEscrituraDiferida_IfMatchVaciaAntesDeComparar() {
+        inventarioService.ajustarStock(idInventario, 1);
+
+        // Tras vaciar la fila queda en versión 1, la versión 0 ya no coincide
+        assertEquals(InventarioService.CONFLICTO_VERSION,
+                inventarioService.actualizarInventario(idInventario, new Inventario(0L, 7, null, null), 0L));
+        assertEquals(101, inventarioRepository.findById(idInventario).orElseThrow().getStockDisponible());
+    }
+
+    @Test
+    public void testEscrituraDiferida_ConcurrenteNoPierdeAjustes() throws Exception {
+        int hilos = 8;
+        int ajustesPorHilo = 500;
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                tareas.add(ejecutor.submit(() -> {
+                    for (int i = 0; i < ajustesPorHilo; i++) {
+                        inventarioService.ajustarStock(idInventario, 1);
+                        if (i % 100 == 0) {
+                            escrituraDiferida.vaciar();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } finally {
+            ejecutor.shutdown();
+        }
+        escrituraDiferida.vaciar();
+
+        assertEquals(100 + hilos * ajustesPorHilo,
+                inventarioRepository.findById(idInventario).orElseThrow().getStockDisponible());
+        assertTrue(resumenStockService.verificarConsistencia().isConsistente());
+    }
+
+    @Test
+    public void testEscrituraDiferida_AjusteDuranteUnaEscrituraDirectaEspera() throws Exception {
+        InventarioEntity otro = new InventarioEntity();
+        otro.setStockDisponible(0);
+        otro.setUbicacionBodega("BOD-DIF");
+        otro.setFechaUltimaActualizacion(LocalDateTime.now());
+        long idDestino = inventarioRepository.save(otro).getIdInventario();
+        assertEquals(20, inventarioService.ajustarStock(idInventario, -80));
+
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch continuar = new CountDownLatch(1);
+        ExecutorService ejecutor = Executors.newFixedThreadPool(2);
+        try {
+            // La transferencia vacía el buffer y se detiene antes de escribir
+            Future<?> directa = ejecutor.submit(() -> escrituraDiferida.escribirDirecto(List.of(idInventario), () -> {
+                dentro.countDown();
+                await(continuar);
+                return inventarioService.transferirStock(List.of(new MovimientoStock(idInventario, idDestino, 15)));
+            }));
+            assertTrue(dentro.await(10, TimeUnit.SECONDS));
+            assertEquals(20, inventarioRepository.findById(idInventario).orElseThrow().getStockDisponible());
+
+            // El ajuste diferido no se valida contra los 20 que la transferencia va a cambiar
+            Future<Integer> diferido = ejecutor.submit(() -> inventarioService.ajustarStock(idInventario, -10));
+            Thread.sleep(200);
+            assertFalse(diferido.isDone());
+            continuar.countDown();
+            directa.get(10, TimeUnit.SECONDS);
+
+            ExecutionException error = assertThrows(ExecutionException.class,
+                    () -> diferido.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(StockInsuficienteException.class, error.getCause());
+        } finally {
+            continuar.countDown();
+            ejecutor.shutdown();
+        }
+        escrituraDiferida.vaciar();
+
+        assertEquals(5, inventarioRepository.findById(idInventario).orElseThrow().getStockDisponible());
+        assertEquals(15, inventarioRepository.findById(idDestino).orElseThrow().getStockDisponible());
+        assertEquals(0, eventos.stream(EscrituraDescartadaEvento.class).count());
+    }
+
+    @Test
+    public void testEscrituraDiferida_DescarteSeInformaConEvento() {
+        assertEquals(10, inventarioService.ajustarStock(idInventario, -90));
+        // Un escritor que no pasa por el servicio deja la fila por debajo de lo descontado
+        jdbcTemplate.update("UPDATE inventario SET stock_disponible = 50 WHERE id_inventario = ?", idInventario);
+
+        escrituraDiferida.vaciar();
+
+        assertEquals(50, inventarioRepository.findById(idInventario).orElseThrow().getStockDisponible());
+        EscrituraDescartadaEvento descartada = eventos.stream(EscrituraDescartadaEvento.class)
+                .findFirst().orElseThrow();
+        assertEquals(idInventario, descartada.getIdInventario());
+        assertEquals(-90, descartada.getDelta());
+        assertEquals(50, descartada.getStockEnBase());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.inventario.inventario.model.CorteHistorial;
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.StockEnFecha;
+import com.inventario.inventario.service.HistorialStockService;
+import com.inventario.inventario.service.InventarioService;
+
+// Lotes de 2 para recorrer las instantáneas del corte anterior en varias páginas. Sin margen de
+// confirmación los cortes incluyen lo recién confirmado; la prueba de escrituras concurrentes
+// lo cambia mientras una transacción queda abierta
+@SpringBootTest(properties = {
+        "inventario.historial.tamano-lote=2",
+        "inventario.historial.intervalo-corte=1h",
+        "inventario.historial.margen-confirmacion=0s"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class HistorialStockTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private HistorialStockService historialStockService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    public void testHistorial_StockEnFechaDesdeElCorteYLosMovimientosPosteriores() throws Exception {
+        LocalDateTime antes = marca();
+        long[] ids = crear(new Inventario(0, 10, "HIST-A", null, 0), new Inventario(0, 20, "HIST-A", null, 0),
+                new Inventario(0, 5, "HIST-B", null, 0));
+        long a = ids[0];
+        long b = ids[1];
+        LocalDateTime t1 = marca();
+        inventarioService.ajustarStock(a, 5);
+        LocalDateTime t2 = marca();
+
+        CorteHistorial corte = historialStockService.cortar();
+        assertTrue(corte.getIdCorte() > 1);
+        assertTrue(corte.getFilas() >= 3);
+
+        inventarioService.ajustarStock(a, -3);
+        inventarioService.eliminarInventario(b);
+        long d = crear(new Inventario(0, 7, "HIST-A", null, 0))[0];
+        LocalDateTime t3 = marca();
+
+        assertTrue(historialStockService.obtenerStockEnFecha(a, antes).isEmpty());
+        assertEquals(10, stock(a, t1));
+        assertEquals(15, stock(a, t2));
+        assertEquals(12, stock(a, t3));
+        assertEquals(20, stock(b, t2));
+        assertTrue(historialStockService.obtenerStockEnFecha(b, t3).isEmpty());
+        assertEquals(List.of(new StockEnFecha(a, "HIST-A", 10, t1), new StockEnFecha(b, "HIST-A", 20, t1)),
+                historialStockService.obtenerStockEnFecha("HIST-A", t1));
+        assertEquals(List.of(new StockEnFecha(a, "HIST-A", 12, t3), new StockEnFecha(d, "HIST-A", 7, t3)),
+                historialStockService.obtenerStockEnFecha("HIST-A", t3));
+
+        // El corte nuevo arrastra las instantáneas del anterior con los movimientos del tramo
+        CorteHistorial siguiente = historialStockService.cortar();
+        assertEquals(corte.getIdCorte() + 1, siguiente.getIdCorte());
+        assertEquals(siguiente, historialStockService.cortar());
+        LocalDateTime t4 = marca();
+        assertEquals(List.of(new StockEnFecha(a, "HIST-A", 12, t4), new StockEnFecha(d, "HIST-A", 7, t4)),
+                historialStockService.obtenerStockEnFecha("HIST-A", t4));
+        assertEquals(5, stock(ids[2], t4));
+
+        Integer movimientos = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM movimiento_historial WHERE id_inventario = ?", Integer.class, a);
+        assertEquals(3, movimientos);
+    }
+
+    @Test
+    public void testHistorial_SeDeshaceConLaTransaccion() {
+        long id = crear(new Inventario(0, 4, "HIST-C", null, 0))[0];
+        transactionTemplate.executeWithoutResult(estado -> {
+            inventarioService.ajustarStock(id, 6);
+            estado.setRollbackOnly();
+        });
+
+        Integer movimientos = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM movimiento_historial WHERE id_inventario = ?", Integer.class, id);
+        assertEquals(1, movimientos);
+        assertEquals(4, stock(id, LocalDateTime.now()));
+    }
+
+    @Test
+    public void testHistorial_ConsultaPorHttp() throws Exception {
+        long id = crear(new Inventario(0, 9, "HIST-D", null, 0))[0];
+        LocalDateTime fecha = marca();
+
+        mockMvc.perform(get("/api/v1/inventarios/historial/{id}", id).param("fecha", fecha.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stockDisponible").value(9))
+                .andExpect(jsonPath("$.ubicacionBodega").value("HIST-D"));
+        mockMvc.perform(get("/api/v1/inventarios/historial/{id}", 999_999_999L))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/v1/inventarios/historial/ubicacion/{ubicacion}", "HIST-D"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].idInventario").value(id))
+                .andExpect(jsonPath("$[0].stockDisponible").value(9));
+    }
+
+    @Test
+    public void testHistorial_MovimientoQueConfirmaDespuesDelCorteNoSePierde() throws Exception {
+        long id = crear(new Inventario(0, 10, "HIST-E", null, 0))[0];
+        historialStockService.cortar();
+
+        // El movimiento lleva la fecha del evento, anterior al corte, pero confirma después
+        CountDownLatch ajustado = new CountDownLatch(1);
+        CountDownLatch confirmar = new CountDownLatch(1);
+        CompletableFuture<Void> tardia = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(
+                estado -> {
+                    inventarioService.ajustarStock(id, 4);
+                    ajustado.countDown();
+                    esperar(confirmar);
+                }));
+        assertTrue(ajustado.await(10, TimeUnit.SECONDS));
+        LocalDateTime evento = marca();
+        // Otra escritura ya confirmada obliga a escribir un corte nuevo
+        crear(new Inventario(0, 1, "HIST-E", null, 0));
+        CorteHistorial corte = historialStockService.cortar();
+        confirmar.countDown();
+        tardia.get(10, TimeUnit.SECONDS);
+
+        assertTrue(corte.getFecha().isAfter(evento));
+        assertEquals(14, stock(id, evento));
+        assertEquals(14, stock(id, marca()));
+        // El corte siguiente la incluye una sola vez
+        historialStockService.cortar();
+        assertEquals(14, stock(id, marca()));
+    }
+
+    // Una transacción que ya insertó sus movimientos y no confirma no detiene a las demás
+    // escrituras; el corte dentro del margen no avanza sobre su id hasta que confirma
+    @Test
+    public void testHistorial_EscriturasConcurrentesNoSeSerializan() throws Exception {
+        long[] ids = crear(new Inventario(0, 10, "HIST-G", null, 0), new Inventario(0, 20, "HIST-G", null, 0));
+        CorteHistorial anterior = historialStockService.cortar();
+
+        CountDownLatch insertado = new CountDownLatch(1);
+        CountDownLatch confirmar = new CountDownLatch(1);
+        CompletableFuture<Void> lenta = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(
+                estado -> {
+                    inventarioService.ajustarStock(ids[0], 4);
+                    // Con el orden por defecto corre después del lote del historial
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void beforeCommit(boolean readOnly) {
+                            insertado.countDown();
+                            esperar(confirmar);
+                        }
+                    });
+                }));
+        Duration margen = (Duration) ReflectionTestUtils.getField(historialStockService, "margenConfirmacion");
+        try {
+            assertTrue(insertado.await(10, TimeUnit.SECONDS));
+            CompletableFuture.runAsync(() -> inventarioService.ajustarStock(ids[1], 5)).get(5, TimeUnit.SECONDS);
+
+            // El movimiento confirmado tiene un id mayor que el de la transacción abierta
+            ReflectionTestUtils.setField(historialStockService, "margenConfirmacion", Duration.ofHours(1));
+            assertEquals(anterior, historialStockService.cortar());
+        } finally {
+            ReflectionTestUtils.setField(historialStockService, "margenConfirmacion", margen);
+            confirmar.countDown();
+        }
+        lenta.get(10, TimeUnit.SECONDS);
+
+        CorteHistorial corte = historialStockService.cortar();
+        assertEquals(anterior.getIdCorte() + 1, corte.getIdCorte());
+        LocalDateTime fecha = marca();
+        assertEquals(14, stock(ids[0], fecha));
+        assertEquals(25, stock(ids[1], fecha));
+    }
+
+    @Test
+    public void testHistorial_RetencionBorraLosCortesYMovimientosViejos() throws Exception {
+        long id = crear(new Inventario(0, 3, "HIST-F", null, 0))[0];
+        LocalDateTime antes = marca();
+        inventarioService.ajustarStock(id, 2);
+        CorteHistorial corte = historialStockService.cortar();
+        inventarioService.ajustarStock(id, 1);
+        CorteHistorial ultimo = historialStockService.cortar();
+        marca();
+
+        // Sin movimientos nuevos no hay corte, solo la limpieza
+        Duration retencion = (Duration) ReflectionTestUtils.getField(historialStockService, "retencion");
+        ReflectionTestUtils.setField(historialStockService, "retencion", Duration.ofMillis(1));
+        try {
+            assertEquals(ultimo, historialStockService.cortar());
+        } finally {
+            ReflectionTestUtils.setField(historialStockService, "retencion", retencion);
+        }
+
+        // Queda el último corte como punto de partida
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM corte_historial", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM instantanea_stock WHERE id_corte <= ?",
+                Integer.class, corte.getIdCorte()));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM movimiento_historial WHERE id_inventario = ?",
+                Integer.class, id));
+        assertTrue(historialStockService.obtenerStockEnFecha(id, antes).isEmpty());
+        assertEquals(6, stock(id, LocalDateTime.now()));
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long[] crear(Inventario... inventarios) {
+        return inventarioService.guardarLoteValidado(List.of(inventarios)).stream()
+                .mapToLong(resultado -> resultado.getInventario().getIdInventario())
+                .toArray();
+    }
+
+    private int stock(long idInventario, LocalDateTime fecha) {
+        return historialStockService.obtenerStockEnFecha(idInventario, fecha).orElseThrow().getStockDisponible();
+    }
+
+    // Fecha separada de los movimientos anteriores y posteriores
+    private static LocalDateTime marca() throws InterruptedException {
+        Thread.sleep(5);
+        LocalDateTime fecha = LocalDateTime.now();
+        Thread.sleep(5);
+        return fecha;
+    }
+}
@@ -0,0 +1,158 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventario.inventario.model.EstadoImportacion;
+import com.inventario.inventario.model.entity.InventarioEntity;
+import com.inventario.inventario.repository.InventarioRepository;
+
+@SpringBootTest(properties = {
+        "inventario.carga-masiva.tamano-lote=100",
+        "inventario.importacion.escritores=3",
+        "inventario.importacion.cola=2"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ImportacionCsvTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @BeforeEach
+    public void limpiar() {
+        inventarioRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void testImportacion_CsvCreaActualizaYReportaRechazados() throws Exception {
+        InventarioEntity existente = new InventarioEntity();
+        existente.setStockDisponible(5);
+        existente.setUbicacionBodega("IMP-A");
+        existente.setFechaUltimaActualizacion(LocalDateTime.now());
+        existente = inventarioRepository.save(existente);
+
+        StringBuilder csv = new StringBuilder("ubicacionBodega,stockDisponible,idInventario\r\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append("IMP-A,").append(10 + i).append(",\r\n");
+        }
+        csv.append("\"IMP-B, pasillo \"\"2\"\"\",7,\n");
+        csv.append(",3,\n");
+        csv.append("IMP-A,0,\n");
+        csv.append("IMP-A,muchos,\n");
+        // Más largo que la columna: falla su lote y se reintenta fila por fila
+        csv.append("X".repeat(300)).append(",4,\n");
+        csv.append("\n");
+        csv.append("Otra bodega,99,").append(existente.getIdInventario()).append('\n');
+
+        JsonNode estado = esperarFin(mockMvc.perform(post("/api/v1/inventarios/importaciones")
+                .contentType("text/csv")
+                .content(csv.toString().getBytes(StandardCharsets.UTF_8))));
+        assertEquals(EstadoImportacion.COMPLETADA, estado.get("estado").asText());
+
+        assertEquals(1006, estado.get("filasLeidas").asLong());
+        assertEquals(1001, estado.get("creados").asLong());
+        assertEquals(1, estado.get("actualizados").asLong());
+        assertEquals(4, estado.get("rechazados").asLong());
+        assertEquals(csv.length(), estado.get("bytesLeidos").asLong());
+        assertEquals(1002, inventarioRepository.count());
+        assertEquals(99, inventarioRepository.findById(existente.getIdInventario()).orElseThrow()
+                .getStockDisponible());
+        assertEquals(1, inventarioRepository.findByUbicacionBodega("IMP-B, pasillo \"2\"").size());
+
+        String idImportacion = estado.get("idImportacion").asText();
+        mockMvc.perform(get("/api/v1/inventarios/importaciones/{id}", idImportacion))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.creados").value(1001));
+        String errores = mockMvc.perform(get("/api/v1/inventarios/importaciones/{id}/errores", idImportacion))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        // El mensaje de la base puede traer saltos de línea, va entre comillas
+        assertTrue(errores.startsWith("linea,motivo,registro\n"));
+        assertEquals(4, Pattern.compile("(?m)^\\d+,").matcher(errores).results().count());
+        assertTrue(errores.contains("1003,La ubicación de bodega es obligatoria,\",3,\""));
+        assertTrue(errores.contains("1004,El stock disponible debes ingresarlo obligatoriamente,\"IMP-A,0,\""));
+        assertTrue(errores.contains("1005,stockDisponible no es un número entero: muchos,"));
+        assertTrue(errores.contains("1006,\"Error al guardar: "));
+    }
+
+    @Test
+    public void testImportacion_ArchivoMultipartSinEncabezado() throws Exception {
+        MockMultipartFile archivo = new MockMultipartFile("archivo", "inventarios.csv", "text/csv",
+                "0,5,IMP-C\n0,6,IMP-C,2024-01-01T00:00\n".getBytes(StandardCharsets.UTF_8));
+
+        JsonNode estado = esperarFin(mockMvc.perform(multipart("/api/v1/inventarios/importaciones").file(archivo)));
+        assertEquals(2, estado.get("creados").asLong());
+        assertEquals(0, estado.get("rechazados").asLong());
+        assertEquals(2, inventarioRepository.findByUbicacionBodega("IMP-C").size());
+
+        mockMvc.perform(get("/api/v1/inventarios/importaciones"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].estado").value(EstadoImportacion.COMPLETADA));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/inventarios/importaciones/{id}", "no-existe"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testImportacion_ComillaSinCerrarDetieneLaImportacion() throws Exception {
+        JsonNode estado = esperarFin(mockMvc.perform(post("/api/v1/inventarios/importaciones")
+                .contentType("text/csv")
+                .content("0,1,IMP-D\n0,2,\"IMP-D\n")));
+        assertEquals(EstadoImportacion.FALLIDA, estado.get("estado").asText());
+        assertEquals(1, estado.get("creados").asLong());
+        assertEquals("Comillas sin cerrar en el registro de la línea 2", estado.get("mensaje").asText());
+    }
+
+    // La petición responde 202 con el id apenas recibe el archivo; el avance se sondea en Location
+    private JsonNode esperarFin(ResultActions peticion) throws Exception {
+        MockHttpServletResponse respuesta = peticion
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.estado").value(EstadoImportacion.EN_CURSO))
+                .andReturn().getResponse();
+        String ubicacion = respuesta.getHeader(HttpHeaders.LOCATION);
+        assertEquals("/api/v1/inventarios/importaciones/"
+                + objectMapper.readTree(respuesta.getContentAsString()).get("idImportacion").asText(), ubicacion);
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (true) {
+            JsonNode estado = objectMapper.readTree(mockMvc.perform(get(ubicacion))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8));
+            if (!EstadoImportacion.EN_CURSO.equals(estado.get("estado").asText())) {
+                return estado;
+            }
+            assertTrue(System.nanoTime() < limite, "La importación no terminó");
+            Thread.sleep(20);
+        }
+    }
+}
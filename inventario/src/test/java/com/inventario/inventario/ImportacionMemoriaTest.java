@@ -0,0 +1,110 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.inventario.inventario.model.EstadoImportacion;
+import com.inventario.inventario.service.ImportacionCsvService;
+
+// Corre en su propia ejecución de surefire con -Xmx64m (ver pom.xml). El CSV se genera a
+// medida que se lee y pesa más que el heap: cada fila lleva una columna desconocida larga
+// que la importación ignora. La base H2 es de archivo para que las filas no ocupen el heap.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:file:./target/h2/importacion;MODE=MySQL;CACHE_SIZE=8192",
+        "spring.jpa.hibernate.ddl-auto=create"
+})
+@ActiveProfiles("test")
+public class ImportacionMemoriaTest {
+
+    private static final int FILAS = Integer.getInteger("importacion.filas", 35_000);
+    private static final String RELLENO = "x".repeat(2_000);
+
+    @Autowired
+    private ImportacionCsvService importacionCsvService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testImportarCsv_ArchivoMayorQueElHeap() throws Exception {
+        GeneradorCsv csv = new GeneradorCsv(FILAS);
+
+        EstadoImportacion estado = importacionCsvService.importar(csv);
+
+        assertNotNull(estado);
+        assertTrue(csv.bytes > 64L * 1024 * 1024, "El CSV debe pesar más que el heap");
+        long limite = System.nanoTime() + TimeUnit.MINUTES.toNanos(10);
+        while (EstadoImportacion.EN_CURSO.equals(estado.getEstado())) {
+            assertTrue(System.nanoTime() < limite, "La importación no terminó");
+            Thread.sleep(200);
+            estado = importacionCsvService.obtener(estado.getIdImportacion()).orElseThrow();
+        }
+        int rechazadas = FILAS / 1000;
+        assertEquals(EstadoImportacion.COMPLETADA, estado.getEstado());
+        assertEquals(FILAS, estado.getFilasLeidas());
+        assertEquals(FILAS - rechazadas, estado.getCreados());
+        assertEquals(rechazadas, estado.getRechazados());
+        assertEquals(csv.bytes, estado.getBytesLeidos());
+        assertEquals(FILAS - rechazadas,
+                jdbcTemplate.queryForObject("SELECT COUNT(*) FROM inventario", Integer.class));
+    }
+
+    // Genera el encabezado y las filas sin guardarlas; una de cada mil tiene stock inválido
+    private static class GeneradorCsv extends InputStream {
+        private final int filas;
+        private int fila;
+        private byte[] actual = "idInventario,stockDisponible,ubicacionBodega,nota\n".getBytes(StandardCharsets.UTF_8);
+        private int posicion;
+        private long bytes;
+
+        private GeneradorCsv(int filas) {
+            this.filas = filas;
+        }
+
+        @Override
+        public int read() {
+            if (posicion == actual.length && !avanzar()) {
+                return -1;
+            }
+            bytes++;
+            return actual[posicion++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] destino, int desde, int largo) {
+            if (largo == 0) {
+                return 0;
+            }
+            if (posicion == actual.length && !avanzar()) {
+                return -1;
+            }
+            int copiados = Math.min(largo, actual.length - posicion);
+            System.arraycopy(actual, posicion, destino, desde, copiados);
+            posicion += copiados;
+            bytes += copiados;
+            return copiados;
+        }
+
+        private boolean avanzar() {
+            if (fila == filas) {
+                return false;
+            }
+            fila++;
+            String stock = fila % 1000 == 0 ? "x" : Integer.toString(fila % 500 + 1);
+            actual = ("," + stock + ",BOD-" + fila % 50 + "," + RELLENO + "\n").getBytes(StandardCharsets.UTF_8);
+            posicion = 0;
+            return true;
+        }
+    }
+}
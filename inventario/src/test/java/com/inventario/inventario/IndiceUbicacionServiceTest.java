@@ -0,0 +1,120 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.ModoBusqueda;
+import com.inventario.inventario.model.PaginaInventario;
+import com.inventario.inventario.repository.InventarioRepository;
+import com.inventario.inventario.service.IndiceUbicacionService;
+import com.inventario.inventario.service.InventarioService;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class IndiceUbicacionServiceTest {
+
+    private static final String[] UBICACIONES = {
+            "BOD-A-1 pasillo 3", "BOD-A-2 pasillo 30", "bod-b-1 Pasillo 3", "BOD-C-1 pasillo 7", "100% Bodega_Sur"
+    };
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private IndiceUbicacionService indiceUbicacion;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @BeforeEach
+    public void setup() {
+        inventarioRepository.deleteAllInBatch();
+        indiceUbicacion.reconstruir();
+        List<Inventario> carga = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            carga.add(new Inventario(0L, 10 + i, UBICACIONES[i % UBICACIONES.length], null));
+        }
+        inventarioService.cargarInventariosMasivo(carga.iterator());
+    }
+
+    @Test
+    public void testBuscar_PrefijoYSubcadenaSinDistinguirMayusculas() {
+        assertEquals(20, recorrer("bod-a-", ModoBusqueda.PREFIJO, 100).size());
+        assertEquals(0, recorrer("pasillo", ModoBusqueda.PREFIJO, 100).size());
+        // "pasillo 3" también está contenido en "pasillo 30"
+        assertEquals(30, recorrer("PASILLO 3", ModoBusqueda.CONTIENE, 100).size());
+        assertEquals(10, recorrer("_sur", ModoBusqueda.CONTIENE, 100).size());
+        assertEquals(10, recorrer("c-", ModoBusqueda.CONTIENE, 100).size());
+        assertEquals(0, recorrer("bodega norte", ModoBusqueda.CONTIENE, 100).size());
+    }
+
+    @Test
+    public void testBuscar_PaginasSinRepetirYEnOrden() {
+        List<Inventario> todos = recorrer("pasillo", ModoBusqueda.CONTIENE, 7);
+
+        assertEquals(40, todos.size());
+        List<Long> ids = todos.stream().map(Inventario::getIdInventario).collect(Collectors.toList());
+        assertEquals(ids.stream().sorted().distinct().collect(Collectors.toList()), ids);
+        assertTrue(todos.stream().allMatch(inventario -> inventario.getUbicacionBodega().toLowerCase().contains("pasillo")));
+    }
+
+    @Test
+    public void testBuscar_SeMantieneConCreacionesYEliminaciones() {
+        Inventario primero = recorrer("bod-c-1", ModoBusqueda.PREFIJO, 100).get(0);
+        assertEquals("Inventario eliminado correctamente", inventarioService.eliminarInventario(primero.getIdInventario()));
+        inventarioService.crearInventario(new Inventario(0L, 5, "BOD-Z nuevo pasillo 3", LocalDateTime.now()));
+
+        assertEquals(9, recorrer("bod-c-1", ModoBusqueda.PREFIJO, 100).size());
+        assertEquals(1, recorrer("nuevo", ModoBusqueda.CONTIENE, 100).size());
+        assertEquals(31, recorrer("pasillo 3", ModoBusqueda.CONTIENE, 100).size());
+    }
+
+    @Test
+    public void testBuscar_SinIndiceUsaLikeConLosMismosResultados() {
+        List<Inventario> conIndice = recorrer("pasillo 3", ModoBusqueda.CONTIENE, 8);
+        List<Inventario> conIndiceEscapes = recorrer("100%", ModoBusqueda.PREFIJO, 8);
+
+        ReflectionTestUtils.setField(indiceUbicacion, "activo", false);
+        try {
+            assertEquals(conIndice, recorrer("pasillo 3", ModoBusqueda.CONTIENE, 8));
+            // % y _ se buscan como caracteres, no como comodines de LIKE
+            assertEquals(conIndiceEscapes, recorrer("100%", ModoBusqueda.PREFIJO, 8));
+            assertEquals(0, recorrer("100%_", ModoBusqueda.PREFIJO, 8).size());
+        } finally {
+            ReflectionTestUtils.setField(indiceUbicacion, "activo", true);
+        }
+    }
+
+    @Test
+    public void testBuscar_TextoVacioEsInvalido() {
+        assertThrows(IllegalArgumentException.class,
+                () -> inventarioService.buscarPorUbicacion(" ", ModoBusqueda.CONTIENE, null, 10));
+        assertNull(inventarioService.buscarPorUbicacion("BOD-A-1", ModoBusqueda.PREFIJO, null, 100).getSiguienteCursor());
+    }
+
+    private List<Inventario> recorrer(String texto, ModoBusqueda modo, int limite) {
+        List<Inventario> resultado = new ArrayList<>();
+        String cursor = null;
+        do {
+            PaginaInventario pagina = inventarioService.buscarPorUbicacion(texto, modo, cursor, limite);
+            resultado.addAll(pagina.getInventarios());
+            cursor = pagina.getSiguienteCursor();
+        } while (cursor != null);
+        return resultado;
+    }
+}
@@ -0,0 +1,122 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.inventario.inventario.exception.StockInsuficienteException;
+import com.inventario.inventario.model.entity.InventarioEntity;
+import com.inventario.inventario.repository.InventarioRepository;
+import com.inventario.inventario.service.InventarioService;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class InventarioAjusteStockTest {
+
+    private static final int HILOS = 16;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    private long idInventario;
+
+    @BeforeEach
+    public void setup() {
+        inventarioRepository.deleteAllInBatch();
+        InventarioEntity entidad = new InventarioEntity();
+        entidad.setStockDisponible(1_000);
+        entidad.setUbicacionBodega("BOD-A");
+        entidad.setFechaUltimaActualizacion(LocalDateTime.now());
+        idInventario = inventarioRepository.save(entidad).getIdInventario();
+    }
+
+    @Test
+    public void testAjustarStock_ConcurrenteNoPierdeActualizaciones() throws Exception {
+        int ajustesPorHilo = 200;
+
+        // La mitad de los hilos suma 3 y la otra mitad descuenta 1 en cada ajuste
+        ejecutarEnParalelo(hilo -> {
+            int delta = hilo % 2 == 0 ? 3 : -1;
+            for (int i = 0; i < ajustesPorHilo; i++) {
+                inventarioService.ajustarStock(idInventario, delta);
+            }
+        });
+
+        int esperado = 1_000 + (HILOS / 2) * ajustesPorHilo * 3 - (HILOS / 2) * ajustesPorHilo;
+        assertEquals(esperado, inventarioRepository.findById(idInventario).orElseThrow().getStockDisponible());
+    }
+
+    @Test
+    public void testAjustarStock_ConcurrenteNuncaQuedaNegativo() throws Exception {
+        AtomicInteger aplicados = new AtomicInteger();
+        AtomicInteger rechazados = new AtomicInteger();
+
+        // 16 hilos intentan descontar 100 unidades cada uno sobre un stock de 1000
+        ejecutarEnParalelo(hilo -> {
+            for (int i = 0; i < 10; i++) {
+                try {
+                    inventarioService.ajustarStock(idInventario, -10);
+                    aplicados.incrementAndGet();
+                } catch (StockInsuficienteException e) {
+                    rechazados.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(100, aplicados.get());
+        assertEquals(HILOS * 10 - 100, rechazados.get());
+        assertEquals(0, inventarioRepository.findById(idInventario).orElseThrow().getStockDisponible());
+    }
+
+    @Test
+    public void testAjustarStock_DesbordeNoSeReportaComoStockInsuficiente() {
+        // 1000 + MAX_VALUE no cabe en un int: es un ajuste inválido, no falta de stock
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> inventarioService.ajustarStock(idInventario, Integer.MAX_VALUE));
+        assertEquals(InventarioService.STOCK_FUERA_DE_RANGO, error.getMessage());
+        assertEquals(1_000, inventarioRepository.findById(idInventario).orElseThrow().getStockDisponible());
+
+        assertEquals(Integer.MAX_VALUE, inventarioService.ajustarStock(idInventario, Integer.MAX_VALUE - 1_000));
+        assertThrows(IllegalArgumentException.class, () -> inventarioService.ajustarStock(idInventario, 1));
+        assertThrows(StockInsuficienteException.class,
+                () -> inventarioService.ajustarStock(idInventario, Integer.MIN_VALUE));
+    }
+
+    private void ejecutarEnParalelo(IntConsumer tarea) throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            futuros.add(hilos.submit(() -> {
+                inicio.await();
+                tarea.accept(hilo);
+                return null;
+            }));
+        }
+        inicio.countDown();
+        for (Future<?> futuro : futuros) {
+            futuro.get(60, TimeUnit.SECONDS);
+        }
+        hilos.shutdown();
+    }
+}
@@ -0,0 +1,82 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.ResultadoCargaMasiva;
+import com.inventario.inventario.model.entity.InventarioEntity;
+import com.inventario.inventario.repository.InventarioRepository;
+import com.inventario.inventario.service.InventarioService;
+
+@SpringBootTest(properties = "inventario.carga-masiva.tamano-lote=100")
+@ActiveProfiles("test")
+public class InventarioCargaMasivaTest {
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @BeforeEach
+    public void limpiar() {
+        inventarioRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void testCargaMasiva_CreaValidaYActualiza() {
+        InventarioEntity existente = new InventarioEntity();
+        existente.setStockDisponible(5);
+        existente.setUbicacionBodega("BOD-A");
+        existente.setFechaUltimaActualizacion(LocalDateTime.now());
+        existente = inventarioRepository.save(existente);
+
+        List<Inventario> carga = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            carga.add(new Inventario(0L, 10 + i, "BOD-A", null));
+        }
+        // Inválidos con las mismas reglas que crearInventario
+        carga.add(new Inventario(0L, 0, "BOD-A", null));
+        carga.add(new Inventario(0L, 10, " ", null));
+        // Id existente: se actualiza solo el stock
+        carga.add(new Inventario(existente.getIdInventario(), 99, "Otra bodega", null));
+
+        ResultadoCargaMasiva resultado = inventarioService.cargarInventariosMasivo(carga.iterator());
+
+        assertEquals(250, resultado.getCreados());
+        assertEquals(1, resultado.getActualizados());
+        assertEquals(2, resultado.getRechazados());
+        assertEquals(carga.size(), resultado.getResultados().size());
+        assertEquals("El stock disponible debes ingresarlo obligatoriamente",
+                resultado.getResultados().get(250).getMensaje());
+        assertEquals("La ubicación de bodega es obligatoria", resultado.getResultados().get(251).getMensaje());
+
+        // Los ids generados son únicos y las filas quedaron guardadas
+        Set<Long> ids = new HashSet<>();
+        for (ResultadoCargaMasiva.Item item : resultado.getResultados()) {
+            if (ResultadoCargaMasiva.CREADO.equals(item.getEstado())) {
+                assertTrue(item.getIdInventario() > existente.getIdInventario());
+                ids.add(item.getIdInventario());
+            }
+        }
+        assertEquals(250, ids.size());
+        assertEquals(251, inventarioRepository.count());
+
+        InventarioEntity actualizado = inventarioRepository.findById(existente.getIdInventario()).orElseThrow();
+        assertEquals(99, actualizado.getStockDisponible());
+        assertEquals("BOD-A", actualizado.getUbicacionBodega());
+    }
+}
@@ -0,0 +1,104 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.inventario.inventario.model.FormatoExportacion;
+import com.inventario.inventario.service.InventarioService;
+
+// Corre en su propia ejecución de surefire con -Xmx64m (ver pom.xml). La base H2 es de
+// archivo para que los datos no ocupen el heap: cargar todas las filas en una lista no
+// cabría, la exportación en streaming sí.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:file:./target/h2/exportacion;MODE=MySQL;CACHE_SIZE=8192",
+        "spring.jpa.hibernate.ddl-auto=create"
+})
+@ActiveProfiles("test")
+public class InventarioExportacionMemoriaTest {
+
+    private static final int FILAS = Integer.getInteger("exportacion.filas", 400_000);
+    private static final int LOTE = 5_000;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void cargarDatos() {
+        Integer existentes = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM inventario", Integer.class);
+        if (existentes != null && existentes == FILAS) {
+            return;
+        }
+        Timestamp fecha = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> lote = new ArrayList<>(LOTE);
+        for (int i = 1; i <= FILAS; i++) {
+            // Algunas ubicaciones llevan coma y comillas para probar el escape CSV
+            String ubicacion = i % 1000 == 0 ? "Bodega \"Central\", pasillo " + i : "BOD-" + (i % 50) + "-" + i;
+            lote.add(new Object[] { i, ubicacion, fecha });
+            if (lote.size() == LOTE) {
+                insertar(lote);
+                lote.clear();
+            }
+        }
+        insertar(lote);
+    }
+
+    private void insertar(List<Object[]> lote) {
+        jdbcTemplate.batchUpdate("INSERT INTO inventario (id_inventario, stock_disponible, ubicacion_bodega,"
+                + " fecha_ultima_actualizacion) VALUES (?, 10, ?, ?)", lote);
+    }
+
+    @Test
+    public void testExportarNdjson_TablaGrandeConHeapPequeno() throws Exception {
+        ContadorLineas salida = new ContadorLineas();
+
+        long filas = inventarioService.exportarInventarios(salida, FormatoExportacion.NDJSON);
+
+        assertEquals(FILAS, filas);
+        assertEquals(FILAS, salida.lineas);
+    }
+
+    @Test
+    public void testExportarCsv_TablaGrandeConHeapPequeno() throws Exception {
+        ContadorLineas salida = new ContadorLineas();
+
+        long filas = inventarioService.exportarInventarios(salida, FormatoExportacion.CSV);
+
+        assertEquals(FILAS, filas);
+        // Encabezado más una línea por fila, las ubicaciones escapadas no agregan saltos
+        assertEquals(FILAS + 1, salida.lineas);
+        assertTrue(salida.inicio.toString().startsWith("idInventario,stockDisponible,ubicacionBodega"));
+    }
+
+    // Cuenta saltos de línea sin guardar el contenido, salvo los primeros bytes
+    private static class ContadorLineas extends OutputStream {
+        private final ByteArrayOutputStream inicio = new ByteArrayOutputStream();
+        private long lineas;
+
+        @Override
+        public void write(int b) {
+            if (inicio.size() < 256) {
+                inicio.write(b);
+            }
+            if (b == '\n') {
+                lineas++;
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.inventario.inventario.metricas.MetricasPeticion;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+public class InventarioMetricasTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void testPrometheus_ExponeLatenciasConsultasYPool() throws Exception {
+        mockMvc.perform(get("/api/v1/inventarios").param("limite", "10")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/inventarios/{id}", 999_999)).andExpect(status().isNotFound());
+
+        String prometheus = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Histograma por operación del controlador y timers del servicio
+        assertTrue(prometheus.contains("http_server_requests_seconds_bucket{"));
+        assertTrue(prometheus.contains("uri=\"/api/v1/inventarios/{idInventario}\""));
+        assertTrue(prometheus.contains("inventario_servicio_seconds_bucket{"));
+        assertTrue(prometheus.contains("method=\"listarInventariosPaginado\""));
+        // Sentencias y entidades por petición, estadísticas de Hibernate y espera del pool
+        assertTrue(prometheus.contains("inventario_peticion_consultas_count{"));
+        assertTrue(prometheus.contains("inventario_peticion_entidades_cargadas_count{"));
+        assertTrue(prometheus.contains("hibernate_query_executions_total"));
+        assertTrue(prometheus.contains("hikaricp_connections_acquire_seconds_bucket{"));
+    }
+
+    @Test
+    public void testPeticionAsincrona_NoDejaContadoresEnElHilo() throws Exception {
+        // MockMvc atiende en el hilo del test; la exportación libera el hilo sin afterCompletion
+        mockMvc.perform(get("/api/v1/inventarios/exportar")).andExpect(request().asyncStarted());
+
+        assertNull(MetricasPeticion.terminar());
+    }
+}
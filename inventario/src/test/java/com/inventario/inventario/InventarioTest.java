@@ -2,13 +2,20 @@ package com.inventario.inventario;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
-//import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
@@ -20,17 +27,47 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.inventario.inventario.almacen.AlmacenJpa;
+import com.inventario.inventario.cache.InventarioCache;
+import com.inventario.inventario.event.InventarioEvento;
+import com.inventario.inventario.exception.StockInsuficienteException;
 import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.PaginaInventario;
 import com.inventario.inventario.model.entity.InventarioEntity;
 import com.inventario.inventario.repository.InventarioRepository;
+import com.inventario.inventario.repository.StockActual;
+import com.inventario.inventario.service.EscrituraDiferidaStock;
 import com.inventario.inventario.service.InventarioService;
 
+import jakarta.persistence.EntityManager;
+
 public class InventarioTest {
 
     @Mock
     private InventarioRepository inventarioRepository;
 
+    // Ejecuta los bloques transaccionales del servicio sin una base de datos real
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Spy
+    private InventarioCache inventarioCache = new InventarioCache(100, Duration.ofMinutes(1));
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    // Simulado con activa() en false: las escrituras van directo al repositorio
+    @Mock
+    private EscrituraDiferidaStock escrituraDiferida;
+
     @InjectMocks
     private InventarioService inventarioService;
 
@@ -40,6 +77,9 @@ public class InventarioTest {
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
+        // Motor JPA sobre el repositorio simulado
+        ReflectionTestUtils.setField(inventarioService, "almacen",
+                new AlmacenJpa(inventarioRepository, transactionTemplate, mock(EntityManager.class)));
 
         // Crear el modelo Inventario
         inventario = new Inventario(1L, 100, "Viña del Mar", LocalDateTime.now());
@@ -147,10 +187,10 @@ public class InventarioTest {
     @Test
     public void testObtenerInventarioPorUbicacion_Encontrado() {
         // Preparar datos de prueba
-        List<InventarioEntity> inventariosEncontrados = Arrays.asList(inventarioEntity);
+        List<Inventario> inventariosEncontrados = Arrays.asList(inventario);
 
         // Configurar el mock
-        when(inventarioRepository.findByUbicacionBodega("Viña del Mar"))
+        when(inventarioRepository.proyectarPorUbicacion("Viña del Mar"))
                 .thenReturn(inventariosEncontrados);
 
         // Ejecutar el método
@@ -161,13 +201,13 @@ public class InventarioTest {
         assertEquals(1, resultado.size());
         assertEquals("Viña del Mar", resultado.get(0).getUbicacionBodega());
         assertEquals(100, resultado.get(0).getStockDisponible());
-        verify(inventarioRepository).findByUbicacionBodega("Viña del Mar");
+        verify(inventarioRepository).proyectarPorUbicacion("Viña del Mar");
     }
 
     @Test
     public void testObtenerInventarioPorUbicacion_NoEncontrado() {
         // Configurar el mock para retornar lista vacía
-        when(inventarioRepository.findByUbicacionBodega("Ubicación Inexistente"))
+        when(inventarioRepository.proyectarPorUbicacion("Ubicación Inexistente"))
                 .thenReturn(Collections.emptyList());
 
         // Ejecutar el método
@@ -176,6 +216,149 @@ public class InventarioTest {
         // Verificar resultados
         assertNotNull(resultado);
         assertTrue(resultado.isEmpty());
-        verify(inventarioRepository).findByUbicacionBodega("Ubicación Inexistente");
+        verify(inventarioRepository).proyectarPorUbicacion("Ubicación Inexistente");
+    }
+
+    @Test
+    public void testListarInventariosPaginado_ConSiguientePagina() {
+        // Se piden 2 y el repositorio devuelve 3 filas: existe una página siguiente
+        when(inventarioRepository.buscarPagina(eq(0L), eq(null), eq(null), eq(Limit.of(3))))
+                .thenReturn(Arrays.asList(crearInventario(1L), crearInventario(2L), crearInventario(3L)));
+
+        PaginaInventario pagina = inventarioService.listarInventariosPaginado(null, 2, null, null, null);
+
+        assertEquals(2, pagina.getInventarios().size());
+        assertEquals(2L, pagina.getInventarios().get(1).getIdInventario());
+        assertNotNull(pagina.getSiguienteCursor());
+
+        // El cursor devuelto continúa después del último id entregado
+        when(inventarioRepository.buscarPagina(eq(2L), eq(null), eq(null), eq(Limit.of(3))))
+                .thenReturn(Arrays.asList(crearInventario(3L)));
+
+        PaginaInventario siguiente = inventarioService.listarInventariosPaginado(pagina.getSiguienteCursor(), 2,
+                null, null, null);
+
+        assertEquals(1, siguiente.getInventarios().size());
+        assertNull(siguiente.getSiguienteCursor());
+    }
+
+    @Test
+    public void testListarInventariosPaginado_PorUbicacionYLimiteMaximo() {
+        when(inventarioRepository.buscarPaginaPorUbicacion(eq("Viña del Mar"), eq(0L), eq(10), eq(null),
+                eq(Limit.of(InventarioService.LIMITE_MAXIMO + 1))))
+                .thenReturn(Arrays.asList(inventario));
+
+        PaginaInventario pagina = inventarioService.listarInventariosPaginado(null, 1_000_000, "Viña del Mar", 10,
+                null);
+
+        assertEquals(InventarioService.LIMITE_MAXIMO, pagina.getLimite());
+        assertEquals(1, pagina.getInventarios().size());
+        assertNull(pagina.getSiguienteCursor());
+    }
+
+    @Test
+    public void testListarInventariosPaginado_CursorInvalido() {
+        assertThrows(IllegalArgumentException.class,
+                () -> inventarioService.listarInventariosPaginado("no-es-un-cursor", 10, null, null, null));
+    }
+
+    @Test
+    public void testAjustarStock_Exitoso() {
+        when(inventarioRepository.ajustarStock(eq(1L), eq(-30L), any(LocalDateTime.class))).thenReturn(1);
+        StockActual actual = mock(StockActual.class);
+        when(actual.getStockDisponible()).thenReturn(70);
+        when(actual.getUbicacionBodega()).thenReturn("Viña del Mar");
+        when(inventarioRepository.buscarStockActual(1L)).thenReturn(Optional.of(actual));
+
+        Integer resultado = inventarioService.ajustarStock(1L, -30);
+
+        assertEquals(70, resultado);
+        verify(inventarioRepository).ajustarStock(eq(1L), eq(-30L), any(LocalDateTime.class));
+        verify(eventPublisher).publishEvent(any(InventarioEvento.class));
+    }
+
+    @Test
+    public void testAjustarStock_NoEncontrado() {
+        when(inventarioRepository.ajustarStock(anyLong(), eq(5L), any(LocalDateTime.class))).thenReturn(0);
+        when(inventarioRepository.buscarStockActual(99L)).thenReturn(Optional.empty());
+
+        assertNull(inventarioService.ajustarStock(99L, 5));
+    }
+
+    @Test
+    public void testAjustarStock_Insuficiente() {
+        when(inventarioRepository.ajustarStock(eq(1L), eq(-500L), any(LocalDateTime.class))).thenReturn(0);
+        StockActual actual = mock(StockActual.class);
+        when(actual.getStockDisponible()).thenReturn(100);
+        when(inventarioRepository.buscarStockActual(1L)).thenReturn(Optional.of(actual));
+
+        assertThrows(StockInsuficienteException.class, () -> inventarioService.ajustarStock(1L, -500));
+    }
+
+    @Test
+    public void testActualizarInventario_ConflictoDeVersion() {
+        inventarioEntity.setVersion(4L);
+        when(inventarioRepository.findById(1L)).thenReturn(Optional.of(inventarioEntity));
+
+        String resultado = inventarioService.actualizarInventario(1L, inventario, 3L);
+
+        assertEquals(InventarioService.CONFLICTO_VERSION, resultado);
+        verify(inventarioRepository, never()).save(any(InventarioEntity.class));
+    }
+
+    @Test
+    public void testActualizarInventario_ReintentaConflictoSinIfMatch() {
+        when(inventarioRepository.findById(1L)).thenReturn(Optional.of(inventarioEntity));
+        // El primer intento choca con otra escritura, el segundo se guarda
+        when(inventarioRepository.save(any(InventarioEntity.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(InventarioEntity.class, 1L))
+                .thenReturn(inventarioEntity);
+
+        String resultado = inventarioService.actualizarInventario(1L, inventario);
+
+        assertEquals("Stock actualizado correctamente", resultado);
+        verify(inventarioRepository, times(2)).save(any(InventarioEntity.class));
+        assertEquals(1L, inventarioService.getReintentosVersion());
+    }
+
+    @Test
+    public void testBorrarInventario_ConflictoDeVersion() {
+        inventarioEntity.setVersion(2L);
+        when(inventarioRepository.findById(1L)).thenReturn(Optional.of(inventarioEntity));
+
+        String resultado = inventarioService.eliminarInventario(1L, 1L);
+
+        assertEquals(InventarioService.CONFLICTO_VERSION, resultado);
+        verify(inventarioRepository, never()).delete(any(InventarioEntity.class));
+    }
+
+    @Test
+    public void testObtenerInventarioPorUbicacion_UsaCacheHastaInvalidar() {
+        when(inventarioRepository.proyectarPorUbicacion("Viña del Mar"))
+                .thenReturn(Arrays.asList(inventario));
+
+        inventarioService.obtenerInventarioPorUbicacion("Viña del Mar");
+        inventarioService.obtenerInventarioPorUbicacion("Viña del Mar");
+        verify(inventarioRepository, times(1)).proyectarPorUbicacion("Viña del Mar");
+
+        // Una escritura sobre la ubicación invalida solo esa llave
+        inventarioCache.alCambiarInventario(new InventarioEvento(InventarioEvento.Tipo.AJUSTADO, 1L,
+                "Viña del Mar", 100, 90, LocalDateTime.now(), 1L));
+        inventarioService.obtenerInventarioPorUbicacion("Viña del Mar");
+        verify(inventarioRepository, times(2)).proyectarPorUbicacion("Viña del Mar");
+    }
+
+    @Test
+    public void testObtenerInventario_PorIdCacheado() {
+        when(inventarioRepository.proyectarPorId(1L)).thenReturn(Optional.of(inventario));
+
+        assertTrue(inventarioService.obtenerInventario(1L).isPresent());
+        assertTrue(inventarioService.obtenerInventario(1L).isPresent());
+
+        verify(inventarioRepository, times(1)).proyectarPorId(1L);
+    }
+
+    private Inventario crearInventario(long idInventario) {
+        return new Inventario(idInventario, 10, "Viña del Mar", LocalDateTime.now());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,193 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.inventario.inventario.cache.RespuestasCache;
+import com.inventario.inventario.cache.VersionCambios;
+import com.inventario.inventario.model.FormatoRespuesta;
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.repository.InventarioRepository;
+import com.inventario.inventario.service.InventarioService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ListadoCondicionalTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @Autowired
+    private VersionCambios versionCambios;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RespuestasCache respuestasCache;
+
+    @BeforeEach
+    public void setup() {
+        // deleteAllInBatch no publica eventos, la versión se mueve a mano
+        inventarioRepository.deleteAllInBatch();
+        versionCambios.registrarCambio();
+    }
+
+    @Test
+    public void testListado_IfNoneMatchVigenteResponde304SinConsultarLaBase() throws Exception {
+        inventarioService.crearInventario(new Inventario(0L, 30, "COND-A", LocalDateTime.now()));
+
+        String etag = mockMvc.perform(get("/api/v1/inventarios"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals(versionCambios.actual().getEtag(), etag);
+
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long sentencias = estadisticas.getPrepareStatementCount();
+        mockMvc.perform(get("/api/v1/inventarios").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/v1/inventarios/ubicacion/{ubicacion}", "COND-A")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        // Sin If-None-Match la página sale de la instantánea serializada
+        mockMvc.perform(get("/api/v1/inventarios")).andExpect(status().isOk());
+        assertEquals(sentencias, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testListado_UnaEscrituraCambiaElEtagYElContenido() throws Exception {
+        inventarioService.crearInventario(new Inventario(0L, 30, "COND-B", LocalDateTime.now()));
+        String etag = mockMvc.perform(get("/api/v1/inventarios/ubicacion/{ubicacion}", "COND-B"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        long id = inventarioService.obtenerInventarioPorUbicacion("COND-B").get(0).getIdInventario();
+        inventarioService.ajustarStock(id, 7);
+
+        MockHttpServletResponse respuesta = mockMvc.perform(get("/api/v1/inventarios/ubicacion/{ubicacion}", "COND-B")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        assertNotEquals(etag, respuesta.getHeader(HttpHeaders.ETAG));
+        assertTrue(respuesta.getContentAsString().contains("\"stockDisponible\":37"));
+
+        // Una ubicación sin inventarios sigue respondiendo 404
+        mockMvc.perform(get("/api/v1/inventarios/ubicacion/{ubicacion}", "COND-VACIA"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testListado_GzipPrecomprimidoSiElClienteLoAcepta() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            inventarioService.crearInventario(new Inventario(0L, 10 + i, "COND-GZIP", LocalDateTime.now()));
+        }
+        byte[] plano = mockMvc.perform(get("/api/v1/inventarios"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        MockHttpServletResponse comprimida = mockMvc.perform(get("/api/v1/inventarios")
+                .header(HttpHeaders.ACCEPT_ENCODING, "br;q=1.0, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING))
+                .andReturn().getResponse();
+        assertNotNull(comprimida.getHeader(HttpHeaders.ETAG));
+        assertArrayEquals(plano, descomprimir(comprimida.getContentAsByteArray()));
+
+        mockMvc.perform(get("/api/v1/inventarios").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    private static byte[] descomprimir(byte[] gzip) throws IOException {
+        try (GZIPInputStream entrada = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return entrada.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testInstantanea_EsperanUnaSolaCargaPorVersion() throws Exception {
+        List<?> llave = List.of("prueba-espera");
+        AtomicInteger cargas = new AtomicInteger();
+        CountDownLatch cargando = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(5);
+        try {
+            // Una carga lenta de la versión 1 y cuatro peticiones que ya necesitan la versión 2
+            Future<RespuestasCache.Instantanea> vieja = hilos.submit(() -> respuestasCache.obtener(llave,
+                    FormatoRespuesta.JSON, 1, () -> {
+                        cargas.incrementAndGet();
+                        cargando.countDown();
+                        esperar(liberar);
+                        return List.of("v1");
+                    }));
+            assertTrue(cargando.await(10, TimeUnit.SECONDS));
+            List<Future<RespuestasCache.Instantanea>> nuevas = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                nuevas.add(hilos.submit(() -> respuestasCache.obtener(llave, FormatoRespuesta.JSON, 2, () -> {
+                    cargas.incrementAndGet();
+                    return List.of("v2");
+                })));
+            }
+            liberar.countDown();
+
+            assertEquals(1, vieja.get(10, TimeUnit.SECONDS).getVersion());
+            for (Future<RespuestasCache.Instantanea> nueva : nuevas) {
+                assertEquals(2, nueva.get(10, TimeUnit.SECONDS).getVersion());
+            }
+            assertEquals(2, cargas.get());
+        } finally {
+            liberar.countDown();
+            hilos.shutdown();
+        }
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
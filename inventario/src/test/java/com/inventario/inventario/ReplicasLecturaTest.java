@@ -0,0 +1,140 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.inventario.inventario.almacen.AlmacenInventario;
+import com.inventario.inventario.config.DataSourceEnrutado;
+import com.inventario.inventario.config.LecturaPropia;
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.service.InventarioService;
+
+// Dos bases H2 en memoria: el primario (tablas de Hibernate) y una réplica con la tabla
+// creada a mano, que no recibe las escrituras; así se distingue de dónde salió cada lectura.
+// La segunda réplica apunta a un puerto cerrado y queda fuera desde la revisión inicial.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replicas-primario;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "inventario.replicas.activo=true",
+        "inventario.replicas.seleccion=menos-ocupada",
+        "inventario.replicas.intervalo-salud=200ms",
+        "inventario.replicas.timeout-conexion=250ms",
+        "inventario.replicas.ventana-lectura-propia=1m"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ReplicasLecturaTest {
+
+    private static final String REPLICA = "jdbc:h2:mem:replicas-lectura;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA_CAIDA = "jdbc:h2:tcp://localhost:1/replicas-caida";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private AlmacenInventario almacen;
+
+    @Autowired
+    private DataSourceEnrutado dataSourceEnrutado;
+
+    @DynamicPropertySource
+    static void replicas(DynamicPropertyRegistry registro) throws SQLException {
+        ejecutarEnReplica("CREATE TABLE IF NOT EXISTS inventario (id_inventario BIGINT NOT NULL PRIMARY KEY,"
+                + " stock_disponible INT NOT NULL, ubicacion_bodega VARCHAR(255),"
+                + " fecha_ultima_actualizacion TIMESTAMP(6), version BIGINT DEFAULT 0 NOT NULL)");
+        // IFEXISTS: después del SHUTDOWN la réplica no se vuelve a crear vacía al reconectar
+        registro.add("inventario.replicas.urls", () -> REPLICA + ";IFEXISTS=TRUE," + REPLICA_CAIDA);
+    }
+
+    @Test
+    @Order(1)
+    public void testReplicas_LecturasVanALaReplicaYEscriturasAlPrimario() throws SQLException {
+        assertEquals(1, dataSourceEnrutado.replicasSanas());
+        inventarioService.crearInventario(new Inventario(0L, 10, "REP-A", LocalDateTime.now()));
+
+        long lecturasReplica = dataSourceEnrutado.conexiones("replica-1");
+        // La réplica no tiene la fila escrita en el primario
+        assertTrue(almacen.buscarPorUbicacion("REP-A").isEmpty());
+        assertEquals(lecturasReplica + 1, dataSourceEnrutado.conexiones("replica-1"));
+        assertEquals(0, dataSourceEnrutado.conexiones("replica-2"));
+
+        ejecutarEnReplica("INSERT INTO inventario (id_inventario, stock_disponible, ubicacion_bodega, version)"
+                + " VALUES (900001, 7, 'REP-A', 0)");
+        List<Inventario> leidos = almacen.buscarPorUbicacion("REP-A");
+        assertEquals(1, leidos.size());
+        assertEquals(900001L, leidos.get(0).getIdInventario());
+    }
+
+    @Test
+    @Order(2)
+    public void testReplicas_ClienteQueEscribioLeeDelPrimario() throws Exception {
+        mockMvc.perform(post("/api/v1/inventarios")
+                .header(LecturaPropia.ENCABEZADO_CLIENTE, "cliente-a")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"stockDisponible\": 5, \"ubicacionBodega\": \"REP-B\"}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/v1/inventarios/ubicacion/{ubicacion}", "REP-B")
+                .header(LecturaPropia.ENCABEZADO_CLIENTE, "cliente-a"))
+                .andExpect(status().isOk());
+        // Otro cliente lee de la réplica, que no tiene la fila
+        mockMvc.perform(get("/api/v1/inventarios/ubicacion/{ubicacion}", "REP-B")
+                .header(LecturaPropia.ENCABEZADO_CLIENTE, "cliente-b"))
+                .andExpect(status().isNotFound());
+        // La respuesta vacía cacheada para cliente-b no afecta a cliente-a
+        mockMvc.perform(get("/api/v1/inventarios/ubicacion/{ubicacion}", "REP-B")
+                .header(LecturaPropia.ENCABEZADO_CLIENTE, "cliente-a"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @Order(3)
+    public void testReplicas_SinReplicasSanasLeeDelPrimario() throws Exception {
+        inventarioService.crearInventario(new Inventario(0L, 3, "REP-C", LocalDateTime.now()));
+        assertTrue(almacen.buscarPorUbicacion("REP-C").isEmpty());
+
+        ejecutarEnReplica("SHUTDOWN");
+        long limite = System.currentTimeMillis() + 5_000;
+        while (dataSourceEnrutado.replicasSanas() > 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, dataSourceEnrutado.replicasSanas());
+
+        long lecturasPrimario = dataSourceEnrutado.conexiones(DataSourceEnrutado.PRIMARIO);
+        assertEquals(1, almacen.buscarPorUbicacion("REP-C").size());
+        assertTrue(dataSourceEnrutado.conexiones(DataSourceEnrutado.PRIMARIO) > lecturasPrimario);
+    }
+
+    private static void ejecutarEnReplica(String sql) throws SQLException {
+        try (Connection conexion = DriverManager.getConnection(REPLICA, "sa", "");
+                Statement sentencia = conexion.createStatement()) {
+            sentencia.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.inventario.inventario.event.InventarioEvento;
+import com.inventario.inventario.exception.StockInsuficienteException;
+import com.inventario.inventario.model.DisponibilidadStock;
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.Reserva;
+import com.inventario.inventario.model.entity.InventarioEntity;
+import com.inventario.inventario.repository.InventarioRepository;
+import com.inventario.inventario.repository.ReservaRepository;
+import com.inventario.inventario.service.InventarioService;
+import com.inventario.inventario.service.ReservaService;
+
+// La persistencia por lotes solo corre cuando la prueba la pide
+@SpringBootTest(properties = {
+        "inventario.reservas.tick=20ms",
+        "inventario.reservas.intervalo-persistencia=1h"
+})
+@ActiveProfiles("test")
+public class ReservaServiceTest {
+
+    private static final int HILOS = 16;
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    private long idInventario;
+
+    @BeforeEach
+    public void setup() {
+        reservaService.persistir();
+        reservaRepository.deleteAllInBatch();
+        InventarioEntity entidad = new InventarioEntity();
+        entidad.setStockDisponible(100);
+        entidad.setUbicacionBodega("BOD-RES");
+        entidad.setFechaUltimaActualizacion(LocalDateTime.now());
+        idInventario = inventarioRepository.save(entidad).getIdInventario();
+    }
+
+    @Test
+    public void testReservar_ConcurrenteNuncaVendeDeMas() throws Exception {
+        Queue<String> reservas = new ConcurrentLinkedQueue<>();
+        AtomicInteger rechazadas = new AtomicInteger();
+
+        // 16 hilos intentan 20 reservas de 1 unidad cada uno sobre un stock de 100
+        ejecutarEnParalelo(() -> {
+            for (int i = 0; i < 20; i++) {
+                try {
+                    reservas.add(reservaService.reservar(idInventario, 1, Duration.ofMinutes(5)).getIdReserva());
+                } catch (StockInsuficienteException e) {
+                    rechazadas.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(100, reservas.size());
+        assertEquals(HILOS * 20 - 100, rechazadas.get());
+        DisponibilidadStock disponibilidad = reservaService.obtenerDisponibilidad(idInventario).orElseThrow();
+        assertEquals(100, disponibilidad.getReservado());
+        assertEquals(0, disponibilidad.getDisponibleParaPrometer());
+
+        // Confirmar en paralelo todas las reservas deja el stock exactamente en 0
+        AtomicInteger confirmadas = new AtomicInteger();
+        ejecutarEnParalelo(() -> {
+            for (String idReserva = reservas.poll(); idReserva != null; idReserva = reservas.poll()) {
+                assertNotNull(reservaService.confirmar(idReserva));
+                confirmadas.incrementAndGet();
+            }
+        });
+
+        assertEquals(100, confirmadas.get());
+        assertEquals(0, inventarioRepository.findById(idInventario).orElseThrow().getStockDisponible());
+        disponibilidad = reservaService.obtenerDisponibilidad(idInventario).orElseThrow();
+        assertEquals(0, disponibilidad.getReservado());
+        assertEquals(0, disponibilidad.getStockDisponible());
+    }
+
+    @Test
+    public void testReservar_LiberarYVencer() throws Exception {
+        Reserva liberada = reservaService.reservar(idInventario, 30, Duration.ofMinutes(5));
+        Reserva corta = reservaService.reservar(idInventario, 50, Duration.ofMillis(100));
+        assertThrows(StockInsuficienteException.class,
+                () -> reservaService.reservar(idInventario, 21, Duration.ofMinutes(5)));
+
+        assertTrue(reservaService.liberar(liberada.getIdReserva()));
+        assertFalse(reservaService.liberar(liberada.getIdReserva()));
+        assertNull(reservaService.confirmar(liberada.getIdReserva()));
+        assertEquals(50, reservaService.obtenerDisponibilidad(idInventario).orElseThrow().getDisponibleParaPrometer());
+
+        // La rueda de vencimientos devuelve las unidades sin intervención
+        long limite = System.currentTimeMillis() + 5_000;
+        while (reservaService.obtenerDisponibilidad(idInventario).orElseThrow().getReservado() > 0
+                && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+        }
+        assertEquals(100, reservaService.obtenerDisponibilidad(idInventario).orElseThrow().getDisponibleParaPrometer());
+        assertNull(reservaService.confirmar(corta.getIdReserva()));
+        assertEquals(100, inventarioRepository.findById(idInventario).orElseThrow().getStockDisponible());
+
+        assertNull(reservaService.reservar(999_999L, 1, null));
+        assertThrows(IllegalArgumentException.class, () -> reservaService.reservar(idInventario, 0, null));
+    }
+
+    @Test
+    public void testPersistir_RecuperaReservasActivasAlReiniciar() {
+        Reserva activa = reservaService.reservar(idInventario, 40, Duration.ofMinutes(5));
+        Reserva liberada = reservaService.reservar(idInventario, 10, Duration.ofMinutes(5));
+        reservaService.liberar(liberada.getIdReserva());
+
+        reservaService.persistir();
+
+        // La reserva creada y liberada en el mismo lote no llega a la base de datos
+        assertEquals(1, reservaRepository.count());
+        assertTrue(reservaRepository.existsById(activa.getIdReserva()));
+
+        // Una instancia nueva simula el reinicio y reconstruye las reservas desde la base
+        ReservaService reiniciado = beanFactory.createBean(ReservaService.class);
+        try {
+            assertEquals(40, reiniciado.obtenerReserva(activa.getIdReserva()).orElseThrow().getCantidad());
+            DisponibilidadStock disponibilidad = reiniciado.obtenerDisponibilidad(idInventario).orElseThrow();
+            assertEquals(40, disponibilidad.getReservado());
+            assertEquals(60, disponibilidad.getDisponibleParaPrometer());
+        } finally {
+            beanFactory.destroyBean(reiniciado);
+        }
+    }
+
+    @Test
+    public void testDisponibilidad_CambiosDuranteLaPrimeraCarga() {
+        // Instancia propia: los eventos se le entregan a mano, en el orden que prueba cada caso
+        ReservaService reservas = beanFactory.createBean(ReservaService.class);
+        InventarioService lectura = mock(InventarioService.class);
+        ReflectionTestUtils.setField(reservas, "inventarioService", lectura);
+        List<InventarioEvento> tardios = new ArrayList<>();
+        try {
+            // Un ajuste se confirma después de la lectura y su evento llega antes de cargar
+            doAnswer(invocacion -> {
+                Optional<Inventario> leido = inventarioService.obtenerInventarioConfirmado(idInventario);
+                inventarioService.ajustarStock(idInventario, -30);
+                reservas.alCambiarInventario(evento(-30));
+                return leido;
+            }).when(lectura).obtenerInventarioConfirmado(anyLong());
+            assertEquals(70, reservas.obtenerDisponibilidad(idInventario).orElseThrow().getStockDisponible());
+
+            // Un ajuste confirmado antes de la lectura cuyo evento llega después de cargar
+            reservas.alCambiarInventario(new InventarioEvento(InventarioEvento.Tipo.ELIMINADO, idInventario,
+                    "BOD-RES", 70, 0, LocalDateTime.now(), 0));
+            doAnswer(invocacion -> {
+                inventarioService.ajustarStock(idInventario, -20);
+                tardios.add(evento(-20));
+                return inventarioService.obtenerInventarioConfirmado(idInventario);
+            }).when(lectura).obtenerInventarioConfirmado(anyLong());
+            assertEquals(50, reservas.obtenerDisponibilidad(idInventario).orElseThrow().getStockDisponible());
+            tardios.forEach(reservas::alCambiarInventario);
+            assertEquals(50, reservas.obtenerDisponibilidad(idInventario).orElseThrow().getStockDisponible());
+
+            // Los cambios posteriores a la carga se siguen sumando
+            inventarioService.ajustarStock(idInventario, 5);
+            reservas.alCambiarInventario(evento(5));
+            assertEquals(55, reservas.obtenerDisponibilidad(idInventario).orElseThrow().getStockDisponible());
+        } finally {
+            beanFactory.destroyBean(reservas);
+        }
+    }
+
+    @Test
+    public void testDisponibilidad_IdsInexistentesNoQuedanEnMemoria() {
+        ReservaService reservas = beanFactory.createBean(ReservaService.class);
+        try {
+            for (long id = 1_000_000; id < 1_000_100; id++) {
+                assertTrue(reservas.obtenerDisponibilidad(id).isEmpty());
+                assertNull(reservas.reservar(id, 1, null));
+            }
+            Map<?, ?> disponibilidades = (Map<?, ?>) ReflectionTestUtils.getField(reservas, "disponibilidades");
+            assertTrue(disponibilidades.isEmpty());
+        } finally {
+            beanFactory.destroyBean(reservas);
+        }
+    }
+
+    // Evento del último ajuste, con la versión que dejó en la fila
+    private InventarioEvento evento(int delta) {
+        Inventario actual = inventarioService.obtenerInventarioConfirmado(idInventario).orElseThrow();
+        return new InventarioEvento(InventarioEvento.Tipo.AJUSTADO, idInventario, actual.getUbicacionBodega(),
+                actual.getStockDisponible() - delta, actual.getStockDisponible(), LocalDateTime.now(),
+                actual.getVersion());
+    }
+
+    private void ejecutarEnParalelo(Runnable tarea) throws Exception {
+        ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch inicio = new CountDownLatch(1);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int i = 0; i < HILOS; i++) {
+                tareas.add(ejecutor.submit(() -> {
+                    inicio.await();
+                    tarea.run();
+                    return null;
+                }));
+            }
+            inicio.countDown();
+            for (Future<?> futura : tareas) {
+                futura.get();
+            }
+        } finally {
+            ejecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventario.inventario.cache.VersionCambios;
+import com.inventario.inventario.config.MapeadorSmile;
+import com.inventario.inventario.model.FormatoRespuesta;
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.PaginaInventario;
+import com.inventario.inventario.model.entity.InventarioEntity;
+import com.inventario.inventario.repository.InventarioRepository;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class RespuestaSmileTest {
+
+    private static final String SMILE = "application/x-jackson-smile";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @Autowired
+    private VersionCambios versionCambios;
+
+    @Autowired
+    private MapeadorSmile mapeadorSmile;
+
+    private final LocalDateTime fecha = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+
+    @BeforeEach
+    public void setup() {
+        // deleteAllInBatch no publica eventos, la versión se mueve a mano
+        inventarioRepository.deleteAllInBatch();
+        List<InventarioEntity> entidades = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            InventarioEntity entidad = new InventarioEntity();
+            entidad.setStockDisponible(10 + i);
+            entidad.setUbicacionBodega("SMILE-" + (i % 2));
+            entidad.setFechaUltimaActualizacion(fecha);
+            entidades.add(entidad);
+        }
+        inventarioRepository.saveAll(entidades);
+        versionCambios.registrarCambio();
+    }
+
+    @Test
+    public void testListado_AcceptSmileRespondeSmileConSuPropioEtag() throws Exception {
+        ObjectMapper smile = mapeadorSmile.getMapper();
+        MockHttpServletResponse respuestaSmile = mockMvc.perform(get("/api/v1/inventarios")
+                .param("limite", "50")
+                .header(HttpHeaders.ACCEPT, SMILE + ", application/json;q=0.5"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, SMILE))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING))
+                .andReturn().getResponse();
+        PaginaInventario pagina = smile.readValue(respuestaSmile.getContentAsByteArray(), PaginaInventario.class);
+        assertEquals(50, pagina.getInventarios().size());
+        assertEquals(fecha, pagina.getInventarios().get(0).getFechaUltimaActualizacion());
+
+        MockHttpServletResponse respuestaJson = mockMvc.perform(get("/api/v1/inventarios").param("limite", "50"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/json"))
+                .andReturn().getResponse();
+        assertTrue(respuestaSmile.getContentAsByteArray().length < respuestaJson.getContentAsByteArray().length / 2);
+
+        String etagSmile = respuestaSmile.getHeader(HttpHeaders.ETAG);
+        assertEquals(FormatoRespuesta.SMILE.etag(versionCambios.actual().getVersion()), etagSmile);
+        assertNotEquals(respuestaJson.getHeader(HttpHeaders.ETAG), etagSmile);
+        mockMvc.perform(get("/api/v1/inventarios").param("limite", "50")
+                .header(HttpHeaders.ACCEPT, SMILE)
+                .header(HttpHeaders.IF_NONE_MATCH, etagSmile))
+                .andExpect(status().isNotModified());
+        // El ETag de JSON no valida la representación Smile
+        mockMvc.perform(get("/api/v1/inventarios").param("limite", "50")
+                .header(HttpHeaders.ACCEPT, SMILE)
+                .header(HttpHeaders.IF_NONE_MATCH, respuestaJson.getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isOk());
+
+        byte[] porUbicacion = mockMvc.perform(get("/api/v1/inventarios/ubicacion/{ubicacion}", "SMILE-1")
+                .header(HttpHeaders.ACCEPT, SMILE))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        List<Inventario> inventarios = smile.readValue(porUbicacion, new TypeReference<List<Inventario>>() {
+        });
+        assertEquals(25, inventarios.size());
+        assertEquals("SMILE-1", inventarios.get(24).getUbicacionBodega());
+    }
+
+    @Test
+    public void testExportar_AcceptSmileEscribeUnaSecuenciaDeValores() throws Exception {
+        MvcResult resultado = mockMvc.perform(get("/api/v1/inventarios/exportar").header(HttpHeaders.ACCEPT, SMILE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] cuerpo = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<Inventario> inventarios = new ArrayList<>();
+        try (MappingIterator<Inventario> valores = mapeadorSmile.getMapper().readerFor(Inventario.class)
+                .readValues(cuerpo)) {
+            valores.forEachRemaining(inventarios::add);
+        }
+        assertEquals(50, inventarios.size());
+        assertEquals(59, inventarios.get(49).getStockDisponible());
+
+        assertEquals(FormatoRespuesta.JSON, FormatoRespuesta.negociar("*/*"));
+        assertEquals(FormatoRespuesta.JSON, FormatoRespuesta.negociar("application/json, " + SMILE + ";q=0.9"));
+        assertEquals(FormatoRespuesta.SMILE, FormatoRespuesta.negociar(SMILE + ", */*"));
+        assertEquals(FormatoRespuesta.JSON, FormatoRespuesta.negociar("no es un tipo"));
+    }
+}
@@ -0,0 +1,112 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.inventario.inventario.model.Inventario;
+import com.inventario.inventario.model.ResumenBodega;
+import com.inventario.inventario.model.VerificacionResumen;
+import com.inventario.inventario.repository.InventarioRepository;
+import com.inventario.inventario.service.InventarioService;
+import com.inventario.inventario.service.ResumenStockService;
+
+@SpringBootTest(properties = "inventario.stock-bajo.umbral=10")
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class ResumenStockServiceTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private ResumenStockService resumenStockService;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setup() {
+        inventarioRepository.deleteAllInBatch();
+        resumenStockService.reconstruir();
+    }
+
+    @Test
+    public void testResumen_SeMantieneConCadaEscritura() {
+        inventarioService.crearInventario(new Inventario(0L, 50, "BOD-A", LocalDateTime.now()));
+        inventarioService.crearInventario(new Inventario(0L, 5, "BOD-A", LocalDateTime.now()));
+        inventarioService.cargarInventariosMasivo(List.of(
+                new Inventario(0L, 20, "BOD-B", null),
+                new Inventario(0L, 8, "BOD-B", null)).iterator());
+
+        long idA = inventarioService.obtenerInventarioPorUbicacion("BOD-A").stream()
+                .filter(inventario -> inventario.getStockDisponible() == 50)
+                .findFirst().orElseThrow().getIdInventario();
+        long idB = inventarioService.obtenerInventarioPorUbicacion("BOD-B").get(0).getIdInventario();
+
+        // 50 -> 9 deja al SKU en stock bajo, luego se suma 1
+        inventarioService.actualizarInventario(idA, new Inventario(0L, 9, null, null));
+        inventarioService.ajustarStock(idA, 1);
+        inventarioService.eliminarInventario(idB);
+
+        ResumenBodega bodegaA = resumenStockService.obtenerResumen("BOD-A").orElseThrow();
+        assertEquals(15, bodegaA.getStockTotal());
+        assertEquals(2, bodegaA.getCantidadSkus());
+        assertEquals(2, bodegaA.getSkusStockBajo());
+
+        ResumenBodega bodegaB = resumenStockService.obtenerResumen("BOD-B").orElseThrow();
+        assertEquals(1, bodegaB.getCantidadSkus());
+
+        VerificacionResumen verificacion = resumenStockService.verificarConsistencia();
+        assertTrue(verificacion.isConsistente(), verificacion.getDiferencias().toString());
+        assertEquals(2, verificacion.getBodegasRevisadas());
+    }
+
+    @Test
+    public void testVerificacion_DetectaCambiosFueraDelServicio() {
+        inventarioService.crearInventario(new Inventario(0L, 50, "BOD-C", LocalDateTime.now()));
+
+        // Un cambio directo en la base no publica eventos
+        jdbcTemplate.update("UPDATE inventario SET stock_disponible = 1 WHERE ubicacion_bodega = 'BOD-C'");
+
+        VerificacionResumen verificacion = resumenStockService.verificarConsistencia();
+        assertFalse(verificacion.isConsistente());
+        assertEquals(1, verificacion.getDiferencias().size());
+
+        resumenStockService.reconstruir();
+        assertTrue(resumenStockService.verificarConsistencia().isConsistente());
+    }
+
+    @Test
+    public void testControlador_VerificacionNoTapaUnaBodegaConEseNombre() throws Exception {
+        inventarioService.crearInventario(new Inventario(0L, 7, "verificacion", LocalDateTime.now()));
+
+        mockMvc.perform(get("/api/v1/inventarios/agregados/verificacion"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stockTotal").value(7));
+        mockMvc.perform(get("/api/v1/inventarios/verificaciones/agregados"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.consistente").value(true));
+    }
+}
@@ -0,0 +1,151 @@
+package com.inventario.inventario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.inventario.inventario.exception.StockInsuficienteException;
+import com.inventario.inventario.model.MovimientoStock;
+import com.inventario.inventario.model.entity.InventarioEntity;
+import com.inventario.inventario.repository.InventarioRepository;
+import com.inventario.inventario.service.InventarioService;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class TransferenciaStockTest {
+
+    private static final int HILOS = 16;
+    private static final int INVENTARIOS = 12;
+    private static final int STOCK_INICIAL = 100;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    private long[] ids;
+
+    @BeforeEach
+    public void setup() {
+        inventarioRepository.deleteAllInBatch();
+        ids = new long[INVENTARIOS];
+        for (int i = 0; i < INVENTARIOS; i++) {
+            InventarioEntity entidad = new InventarioEntity();
+            entidad.setStockDisponible(STOCK_INICIAL);
+            entidad.setUbicacionBodega("BOD-" + (i % 3));
+            entidad.setFechaUltimaActualizacion(LocalDateTime.now());
+            ids[i] = inventarioRepository.save(entidad).getIdInventario();
+        }
+    }
+
+    @Test
+    public void testTransferirStock_ConcurrenteConservaElStockTotal() throws Exception {
+        int transferenciasPorHilo = 60;
+        AtomicInteger aplicadas = new AtomicInteger();
+        AtomicInteger rechazadas = new AtomicInteger();
+
+        // Lotes de 5 movimientos al azar entre pocos inventarios: casi todos se superponen y
+        // cada lote bloquea sus filas en un orden distinto al de los movimientos
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            Random azar = new Random(h);
+            futuros.add(hilos.submit(() -> {
+                inicio.await();
+                for (int t = 0; t < transferenciasPorHilo; t++) {
+                    List<MovimientoStock> movimientos = new ArrayList<>();
+                    for (int m = 0; m < 5; m++) {
+                        int origen = azar.nextInt(INVENTARIOS);
+                        int destino = (origen + 1 + azar.nextInt(INVENTARIOS - 1)) % INVENTARIOS;
+                        movimientos.add(new MovimientoStock(ids[origen], ids[destino], 1 + azar.nextInt(40)));
+                    }
+                    try {
+                        inventarioService.transferirStock(movimientos);
+                        aplicadas.incrementAndGet();
+                    } catch (StockInsuficienteException e) {
+                        rechazadas.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        inicio.countDown();
+        for (Future<?> futuro : futuros) {
+            futuro.get(120, TimeUnit.SECONDS);
+        }
+        hilos.shutdown();
+
+        assertEquals(HILOS * transferenciasPorHilo, aplicadas.get() + rechazadas.get());
+        assertTrue(aplicadas.get() > 0);
+        List<InventarioEntity> finales = inventarioRepository.findAll();
+        assertEquals(INVENTARIOS * STOCK_INICIAL, finales.stream().mapToInt(InventarioEntity::getStockDisponible).sum());
+        assertTrue(finales.stream().allMatch(entidad -> entidad.getStockDisponible() >= 0));
+    }
+
+    @Test
+    public void testTransferirStock_StockInsuficienteNoAplicaNingunMovimiento() throws Exception {
+        String cuerpo = "{\"movimientos\": ["
+                + "{\"idOrigen\": " + ids[0] + ", \"idDestino\": " + ids[1] + ", \"cantidad\": 30},"
+                + "{\"idOrigen\": " + ids[2] + ", \"idDestino\": " + ids[1] + ", \"cantidad\": 101}]}";
+        mockMvc.perform(post("/api/v1/inventarios/transferencias")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(cuerpo))
+                .andExpect(status().isConflict());
+        assertEquals(STOCK_INICIAL, inventarioRepository.findById(ids[0]).orElseThrow().getStockDisponible());
+        assertEquals(STOCK_INICIAL, inventarioRepository.findById(ids[1]).orElseThrow().getStockDisponible());
+
+        // Los movimientos de un mismo inventario se suman: entra 50 y sale 120 del destino
+        cuerpo = "{\"movimientos\": ["
+                + "{\"idOrigen\": " + ids[0] + ", \"idDestino\": " + ids[1] + ", \"cantidad\": 50},"
+                + "{\"idOrigen\": " + ids[1] + ", \"idDestino\": " + ids[2] + ", \"cantidad\": 120}]}";
+        mockMvc.perform(post("/api/v1/inventarios/transferencias")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(cuerpo))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inventarios.length()").value(3))
+                .andExpect(jsonPath("$.inventarios[0].stockDisponible").value(50))
+                .andExpect(jsonPath("$.inventarios[1].stockDisponible").value(30))
+                .andExpect(jsonPath("$.inventarios[2].stockDisponible").value(220))
+                .andExpect(jsonPath("$.inventarios[2].version").value(1));
+
+        mockMvc.perform(post("/api/v1/inventarios/transferencias")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"movimientos\": [{\"idOrigen\": " + ids[0] + ", \"idDestino\": 999999, \"cantidad\": 1}]}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/v1/inventarios/transferencias")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"movimientos\": [{\"idOrigen\": " + ids[0] + ", \"idDestino\": " + ids[0]
+                        + ", \"cantidad\": 1}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("El origen y el destino de un movimiento deben ser distintos"));
+        assertEquals(50, inventarioRepository.findById(ids[0]).orElseThrow().getStockDisponible());
+    }
+}